@@ -587,22 +587,22 @@ class TestCqlshCompletion(CqlshCompletionCase):
         self.trycompletions(prefix + ' new_table (col_a int PRIMARY KEY) W',
                             immediate='ITH ')
         self.trycompletions(prefix + ' new_table (col_a int PRIMARY KEY) WITH ',
-                            choices=['bloom_filter_fp_chance', 'compaction',
+                            choices=['bloom_filter_fp_chance', 'bloom_filter_type', 'compaction',
                                      'compression',
                                      'dclocal_read_repair_chance',
                                      'default_time_to_live', 'gc_grace_seconds',
                                      'max_index_interval',
-                                     'memtable_flush_period_in_ms',
+                                     'memtable_flush_period_in_ms', 'memtable_shards',
                                      'read_repair_chance', 'CLUSTERING',
                                      'COMPACT', 'caching', 'comment',
                                      'min_index_interval', 'speculative_retry'])
         self.trycompletions(prefix + ' new_table (col_a int PRIMARY KEY) WITH ',
-                            choices=['bloom_filter_fp_chance', 'compaction',
+                            choices=['bloom_filter_fp_chance', 'bloom_filter_type', 'compaction',
                                      'compression',
                                      'dclocal_read_repair_chance',
                                      'default_time_to_live', 'gc_grace_seconds',
                                      'max_index_interval',
-                                     'memtable_flush_period_in_ms',
+                                     'memtable_flush_period_in_ms', 'memtable_shards',
                                      'read_repair_chance', 'CLUSTERING',
                                      'COMPACT', 'caching', 'comment',
                                      'min_index_interval', 'speculative_retry'])
@@ -644,12 +644,12 @@ class TestCqlshCompletion(CqlshCompletionCase):
                             choices=[';', 'AND'])
         self.trycompletions(prefix + " new_table (col_a int PRIMARY KEY) WITH compaction = "
                             + "{'class': 'SizeTieredCompactionStrategy'} AND ",
-                            choices=['bloom_filter_fp_chance', 'compaction',
+                            choices=['bloom_filter_fp_chance', 'bloom_filter_type', 'compaction',
                                      'compression',
                                      'dclocal_read_repair_chance',
                                      'default_time_to_live', 'gc_grace_seconds',
                                      'max_index_interval',
-                                     'memtable_flush_period_in_ms',
+                                     'memtable_flush_period_in_ms', 'memtable_shards',
                                      'read_repair_chance', 'CLUSTERING',
                                      'COMPACT', 'caching', 'comment',
                                      'min_index_interval', 'speculative_retry'])
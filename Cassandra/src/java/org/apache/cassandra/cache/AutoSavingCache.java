@@ -20,10 +20,12 @@ package org.apache.cassandra.cache;
 import java.io.*;
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 import org.cliffc.high_scale_lib.NonBlockingHashSet;
 import org.slf4j.Logger;
@@ -33,6 +35,7 @@ import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 
+import org.apache.cassandra.concurrent.NamedThreadFactory;
 import org.apache.cassandra.concurrent.ScheduledExecutors;
 import org.apache.cassandra.config.CFMetaData;
 import org.apache.cassandra.config.DatabaseDescriptor;
@@ -47,6 +50,7 @@ import org.apache.cassandra.io.FSWriteError;
 import org.apache.cassandra.io.util.*;
 import org.apache.cassandra.io.util.ChecksummedRandomAccessReader.CorruptFileException;
 import org.apache.cassandra.service.CacheService;
+import org.apache.cassandra.utils.FBUtilities;
 import org.apache.cassandra.utils.JVMStabilityInspector;
 import org.apache.cassandra.utils.Pair;
 import org.apache.cassandra.utils.UUIDGen;
@@ -69,14 +73,21 @@ public class AutoSavingCache<K extends CacheKey, V> extends InstrumentingCache<K
 
     private final CacheSerializer<K, V> cacheLoader;
 
+    /** The tables whose entries changed since the last save, and so whose saved file is stale. */
+    private final Set<Pair<String, String>> changedTables = new NonBlockingHashSet<>();
+    /** True if the saved files of all tables are stale, e.g. after clear() or a save of the hottest keys only. */
+    private volatile boolean allTablesChanged = false;
+
     /*
      * CASSANDRA-10155 required a format change to fix 2i indexes and caching.
      * 2.2 is already at version "c" and 3.0 is at "d".
      *
      * Since cache versions match exactly and there is no partial fallback just add
      * a minor version letter.
+     *
+     * "cb" saves each table to a file of its own, headed by the table id rather than the schema version.
      */
-    private static final String CURRENT_VERSION = "ca";
+    private static final String CURRENT_VERSION = "cb";
 
     private static volatile IStreamFactory streamFactory = new IStreamFactory()
     {
@@ -114,6 +125,16 @@ public class AutoSavingCache<K extends CacheKey, V> extends InstrumentingCache<K
         return DatabaseDescriptor.getSerializedCachePath( cacheType, version, "crc");
     }
 
+    public File getCacheDataPath(Pair<String, String> ksAndCFName, String version)
+    {
+        return DatabaseDescriptor.getSerializedCachePath(ksAndCFName.left, ksAndCFName.right, cacheType, version, "db");
+    }
+
+    public File getCacheCrcPath(Pair<String, String> ksAndCFName, String version)
+    {
+        return DatabaseDescriptor.getSerializedCachePath(ksAndCFName.left, ksAndCFName.right, cacheType, version, "crc");
+    }
+
     public Writer getWriter(int keysToSave)
     {
         return new Writer(keysToSave);
@@ -171,97 +192,231 @@ public class AutoSavingCache<K extends CacheKey, V> extends InstrumentingCache<K
         return cacheLoad;
     }
 
+    /**
+     * Loads the saved entries of every table, one file per table, on a pool of up to one thread per core. Loading
+     * gives up once cache_load_timeout_seconds is spent, keeping the entries loaded so far, and is skipped entirely
+     * if the timeout is negative.
+     */
     public int loadSaved()
     {
-        int count = 0;
+        int timeout = DatabaseDescriptor.getCacheLoadTimeout();
+        if (timeout < 0)
+        {
+            logger.info("Skipping loading of saved {}, cache_load_timeout_seconds is negative", cacheType);
+            // the files are left behind, so rewrite them all on the next save
+            allTablesChanged = true;
+            return 0;
+        }
+
         long start = System.nanoTime();
+        final long deadline = start + TimeUnit.SECONDS.toNanos(timeout);
+        Map<Pair<String, String>, File> files = savedCacheFiles();
+        if (files.isEmpty())
+            return 0;
 
-        // modern format, allows both key and value (so key cache load can be purely sequential)
-        File dataPath = getCacheDataPath(CURRENT_VERSION);
-        File crcPath = getCacheCrcPath(CURRENT_VERSION);
-        if (dataPath.exists() && crcPath.exists())
+        int count = 0;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(files.size(), FBUtilities.getAvailableProcessors()),
+                                                                new NamedThreadFactory(cacheType + "Loader"));
+        try
         {
-            DataInputStream in = null;
-            try
+            List<Future<Integer>> loads = new ArrayList<>(files.size());
+            for (final Map.Entry<Pair<String, String>, File> file : files.entrySet())
             {
-                logger.info(String.format("reading saved cache %s", dataPath));
-                in = new DataInputStream(new LengthAvailableInputStream(new BufferedInputStream(streamFactory.getInputStream(dataPath, crcPath)), dataPath.length()));
-
-                //Check the schema has not changed since CFs are looked up by name which is ambiguous
-                UUID schemaVersion = new UUID(in.readLong(), in.readLong());
-                if (!schemaVersion.equals(Schema.instance.getVersion()))
-                    throw new RuntimeException("Cache schema version "
-                                              + schemaVersion.toString()
-                                              + " does not match current schema version "
-                                              + Schema.instance.getVersion());
-
-                ArrayDeque<Future<Pair<K, V>>> futures = new ArrayDeque<Future<Pair<K, V>>>();
-                while (in.available() > 0)
+                loads.add(executor.submit(new Callable<Integer>()
                 {
-                    //ksname and cfname are serialized by the serializers in CacheService
-                    //That is delegated there because there are serializer specific conditions
-                    //where a cache key is skipped and not written
-                    String ksname = in.readUTF();
-                    String cfname = in.readUTF();
-
-                    ColumnFamilyStore cfs = Schema.instance.getColumnFamilyStoreIncludingIndexes(Pair.create(ksname, cfname));
+                    public Integer call()
+                    {
+                        return loadSaved(file.getKey(), file.getValue(), deadline);
+                    }
+                }));
+            }
+            for (Future<Integer> load : loads)
+                count += FBUtilities.waitOnFuture(load);
+        }
+        finally
+        {
+            executor.shutdown();
+            cacheLoader.cleanupAfterDeserialize();
+        }
 
-                    Future<Pair<K, V>> entryFuture = cacheLoader.deserialize(in, cfs);
-                    // Key cache entry can return null, if the SSTable doesn't exist.
-                    if (entryFuture == null)
-                        continue;
+        long elapsed = System.nanoTime() - start;
+        if (start + elapsed > deadline)
+            logger.warn("Loading of saved {} timed out after {} s with {} keys loaded, the rest is skipped",
+                        cacheType, timeout, count);
+        getMetrics().loadTime.update(elapsed, TimeUnit.NANOSECONDS);
+        if (logger.isTraceEnabled())
+            logger.trace("completed reading ({} ms; {} keys) saved {}",
+                    TimeUnit.NANOSECONDS.toMillis(elapsed), count, cacheType);
+        return count;
+    }
 
-                    futures.offer(entryFuture);
-                    count++;
+    private int loadSaved(Pair<String, String> ksAndCFName, File dataPath, long deadline)
+    {
+        int count = 0;
+        File crcPath = getCacheCrcPath(ksAndCFName, CURRENT_VERSION);
+        if (!crcPath.exists())
+            return count;
 
-                    /*
-                     * Kind of unwise to accrue an unbounded number of pending futures
-                     * So now there is this loop to keep a bounded number pending.
-                     */
-                    do
-                    {
-                        while (futures.peek() != null && futures.peek().isDone())
-                        {
-                            Future<Pair<K, V>> future = futures.poll();
-                            Pair<K, V> entry = future.get();
-                            if (entry != null && entry.right != null)
-                                put(entry.left, entry.right);
-                        }
-
-                        if (futures.size() > 1000)
-                            Thread.yield();
-                    } while(futures.size() > 1000);
-                }
+        DataInputStream in = null;
+        try
+        {
+            logger.debug("reading saved cache {}", dataPath);
+            in = new DataInputStream(new LengthAvailableInputStream(new BufferedInputStream(streamFactory.getInputStream(dataPath, crcPath)), dataPath.length()));
 
-                Future<Pair<K, V>> future = null;
-                while ((future = futures.poll()) != null)
-                {
-                    Pair<K, V> entry = future.get();
-                    if (entry != null && entry.right != null)
-                        put(entry.left, entry.right);
-                }
-            }
-            catch (CorruptFileException e)
+            //Check the table has not been recreated since it was saved, since tables are looked up by name
+            ColumnFamilyStore cfs = Schema.instance.getColumnFamilyStoreIncludingIndexes(Pair.create(in.readUTF(), in.readUTF()));
+            UUID cfId = new UUID(in.readLong(), in.readLong());
+            if (cfs == null || !cfs.metadata.cfId.equals(cfId))
             {
-                JVMStabilityInspector.inspectThrowable(e);
-                logger.warn(String.format("Non-fatal checksum error reading saved cache %s", dataPath.getAbsolutePath()), e);
+                logger.debug("Skipping saved cache {}, its table was dropped or recreated", dataPath);
+                changedTables.add(ksAndCFName);
+                return count;
             }
-            catch (Throwable t)
+
+            ArrayDeque<Future<Pair<K, V>>> futures = new ArrayDeque<Future<Pair<K, V>>>();
+            while (in.available() > 0 && System.nanoTime() < deadline)
             {
-                JVMStabilityInspector.inspectThrowable(t);
-                logger.info(String.format("Harmless error reading saved cache %s", dataPath.getAbsolutePath()), t);
+                //ksname and cfname are serialized by the serializers in CacheService
+                //That is delegated there because there are serializer specific conditions
+                //where a cache key is skipped and not written
+                in.readUTF();
+                in.readUTF();
+
+                Future<Pair<K, V>> entryFuture = cacheLoader.deserialize(in, cfs);
+                // Key cache entry can return null, if the SSTable doesn't exist.
+                if (entryFuture == null)
+                    continue;
+
+                futures.offer(entryFuture);
+                count++;
+
+                /*
+                 * Kind of unwise to accrue an unbounded number of pending futures
+                 * So now there is this loop to keep a bounded number pending.
+                 */
+                do
+                {
+                    while (futures.peek() != null && futures.peek().isDone())
+                    {
+                        Future<Pair<K, V>> future = futures.poll();
+                        Pair<K, V> entry = future.get();
+                        if (entry != null && entry.right != null)
+                            putLoaded(entry.left, entry.right);
+                    }
+
+                    if (futures.size() > 1000)
+                        Thread.yield();
+                } while(futures.size() > 1000);
             }
-            finally
+
+            Future<Pair<K, V>> future = null;
+            while ((future = futures.poll()) != null)
             {
-                FileUtils.closeQuietly(in);
+                Pair<K, V> entry = future.get();
+                if (entry != null && entry.right != null)
+                    putLoaded(entry.left, entry.right);
             }
         }
-        if (logger.isTraceEnabled())
-            logger.trace("completed reading ({} ms; {} keys) saved cache {}",
-                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), count, dataPath);
+        catch (CorruptFileException e)
+        {
+            JVMStabilityInspector.inspectThrowable(e);
+            logger.warn(String.format("Non-fatal checksum error reading saved cache %s", dataPath.getAbsolutePath()), e);
+            changedTables.add(ksAndCFName);
+        }
+        catch (Throwable t)
+        {
+            JVMStabilityInspector.inspectThrowable(t);
+            logger.info(String.format("Harmless error reading saved cache %s", dataPath.getAbsolutePath()), t);
+            changedTables.add(ksAndCFName);
+        }
+        finally
+        {
+            FileUtils.closeQuietly(in);
+        }
         return count;
     }
 
+    /**
+     * @return the data files of the current version saved for this cache, by table
+     */
+    private Map<Pair<String, String>, File> savedCacheFiles()
+    {
+        Map<Pair<String, String>, File> files = new HashMap<>();
+        File savedCachesDir = new File(DatabaseDescriptor.getSavedCachesLocation());
+        File[] list = savedCachesDir.listFiles();
+        if (list == null)
+            return files;
+
+        String suffix = "-" + getCacheDataPath(CURRENT_VERSION).getName();
+        for (File file : list)
+        {
+            String name = file.getName();
+            if (!file.isFile() || !name.endsWith(suffix))
+                continue;
+
+            // neither keyspace nor table names may contain a dash
+            String ksAndCFName = name.substring(0, name.length() - suffix.length());
+            int dash = ksAndCFName.indexOf('-');
+            if (dash > 0)
+                files.put(Pair.create(ksAndCFName.substring(0, dash), ksAndCFName.substring(dash + 1)), file);
+        }
+        return files;
+    }
+
+    /**
+     * Adds a loaded entry, which is already saved and so does not make its table's file stale.
+     */
+    private void putLoaded(K key, V value)
+    {
+        super.put(key, value);
+    }
+
+    @Override
+    public void put(K key, V value)
+    {
+        super.put(key, value);
+        changed(key);
+    }
+
+    @Override
+    public boolean putIfAbsent(K key, V value)
+    {
+        boolean put = super.putIfAbsent(key, value);
+        if (put)
+            changed(key);
+        return put;
+    }
+
+    @Override
+    public boolean replace(K key, V old, V value)
+    {
+        boolean replaced = super.replace(key, old, value);
+        if (replaced)
+            changed(key);
+        return replaced;
+    }
+
+    @Override
+    public void remove(K key)
+    {
+        super.remove(key);
+        changed(key);
+    }
+
+    @Override
+    public void clear()
+    {
+        super.clear();
+        allTablesChanged = true;
+    }
+
+    private void changed(K key)
+    {
+        // contains() does not write, which is cheaper for the hot tables that are already marked
+        if (!changedTables.contains(key.ksAndCFName))
+            changedTables.add(key.ksAndCFName);
+    }
+
     public Future<?> submitWrite(int keysToSave)
     {
         return CompactionManager.instance.submitCacheWrite(getWriter(keysToSave));
@@ -271,6 +426,8 @@ public class AutoSavingCache<K extends CacheKey, V> extends InstrumentingCache<K
     {
         private final Iterator<K> keyIterator;
         private final CompactionInfo info;
+        private final boolean complete;
+        private long keysRead;
         private long keysWritten;
         private final long keysEstimate;
 
@@ -281,11 +438,13 @@ public class AutoSavingCache<K extends CacheKey, V> extends InstrumentingCache<K
             {
                 keyIterator = keyIterator();
                 keysEstimate = size;
+                complete = true;
             }
             else
             {
                 keyIterator = hotKeyIterator(keysToSave);
                 keysEstimate = keysToSave;
+                complete = false;
             }
 
             OperationType type;
@@ -314,99 +473,112 @@ public class AutoSavingCache<K extends CacheKey, V> extends InstrumentingCache<K
         public CompactionInfo getCompactionInfo()
         {
             // keyset can change in size, thus total can too
-            // TODO need to check for this one... was: info.forProgress(keysWritten, Math.max(keysWritten, keys.size()));
-            return info.forProgress(keysWritten, Math.max(keysWritten, keysEstimate));
+            return info.forProgress(keysRead, Math.max(keysRead, keysEstimate));
         }
 
-        @SuppressWarnings("resource")
+        /**
+         * Saves the entries of each table to a file of its own, rewriting only the files of the tables whose entries
+         * changed since the last save. A save of the hottest keys only rewrites all the files, and so does the next
+         * save, since the files then miss entries of the cache.
+         */
         public void saveCache()
         {
-            logger.trace("Deleting old {} files.", cacheType);
-            deleteOldCacheFiles();
+            long start = System.nanoTime();
 
-            if (!keyIterator.hasNext())
+            boolean rewriteAll = !complete || allTablesChanged;
+            allTablesChanged = false;
+            Set<Pair<String, String>> changed = new HashSet<>();
+            for (Pair<String, String> ksAndCFName : changedTables)
             {
-                logger.trace("Skipping {} save, cache is empty.", cacheType);
-                return;
+                changedTables.remove(ksAndCFName);
+                changed.add(ksAndCFName);
             }
 
-            long start = System.nanoTime();
+            logger.trace("Deleting old {} files.", cacheType);
+            deleteOldCacheFiles();
 
-            WrappedDataOutputStreamPlus writer = null;
-            Pair<File, File> cacheFilePaths = tempCacheFiles();
+            Map<Pair<String, String>, SegmentWriter> writers = new HashMap<>();
             try
             {
-                try
-                {
-                    writer = new WrappedDataOutputStreamPlus(streamFactory.getOutputStream(cacheFilePaths.left, cacheFilePaths.right));
-                }
-                catch (FileNotFoundException e)
+                while (keyIterator.hasNext())
                 {
-                    throw new RuntimeException(e);
-                }
+                    K key = keyIterator.next();
+                    keysRead++;
+                    if (!rewriteAll && !changed.contains(key.ksAndCFName))
+                        continue;
 
-                try
-                {
-                    //Need to be able to check schema version because CF names are ambiguous
-                    UUID schemaVersion = Schema.instance.getVersion();
-                    if (schemaVersion == null)
-                    {
-                        Schema.instance.updateVersion();
-                        schemaVersion = Schema.instance.getVersion();
-                    }
-                    writer.writeLong(schemaVersion.getMostSignificantBits());
-                    writer.writeLong(schemaVersion.getLeastSignificantBits());
+                    ColumnFamilyStore cfs = Schema.instance.getColumnFamilyStoreIncludingIndexes(key.ksAndCFName);
+                    if (cfs == null)
+                        continue; // the table or 2i has been dropped.
 
-                    while (keyIterator.hasNext())
+                    SegmentWriter writer = writers.get(key.ksAndCFName);
+                    if (writer == null)
                     {
-                        K key = keyIterator.next();
-
-                        ColumnFamilyStore cfs = Schema.instance.getColumnFamilyStoreIncludingIndexes(key.ksAndCFName);
-                        if (cfs == null)
-                            continue; // the table or 2i has been dropped.
-
-                        cacheLoader.serialize(key, writer, cfs);
-
-                        keysWritten++;
-                        if (keysWritten >= keysEstimate)
-                            break;
+                        writer = new SegmentWriter(key.ksAndCFName, cfs);
+                        writers.put(key.ksAndCFName, writer);
                     }
-                }
-                catch (IOException e)
-                {
-                    throw new FSWriteError(e, cacheFilePaths.left);
+                    cacheLoader.serialize(key, writer.out, cfs);
+
+                    keysWritten++;
+                    if (!complete && keysWritten >= keysEstimate)
+                        break;
                 }
 
+                for (SegmentWriter writer : writers.values())
+                    writer.finish();
             }
-            finally
+            catch (IOException e)
             {
-                if (writer != null)
-                    FileUtils.closeQuietly(writer);
+                abort(writers.values());
+                throw new FSWriteError(e, getCacheDataPath(CURRENT_VERSION));
+            }
+            catch (Throwable t)
+            {
+                abort(writers.values());
+                throw t;
             }
 
-            File cacheFile = getCacheDataPath(CURRENT_VERSION);
-            File crcFile = getCacheCrcPath(CURRENT_VERSION);
-
-            cacheFile.delete(); // ignore error if it didn't exist
-            crcFile.delete();
+            // drop the files of the tables left without entries, or that are gone
+            for (Map.Entry<Pair<String, String>, File> file : savedCacheFiles().entrySet())
+            {
+                Pair<String, String> ksAndCFName = file.getKey();
+                if (writers.containsKey(ksAndCFName))
+                    continue;
+                if (rewriteAll
+                    || changed.contains(ksAndCFName)
+                    || Schema.instance.getColumnFamilyStoreIncludingIndexes(ksAndCFName) == null)
+                    delete(file.getValue(), getCacheCrcPath(ksAndCFName, CURRENT_VERSION));
+            }
 
-            if (!cacheFilePaths.left.renameTo(cacheFile))
-                logger.error("Unable to rename {} to {}", cacheFilePaths.left, cacheFile);
+            if (!complete)
+                allTablesChanged = true;
 
-            if (!cacheFilePaths.right.renameTo(crcFile))
-                logger.error("Unable to rename {} to {}", cacheFilePaths.right, crcFile);
+            long elapsed = System.nanoTime() - start;
+            getMetrics().saveTime.update(elapsed, TimeUnit.NANOSECONDS);
+            if (writers.isEmpty())
+                logger.trace("Skipping {} save, no entries changed.", cacheType);
+            else
+                logger.info("Saved {} ({} items of {} tables) in {} ms", cacheType, keysWritten, writers.size(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+        }
 
-            logger.info("Saved {} ({} items) in {} ms", cacheType, keysWritten, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        private void abort(Collection<SegmentWriter> writers)
+        {
+            for (SegmentWriter writer : writers)
+                writer.abort();
+            // some of the tables may have lost their file
+            allTablesChanged = true;
         }
 
-        private Pair<File, File> tempCacheFiles()
+        private void delete(File dataFile, File crcFile)
         {
-            File dataPath = getCacheDataPath(CURRENT_VERSION);
-            File crcPath = getCacheCrcPath(CURRENT_VERSION);
-            return Pair.create(FileUtils.createTempFile(dataPath.getName(), null, dataPath.getParentFile()),
-                               FileUtils.createTempFile(crcPath.getName(), null, crcPath.getParentFile()));
+            if (!dataFile.delete())
+                logger.warn("Failed to delete {}", dataFile.getAbsolutePath());
+            crcFile.delete(); // ignore error if it didn't exist
         }
 
+        /**
+         * Deletes the files of previous versions, which held the whole cache in one file.
+         */
         private void deleteOldCacheFiles()
         {
             File savedCachesDir = new File(DatabaseDescriptor.getSavedCachesLocation());
@@ -414,14 +586,13 @@ public class AutoSavingCache<K extends CacheKey, V> extends InstrumentingCache<K
             File[] files = savedCachesDir.listFiles();
             if (files != null)
             {
-                String cacheNameFormat = String.format("%s-%s.db", cacheType.toString(), CURRENT_VERSION);
+                Pattern oldCacheNameFormat = Pattern.compile(Pattern.quote(cacheType.toString()) + "(-[a-z]+\\.(db|crc))?");
                 for (File file : files)
                 {
                     if (!file.isFile())
                         continue; // someone's been messing with our directory.  naughty!
 
-                    if (file.getName().endsWith(cacheNameFormat)
-                     || file.getName().endsWith(cacheType.toString()))
+                    if (oldCacheNameFormat.matcher(file.getName()).matches())
                     {
                         if (!file.delete())
                             logger.warn("Failed to delete {}", file.getAbsolutePath());
@@ -433,6 +604,57 @@ public class AutoSavingCache<K extends CacheKey, V> extends InstrumentingCache<K
                 logger.warn("Could not list files in {}", savedCachesDir);
             }
         }
+
+        /**
+         * Writes the entries of one table to temporary files, moved in place of the table's saved files once done.
+         */
+        private class SegmentWriter
+        {
+            private final Pair<String, String> ksAndCFName;
+            private final File dataFile;
+            private final File crcFile;
+            private final WrappedDataOutputStreamPlus out;
+
+            SegmentWriter(Pair<String, String> ksAndCFName, ColumnFamilyStore cfs) throws IOException
+            {
+                this.ksAndCFName = ksAndCFName;
+                File dataPath = getCacheDataPath(ksAndCFName, CURRENT_VERSION);
+                File crcPath = getCacheCrcPath(ksAndCFName, CURRENT_VERSION);
+                dataFile = FileUtils.createTempFile(dataPath.getName(), null, dataPath.getParentFile());
+                crcFile = FileUtils.createTempFile(crcPath.getName(), null, crcPath.getParentFile());
+                out = new WrappedDataOutputStreamPlus(streamFactory.getOutputStream(dataFile, crcFile));
+
+                //Need to be able to check the table id because tables are looked up by name
+                out.writeUTF(ksAndCFName.left);
+                out.writeUTF(ksAndCFName.right);
+                out.writeLong(cfs.metadata.cfId.getMostSignificantBits());
+                out.writeLong(cfs.metadata.cfId.getLeastSignificantBits());
+            }
+
+            void finish() throws IOException
+            {
+                out.close();
+
+                File cacheFile = getCacheDataPath(ksAndCFName, CURRENT_VERSION);
+                File crcPath = getCacheCrcPath(ksAndCFName, CURRENT_VERSION);
+
+                cacheFile.delete(); // ignore error if it didn't exist
+                crcPath.delete();
+
+                if (!dataFile.renameTo(cacheFile))
+                    logger.error("Unable to rename {} to {}", dataFile, cacheFile);
+
+                if (!crcFile.renameTo(crcPath))
+                    logger.error("Unable to rename {} to {}", crcFile, crcPath);
+            }
+
+            void abort()
+            {
+                FileUtils.closeQuietly(out);
+                dataFile.delete();
+                crcFile.delete();
+            }
+        }
     }
 
     public interface CacheSerializer<K extends CacheKey, V>
@@ -440,5 +662,10 @@ public class AutoSavingCache<K extends CacheKey, V> extends InstrumentingCache<K
         void serialize(K key, DataOutputPlus out, ColumnFamilyStore cfs) throws IOException;
 
         Future<Pair<K, V>> deserialize(DataInputStream in, ColumnFamilyStore cfs) throws IOException;
+
+        /**
+         * Releases the state kept across the deserialization of the entries of all tables, once loading is done.
+         */
+        void cleanupAfterDeserialize();
     }
 }
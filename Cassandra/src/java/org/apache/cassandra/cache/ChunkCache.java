@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.cache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.TypeSizes;
+import org.apache.cassandra.metrics.ChunkCacheMetrics;
+import org.caffinitas.ohc.CacheSerializer;
+import org.caffinitas.ohc.CloseableIterator;
+import org.caffinitas.ohc.DirectValueAccess;
+import org.caffinitas.ohc.OHCache;
+import org.caffinitas.ohc.OHCacheBuilder;
+
+/**
+ * An off-heap cache of the decompressed chunks of compressed sstables, keyed by data file and chunk position, that
+ * spares {@link org.apache.cassandra.io.compress.CompressedRandomAccessReader} from reading and decompressing hot
+ * chunks again. Chunks are copied in and out of the cache, so a reader never holds on to cache memory. Sequential
+ * scans, such as those of compactions, validations, streaming and range reads, bypass it so as not to evict hot chunks.
+ *
+ * Disabled, and {@link #instance} null, when chunk_cache_size_in_mb is 0.
+ */
+public class ChunkCache
+{
+    private static final Logger logger = LoggerFactory.getLogger(ChunkCache.class);
+
+    public static final ChunkCache instance = DatabaseDescriptor.getChunkCacheSizeInMB() > 0
+                                            ? new ChunkCache(DatabaseDescriptor.getChunkCacheSizeInMB() * 1024L * 1024L)
+                                            : null;
+
+    private final OHCache<Key, ByteBuffer> cache;
+    public final ChunkCacheMetrics metrics;
+
+    @VisibleForTesting
+    public ChunkCache(long capacity)
+    {
+        OHCacheBuilder<Key, ByteBuffer> builder = OHCacheBuilder.newBuilder();
+        builder.capacity(capacity)
+               .keySerializer(KeySerializer.instance)
+               .valueSerializer(ValueSerializer.instance);
+        cache = builder.build();
+        metrics = new ChunkCacheMetrics(this);
+    }
+
+    /**
+     * Copies the chunk of {@code path} starting at (uncompressed) {@code position} into {@code buffer}, from which
+     * it is ready to be read.
+     *
+     * @return false, leaving the buffer untouched, if the chunk is not cached
+     */
+    public boolean get(String path, long position, ByteBuffer buffer)
+    {
+        metrics.requests.mark();
+        DirectValueAccess value = cache.getDirect(new Key(path, position));
+        if (value == null)
+            return false;
+
+        try
+        {
+            ByteBuffer chunk = value.buffer();
+            int length = chunk.getInt();
+            chunk.limit(chunk.position() + length);
+            buffer.clear();
+            buffer.put(chunk);
+            buffer.flip();
+        }
+        finally
+        {
+            release(value);
+        }
+        metrics.hits.mark();
+        return true;
+    }
+
+    /**
+     * Caches the remaining bytes of {@code chunk} as the chunk of {@code path} starting at {@code position}, leaving
+     * the chunk buffer itself untouched.
+     */
+    public void put(String path, long position, ByteBuffer chunk)
+    {
+        // null if the cache cannot make room for it
+        DirectValueAccess value = cache.putDirect(new Key(path, position), ValueSerializer.instance.serializedSize(chunk));
+        if (value == null)
+            return;
+
+        try
+        {
+            value.buffer().putInt(chunk.remaining()).put(chunk.duplicate());
+        }
+        catch (RuntimeException e)
+        {
+            value.abort();
+            throw e;
+        }
+        release(value);
+    }
+
+    private static void release(DirectValueAccess value)
+    {
+        try
+        {
+            value.close();
+        }
+        catch (IOException e)
+        {
+            // not thrown when closing an entry, which only releases or commits it
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Drops the cached chunks of a data file, once deleted. This walks all the keys of the cache, which is cheap
+     * enough next to deleting the file.
+     */
+    public void invalidateFile(String path)
+    {
+        List<Key> keys = new ArrayList<>();
+        try (CloseableIterator<Key> iter = cache.keyIterator())
+        {
+            while (iter.hasNext())
+            {
+                Key key = iter.next();
+                if (key.path.equals(path))
+                    keys.add(key);
+            }
+        }
+        catch (IOException e)
+        {
+            // only thrown by close(), once we are done with the iterator
+            logger.warn("Failed to close the chunk cache key iterator", e);
+        }
+        cache.removeAll(keys);
+    }
+
+    public void clear()
+    {
+        cache.clear();
+    }
+
+    public long capacity()
+    {
+        return cache.capacity();
+    }
+
+    public long weightedSize()
+    {
+        return cache.memUsed();
+    }
+
+    public long size()
+    {
+        return cache.size();
+    }
+
+    static final class Key
+    {
+        final String path;
+        final long position;
+
+        Key(String path, long position)
+        {
+            this.path = path;
+            this.position = position;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+            Key that = (Key) o;
+            return position == that.position && path.equals(that.path);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * path.hashCode() + Long.hashCode(position);
+        }
+    }
+
+    private static class KeySerializer implements CacheSerializer<Key>
+    {
+        static final KeySerializer instance = new KeySerializer();
+
+        public void serialize(Key key, DataOutput out) throws IOException
+        {
+            out.writeUTF(key.path);
+            out.writeLong(key.position);
+        }
+
+        public Key deserialize(DataInput in) throws IOException
+        {
+            return new Key(in.readUTF(), in.readLong());
+        }
+
+        public int serializedSize(Key key)
+        {
+            return TypeSizes.NATIVE.sizeof(key.path) + TypeSizes.NATIVE.sizeof(key.position);
+        }
+    }
+
+    // a chunk is serialized as its length followed by its bytes; put() and get() write and read that same format
+    // directly, with putDirect() and getDirect(), so as to copy chunks once
+    @VisibleForTesting
+    static class ValueSerializer implements CacheSerializer<ByteBuffer>
+    {
+        static final ValueSerializer instance = new ValueSerializer();
+
+        public void serialize(ByteBuffer chunk, DataOutput out) throws IOException
+        {
+            ByteBuffer bytes = chunk.duplicate();
+            out.writeInt(bytes.remaining());
+            while (bytes.hasRemaining())
+                out.writeByte(bytes.get());
+        }
+
+        public ByteBuffer deserialize(DataInput in) throws IOException
+        {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return ByteBuffer.wrap(bytes);
+        }
+
+        public int serializedSize(ByteBuffer chunk)
+        {
+            return TypeSizes.NATIVE.sizeof(chunk.remaining()) + chunk.remaining();
+        }
+    }
+}
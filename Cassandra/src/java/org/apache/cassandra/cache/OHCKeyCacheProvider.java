@@ -0,0 +1,263 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.cache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.config.Schema;
+import org.apache.cassandra.db.RowIndexEntry;
+import org.apache.cassandra.db.TypeSizes;
+import org.apache.cassandra.io.sstable.Descriptor;
+import org.apache.cassandra.io.sstable.format.SSTableFormat;
+import org.apache.cassandra.io.util.ByteBufferDataInput;
+import org.apache.cassandra.io.util.DataOutputBuffer;
+import org.apache.cassandra.utils.Pair;
+import org.caffinitas.ohc.OHCache;
+import org.caffinitas.ohc.OHCacheBuilder;
+
+/**
+ * A fully off-heap key cache, in which both the keys and the index entries are serialized, so that a large key cache
+ * does not add to the old generation.
+ *
+ * The cache itself holds the index entries as opaque bytes: they can only be serialized and deserialized in the
+ * context of their key, since the index entry serializer depends on the table and the sstable version, which the
+ * value serializer of OHC does not get. Entries are thus serialized to the heap before they are put, and copied
+ * back to the heap by OHC before they are deserialized, so that no entry read from the cache points into memory that
+ * the cache may free or reuse.
+ */
+public class OHCKeyCacheProvider implements CacheProvider<KeyCacheKey, RowIndexEntry>
+{
+    public ICache<KeyCacheKey, RowIndexEntry> create()
+    {
+        OHCacheBuilder<KeyCacheKey, ByteBuffer> builder = OHCacheBuilder.newBuilder();
+        builder.capacity(DatabaseDescriptor.getKeyCacheSizeInMB() * 1024 * 1024)
+               .keySerializer(new KeySerializer())
+               .valueSerializer(new ValueSerializer())
+               .throwOOME(true);
+
+        return new OHCKeyCache(builder.build());
+    }
+
+    private static class OHCKeyCache implements ICache<KeyCacheKey, RowIndexEntry>
+    {
+        private final OHCache<KeyCacheKey, ByteBuffer> ohCache;
+
+        public OHCKeyCache(OHCache<KeyCacheKey, ByteBuffer> ohCache)
+        {
+            this.ohCache = ohCache;
+        }
+
+        public long capacity()
+        {
+            return ohCache.capacity();
+        }
+
+        public void setCapacity(long capacity)
+        {
+            ohCache.setCapacity(capacity);
+        }
+
+        public void put(KeyCacheKey key, RowIndexEntry value)
+        {
+            ByteBuffer serialized = serialize(key, value);
+            if (serialized != null)
+                ohCache.put(key, serialized);
+        }
+
+        public boolean putIfAbsent(KeyCacheKey key, RowIndexEntry value)
+        {
+            ByteBuffer serialized = serialize(key, value);
+            return serialized != null && ohCache.putIfAbsent(key, serialized);
+        }
+
+        public boolean replace(KeyCacheKey key, RowIndexEntry old, RowIndexEntry value)
+        {
+            // equal entries serialize to the same bytes, which is what OHC compares; as for the OHC row cache, the
+            // entry is also added if the key is absent, since OHC cannot replace only a present entry atomically
+            ByteBuffer serializedOld = serialize(key, old);
+            ByteBuffer serialized = serialize(key, value);
+            return serializedOld != null && serialized != null && ohCache.addOrReplace(key, serializedOld, serialized);
+        }
+
+        public RowIndexEntry get(KeyCacheKey key)
+        {
+            ByteBuffer serialized = ohCache.get(key);
+            if (serialized == null)
+                return null;
+
+            RowIndexEntry.IndexSerializer serializer = serializer(key);
+            if (serializer == null)
+                return null;
+
+            try
+            {
+                return serializer.deserialize(new ByteBufferDataInput(serialized, null, 0, 0), key.desc.version);
+            }
+            catch (IOException e)
+            {
+                // not thrown when reading from a buffer
+                throw new AssertionError(e);
+            }
+        }
+
+        public void remove(KeyCacheKey key)
+        {
+            ohCache.remove(key);
+        }
+
+        public int size()
+        {
+            return (int) ohCache.size();
+        }
+
+        public long weightedSize()
+        {
+            return ohCache.memUsed();
+        }
+
+        public void clear()
+        {
+            ohCache.clear();
+        }
+
+        public Iterator<KeyCacheKey> hotKeyIterator(int n)
+        {
+            return ohCache.hotKeyIterator(n);
+        }
+
+        public Iterator<KeyCacheKey> keyIterator()
+        {
+            return ohCache.keyIterator();
+        }
+
+        public boolean containsKey(KeyCacheKey key)
+        {
+            return ohCache.containsKey(key);
+        }
+
+        /**
+         * @return {@code value} serialized to the heap, or null if the table of {@code key} was dropped
+         */
+        @SuppressWarnings("unchecked")
+        private static ByteBuffer serialize(KeyCacheKey key, RowIndexEntry value)
+        {
+            RowIndexEntry.IndexSerializer serializer = serializer(key);
+            if (serializer == null)
+                return null;
+
+            try (DataOutputBuffer out = new DataOutputBuffer(serializer.serializedSize(value)))
+            {
+                serializer.serialize(value, out);
+                return out.buffer();
+            }
+            catch (IOException e)
+            {
+                // not thrown when writing to a buffer
+                throw new AssertionError(e);
+            }
+        }
+
+        /**
+         * @return the serializer of the index entries of the sstable of {@code key}, or null if its table was dropped
+         */
+        private static RowIndexEntry.IndexSerializer serializer(KeyCacheKey key)
+        {
+            CFMetaData metadata = Schema.instance.getCFMetaData(key.ksAndCFName.left, key.ksAndCFName.right);
+            return metadata == null ? null : key.desc.getFormat().getIndexSerializer(metadata);
+        }
+    }
+
+    private static class KeySerializer implements org.caffinitas.ohc.CacheSerializer<KeyCacheKey>
+    {
+        public void serialize(KeyCacheKey key, DataOutput out) throws IOException
+        {
+            Descriptor desc = key.desc;
+            out.writeUTF(key.ksAndCFName.left);
+            out.writeUTF(key.ksAndCFName.right);
+            out.writeUTF(desc.directory.getPath());
+            out.writeUTF(desc.version.getVersion());
+            out.writeInt(desc.generation);
+            out.writeByte(desc.type.ordinal());
+            out.writeUTF(desc.formatType.name);
+            out.writeInt(key.key.length);
+            out.write(key.key);
+        }
+
+        public KeyCacheKey deserialize(DataInput in) throws IOException
+        {
+            String ksName = in.readUTF();
+            String cfName = in.readUTF();
+            File directory = new File(in.readUTF());
+            String version = in.readUTF();
+            int generation = in.readInt();
+            Descriptor.Type type = Descriptor.Type.values()[in.readByte()];
+            SSTableFormat.Type formatType = SSTableFormat.Type.validate(in.readUTF());
+            byte[] key = new byte[in.readInt()];
+            in.readFully(key);
+            Descriptor desc = new Descriptor(version, directory, ksName, cfName, generation, type, formatType);
+            return new KeyCacheKey(Pair.create(ksName, cfName), desc, ByteBuffer.wrap(key));
+        }
+
+        public int serializedSize(KeyCacheKey key)
+        {
+            Descriptor desc = key.desc;
+            TypeSizes typeSizes = TypeSizes.NATIVE;
+            return typeSizes.sizeof(key.ksAndCFName.left)
+                   + typeSizes.sizeof(key.ksAndCFName.right)
+                   + typeSizes.sizeof(desc.directory.getPath())
+                   + typeSizes.sizeof(desc.version.getVersion())
+                   + typeSizes.sizeof(desc.generation)
+                   + 1
+                   + typeSizes.sizeof(desc.formatType.name)
+                   + typeSizes.sizeof(key.key.length)
+                   + key.key.length;
+        }
+    }
+
+    /**
+     * Serializes the index entries as the opaque bytes they were serialized to by OHCKeyCache, see the class comment.
+     */
+    private static class ValueSerializer implements org.caffinitas.ohc.CacheSerializer<ByteBuffer>
+    {
+        public void serialize(ByteBuffer value, DataOutput out) throws IOException
+        {
+            out.writeInt(value.remaining());
+            // the values are always on heap, see OHCKeyCache.serialize() and deserialize()
+            out.write(value.array(), value.arrayOffset() + value.position(), value.remaining());
+        }
+
+        public ByteBuffer deserialize(DataInput in) throws IOException
+        {
+            byte[] value = new byte[in.readInt()];
+            in.readFully(value);
+            return ByteBuffer.wrap(value);
+        }
+
+        public int serializedSize(ByteBuffer value)
+        {
+            return TypeSizes.NATIVE.sizeof(value.remaining()) + value.remaining();
+        }
+    }
+}
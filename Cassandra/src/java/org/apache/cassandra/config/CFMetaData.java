@@ -52,6 +52,7 @@ import org.apache.cassandra.io.util.FileDataInput;
 import org.apache.cassandra.schema.LegacySchemaTables;
 import org.apache.cassandra.utils.ByteBufferUtil;
 import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.FilterFactory;
 import org.apache.cassandra.utils.Pair;
 import org.apache.cassandra.utils.UUIDGen;
 import org.github.jamm.Unmetered;
@@ -75,6 +76,8 @@ public final class CFMetaData
     public final static SpeculativeRetry DEFAULT_SPECULATIVE_RETRY = new SpeculativeRetry(SpeculativeRetry.RetryType.PERCENTILE, 0.99);
     public final static int DEFAULT_MIN_INDEX_INTERVAL = 128;
     public final static int DEFAULT_MAX_INDEX_INTERVAL = 2048;
+    public final static int DEFAULT_MEMTABLE_SHARDS = 1;
+    public final static FilterFactory.Type DEFAULT_BLOOM_FILTER_TYPE = FilterFactory.Type.STANDARD;
 
     // Note that this is the default only for user created tables
     public final static String DEFAULT_COMPRESSOR = LZ4Compressor.class.getCanonicalName();
@@ -183,10 +186,12 @@ public final class CFMetaData
     private volatile int minCompactionThreshold = DEFAULT_MIN_COMPACTION_THRESHOLD;
     private volatile int maxCompactionThreshold = DEFAULT_MAX_COMPACTION_THRESHOLD;
     private volatile Double bloomFilterFpChance = null;
+    private volatile FilterFactory.Type bloomFilterType = DEFAULT_BLOOM_FILTER_TYPE;
     private volatile CachingOptions caching = DEFAULT_CACHING_STRATEGY;
     private volatile int minIndexInterval = DEFAULT_MIN_INDEX_INTERVAL;
     private volatile int maxIndexInterval = DEFAULT_MAX_INDEX_INTERVAL;
     private volatile int memtableFlushPeriod = 0;
+    private volatile int memtableShards = DEFAULT_MEMTABLE_SHARDS;
     private volatile int defaultTimeToLive = DEFAULT_DEFAULT_TIME_TO_LIVE;
     private volatile SpeculativeRetry speculativeRetry = DEFAULT_SPECULATIVE_RETRY;
     private volatile Map<ColumnIdentifier, Long> droppedColumns = new HashMap<>();
@@ -233,10 +238,12 @@ public final class CFMetaData
     public CFMetaData compactionStrategyOptions(Map<String, String> prop) {compactionStrategyOptions = prop; return this;}
     public CFMetaData compressionParameters(CompressionParameters prop) {compressionParameters = prop; return this;}
     public CFMetaData bloomFilterFpChance(double prop) {bloomFilterFpChance = prop; return this;}
+    public CFMetaData bloomFilterType(FilterFactory.Type prop) {bloomFilterType = prop; return this;}
     public CFMetaData caching(CachingOptions prop) {caching = prop; return this;}
     public CFMetaData minIndexInterval(int prop) {minIndexInterval = prop; return this;}
     public CFMetaData maxIndexInterval(int prop) {maxIndexInterval = prop; return this;}
     public CFMetaData memtableFlushPeriod(int prop) {memtableFlushPeriod = prop; return this;}
+    public CFMetaData memtableShards(int prop) {memtableShards = prop; return this;}
     public CFMetaData defaultTimeToLive(int prop) {defaultTimeToLive = prop; return this;}
     public CFMetaData speculativeRetry(SpeculativeRetry prop) {speculativeRetry = prop; return this;}
     public CFMetaData droppedColumns(Map<ColumnIdentifier, Long> cols) {droppedColumns = cols; return this;}
@@ -405,12 +412,14 @@ public final class CFMetaData
                       .compactionStrategyOptions(new HashMap<>(oldCFMD.compactionStrategyOptions))
                       .compressionParameters(oldCFMD.compressionParameters.copy())
                       .bloomFilterFpChance(oldCFMD.getBloomFilterFpChance())
+                      .bloomFilterType(oldCFMD.bloomFilterType)
                       .caching(oldCFMD.caching)
                       .defaultTimeToLive(oldCFMD.defaultTimeToLive)
                       .minIndexInterval(oldCFMD.minIndexInterval)
                       .maxIndexInterval(oldCFMD.maxIndexInterval)
                       .speculativeRetry(oldCFMD.speculativeRetry)
                       .memtableFlushPeriod(oldCFMD.memtableFlushPeriod)
+                      .memtableShards(oldCFMD.memtableShards)
                       .droppedColumns(new HashMap<>(oldCFMD.droppedColumns))
                       .triggers(new HashMap<>(oldCFMD.triggers))
                       .isDense(oldCFMD.isDense)
@@ -606,6 +615,14 @@ public final class CFMetaData
                : bloomFilterFpChance;
     }
 
+    /**
+     * @return the kind of bloom filter written for new sstables of this table
+     */
+    public FilterFactory.Type getBloomFilterType()
+    {
+        return bloomFilterType;
+    }
+
     public CachingOptions getCaching()
     {
         return caching;
@@ -631,6 +648,14 @@ public final class CFMetaData
         return memtableFlushPeriod;
     }
 
+    /**
+     * @return the number of token range shards the partitions of a memtable of this table are spread over
+     */
+    public int getMemtableShards()
+    {
+        return memtableShards;
+    }
+
     public int getDefaultTimeToLive()
     {
         return defaultTimeToLive;
@@ -675,7 +700,9 @@ public final class CFMetaData
             && Objects.equal(compactionStrategyOptions, other.compactionStrategyOptions)
             && Objects.equal(compressionParameters, other.compressionParameters)
             && Objects.equal(getBloomFilterFpChance(), other.getBloomFilterFpChance())
+            && Objects.equal(bloomFilterType, other.bloomFilterType)
             && Objects.equal(memtableFlushPeriod, other.memtableFlushPeriod)
+            && Objects.equal(memtableShards, other.memtableShards)
             && Objects.equal(caching, other.caching)
             && Objects.equal(defaultTimeToLive, other.defaultTimeToLive)
             && Objects.equal(minIndexInterval, other.minIndexInterval)
@@ -708,7 +735,9 @@ public final class CFMetaData
             .append(compactionStrategyOptions)
             .append(compressionParameters)
             .append(getBloomFilterFpChance())
+            .append(bloomFilterType)
             .append(memtableFlushPeriod)
+            .append(memtableShards)
             .append(caching)
             .append(defaultTimeToLive)
             .append(minIndexInterval)
@@ -766,10 +795,12 @@ public final class CFMetaData
         maxCompactionThreshold = cfm.maxCompactionThreshold;
 
         bloomFilterFpChance = cfm.getBloomFilterFpChance();
+        bloomFilterType = cfm.bloomFilterType;
         caching = cfm.caching;
         minIndexInterval = cfm.minIndexInterval;
         maxIndexInterval = cfm.maxIndexInterval;
         memtableFlushPeriod = cfm.memtableFlushPeriod;
+        memtableShards = cfm.memtableShards;
         defaultTimeToLive = cfm.defaultTimeToLive;
         speculativeRetry = cfm.speculativeRetry;
 
@@ -1086,6 +1117,9 @@ public final class CFMetaData
 
         validateIndexIntervalThresholds();
 
+        if (memtableShards <= 0 || Integer.bitCount(memtableShards) != 1)
+            throw new ConfigurationException(String.format("Memtable shards must be a power of two greater than 0 (got %d).", memtableShards));
+
         return this;
     }
 
@@ -1483,7 +1517,9 @@ public final class CFMetaData
             .append("compactionStrategyOptions", compactionStrategyOptions)
             .append("compressionParameters", compressionParameters.asThriftOptions())
             .append("bloomFilterFpChance", getBloomFilterFpChance())
+            .append("bloomFilterType", bloomFilterType)
             .append("memtableFlushPeriod", memtableFlushPeriod)
+            .append("memtableShards", memtableShards)
             .append("caching", caching)
             .append("defaultTimeToLive", defaultTimeToLive)
             .append("minIndexInterval", minIndexInterval)
@@ -104,6 +104,8 @@ public class Config
 
     public Integer streaming_socket_timeout_in_ms = 86400000; //24 hours
 
+    public boolean stream_entire_sstables = false;
+
     public boolean cross_node_timeout = false;
 
     public volatile Double phi_convict_threshold = 8.0;
@@ -111,11 +113,14 @@ public class Config
     public Integer concurrent_reads = 32;
     public Integer concurrent_writes = 32;
     public Integer concurrent_counter_writes = 32;
+    public volatile double counter_write_delta_window_in_ms = 0;
 
     @Deprecated
     public Integer concurrent_replicates = null;
 
     public Integer memtable_flush_writers = null;
+    public Integer memtable_flush_shards = 1;
+    public volatile int memtable_partition_shards = 0;
     public Integer memtable_heap_space_in_mb;
     public Integer memtable_offheap_space_in_mb;
     public Float memtable_cleanup_threshold = null;
@@ -163,6 +168,8 @@ public class Config
     public Integer native_transport_max_frame_size_in_mb = 256;
     public volatile Long native_transport_max_concurrent_connections = -1L;
     public volatile Long native_transport_max_concurrent_connections_per_ip = -1L;
+    public volatile int native_transport_read_batch_size = 1;
+    public volatile boolean normalize_unprepared_statements = true;
 
     @Deprecated
     public Integer thrift_max_message_length_in_mb = 16;
@@ -177,6 +184,9 @@ public class Config
     public volatile int batch_size_fail_threshold_in_kb = 50;
     public Integer unlogged_batch_across_partitions_warn_threshold = 10;
     public Integer concurrent_compactors;
+    public Integer concurrent_validations = 1;
+    public Integer compaction_sub_ranges = 1;
+    public Integer compaction_sub_range_min_size_in_mb = 1024;
     public volatile Integer compaction_throughput_mb_per_sec = 16;
     public volatile Integer compaction_large_partition_warning_threshold_mb = 100;
 
@@ -201,10 +211,12 @@ public class Config
     public CommitLogSync commitlog_sync;
     public Double commitlog_sync_batch_window_in_ms;
     public double commitlog_sync_group_window_in_ms = Double.NaN;
+    public double commitlog_sync_adaptive_target_latency_in_ms = Double.NaN;
     public Integer commitlog_sync_period_in_ms;
     public int commitlog_segment_size_in_mb = 32;
     public ParameterizedClass commitlog_compression;
     public int commitlog_max_compression_buffers_in_pool = 3;
+    public CommitLogSegmentType commitlog_segment_type = CommitLogSegmentType.mmap;
  
     @Deprecated
     public int commitlog_periodic_queue_size = -1;
@@ -228,12 +240,17 @@ public class Config
 
     public InternodeCompression internode_compression = InternodeCompression.none;
 
+    public InternodeMessagingTransport internode_messaging_transport = InternodeMessagingTransport.blocking;
+
     @Deprecated
     public Integer index_interval = null;
 
     public int hinted_handoff_throttle_in_kb = 1024;
     public int batchlog_replay_throttle_in_kb = 1024;
     public int max_hints_delivery_threads = 1;
+    public String hints_directory;
+    public int max_hints_file_size_in_mb = 128;
+    public int hints_flush_period_in_ms = 10000;
     public int sstable_preemptive_open_interval_in_mb = 50;
 
     public volatile boolean incremental_backups = false;
@@ -241,6 +258,7 @@ public class Config
     public int trickle_fsync_interval_in_kb = 10240;
 
     public Long key_cache_size_in_mb = null;
+    public String key_cache_class_name = null;
     public volatile int key_cache_save_period = 14400;
     public volatile int key_cache_keys_to_save = Integer.MAX_VALUE;
 
@@ -253,6 +271,8 @@ public class Config
     public volatile int counter_cache_save_period = 7200;
     public volatile int counter_cache_keys_to_save = Integer.MAX_VALUE;
 
+    public int cache_load_timeout_seconds = 30;
+
     public volatile int read_delay_in_s = 0;
     public volatile int write_delay_in_s = 0;
 
@@ -263,6 +283,7 @@ public class Config
     private static Supplier<Config> overrideLoadConfig = null;
 
     public Integer file_cache_size_in_mb;
+    public Integer chunk_cache_size_in_mb;
 
     public boolean inter_dc_tcp_nodelay = true;
 
@@ -312,6 +333,12 @@ public class Config
     public int otc_coalescing_window_us = otc_coalescing_window_us_default;
     public int otc_coalescing_enough_coalesced_messages = 8;
 
+    /*
+     * How many connections small messages to each peer are spread over, by partition so that the messages about one
+     * partition keep their order.
+     */
+    public int otc_small_message_connections = 1;
+
     public int windows_timer_interval = 0;
 
     public boolean enable_user_defined_functions = false;
@@ -384,13 +411,25 @@ public class Config
     {
         periodic,
         batch,
-        group
+        group,
+        adaptive
     }
+    public static enum CommitLogSegmentType
+    {
+        mmap,
+        direct
+    }
+
     public static enum InternodeCompression
     {
         all, none, dc
     }
 
+    public static enum InternodeMessagingTransport
+    {
+        blocking, netty
+    }
+
     public static enum DiskAccessMode
     {
         auto,
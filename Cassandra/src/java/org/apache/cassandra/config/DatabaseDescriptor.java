@@ -321,6 +321,18 @@ public class DatabaseDescriptor
             }
             logger.debug("Syncing log with a group window of {}", conf.commitlog_sync_period_in_ms);
         }
+        else if (conf.commitlog_sync == CommitLogSync.adaptive)
+        {
+            if (Double.isNaN(conf.commitlog_sync_adaptive_target_latency_in_ms) || conf.commitlog_sync_adaptive_target_latency_in_ms <= 0d)
+            {
+                throw new ConfigurationException("Missing value for commitlog_sync_adaptive_target_latency_in_ms: positive double value expected.", false);
+            }
+            else if (conf.commitlog_sync_period_in_ms != null)
+            {
+                throw new ConfigurationException("Adaptive sync specified, but commitlog_sync_period_in_ms found. Only specify commitlog_sync_adaptive_target_latency_in_ms when using adaptive sync", false);
+            }
+            logger.debug("Syncing log adaptively with a target latency of {}ms", conf.commitlog_sync_adaptive_target_latency_in_ms);
+        }
         else
         {
             if (conf.commitlog_sync_period_in_ms == null)
@@ -431,12 +443,20 @@ public class DatabaseDescriptor
         if (conf.concurrent_counter_writes != null && conf.concurrent_counter_writes < 2)
             throw new ConfigurationException("concurrent_counter_writes must be at least 2", false);
 
+        if (Double.isNaN(conf.counter_write_delta_window_in_ms) || conf.counter_write_delta_window_in_ms < 0)
+            throw new ConfigurationException("counter_write_delta_window_in_ms must be positive, or 0 to disable it", false);
+
         if (conf.concurrent_replicates != null)
             logger.warn("concurrent_replicates has been deprecated and should be removed from cassandra.yaml");
 
         if (conf.file_cache_size_in_mb == null)
             conf.file_cache_size_in_mb = Math.min(512, (int) (Runtime.getRuntime().maxMemory() / (4 * 1048576)));
 
+        if (conf.chunk_cache_size_in_mb == null)
+            conf.chunk_cache_size_in_mb = Math.min(512, (int) (Runtime.getRuntime().maxMemory() / (8 * 1048576)));
+        if (conf.chunk_cache_size_in_mb < 0)
+            throw new ConfigurationException("chunk_cache_size_in_mb must be positive, or 0 to disable the chunk cache", false);
+
         if (conf.memory_allocator != null)
             logger.warn("memory_allocator has been deprecated and should be removed from cassandra.yaml");
 
@@ -463,6 +483,9 @@ public class DatabaseDescriptor
         if (conf.native_transport_max_frame_size_in_mb <= 0)
             throw new ConfigurationException("native_transport_max_frame_size_in_mb must be positive", false);
 
+        if (conf.native_transport_read_batch_size < 1)
+            throw new ConfigurationException("native_transport_read_batch_size must be at least 1", false);
+
         // fail early instead of OOMing (see CASSANDRA-8116)
         if (ThriftServer.HSHA.equals(conf.rpc_server_type) && conf.rpc_max_threads == Integer.MAX_VALUE)
             throw new ConfigurationException("The hsha rpc_server_type is not compatible with an rpc_max_threads " +
@@ -576,6 +599,13 @@ public class DatabaseDescriptor
                 throw new ConfigurationException("saved_caches_directory is missing and -Dcassandra.storagedir is not set", false);
             conf.saved_caches_directory += File.separator + "saved_caches";
         }
+        if (conf.hints_directory == null)
+        {
+            conf.hints_directory = System.getProperty("cassandra.storagedir", null);
+            if (conf.hints_directory == null)
+                throw new ConfigurationException("hints_directory is missing and -Dcassandra.storagedir is not set", false);
+            conf.hints_directory += File.separator + "hints";
+        }
         if (conf.data_file_directories == null)
         {
             String defaultDataDir = System.getProperty("cassandra.storagedir", null);
@@ -592,6 +622,8 @@ public class DatabaseDescriptor
                 throw new ConfigurationException("commitlog_directory must not be the same as any data_file_directories", false);
             if (datadir.equals(conf.saved_caches_directory))
                 throw new ConfigurationException("saved_caches_directory must not be the same as any data_file_directories", false);
+            if (datadir.equals(conf.hints_directory))
+                throw new ConfigurationException("hints_directory must not be the same as any data_file_directories", false);
 
             try
             {
@@ -611,6 +643,15 @@ public class DatabaseDescriptor
 
         if (conf.commitlog_directory.equals(conf.saved_caches_directory))
             throw new ConfigurationException("saved_caches_directory must not be the same as the commitlog_directory", false);
+        if (conf.commitlog_directory.equals(conf.hints_directory))
+            throw new ConfigurationException("hints_directory must not be the same as the commitlog_directory", false);
+        if (conf.saved_caches_directory.equals(conf.hints_directory))
+            throw new ConfigurationException("hints_directory must not be the same as the saved_caches_directory", false);
+
+        if (conf.max_hints_file_size_in_mb <= 0)
+            throw new ConfigurationException("max_hints_file_size_in_mb must be positive, but was " + conf.max_hints_file_size_in_mb, false);
+        if (conf.hints_flush_period_in_ms <= 0)
+            throw new ConfigurationException("hints_flush_period_in_ms must be positive, but was " + conf.hints_flush_period_in_ms, false);
 
         if (conf.memtable_flush_writers == null)
             conf.memtable_flush_writers = Math.min(8, Math.max(2, Math.min(FBUtilities.getAvailableProcessors(), conf.data_file_directories.length)));
@@ -618,6 +659,12 @@ public class DatabaseDescriptor
         if (conf.memtable_flush_writers < 1)
             throw new ConfigurationException("memtable_flush_writers must be at least 1", false);
 
+        if (conf.memtable_flush_shards == null || conf.memtable_flush_shards < 1)
+            throw new ConfigurationException("memtable_flush_shards must be at least 1", false);
+
+        if (conf.memtable_partition_shards < 0)
+            throw new ConfigurationException("memtable_partition_shards must be positive, or 0 to disable it", false);
+
         if (conf.memtable_cleanup_threshold == null)
             conf.memtable_cleanup_threshold = (float) (1.0 / (1 + conf.memtable_flush_writers));
 
@@ -634,6 +681,15 @@ public class DatabaseDescriptor
         if (conf.concurrent_compactors <= 0)
             throw new ConfigurationException("concurrent_compactors should be strictly greater than 0", false);
 
+        if (conf.concurrent_validations == null || conf.concurrent_validations <= 0)
+            throw new ConfigurationException("concurrent_validations should be strictly greater than 0", false);
+
+        if (conf.compaction_sub_ranges == null || conf.compaction_sub_ranges <= 0)
+            throw new ConfigurationException("compaction_sub_ranges should be strictly greater than 0", false);
+
+        if (conf.compaction_sub_range_min_size_in_mb == null || conf.compaction_sub_range_min_size_in_mb < 0)
+            throw new ConfigurationException("compaction_sub_range_min_size_in_mb should not be negative", false);
+
         if (conf.initial_token != null)
             for (String token : tokensFromString(conf.initial_token))
                 partitioner.getTokenFactory().validate(token);
@@ -744,6 +800,9 @@ public class DatabaseDescriptor
 
         if (conf.otc_coalescing_enough_coalesced_messages <= 0)
             throw new ConfigurationException("otc_coalescing_enough_coalesced_messages must be positive", false);
+
+        if (conf.otc_small_message_connections <= 0)
+            throw new ConfigurationException("otc_small_message_connections must be positive", false);
     }
 
     /**
@@ -886,6 +945,11 @@ public class DatabaseDescriptor
 
             FileUtils.createDirectory(conf.saved_caches_directory);
 
+            if (conf.hints_directory == null)
+                throw new ConfigurationException("hints_directory must be specified", false);
+
+            FileUtils.createDirectory(conf.hints_directory);
+
             if (conf.persistent_settings_directory == null)
                 throw new ConfigurationException("persistent_settings_directory must be specified", false);
 
@@ -1209,16 +1273,84 @@ public class DatabaseDescriptor
         return conf.concurrent_counter_writes;
     }
 
+    public static double getCounterWriteDeltaWindow()
+    {
+        return conf.counter_write_delta_window_in_ms;
+    }
+
+    @VisibleForTesting
+    public static void setCounterWriteDeltaWindow(double windowMillis)
+    {
+        conf.counter_write_delta_window_in_ms = windowMillis;
+    }
+
     public static int getFlushWriters()
     {
             return conf.memtable_flush_writers;
     }
 
+    public static int getMemtableFlushShards()
+    {
+        return conf.memtable_flush_shards;
+    }
+
+    @VisibleForTesting
+    public static void setMemtableFlushShards(int flushShards)
+    {
+        conf.memtable_flush_shards = flushShards;
+    }
+
+    public static int getMemtablePartitionShards()
+    {
+        return conf.memtable_partition_shards;
+    }
+
+    @VisibleForTesting
+    public static void setMemtablePartitionShards(int shards)
+    {
+        conf.memtable_partition_shards = shards;
+    }
+
     public static int getConcurrentCompactors()
     {
         return conf.concurrent_compactors;
     }
 
+    public static int getConcurrentValidations()
+    {
+        return conf.concurrent_validations;
+    }
+
+    public static void setConcurrentValidations(int concurrentValidations)
+    {
+        conf.concurrent_validations = concurrentValidations;
+    }
+
+    public static int getCompactionSubRanges()
+    {
+        return conf.compaction_sub_ranges;
+    }
+
+    @VisibleForTesting
+    public static void setCompactionSubRanges(int compactionSubRanges)
+    {
+        conf.compaction_sub_ranges = compactionSubRanges;
+    }
+
+    /**
+     * @return the size in bytes of the sstables of a compaction from which it is split into sub-ranges
+     */
+    public static long getCompactionSubRangeMinSize()
+    {
+        return conf.compaction_sub_range_min_size_in_mb * 1024L * 1024L;
+    }
+
+    @VisibleForTesting
+    public static void setCompactionSubRangeMinSizeInMB(int sizeInMB)
+    {
+        conf.compaction_sub_range_min_size_in_mb = sizeInMB;
+    }
+
     public static int getCompactionThroughputMbPerSec()
     {
         return conf.compaction_throughput_mb_per_sec;
@@ -1281,6 +1413,17 @@ public class DatabaseDescriptor
         return conf.commitlog_max_compression_buffers_in_pool;
     }
 
+    public static Config.CommitLogSegmentType getCommitLogSegmentType()
+    {
+        return conf.commitlog_segment_type;
+    }
+
+    @VisibleForTesting
+    public static void setCommitLogSegmentType(Config.CommitLogSegmentType segmentType)
+    {
+        conf.commitlog_segment_type = segmentType;
+    }
+
     public static int getTombstoneWarnThreshold()
     {
         return conf.tombstone_warn_threshold;
@@ -1561,6 +1704,28 @@ public class DatabaseDescriptor
         conf.native_transport_max_concurrent_connections_per_ip = native_transport_max_concurrent_connections_per_ip;
     }
 
+    public static int getNativeTransportReadBatchSize()
+    {
+        return conf.native_transport_read_batch_size;
+    }
+
+    @VisibleForTesting
+    public static void setNativeTransportReadBatchSize(int readBatchSize)
+    {
+        conf.native_transport_read_batch_size = readBatchSize;
+    }
+
+    public static boolean normalizeUnpreparedStatements()
+    {
+        return conf.normalize_unprepared_statements;
+    }
+
+    @VisibleForTesting
+    public static void setNormalizeUnpreparedStatements(boolean normalize)
+    {
+        conf.normalize_unprepared_statements = normalize;
+    }
+
     public static double getCommitLogSyncGroupWindow()
     {
         return conf.commitlog_sync_group_window_in_ms;
@@ -1571,6 +1736,16 @@ public class DatabaseDescriptor
         conf.commitlog_sync_group_window_in_ms = windowMillis;
     }
 
+    public static double getCommitLogSyncAdaptiveTargetLatency()
+    {
+        return conf.commitlog_sync_adaptive_target_latency_in_ms;
+    }
+
+    public static void setCommitLogSyncAdaptiveTargetLatency(double latencyMillis)
+    {
+        conf.commitlog_sync_adaptive_target_latency_in_ms = latencyMillis;
+    }
+
     public static double getCommitLogSyncBatchWindow()
     {
         return conf.commitlog_sync_batch_window_in_ms;
@@ -1737,6 +1912,14 @@ public class DatabaseDescriptor
         return new File(conf.saved_caches_directory, name);
     }
 
+    /**
+     * @return the file the entries of a single table are saved to, for caches saved per table
+     */
+    public static File getSerializedCachePath(String ksName, String cfName, CacheService.CacheType cacheType, String version, String extension)
+    {
+        return new File(conf.saved_caches_directory, ksName + "-" + cfName + "-" + getSerializedCachePath(cacheType, version, extension).getName());
+    }
+
     public static int getDynamicUpdateInterval()
     {
         return conf.dynamic_snitch_update_interval_in_ms;
@@ -1805,6 +1988,21 @@ public class DatabaseDescriptor
         return conf.max_hints_delivery_threads;
     }
 
+    public static String getHintsDirectory()
+    {
+        return conf.hints_directory;
+    }
+
+    public static long getMaxHintsFileSize()
+    {
+        return conf.max_hints_file_size_in_mb * 1024L * 1024L;
+    }
+
+    public static int getHintsFlushPeriodInMS()
+    {
+        return conf.hints_flush_period_in_ms;
+    }
+
     public static boolean isIncrementalBackupsEnabled()
     {
         return conf.incremental_backups;
@@ -1820,6 +2018,11 @@ public class DatabaseDescriptor
         return conf.file_cache_size_in_mb;
     }
 
+    public static int getChunkCacheSizeInMB()
+    {
+        return conf.chunk_cache_size_in_mb;
+    }
+
     public static long getTotalCommitlogSpaceInMB()
     {
         return conf.commitlog_total_space_in_mb;
@@ -1854,6 +2057,17 @@ public class DatabaseDescriptor
         return indexSummaryCapacityInMB;
     }
 
+    public static int getCacheLoadTimeout()
+    {
+        return conf.cache_load_timeout_seconds;
+    }
+
+    @VisibleForTesting
+    public static void setCacheLoadTimeout(int seconds)
+    {
+        conf.cache_load_timeout_seconds = seconds;
+    }
+
     public static int getKeyCacheSavePeriod()
     {
         return conf.key_cache_save_period;
@@ -1874,6 +2088,11 @@ public class DatabaseDescriptor
         conf.key_cache_keys_to_save = keyCacheKeysToSave;
     }
 
+    public static String getKeyCacheClassName()
+    {
+        return conf.key_cache_class_name;
+    }
+
     public static String getRowCacheClassName()
     {
         return conf.row_cache_class_name;
@@ -1940,6 +2159,17 @@ public class DatabaseDescriptor
         return conf.streaming_socket_timeout_in_ms;
     }
 
+    public static boolean streamEntireSSTables()
+    {
+        return conf.stream_entire_sstables;
+    }
+
+    @VisibleForTesting
+    public static void setStreamEntireSSTables(boolean value)
+    {
+        conf.stream_entire_sstables = value;
+    }
+
     public static String getLocalDataCenter()
     {
         return localDC;
@@ -1955,6 +2185,23 @@ public class DatabaseDescriptor
         return conf.internode_compression;
     }
 
+    @VisibleForTesting
+    public static void setInternodeCompression(Config.InternodeCompression compression)
+    {
+        conf.internode_compression = compression;
+    }
+
+    public static Config.InternodeMessagingTransport getInternodeMessagingTransport()
+    {
+        return conf.internode_messaging_transport;
+    }
+
+    @VisibleForTesting
+    public static void setInternodeMessagingTransport(Config.InternodeMessagingTransport transport)
+    {
+        conf.internode_messaging_transport = transport;
+    }
+
     public static boolean getInterDCTcpNoDelay()
     {
         return conf.inter_dc_tcp_nodelay;
@@ -2045,6 +2292,17 @@ public class DatabaseDescriptor
         conf.otc_coalescing_enough_coalesced_messages = otc_coalescing_enough_coalesced_messages;
     }
 
+    public static int getOtcSmallMessageConnections()
+    {
+        return conf.otc_small_message_connections;
+    }
+
+    @VisibleForTesting
+    public static void setOtcSmallMessageConnections(int otc_small_message_connections)
+    {
+        conf.otc_small_message_connections = otc_small_message_connections;
+    }
+
     public static boolean enableUserDefinedFunctions()
     {
         return conf.enable_user_defined_functions;
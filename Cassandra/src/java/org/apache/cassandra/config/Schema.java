@@ -45,6 +45,7 @@ import org.apache.cassandra.io.sstable.Descriptor;
 import org.apache.cassandra.schema.LegacySchemaTables;
 import org.apache.cassandra.repair.SystemDistributedKeyspace;
 import org.apache.cassandra.service.MigrationManager;
+import org.apache.cassandra.service.StorageService;
 import org.apache.cassandra.tracing.TraceKeyspace;
 import org.apache.cassandra.utils.ConcurrentBiMap;
 import org.apache.cassandra.utils.Pair;
@@ -565,6 +566,7 @@ public class Schema
             // remove the keyspace from the static instances.
             Keyspace.clear(ksm.name);
             clearKeyspaceDefinition(ksm);
+            StorageService.instance.getTokenMetadata().removeKeyspace(ksm.name);
 
             keyspace.writeOrder.awaitNewBarrier();
 
@@ -0,0 +1,301 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.cql3;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.cassandra.exceptions.InvalidRequestException;
+
+/**
+ * A query string in which the literals are replaced by bind markers, so that the queries that only differ by their
+ * literals share the statement of their normalized form, see QueryProcessor.process().
+ *
+ * Normalized queries are equal if they have the same text, the same types of literals, and are run in the same
+ * keyspace, which is what the statement prepared from their text depends on. Only the DML statements are normalized,
+ * and only if they have no bind markers of their own.
+ */
+public final class NormalizedQuery
+{
+    private static final String[] NORMALIZED_STATEMENTS = { "SELECT", "INSERT", "UPDATE", "DELETE", "BEGIN" };
+
+    private static final Pattern UUID = Pattern.compile("[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+
+    public final String keyspace;
+    public final String text;
+    private final List<Constants.Type> types;
+    private final List<Constants.Literal> literals;
+
+    private NormalizedQuery(String keyspace, String text, List<Constants.Type> types, List<Constants.Literal> literals)
+    {
+        this.keyspace = keyspace;
+        this.text = text;
+        this.types = types;
+        this.literals = literals;
+    }
+
+    /**
+     * @return the normalized form of {@code query} run in {@code keyspace}, or null if it is not a DML statement, has
+     * bind markers or could not be split in tokens the way the CQL lexer would
+     */
+    public static NormalizedQuery normalize(String query, String keyspace)
+    {
+        int length = query.length();
+        int i = 0;
+        while (i < length && Character.isWhitespace(query.charAt(i)))
+            i++;
+        int start = i;
+        while (i < length && isLetter(query.charAt(i)))
+            i++;
+        if (!isNormalized(query.substring(start, i)))
+            return null;
+
+        StringBuilder text = new StringBuilder(length);
+        text.append(query, 0, i);
+        List<Constants.Type> types = new ArrayList<>();
+        List<Constants.Literal> literals = new ArrayList<>();
+        Matcher uuid = UUID.matcher(query);
+        while (i < length)
+        {
+            char c = query.charAt(i);
+            char next = i + 1 < length ? query.charAt(i + 1) : 0;
+            int end;
+            if (c == '\'')
+            {
+                StringBuilder literal = new StringBuilder();
+                end = i + 1;
+                while (true)
+                {
+                    if (end == length)
+                        return null;
+                    char s = query.charAt(end++);
+                    if (s == '\'')
+                    {
+                        if (end == length || query.charAt(end) != '\'')
+                            break;
+                        end++;
+                    }
+                    literal.append(s);
+                }
+                add(Constants.Type.STRING, Constants.Literal.string(literal.toString()), text, types, literals);
+            }
+            else if (c == '$' && next == '$')
+            {
+                end = query.indexOf("$$", i + 2);
+                if (end < 0)
+                    return null;
+                add(Constants.Type.STRING, Constants.Literal.string(query.substring(i + 2, end)), text, types, literals);
+                end += 2;
+            }
+            else if (c == '"')
+            {
+                end = i + 1;
+                while (true)
+                {
+                    end = query.indexOf('"', end);
+                    if (end < 0)
+                        return null;
+                    end++;
+                    if (end == length || query.charAt(end) != '"')
+                        break;
+                    end++;
+                }
+                text.append(query, i, end);
+            }
+            else if ((c == '-' && next == '-') || (c == '/' && next == '/'))
+            {
+                end = query.indexOf('\n', i);
+                end = end < 0 ? length : end;
+                text.append(query, i, end);
+            }
+            else if (c == '/' && next == '*')
+            {
+                end = query.indexOf("*/", i + 2);
+                if (end < 0)
+                    return null;
+                end += 2;
+                text.append(query, i, end);
+            }
+            else if (c == '?' || (c == ':' && (isLetter(next) || next == '"')))
+            {
+                // a bind marker
+                return null;
+            }
+            else if (isHex(c) && uuid.region(i, length).lookingAt())
+            {
+                end = uuid.end();
+                if (end < length && isIdentifier(query.charAt(end)))
+                    return null;
+                add(Constants.Type.UUID, Constants.Literal.uuid(query.substring(i, end)), text, types, literals);
+            }
+            else if (c == '0' && (next == 'x' || next == 'X'))
+            {
+                end = i + 2;
+                while (end < length && isHex(query.charAt(end)))
+                    end++;
+                if (end < length && isIdentifier(query.charAt(end)))
+                    return null;
+                add(Constants.Type.HEX, Constants.Literal.hex(query.substring(i, end)), text, types, literals);
+            }
+            else if (isDigit(c) || (c == '-' && isDigit(next)))
+            {
+                end = digits(query, i + 1);
+                boolean isFloat = false;
+                if (end < length && query.charAt(end) == '.')
+                {
+                    end = digits(query, end + 1);
+                    isFloat = true;
+                }
+                if (end < length && (query.charAt(end) == 'e' || query.charAt(end) == 'E'))
+                {
+                    int exponent = end + 1;
+                    if (exponent < length && (query.charAt(exponent) == '+' || query.charAt(exponent) == '-'))
+                        exponent++;
+                    if (exponent < length && isDigit(query.charAt(exponent)))
+                    {
+                        end = digits(query, exponent);
+                        isFloat = true;
+                    }
+                }
+                if (end < length && isIdentifier(query.charAt(end)))
+                    return null;
+                String number = query.substring(i, end);
+                if (isFloat)
+                    add(Constants.Type.FLOAT, Constants.Literal.floatingPoint(number), text, types, literals);
+                else
+                    add(Constants.Type.INTEGER, Constants.Literal.integer(number), text, types, literals);
+            }
+            else if (isLetter(c))
+            {
+                end = i + 1;
+                while (end < length && isIdentifier(query.charAt(end)))
+                    end++;
+                String word = query.substring(i, end);
+                if (word.equalsIgnoreCase("true") || word.equalsIgnoreCase("false"))
+                    add(Constants.Type.BOOLEAN, Constants.Literal.bool(word), text, types, literals);
+                else
+                    text.append(word);
+            }
+            else
+            {
+                end = i + 1;
+                text.append(c);
+            }
+            i = end;
+        }
+        return new NormalizedQuery(keyspace, text.toString(), types, literals);
+    }
+
+    /**
+     * @return the values of the literals of this query, bound to {@code receivers}, the bind markers of the statement
+     * prepared from its normalized text
+     */
+    public List<ByteBuffer> bindLiterals(List<ColumnSpecification> receivers) throws InvalidRequestException
+    {
+        assert receivers.size() == literals.size();
+        List<ByteBuffer> values = new ArrayList<>(literals.size());
+        for (int i = 0; i < literals.size(); i++)
+            values.add(literals.get(i).prepare(keyspace, receivers.get(i)).bytes);
+        return values;
+    }
+
+    public int literalCount()
+    {
+        return types.size();
+    }
+
+    /**
+     * @return an equal query without the values of the literals, so that caching it does not keep them around
+     */
+    public NormalizedQuery withoutLiterals()
+    {
+        return new NormalizedQuery(keyspace, text, types, Collections.<Constants.Literal>emptyList());
+    }
+
+    private static void add(Constants.Type type, Constants.Literal literal, StringBuilder text, List<Constants.Type> types, List<Constants.Literal> literals)
+    {
+        text.append('?');
+        types.add(type);
+        literals.add(literal);
+    }
+
+    private static boolean isNormalized(String keyword)
+    {
+        for (String statement : NORMALIZED_STATEMENTS)
+        {
+            if (statement.equalsIgnoreCase(keyword))
+                return true;
+        }
+        return false;
+    }
+
+    private static int digits(String query, int from)
+    {
+        while (from < query.length() && isDigit(query.charAt(from)))
+            from++;
+        return from;
+    }
+
+    private static boolean isDigit(char c)
+    {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter(char c)
+    {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isHex(char c)
+    {
+        return isDigit(c) || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    private static boolean isIdentifier(char c)
+    {
+        return isLetter(c) || isDigit(c) || c == '_';
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+            return true;
+        if (!(o instanceof NormalizedQuery))
+            return false;
+        NormalizedQuery that = (NormalizedQuery) o;
+        return Objects.equals(keyspace, that.keyspace) && text.equals(that.text) && types.equals(that.types);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * (31 * Objects.hashCode(keyspace) + text.hashCode()) + types.hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return text;
+    }
+}
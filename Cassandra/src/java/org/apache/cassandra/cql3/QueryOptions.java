@@ -96,10 +96,24 @@ public abstract class QueryOptions
         return new OptionsWithColumnSpecifications(options, columnSpecs);
     }
 
+    public static QueryOptions withValues(QueryOptions options, List<ByteBuffer> values)
+    {
+        return new OptionsWithValues(options, values);
+    }
+
     public abstract ConsistencyLevel getConsistency();
     public abstract List<ByteBuffer> getValues();
     public abstract boolean skipMetadata();
 
+    /**
+     * Whether values were given to bind, which can be told before {@link #prepare} unlike the values themselves.
+     */
+    public boolean hasValues()
+    {
+        List<ByteBuffer> values = getValues();
+        return values != null && !values.isEmpty();
+    }
+
     /**
      * Returns the term corresponding to column {@code columnName} in the JSON value of bind index {@code bindIndex}.
      *
@@ -279,6 +293,12 @@ public abstract class QueryOptions
             return wrapped.getProtocolVersion();
         }
 
+        @Override
+        public boolean hasValues()
+        {
+            return wrapped.hasValues();
+        }
+
         SpecificOptions getSpecificOptions()
         {
             return wrapped.getSpecificOptions();
@@ -318,6 +338,32 @@ public abstract class QueryOptions
         }
     }
 
+    /**
+     * <code>QueryOptions</code> decorator that binds values of its own, see {@link NormalizedQuery}.
+     */
+    static class OptionsWithValues extends QueryOptionsWrapper
+    {
+        private final List<ByteBuffer> values;
+
+        OptionsWithValues(QueryOptions wrapped, List<ByteBuffer> values)
+        {
+            super(wrapped);
+            this.values = values;
+        }
+
+        @Override
+        public List<ByteBuffer> getValues()
+        {
+            return values;
+        }
+
+        @Override
+        public boolean hasValues()
+        {
+            return !values.isEmpty();
+        }
+    }
+
     static class OptionsWithNames extends QueryOptionsWrapper
     {
         private final List<String> names;
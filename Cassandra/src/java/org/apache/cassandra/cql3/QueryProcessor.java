@@ -37,6 +37,7 @@ import com.googlecode.concurrentlinkedhashmap.EntryWeigher;
 import com.googlecode.concurrentlinkedhashmap.EvictionListener;
 import org.antlr.runtime.*;
 import org.apache.cassandra.concurrent.ScheduledExecutors;
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.cql3.functions.Function;
 import org.apache.cassandra.cql3.functions.FunctionName;
 import org.apache.cassandra.cql3.functions.Functions;
@@ -83,9 +84,25 @@ public class QueryProcessor implements QueryHandler
         }
     };
 
+    private static final EntryWeigher<NormalizedQuery, ParsedStatement.Prepared> normalizedMemoryUsageWeigher = new EntryWeigher<NormalizedQuery, ParsedStatement.Prepared>()
+    {
+        @Override
+        public int weightOf(NormalizedQuery key, ParsedStatement.Prepared value)
+        {
+            long statementSize = value == NOT_NORMALIZABLE ? 0 : measure(value.statement) + measure(value.boundNames);
+            return Ints.checkedCast(measure(key) + statementSize);
+        }
+    };
+
+    // Cached for the normalized queries that cannot be executed as the statement of their normalized form
+    private static final ParsedStatement.Prepared NOT_NORMALIZABLE = new ParsedStatement.Prepared(null);
+
     private static final ConcurrentLinkedHashMap<MD5Digest, ParsedStatement.Prepared> preparedStatements;
     private static final ConcurrentLinkedHashMap<Integer, ParsedStatement.Prepared> thriftPreparedStatements;
 
+    // The statements shared by the unprepared queries of the same normalized form, see process()
+    private static final ConcurrentLinkedHashMap<NormalizedQuery, ParsedStatement.Prepared> normalizedStatements;
+
     // A map for prepared statements used internally (which we don't want to mix with user statement, in particular we don't
     // bother with expiration on those.
     private static final ConcurrentMap<String, ParsedStatement.Prepared> internalStatements = new ConcurrentHashMap<>();
@@ -123,6 +140,11 @@ public class QueryProcessor implements QueryHandler
                                    })
                                    .build();
 
+        normalizedStatements = new ConcurrentLinkedHashMap.Builder<NormalizedQuery, ParsedStatement.Prepared>()
+                               .maximumWeightedCapacity(MAX_CACHE_PREPARED_MEMORY)
+                               .weigher(normalizedMemoryUsageWeigher)
+                               .build();
+
         ScheduledExecutors.scheduledTasks.scheduleAtFixedRate(new Runnable()
         {
             public void run()
@@ -141,6 +163,11 @@ public class QueryProcessor implements QueryHandler
         return preparedStatements.size() + thriftPreparedStatements.size();
     }
 
+    public static int normalizedStatementsCount()
+    {
+        return normalizedStatements.size();
+    }
+
     // Work around initialization dependency
     private static enum InternalStateInstance
     {
@@ -246,7 +273,35 @@ public class QueryProcessor implements QueryHandler
     public ResultMessage process(String queryString, QueryState queryState, QueryOptions options)
     throws RequestExecutionException, RequestValidationException
     {
-        ParsedStatement.Prepared p = getStatement(queryString, queryState.getClientState());
+        ClientState clientState = queryState.getClientState();
+
+        // A query without values of its own to bind is executed as the cached statement of its normalized form, to
+        // which its literals are bound, rather than parsed and prepared again.
+        NormalizedQuery normalized = DatabaseDescriptor.normalizeUnpreparedStatements() && !options.hasValues()
+                                   ? NormalizedQuery.normalize(queryString, clientState.getRawKeyspace())
+                                   : null;
+        ParsedStatement.Prepared cached = normalized == null ? null : normalizedStatements.get(normalized);
+
+        ParsedStatement.Prepared p;
+        if (cached != null && cached != NOT_NORMALIZABLE)
+        {
+            metrics.normalizedStatementsHits.inc();
+            Tracing.trace("Binding {} literals to the statement of {}", normalized.literalCount(), normalized);
+            p = cached;
+            options = QueryOptions.withValues(options, normalized.bindLiterals(p.boundNames));
+        }
+        else
+        {
+            // the query itself is always parsed first, so that invalid queries fail as they would without normalizing
+            p = getStatement(queryString, clientState);
+            if (normalized != null)
+            {
+                metrics.normalizedStatementsMisses.inc();
+                if (cached == null)
+                    normalizedStatements.putIfAbsent(normalized.withoutLiterals(), prepareNormalized(normalized, p, clientState));
+            }
+        }
+
         options.prepare(p.boundNames);
         CQLStatement prepared = p.statement;
         if (prepared.getBoundTerms() != options.getValues().size())
@@ -258,6 +313,30 @@ public class QueryProcessor implements QueryHandler
         return processStatement(prepared, queryState, options);
     }
 
+    /**
+     * @return the statement of the normalized form of a query of statement {@code original}, or NOT_NORMALIZABLE if
+     * its literals cannot be bound to it, e.g. because the literal of the query is not a term in the grammar
+     */
+    private static ParsedStatement.Prepared prepareNormalized(NormalizedQuery normalized, ParsedStatement.Prepared original, ClientState clientState)
+    {
+        if (!(original.statement instanceof SelectStatement
+              || original.statement instanceof ModificationStatement
+              || original.statement instanceof BatchStatement))
+            return NOT_NORMALIZABLE;
+
+        try
+        {
+            ParsedStatement.Prepared p = getStatement(normalized.text, clientState);
+            if (p.statement.getClass() != original.statement.getClass() || p.boundNames.size() != normalized.literalCount())
+                return NOT_NORMALIZABLE;
+            return p;
+        }
+        catch (RequestValidationException e)
+        {
+            return NOT_NORMALIZABLE;
+        }
+    }
+
     public static ParsedStatement.Prepared parseStatement(String queryStr, QueryState queryState) throws RequestValidationException
     {
         return getStatement(queryStr, queryState.getClientState());
@@ -586,6 +665,8 @@ public class QueryProcessor implements QueryHandler
     {
         private void removeInvalidPreparedStatements(String ksName, String cfName)
         {
+            // the normalized statements are simply all dropped, they are quick to prepare again
+            normalizedStatements.clear();
             removeInvalidPreparedStatements(internalStatements.values().iterator(), ksName, cfName);
             removeInvalidPreparedStatements(preparedStatements.values().iterator(), ksName, cfName);
             removeInvalidPreparedStatements(thriftPreparedStatements.values().iterator(), ksName, cfName);
@@ -704,6 +785,7 @@ public class QueryProcessor implements QueryHandler
 
         private void removeAllInvalidPreparedStatementsForFunction(String ksName, String functionName)
         {
+            normalizedStatements.clear();
             removeInvalidPreparedStatementsForFunction(internalStatements.values().iterator(), ksName, functionName);
             removeInvalidPreparedStatementsForFunction(preparedStatements.values().iterator(), ksName, functionName);
             removeInvalidPreparedStatementsForFunction(thriftPreparedStatements.values().iterator(), ksName, functionName);
@@ -28,6 +28,7 @@ import org.apache.cassandra.exceptions.ConfigurationException;
 import org.apache.cassandra.exceptions.SyntaxException;
 import org.apache.cassandra.io.compress.CompressionParameters;
 import org.apache.cassandra.utils.BloomCalculations;
+import org.apache.cassandra.utils.FilterFactory;
 
 public class CFPropDefs extends PropertyDefinitions
 {
@@ -43,7 +44,9 @@ public class CFPropDefs extends PropertyDefinitions
     public static final String KW_MAX_INDEX_INTERVAL = "max_index_interval";
     public static final String KW_SPECULATIVE_RETRY = "speculative_retry";
     public static final String KW_BF_FP_CHANCE = "bloom_filter_fp_chance";
+    public static final String KW_BF_TYPE = "bloom_filter_type";
     public static final String KW_MEMTABLE_FLUSH_PERIOD = "memtable_flush_period_in_ms";
+    public static final String KW_MEMTABLE_SHARDS = "memtable_shards";
 
     public static final String KW_COMPACTION = "compaction";
     public static final String KW_COMPRESSION = "compression";
@@ -67,9 +70,11 @@ public class CFPropDefs extends PropertyDefinitions
         keywords.add(KW_MAX_INDEX_INTERVAL);
         keywords.add(KW_SPECULATIVE_RETRY);
         keywords.add(KW_BF_FP_CHANCE);
+        keywords.add(KW_BF_TYPE);
         keywords.add(KW_COMPACTION);
         keywords.add(KW_COMPRESSION);
         keywords.add(KW_MEMTABLE_FLUSH_PERIOD);
+        keywords.add(KW_MEMTABLE_SHARDS);
         keywords.add(KW_ID);
 
         obsoleteKeywords.add("index_interval");
@@ -210,6 +215,7 @@ public class CFPropDefs extends PropertyDefinitions
         cfm.defaultTimeToLive(getInt(KW_DEFAULT_TIME_TO_LIVE, cfm.getDefaultTimeToLive()));
         cfm.speculativeRetry(CFMetaData.SpeculativeRetry.fromString(getString(KW_SPECULATIVE_RETRY, cfm.getSpeculativeRetry().toString())));
         cfm.memtableFlushPeriod(getInt(KW_MEMTABLE_FLUSH_PERIOD, cfm.getMemtableFlushPeriod()));
+        cfm.memtableShards(getInt(KW_MEMTABLE_SHARDS, cfm.getMemtableShards()));
         cfm.minIndexInterval(getInt(KW_MIN_INDEX_INTERVAL, cfm.getMinIndexInterval()));
         cfm.maxIndexInterval(getInt(KW_MAX_INDEX_INTERVAL, cfm.getMaxIndexInterval()));
 
@@ -230,6 +236,7 @@ public class CFPropDefs extends PropertyDefinitions
                     bloomFilterFpChance));
         }
         cfm.bloomFilterFpChance(bloomFilterFpChance);
+        cfm.bloomFilterType(FilterFactory.Type.fromString(getString(KW_BF_TYPE, cfm.getBloomFilterType().toString())));
 
         if (!getCompressionOptions().isEmpty())
             cfm.compressionParameters(CompressionParameters.create(getCompressionOptions()));
@@ -20,6 +20,7 @@ package org.apache.cassandra.db;
 import java.util.AbstractCollection;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
@@ -33,6 +34,7 @@ import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Iterators;
 
 import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.composites.CellName;
 import org.apache.cassandra.db.composites.Composite;
 import org.apache.cassandra.db.filter.ColumnSlice;
@@ -58,6 +60,13 @@ import static org.apache.cassandra.db.index.SecondaryIndexManager.Updater;
  * <p>
  * WARNING: removing element through getSortedColumns().iterator() is *not* supported
  * </p>
+ * <p>
+ * When concurrent updates of a partition waste too much work on failed CAS (see wasteTracker), and
+ * memtable_partition_shards allows it, the cells of the partition are split into shards by the hash of their
+ * clustering prefix, each in a tree of its own. An update of a single shard then only redoes its work when another
+ * update changed that shard, and only retries the (cheap) CAS of the partition otherwise; reads merge the shards.
+ * Updates still replace the whole holder of the partition at once, so they stay atomic and isolated.
+ * </p>
  */
 public class AtomicBTreeColumns extends ColumnFamily
 {
@@ -157,6 +166,9 @@ public class AtomicBTreeColumns extends ColumnFamily
 
     public SearchIterator<CellName, Cell> searchIterator()
     {
+        Holder ref = this.ref;
+        if (ref.shards != null)
+            return new ShardedSearchIterator(ref.shards, asymmetricComparator());
         return new BTreeSearchIterator<>(ref.tree, asymmetricComparator());
     }
 
@@ -205,6 +217,11 @@ public class AtomicBTreeColumns extends ColumnFamily
     {
         ColumnUpdater updater = new ColumnUpdater(this, cm.metadata, allocator, writeOp, indexer);
         DeletionInfo inputDeletionInfoCopy = null;
+        Comparator<Cell> comparator = metadata.comparator.columnComparator(Memtable.MEMORY_POOL instanceof NativePool);
+
+        // the shard tree the update was last merged into, and the result, while it only updates a single shard
+        Object[] shardBase = null;
+        Object[] shardTree = null;
 
         boolean monitorOwned = false;
         try
@@ -218,36 +235,69 @@ public class AtomicBTreeColumns extends ColumnFamily
             {
                 Holder current = ref;
                 updater.ref = current;
-                updater.reset();
 
-                DeletionInfo deletionInfo;
-                if (cm.deletionInfo().mayModify(current.deletionInfo))
+                Holder updated;
+                int shard = current.shards == null || cm.deletionInfo().mayModify(current.deletionInfo)
+                          ? -1
+                          : singleShardOf(cm, current.shards.length);
+                if (shard >= 0)
                 {
-                    if (inputDeletionInfoCopy == null)
-                        inputDeletionInfoCopy = cm.deletionInfo().copy(HeapAllocator.instance);
-
-                    deletionInfo = current.deletionInfo.copy().add(inputDeletionInfoCopy);
-                    updater.allocated(deletionInfo.unsharedHeapSize() - current.deletionInfo.unsharedHeapSize());
+                    // the cells merged into the shard stay valid as long as no other update changed that shard
+                    updater.shard = shard;
+                    if (current.shards[shard] != shardBase)
+                    {
+                        updater.reset();
+                        shardBase = current.shards[shard];
+                        shardTree = BTree.update(shardBase, comparator, cm, cm.getColumnCount(), true, updater);
+                    }
+                    if (shardTree == null)
+                        shardBase = null;
+                    updated = shardTree == null ? null : current.withShard(shard, shardTree);
                 }
                 else
                 {
-                    deletionInfo = current.deletionInfo;
-                }
+                    updater.shard = -1;
+                    updater.reset();
+                    shardBase = null;
 
-                Object[] tree = BTree.update(current.tree, metadata.comparator.columnComparator(Memtable.MEMORY_POOL instanceof NativePool), cm, cm.getColumnCount(), true, updater);
+                    DeletionInfo deletionInfo;
+                    if (cm.deletionInfo().mayModify(current.deletionInfo))
+                    {
+                        if (inputDeletionInfoCopy == null)
+                            inputDeletionInfoCopy = cm.deletionInfo().copy(HeapAllocator.instance);
+
+                        deletionInfo = current.deletionInfo.copy().add(inputDeletionInfoCopy);
+                        updater.allocated(deletionInfo.unsharedHeapSize() - current.deletionInfo.unsharedHeapSize());
+                    }
+                    else
+                    {
+                        deletionInfo = current.deletionInfo;
+                    }
+
+                    if (current.shards == null)
+                    {
+                        Object[] tree = BTree.update(current.tree, comparator, cm, cm.getColumnCount(), true, updater);
+                        updated = tree == null ? null : new Holder(tree, deletionInfo);
+                    }
+                    else
+                    {
+                        updated = updateShards(current, cm, comparator, deletionInfo, updater);
+                    }
+                }
 
-                if (tree != null && refUpdater.compareAndSet(this, current, new Holder(tree, deletionInfo)))
+                if (updated != null && refUpdater.compareAndSet(this, current, updated))
                 {
                     indexer.updateRowLevelIndexes();
                     updater.finish();
                     return updater;
                 }
-                else if (!monitorOwned)
+                else if (!monitorOwned && (shardBase == null || ref.shards[shard] != shardBase))
                 {
+                    // the work of this attempt is wasted, unless it only lost the race to an update of another shard
                     boolean shouldLock = usePessimisticLocking();
                     if (!shouldLock)
                     {
-                        shouldLock = updateWastedAllocationTracker(updater.heapSize);
+                        shouldLock = updateWastedAllocationTracker(updater.heapSize) && !shard();
                     }
                     if (shouldLock)
                     {
@@ -264,6 +314,104 @@ public class AtomicBTreeColumns extends ColumnFamily
         }
     }
 
+    /**
+     * @return the holder of the partition with the cells of {@code cm} merged into the shards of {@code current}, or
+     * null if the update aborted early
+     */
+    private static Holder updateShards(Holder current, ColumnFamily cm, Comparator<Cell> comparator, DeletionInfo deletionInfo, ColumnUpdater updater)
+    {
+        int shards = current.shards.length;
+        List<List<Cell>> cells = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++)
+            cells.add(new ArrayList<Cell>());
+        for (Cell cell : cm)
+            cells.get(shardOf(cell.name(), shards)).add(cell);
+
+        Object[][] trees = current.shards.clone();
+        for (int i = 0; i < shards; i++)
+        {
+            if (cells.get(i).isEmpty())
+                continue;
+            trees[i] = BTree.update(trees[i], comparator, cells.get(i), true, updater);
+            if (trees[i] == null)
+                return null;
+        }
+        return new Holder(null, trees, deletionInfo);
+    }
+
+    /**
+     * @return the shard of all the cells of {@code cm}, or -1 if they span several shards
+     */
+    private static int singleShardOf(ColumnFamily cm, int shards)
+    {
+        int shard = -1;
+        for (Cell cell : cm)
+        {
+            int cellShard = shardOf(cell.name(), shards);
+            if (shard >= 0 && cellShard != shard)
+                return -1;
+            shard = cellShard;
+        }
+        return shard < 0 ? 0 : shard;
+    }
+
+    /**
+     * The shard of a cell is given by the hash of its clustering prefix, so that the cells of a row, which are
+     * usually updated together, share their shard; static cells go to the first one.
+     */
+    static int shardOf(CellName name, int shards)
+    {
+        if (name.isStatic())
+            return 0;
+
+        int hash = 0;
+        for (int i = 0; i < name.clusteringSize(); i++)
+            hash = 31 * hash + name.get(i).hashCode();
+        hash ^= hash >>> 16;
+        return (hash & Integer.MAX_VALUE) % shards;
+    }
+
+    /**
+     * Splits the cells of the partition into memtable_partition_shards shards, unless it is disabled, the table has
+     * no clustering columns to tell the rows apart or the partition is sharded already, and gives optimistic updates
+     * another go if it did.
+     *
+     * @return true if the partition was sharded by this call
+     */
+    boolean shard()
+    {
+        int shards = DatabaseDescriptor.getMemtablePartitionShards();
+        if (shards < 2 || metadata.comparator.clusteringPrefixSize() == 0)
+            return false;
+
+        while (true)
+        {
+            Holder current = ref;
+            if (current.shards != null)
+                return false;
+
+            List<List<Cell>> cells = new ArrayList<>(shards);
+            for (int i = 0; i < shards; i++)
+                cells.add(new ArrayList<Cell>());
+            Iterator<Cell> iterator = BTree.slice(current.tree, true);
+            while (iterator.hasNext())
+            {
+                Cell cell = iterator.next();
+                cells.get(shardOf(cell.name(), shards)).add(cell);
+            }
+
+            Object[][] trees = new Object[shards][];
+            for (int i = 0; i < shards; i++)
+                trees[i] = BTree.build(cells.get(i), null, true, UpdateFunction.NoOp.<Cell>instance());
+
+            if (refUpdater.compareAndSet(this, current, new Holder(null, trees, current.deletionInfo)))
+                break;
+        }
+
+        wasteTrackerUpdater.set(this, TRACKER_NEVER_WASTED);
+        return true;
+    }
+
     boolean usePessimisticLocking()
     {
         return wasteTracker == TRACKER_PESSIMISTIC_LOCKING;
@@ -349,7 +497,9 @@ public class AtomicBTreeColumns extends ColumnFamily
 
     public Cell getColumn(CellName name)
     {
-        return (Cell) BTree.find(ref.tree, asymmetricComparator(), name);
+        Holder ref = this.ref;
+        Object[] tree = ref.shards == null ? ref.tree : ref.shards[shardOf(name, ref.shards.length)];
+        return (Cell) BTree.find(tree, asymmetricComparator(), name);
     }
 
     private Comparator<Object> asymmetricComparator()
@@ -379,38 +529,119 @@ public class AtomicBTreeColumns extends ColumnFamily
         {
             public Iterator<V> iterator()
             {
-                return Iterators.transform(BTree.<Cell>slice(ref.tree, forwards), f);
+                if (ref.shards == null)
+                    return Iterators.transform(BTree.<Cell>slice(ref.tree, forwards), f);
+
+                List<Iterator<Cell>> iterators = new ArrayList<>(ref.shards.length);
+                for (Object[] shard : ref.shards)
+                    iterators.add(BTree.<Cell>slice(shard, forwards));
+                return Iterators.transform(merge(iterators, forwards), f);
             }
 
             public int size()
             {
-                return BTree.slice(ref.tree, true).count();
+                return count(ref);
             }
         };
     }
 
     public int getColumnCount()
     {
-        return BTree.slice(ref.tree, true).count();
+        return count(ref);
+    }
+
+    private static int count(Holder ref)
+    {
+        if (ref.shards == null)
+            return BTree.slice(ref.tree, true).count();
+
+        int count = 0;
+        for (Object[] shard : ref.shards)
+            count += BTree.slice(shard, true).count();
+        return count;
     }
 
     public boolean hasColumns()
     {
-        return !BTree.isEmpty(ref.tree);
+        Holder ref = this.ref;
+        if (ref.shards == null)
+            return !BTree.isEmpty(ref.tree);
+
+        for (Object[] shard : ref.shards)
+        {
+            if (!BTree.isEmpty(shard))
+                return true;
+        }
+        return false;
     }
 
     public Iterator<Cell> iterator(ColumnSlice[] slices)
+    {
+        Holder ref = this.ref;
+        if (ref.shards == null)
+            return iterator(ref.tree, slices);
+
+        List<Iterator<Cell>> iterators = new ArrayList<>(ref.shards.length);
+        for (Object[] shard : ref.shards)
+            iterators.add(iterator(shard, slices));
+        return merge(iterators, true);
+    }
+
+    private Iterator<Cell> iterator(Object[] tree, ColumnSlice[] slices)
     {
         return slices.length == 1
-             ? slice(ref.tree, asymmetricComparator(), slices[0].start, slices[0].finish, true)
-             : new SliceIterator(ref.tree, asymmetricComparator(), true, slices);
+             ? slice(tree, asymmetricComparator(), slices[0].start, slices[0].finish, true)
+             : new SliceIterator(tree, asymmetricComparator(), true, slices);
     }
 
     public Iterator<Cell> reverseIterator(ColumnSlice[] slices)
+    {
+        Holder ref = this.ref;
+        if (ref.shards == null)
+            return reverseIterator(ref.tree, slices);
+
+        List<Iterator<Cell>> iterators = new ArrayList<>(ref.shards.length);
+        for (Object[] shard : ref.shards)
+            iterators.add(reverseIterator(shard, slices));
+        return merge(iterators, false);
+    }
+
+    private Iterator<Cell> reverseIterator(Object[] tree, ColumnSlice[] slices)
     {
         return slices.length == 1
-             ? slice(ref.tree, asymmetricComparator(), slices[0].finish, slices[0].start, false)
-             : new SliceIterator(ref.tree, asymmetricComparator(), false, slices);
+             ? slice(tree, asymmetricComparator(), slices[0].finish, slices[0].start, false)
+             : new SliceIterator(tree, asymmetricComparator(), false, slices);
+    }
+
+    // merges the cells of the shards, which are disjoint, in order
+    private Iterator<Cell> merge(List<Iterator<Cell>> iterators, boolean forwards)
+    {
+        Comparator<Cell> comparator = new Comparator<Cell>()
+        {
+            public int compare(Cell c1, Cell c2)
+            {
+                return metadata.comparator.compare(c1.name(), c2.name());
+            }
+        };
+        return MergeIterator.get(iterators, forwards ? comparator : Collections.reverseOrder(comparator), new MergeIterator.Reducer<Cell, Cell>()
+        {
+            Cell cell;
+
+            public boolean trivialReduceIsTrivial()
+            {
+                return true;
+            }
+
+            public void reduce(Cell current)
+            {
+                cell = current;
+            }
+
+            protected Cell getReduced()
+            {
+                return cell;
+            }
+        });
     }
 
     public boolean isInsertReversed()
@@ -426,18 +657,74 @@ public class AtomicBTreeColumns extends ColumnFamily
     private static final class Holder
     {
         final DeletionInfo deletionInfo;
-        // the btree of columns
+        // the btree of columns, unless they are sharded
         final Object[] tree;
+        // the btrees of the columns of each shard, see shardOf(), or null
+        final Object[][] shards;
 
         Holder(Object[] tree, DeletionInfo deletionInfo)
+        {
+            this(tree, null, deletionInfo);
+        }
+
+        Holder(Object[] tree, Object[][] shards, DeletionInfo deletionInfo)
         {
             this.tree = tree;
+            this.shards = shards;
             this.deletionInfo = deletionInfo;
         }
 
         Holder with(DeletionInfo info)
         {
-            return new Holder(this.tree, info);
+            return new Holder(this.tree, this.shards, info);
+        }
+
+        Holder withShard(int shard, Object[] tree)
+        {
+            Object[][] shards = this.shards.clone();
+            shards[shard] = tree;
+            return new Holder(null, shards, deletionInfo);
+        }
+    }
+
+    /**
+     * Looks up the cells of each shard in its own search iterator, created the first time a cell of the shard is asked
+     * for: the names asked for are increasing, and so are those of each shard.
+     */
+    private static final class ShardedSearchIterator implements SearchIterator<CellName, Cell>
+    {
+        private final Object[][] shards;
+        private final Comparator<Object> comparator;
+        private final List<BTreeSearchIterator<Object, CellName, Cell>> iterators;
+
+        ShardedSearchIterator(Object[][] shards, Comparator<Object> comparator)
+        {
+            this.shards = shards;
+            this.comparator = comparator;
+            this.iterators = new ArrayList<>(Collections.<BTreeSearchIterator<Object, CellName, Cell>>nCopies(shards.length, null));
+        }
+
+        public boolean hasNext()
+        {
+            for (int i = 0; i < shards.length; i++)
+            {
+                BTreeSearchIterator<Object, CellName, Cell> iterator = iterators.get(i);
+                if (iterator == null ? !BTree.isEmpty(shards[i]) : iterator.hasNext())
+                    return true;
+            }
+            return false;
+        }
+
+        public Cell next(CellName name)
+        {
+            int shard = shardOf(name, shards.length);
+            BTreeSearchIterator<Object, CellName, Cell> iterator = iterators.get(shard);
+            if (iterator == null)
+            {
+                iterator = new BTreeSearchIterator<>(shards[shard], comparator);
+                iterators.set(shard, iterator);
+            }
+            return iterator.next(name);
         }
     }
 
@@ -450,6 +737,8 @@ public class AtomicBTreeColumns extends ColumnFamily
         final OpOrder.Group writeOp;
         final Updater indexer;
         Holder ref;
+        // the shard being updated, or -1 if the update may span all of them
+        int shard = -1;
         long dataSize;
         long heapSize;
         long colUpdateTimeDelta = Long.MAX_VALUE;
@@ -530,7 +819,9 @@ public class AtomicBTreeColumns extends ColumnFamily
 
         public boolean abortEarly()
         {
-            return updating.ref != ref;
+            if (shard < 0)
+                return updating.ref != ref;
+            return updating.ref.shards[shard] != ref.shards[shard];
         }
 
         public void allocated(long heapSize)
@@ -109,6 +109,14 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
                                                                                           new NamedThreadFactory("MemtableFlushWriter"),
                                                                                           "internal");
 
+    // writes the token range shards of a single memtable flush concurrently; see Memtable.flush()
+    static final ExecutorService flushShardExecutor = new JMXEnabledThreadPoolExecutor(DatabaseDescriptor.getMemtableFlushShards(),
+                                                                                       StageManager.KEEPALIVE,
+                                                                                       TimeUnit.SECONDS,
+                                                                                       new LinkedBlockingQueue<Runnable>(),
+                                                                                       new NamedThreadFactory("MemtableFlushShardWriter"),
+                                                                                       "internal");
+
     // post-flush executor is single threaded to provide guarantee that any flush Future on a CF will never return until prior flushes have completed
     @VisibleForTesting
     static final ExecutorService postFlushExecutor = new JMXEnabledThreadPoolExecutor(1,
@@ -208,6 +216,9 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
     {
         flushExecutor.shutdown();
         flushExecutor.awaitTermination(60, TimeUnit.SECONDS);
+        // only once the flushes have completed, as they may still be handing shards to this executor
+        flushShardExecutor.shutdown();
+        flushShardExecutor.awaitTermination(60, TimeUnit.SECONDS);
     }
 
     public static void shutdownPostFlushExecutor() throws InterruptedException
@@ -219,6 +230,7 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
     public static void shutdownExecutorsAndWait(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException
     {
         ExecutorUtils.shutdownAndWait(timeout, unit, reclaimExecutor, postFlushExecutor, flushExecutor);
+        ExecutorUtils.shutdownAndWait(timeout, unit, flushShardExecutor);
     }
 
 
@@ -942,7 +954,7 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
         return getTempSSTablePath(directory, format.info.getLatestVersion(), format);
     }
 
-    private String getTempSSTablePath(File directory, Version version, SSTableFormat.Type format)
+    public String getTempSSTablePath(File directory, Version version, SSTableFormat.Type format)
     {
         Descriptor desc = new Descriptor(version,
                                          directory,
@@ -1132,10 +1144,10 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
         final CountDownLatch latch = new CountDownLatch(1);
         final ReplayPosition commitLogUpperBound;
         final List<Memtable> memtables;
-        final List<SSTableReader> readers;
+        final List<Collection<SSTableReader>> readers;
 
         private PostFlush(boolean flushSecondaryIndexes, OpOrder.Barrier writeBarrier, ReplayPosition commitLogUpperBound,
-                          List<Memtable> memtables, List<SSTableReader> readers)
+                          List<Memtable> memtables, List<Collection<SSTableReader>> readers)
         {
             this.writeBarrier = writeBarrier;
             this.flushSecondaryIndexes = flushSecondaryIndexes;
@@ -1183,9 +1195,9 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
             for (int i = 0 ; i < memtables.size() ; i++)
             {
                 Memtable memtable = memtables.get(i);
-                SSTableReader reader = readers.get(i);
-                memtable.cfs.data.permitCompactionOfFlushed(reader);
-                memtable.cfs.compactionStrategyWrapper.replaceFlushed(memtable, reader);
+                Collection<SSTableReader> flushed = readers.get(i);
+                memtable.cfs.data.permitCompactionOfFlushed(flushed);
+                memtable.cfs.compactionStrategyWrapper.replaceFlushed(memtable, flushed);
             }
             metric.pendingFlushes.dec();
 
@@ -1205,7 +1217,7 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
     {
         final OpOrder.Barrier writeBarrier;
         final List<Memtable> memtables = new ArrayList<>();
-        final List<SSTableReader> readers = new ArrayList<>();
+        final List<Collection<SSTableReader>> readers = new ArrayList<>();
         final PostFlush postFlush;
         final boolean truncate;
 
@@ -1266,8 +1278,8 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
                 memtable.cfs.data.markFlushing(memtable);
                 if (memtable.isClean() || truncate)
                 {
-                    memtable.cfs.data.replaceFlushed(memtable, null);
-                    memtable.cfs.compactionStrategyWrapper.replaceFlushed(memtable, null);
+                    memtable.cfs.data.replaceFlushed(memtable, Collections.<SSTableReader>emptyList());
+                    memtable.cfs.compactionStrategyWrapper.replaceFlushed(memtable, Collections.<SSTableReader>emptyList());
                     reclaim(memtable);
                     iter.remove();
                 }
@@ -1286,10 +1298,10 @@ public class ColumnFamilyStore implements ColumnFamilyStoreMBean
                 for (Memtable memtable : memtables)
                 {
                     // flush the memtable
-                    SSTableReader reader = memtable.flush();
-                    memtable.cfs.data.replaceFlushed(memtable, reader);
+                    Collection<SSTableReader> flushed = memtable.flush();
+                    memtable.cfs.data.replaceFlushed(memtable, flushed);
                     reclaim(memtable);
-                    readers.add(reader);
+                    readers.add(flushed);
                 }
 
                 // signal the post-flush we've done our work
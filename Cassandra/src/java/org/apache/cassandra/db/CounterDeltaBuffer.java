@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+import org.apache.cassandra.concurrent.DebuggableScheduledThreadPoolExecutor;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.composites.CellName;
+
+/**
+ * Gathers the increments of counter cells in memory, so that the concurrent increments of a hot counter are applied as
+ * one rather than one after the other under the counter lock, see counter_write_delta_window_in_ms.
+ *
+ * The first increment of a cell schedules a fold of the cell once the window has elapsed. Until the fold starts, the
+ * increments of the cell are added to its pending delta without locking. The fold then applies their sum as a single
+ * {@link CounterMutation}, with the usual read before write under the cell lock, which keeps it consistent with the
+ * increments applied directly. The local shard of the cell thus gets one clock increment for all of the increments it
+ * folds, each of which gets the resulting counter cell back to replicate.
+ */
+public class CounterDeltaBuffer
+{
+    public static final CounterDeltaBuffer instance = new CounterDeltaBuffer();
+
+    private final ConcurrentMap<CellKey, PendingDelta> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService folder = new DebuggableScheduledThreadPoolExecutor(DatabaseDescriptor.getConcurrentCounterWriters(),
+                                                                                              "CounterDeltaFolder",
+                                                                                              Thread.NORM_PRIORITY);
+
+    private CounterDeltaBuffer()
+    {
+    }
+
+    /**
+     * Adds the increment of {@code update} to the pending delta of its cell.
+     *
+     * @return the future counter cell that the increment will have been applied with, or the failure of its fold
+     */
+    public ListenableFuture<Cell> add(ColumnFamilyStore cfs, ByteBuffer key, CounterUpdateCell update)
+    {
+        CellKey cellKey = new CellKey(cfs.metadata.cfId, key, update.name());
+        while (true)
+        {
+            PendingDelta delta = pending.get(cellKey);
+            if (delta == null)
+            {
+                delta = new PendingDelta();
+                PendingDelta existing = pending.putIfAbsent(cellKey, delta);
+                if (existing == null)
+                {
+                    // not scheduled yet, hence not sealed
+                    delta.add(update);
+                    schedule(cfs, cellKey, delta);
+                    return delta.result;
+                }
+                delta = existing;
+            }
+
+            if (delta.add(update))
+                return delta.result;
+
+            // the fold of the delta has started, and it is no longer pending: start another one
+        }
+    }
+
+    private void schedule(final ColumnFamilyStore cfs, final CellKey cellKey, final PendingDelta delta)
+    {
+        long windowNanos = (long) (DatabaseDescriptor.getCounterWriteDeltaWindow() * 1000000);
+        folder.schedule(new Runnable()
+        {
+            public void run()
+            {
+                fold(cfs, cellKey, delta);
+            }
+        }, windowNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void fold(ColumnFamilyStore cfs, CellKey cellKey, PendingDelta delta)
+    {
+        pending.remove(cellKey, delta);
+        delta.seal();
+
+        try
+        {
+            ColumnFamily cf = ArrayBackedSortedColumns.factory.create(cfs.metadata);
+            cf.addColumn(new BufferCounterUpdateCell(cellKey.name, delta.delta.sum(), delta.timestamp.get()));
+            // the consistency level only shows in the timeout of the lock, which the increments report with their own
+            Mutation applied = new CounterMutation(new Mutation(cfs.keyspace.getName(), cellKey.key, cf), ConsistencyLevel.ONE).applyWithLocks();
+            delta.result.set(applied.getColumnFamily(cfs.metadata.cfId).getColumn(cellKey.name));
+        }
+        catch (Throwable t)
+        {
+            delta.result.setException(t);
+        }
+    }
+
+    private static final class CellKey
+    {
+        final UUID cfId;
+        final ByteBuffer key;
+        final CellName name;
+
+        CellKey(UUID cfId, ByteBuffer key, CellName name)
+        {
+            this.cfId = cfId;
+            this.key = key;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+                return true;
+            if (!(o instanceof CellKey))
+                return false;
+            CellKey that = (CellKey) o;
+            return cfId.equals(that.cfId) && key.equals(that.key) && name.equals(that.name);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * (31 * cfId.hashCode() + key.hashCode()) + name.hashCode();
+        }
+    }
+
+    private static final class PendingDelta
+    {
+        private static final long SEALED = Long.MIN_VALUE;
+
+        // the number of increments being added, with the SEALED bit once the fold has started
+        private final AtomicLong state = new AtomicLong();
+        private final LongAdder delta = new LongAdder();
+        private final LongAccumulator timestamp = new LongAccumulator(Math::max, Long.MIN_VALUE);
+        private final SettableFuture<Cell> result = SettableFuture.create();
+
+        /**
+         * @return false, leaving the delta untouched, if its fold has started
+         */
+        boolean add(CounterUpdateCell update)
+        {
+            long current;
+            do
+            {
+                current = state.get();
+                if ((current & SEALED) != 0)
+                    return false;
+            }
+            while (!state.compareAndSet(current, current + 1));
+
+            delta.add(update.delta());
+            timestamp.accumulate(update.timestamp());
+            state.decrementAndGet();
+            return true;
+        }
+
+        /**
+         * Turns away the increments to come, and waits for those being added, which only have a couple of atomic
+         * operations left to do.
+         */
+        void seal()
+        {
+            long current;
+            do
+            {
+                current = state.get();
+            }
+            while (!state.compareAndSet(current, current | SEALED));
+
+            while ((state.get() & ~SEALED) != 0)
+                Thread.yield();
+        }
+    }
+}
@@ -21,13 +21,18 @@ import java.io.DataInput;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.Lock;
 
 import com.google.common.base.Function;
 import com.google.common.base.Objects;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.Striped;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.composites.CellName;
@@ -104,9 +109,23 @@ public class CounterMutation implements IMutation
      *
      * See CASSANDRA-4775 and CASSANDRA-6504 for further details.
      *
+     * With counter_write_delta_window_in_ms, the increment of a single cell is instead handed to the
+     * {@link CounterDeltaBuffer}, which applies it together with the other increments of the cell. The buffer folds
+     * cell by cell, so the mutations of several cells are always applied directly, as a whole.
+     *
      * @return the applied resulting Mutation
      */
     public Mutation apply() throws WriteTimeoutException
+    {
+        if (DatabaseDescriptor.getCounterWriteDeltaWindow() > 0 && isSingleIncrement())
+            return applyBuffered();
+        return applyWithLocks();
+    }
+
+    /**
+     * Applies the counter mutation under the counter locks, regardless of counter_write_delta_window_in_ms.
+     */
+    Mutation applyWithLocks() throws WriteTimeoutException
     {
         Mutation result = new Mutation(getKeyspaceName(), key());
         Keyspace keyspace = Keyspace.open(getKeyspaceName());
@@ -133,6 +152,51 @@ public class CounterMutation implements IMutation
         }
     }
 
+    /**
+     * @return whether this mutation only increments a single counter cell, without deleting anything, which is what
+     * the {@link CounterDeltaBuffer} takes
+     */
+    private boolean isSingleIncrement()
+    {
+        Collection<ColumnFamily> cfs = getColumnFamilies();
+        if (cfs.size() != 1)
+            return false;
+        ColumnFamily cf = cfs.iterator().next();
+        return cf.deletionInfo().isLive()
+            && cf.getColumnCount() == 1
+            && cf.iterator().next() instanceof CounterUpdateCell;
+    }
+
+    private Mutation applyBuffered() throws WriteTimeoutException
+    {
+        long startTime = System.nanoTime();
+        Mutation result = new Mutation(getKeyspaceName(), key());
+        Keyspace keyspace = Keyspace.open(getKeyspaceName());
+
+        ColumnFamily cf = getColumnFamilies().iterator().next();
+        ColumnFamily resultCF = cf.cloneMeShallow();
+        result.add(resultCF);
+        ListenableFuture<Cell> cell = CounterDeltaBuffer.instance.add(keyspace.getColumnFamilyStore(cf.id()), key(), (CounterUpdateCell) cf.iterator().next());
+
+        Tracing.trace("Waiting for buffered counter increment");
+        long timeout = TimeUnit.MILLISECONDS.toNanos(getTimeout()) - (System.nanoTime() - startTime);
+        try
+        {
+            resultCF.addColumn(Uninterruptibles.getUninterruptibly(cell, timeout, TimeUnit.NANOSECONDS));
+        }
+        catch (TimeoutException e)
+        {
+            throw new WriteTimeoutException(WriteType.COUNTER, consistency(), 0, consistency().blockFor(keyspace));
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof WriteTimeoutException)
+                throw new WriteTimeoutException(WriteType.COUNTER, consistency(), 0, consistency().blockFor(keyspace));
+            throw Throwables.propagate(e.getCause());
+        }
+        return result;
+    }
+
     private void grabCounterLocks(Keyspace keyspace, List<Lock> locks) throws WriteTimeoutException
     {
         long startTime = System.nanoTime();
@@ -425,6 +425,32 @@ public class Directories
      * @throws IOError if all directories are disallowed.
      */
     public DataDirectory getWriteableLocation(long writeSize)
+    {
+        List<DataDirectoryCandidate> candidates = getWriteableCandidates(writeSize);
+
+        // shortcut for single data directory systems
+        if (candidates.size() == 1)
+            return candidates.get(0).dataDirectory;
+
+        return pickWriteableDirectory(candidates);
+    }
+
+    /**
+     * Returns every allowed data directory that _currently_ has {@code writeSize} bytes as usable space,
+     * ordered by decreasing share of the total free space.
+     *
+     * @throws IOError if all directories are disallowed.
+     */
+    public List<DataDirectory> getWriteableLocations(long writeSize)
+    {
+        List<DataDirectoryCandidate> candidates = getWriteableCandidates(writeSize);
+        List<DataDirectory> locations = new ArrayList<>(candidates.size());
+        for (DataDirectoryCandidate candidate : candidates)
+            locations.add(candidate.dataDirectory);
+        return locations;
+    }
+
+    private List<DataDirectoryCandidate> getWriteableCandidates(long writeSize)
     {
         verifyDiskHasEnoughUsableSpace();
         List<DataDirectoryCandidate> candidates = new ArrayList<>();
@@ -458,13 +484,10 @@ public class Directories
             else
                 throw new FSWriteError(new IOException("All configured data directories have been disallowed as unwritable for erroring out"), "");
 
-        // shortcut for single data directory systems
-        if (candidates.size() == 1)
-            return candidates.get(0).dataDirectory;
+        if (candidates.size() > 1)
+            sortWriteableCandidates(candidates, totalAvailable);
 
-        sortWriteableCandidates(candidates, totalAvailable);
-
-        return pickWriteableDirectory(candidates);
+        return candidates;
     }
 
     // separated for unit testing
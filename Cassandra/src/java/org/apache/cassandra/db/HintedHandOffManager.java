@@ -18,10 +18,10 @@
 package org.apache.cassandra.db;
 
 import java.io.DataInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -38,33 +38,31 @@ import org.apache.cassandra.concurrent.DebuggableScheduledThreadPoolExecutor;
 import org.apache.cassandra.concurrent.JMXEnabledThreadPoolExecutor;
 import org.apache.cassandra.concurrent.NamedThreadFactory;
 import org.apache.cassandra.config.DatabaseDescriptor;
-import org.apache.cassandra.config.Schema;
-import org.apache.cassandra.db.compaction.CompactionManager;
 import org.apache.cassandra.db.composites.CellName;
 import org.apache.cassandra.db.composites.Composite;
 import org.apache.cassandra.db.composites.Composites;
 import org.apache.cassandra.db.filter.*;
 import org.apache.cassandra.db.marshal.Int32Type;
-import org.apache.cassandra.db.marshal.UUIDType;
 import org.apache.cassandra.dht.IPartitioner;
 import org.apache.cassandra.dht.Range;
-import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.exceptions.WriteFailureException;
 import org.apache.cassandra.exceptions.WriteTimeoutException;
 import org.apache.cassandra.gms.ApplicationState;
 import org.apache.cassandra.gms.FailureDetector;
 import org.apache.cassandra.gms.Gossiper;
-import org.apache.cassandra.io.sstable.Descriptor;
-import org.apache.cassandra.io.sstable.SSTable;
+import org.apache.cassandra.hints.Hint;
+import org.apache.cassandra.hints.HintsCatalog;
+import org.apache.cassandra.hints.HintsDescriptor;
+import org.apache.cassandra.hints.HintsReader;
+import org.apache.cassandra.hints.HintsStore;
+import org.apache.cassandra.io.util.FastByteArrayInputStream;
 import org.apache.cassandra.metrics.HintedHandoffMetrics;
 import org.apache.cassandra.net.MessageOut;
 import org.apache.cassandra.net.MessagingService;
-import org.apache.cassandra.service.StorageProxy;
 import org.apache.cassandra.service.StorageService;
 import org.apache.cassandra.service.WriteResponseHandler;
 import org.apache.cassandra.utils.*;
 import org.cliffc.high_scale_lib.NonBlockingHashSet;
-import java.util.List;
 
 import org.apache.cassandra.utils.MBeanWrapper;
 
@@ -72,25 +70,17 @@ import static org.apache.cassandra.utils.ExecutorUtils.awaitTermination;
 import static org.apache.cassandra.utils.ExecutorUtils.shutdown;
 
 /**
- * The hint schema looks like this:
+ * Hints are appended to per-host, checksummed files in hints_directory (see {@link HintsStore}), rather than written
+ * to a table, so that storing them costs neither commit log, memtable, flush nor compaction writes.
  *
- * CREATE TABLE hints (
- *   target_id uuid,
- *   hint_id timeuuid,
- *   message_version int,
- *   mutation blob,
- *   PRIMARY KEY (target_id, hint_id, message_version)
- * ) WITH COMPACT STORAGE;
- *
- * Thus, for each node in the cluster we treat its uuid as the partition key; each hint is a logical row
- * (physical composite column) containing the mutation to replay and associated metadata.
- *
- * When FailureDetector signals that a node that was down is back up, we page through
- * the hinted mutations and send them over one at a time, waiting for
- * hinted_handoff_throttle_delay in between each.
+ * When FailureDetector signals that a node that was down is back up, we read its files sequentially and send the
+ * hinted mutations over a page at a time, throttled to hinted_handoff_throttle_in_kb. A file is deleted once all
+ * of its hints are delivered.
  *
  * deliverHints is also exposed to JMX so it can be run manually if FD ever misses
  * its cue somehow.
+ *
+ * Hints left in the system.hints table by previous versions are moved to hints files at startup.
  */
 
 public class HintedHandOffManager implements HintedHandOffManagerMBean
@@ -100,7 +90,6 @@ public class HintedHandOffManager implements HintedHandOffManagerMBean
 
     private static final Logger logger = LoggerFactory.getLogger(HintedHandOffManager.class);
     private static final int PAGE_SIZE = 128;
-    private static final int LARGE_NUMBER = 65536; // 64k nodes ought to be enough for anybody.
 
     public final HintedHandoffMetrics metrics = new HintedHandoffMetrics();
 
@@ -127,28 +116,20 @@ public class HintedHandOffManager implements HintedHandOffManagerMBean
             new NamedThreadFactory("HintedHandoff", Thread.MIN_PRIORITY),
             "internal");
 
-    private final ColumnFamilyStore hintStore = Keyspace.open(SystemKeyspace.NAME).getColumnFamilyStore(SystemKeyspace.HINTS);
+    private final HintsCatalog catalog = HintsCatalog.load(new File(DatabaseDescriptor.getHintsDirectory()));
 
     /**
-     * Returns a mutation representing a Hint to be sent to <code>targetId</code>
-     * as soon as it becomes available again.
+     * Stores a hint to be sent to <code>target</code> as soon as it becomes available again.
      */
-    public Mutation hintFor(Mutation mutation, long now, int ttl, Pair<InetAddress, UUID> target)
+    public void writeHint(Mutation mutation, long now, int ttl, Pair<InetAddress, UUID> target)
     {
         assert ttl > 0;
 
-        InetAddress endpoint = target.left;
-        UUID targetId = target.right;
+        metrics.incrCreatedHints(target.left);
 
-        metrics.incrCreatedHints(endpoint);
-
-        UUID hintId = UUIDGen.getTimeUUID();
-        // serialize the hint with id and version as a composite column name
-        CellName name = SystemKeyspace.Hints.comparator.makeCellName(hintId, MessagingService.current_version);
-        ByteBuffer value = ByteBuffer.wrap(FBUtilities.serialize(mutation, Mutation.serializer, MessagingService.current_version));
-        ColumnFamily cf = ArrayBackedSortedColumns.factory.create(Schema.instance.getCFMetaData(SystemKeyspace.NAME, SystemKeyspace.HINTS));
-        cf.addColumn(name, value, now, ttl);
-        return new Mutation(SystemKeyspace.NAME, UUIDType.instance.decompose(targetId), cf);
+        int size = catalog.get(target.right).write(new Hint(mutation, now, ttl));
+        metrics.hintsWritten.mark();
+        metrics.hintsWrittenBytes.mark(size);
     }
 
     /*
@@ -170,6 +151,8 @@ public class HintedHandOffManager implements HintedHandOffManagerMBean
         MBeanWrapper.instance.registerMBean(this, MBEAN_NAME);
         logger.trace("Created HHOM instance, registered MBean.");
 
+        migrateLegacyHints();
+
         Runnable runnable = new Runnable()
         {
             public void run()
@@ -179,13 +162,96 @@ public class HintedHandOffManager implements HintedHandOffManagerMBean
             }
         };
         executor.scheduleWithFixedDelay(runnable, 10, 10, TimeUnit.MINUTES);
+
+        Runnable sync = new Runnable()
+        {
+            public void run()
+            {
+                catalog.syncAll();
+            }
+        };
+        int flushPeriod = DatabaseDescriptor.getHintsFlushPeriodInMS();
+        executor.scheduleWithFixedDelay(sync, flushPeriod, flushPeriod, TimeUnit.MILLISECONDS);
     }
 
-    private static void deleteHint(ByteBuffer tokenBytes, CellName columnName, long timestamp)
+    /**
+     * Moves the hints that previous versions stored in the system.hints table to the hints files, then truncates
+     * the table.
+     */
+    @VisibleForTesting
+    void migrateLegacyHints()
     {
-        Mutation mutation = new Mutation(SystemKeyspace.NAME, tokenBytes);
-        mutation.delete(SystemKeyspace.HINTS, columnName, timestamp);
-        mutation.applyUnsafe(); // don't bother with commitlog since we're going to flush as soon as we're done with delivery
+        ColumnFamilyStore legacyHintStore = Keyspace.open(SystemKeyspace.NAME).getColumnFamilyStore(SystemKeyspace.HINTS);
+        if (legacyHintStore.isEmpty())
+            return;
+
+        logger.info("Migrating legacy hints to {}", DatabaseDescriptor.getHintsDirectory());
+        IPartitioner p = StorageService.getPartitioner();
+        RowPosition minPos = p.getMinimumToken().minKeyBound();
+        Range<RowPosition> range = new Range<>(minPos, minPos);
+        IDiskAtomFilter filter = new NamesQueryFilter(ImmutableSortedSet.<CellName>of());
+        int migrated = 0;
+        for (Row row : legacyHintStore.getRangeSlice(range, null, filter, Integer.MAX_VALUE, System.currentTimeMillis()))
+            migrated += migrateLegacyHints(legacyHintStore, row.key);
+
+        // the hints must be on disk before the table is gone
+        catalog.syncAll();
+        legacyHintStore.truncateBlocking();
+        logger.info("Migrated {} legacy hints", migrated);
+    }
+
+    private int migrateLegacyHints(ColumnFamilyStore legacyHintStore, DecoratedKey epkey)
+    {
+        HintsStore store = catalog.get(UUIDGen.getUUID(epkey.getKey()));
+        int migrated = 0;
+        Composite startColumn = Composites.EMPTY;
+        while (true)
+        {
+            long now = System.currentTimeMillis();
+            QueryFilter filter = QueryFilter.getSliceFilter(epkey,
+                                                            SystemKeyspace.HINTS,
+                                                            startColumn,
+                                                            Composites.EMPTY,
+                                                            false,
+                                                            PAGE_SIZE,
+                                                            now);
+
+            ColumnFamily hintsPage = ColumnFamilyStore.removeDeleted(legacyHintStore.getColumnFamily(filter), (int) (now / 1000));
+
+            if (pagingFinished(hintsPage, startColumn))
+                return migrated;
+
+            for (Cell hint : hintsPage)
+            {
+                // each page starts with the last hint of the previous one
+                if (hint.name().equals(startColumn))
+                    continue;
+                startColumn = hint.name();
+                if (!hint.isLive())
+                    continue;
+
+                int version = Int32Type.instance.compose(hint.name().get(1));
+                DataInputStream in = new DataInputStream(ByteBufferUtil.inputStream(hint.value()));
+                Mutation mutation;
+                try
+                {
+                    mutation = Mutation.serializer.deserialize(in, version);
+                }
+                catch (UnknownColumnFamilyException e)
+                {
+                    logger.trace("Skipping migration of hint for deleted table", e);
+                    continue;
+                }
+                catch (IOException e)
+                {
+                    throw new AssertionError(e);
+                }
+
+                int ttl = hint instanceof ExpiringCell ? ((ExpiringCell) hint).getTimeToLive() : calculateHintTTL(mutation);
+                store.write(new Hint(mutation, hint.timestamp(), ttl));
+                migrated++;
+            }
+        }
     }
 
     public void deleteHintsForEndpoint(final String ipOrHostname)
@@ -202,7 +268,7 @@ public class HintedHandOffManager implements HintedHandOffManagerMBean
         }
     }
 
-    public void deleteHintsForEndpoint(final InetAddress endpoint, String reason)
+    public void deleteHintsForEndpoint(final InetAddress endpoint, final String reason)
     {
         if (!StorageService.instance.getTokenMetadata().isMember(endpoint))
             return;
@@ -211,9 +277,9 @@ public class HintedHandOffManager implements HintedHandOffManagerMBean
         if (hostId == null)
             return;
 
-        ByteBuffer hostIdBytes = ByteBuffer.wrap(UUIDGen.decompose(hostId));
-        final Mutation mutation = new Mutation(SystemKeyspace.NAME, hostIdBytes);
-        mutation.delete(SystemKeyspace.HINTS, System.currentTimeMillis());
+        final HintsStore store = catalog.getIfPresent(hostId);
+        if (store == null)
+            return;
 
         // execute asynchronously to avoid blocking caller (which may be processing gossip)
         Runnable runnable = new Runnable()
@@ -222,10 +288,8 @@ public class HintedHandOffManager implements HintedHandOffManagerMBean
             {
                 try
                 {
-                    logger.info("Deleting any stored hints for {}", endpoint);
-                    mutation.apply();
-                    hintStore.forceBlockingFlush(reason);
-                    compact();
+                    logger.info("Deleting any stored hints for {}: {}", endpoint, reason);
+                    store.deleteAllHints();
                 }
                 catch (Exception e)
                 {
@@ -237,7 +301,6 @@ public class HintedHandOffManager implements HintedHandOffManagerMBean
         executor.submit(runnable);
     }
 
-    //foobar
     public void truncateAllHints() throws ExecutionException, InterruptedException
     {
         Runnable runnable = new Runnable()
@@ -247,7 +310,7 @@ public class HintedHandOffManager implements HintedHandOffManagerMBean
                 try
                 {
                     logger.info("Truncating all stored hints.");
-                    Keyspace.open(SystemKeyspace.NAME).getColumnFamilyStore(SystemKeyspace.HINTS).truncateBlocking();
+                    catalog.deleteAllHints();
                 }
                 catch (Exception e)
                 {
@@ -258,26 +321,6 @@ public class HintedHandOffManager implements HintedHandOffManagerMBean
         executor.submit(runnable).get();
     }
 
-    @VisibleForTesting
-    protected synchronized void compact()
-    {
-        ArrayList<Descriptor> descriptors = new ArrayList<>();
-        for (SSTable sstable : hintStore.getTracker().getUncompacting())
-            descriptors.add(sstable.descriptor);
-
-        if (descriptors.isEmpty())
-            return;
-
-        try
-        {
-            CompactionManager.instance.submitUserDefined(hintStore, descriptors, (int) (System.currentTimeMillis() / 1000)).get();
-        }
-        catch (InterruptedException | ExecutionException e)
-        {
-            throw new RuntimeException(e);
-        }
-    }
-
     private static boolean pagingFinished(ColumnFamily hintColumnFamily, Composite startColumn)
     {
         // done if no hints found or the start column (same as last column processed in previous iteration) is the only one
@@ -320,7 +363,7 @@ public class HintedHandOffManager implements HintedHandOffManagerMBean
 
     private void deliverHintsToEndpoint(InetAddress endpoint)
     {
-        if (hintStore.isEmpty())
+        if (!catalog.hasFiles())
             return; // nothing to do, don't confuse users by logging a no-op handoff
 
         // check if hints delivery has been paused
@@ -350,24 +393,23 @@ public class HintedHandOffManager implements HintedHandOffManagerMBean
     }
 
     /*
-     * 1. Get the key of the endpoint we need to handoff
-     * 2. For each column, deserialize the mutation and send it to the endpoint
-     * 3. Delete the column if the write was successful
-     * 4. Force a flush
+     * 1. Find the hints files of the endpoint, completing the one being written to
+     * 2. For each file, oldest first, send its hints to the endpoint a page at a time
+     * 3. Delete the file once all of its hints are delivered
      */
     private void doDeliverHintsToEndpoint(InetAddress endpoint)
     {
-        // find the hints for the node using its token.
+        // find the hints for the node using its host id.
         UUID hostId = Gossiper.instance.getHostId(endpoint);
+        HintsStore store = catalog.getIfPresent(hostId);
+        if (store == null || !store.hasFiles())
+            return;
+
         logger.info("Started hinted handoff for host: {} with IP: {}", hostId, endpoint);
-        final ByteBuffer hostIdBytes = ByteBuffer.wrap(UUIDGen.decompose(hostId));
-        DecoratedKey epkey =  StorageService.getPartitioner().decorateKey(hostIdBytes);
+        // hints written from now on go to a new file, delivered next time
+        store.closeWriter();
 
         final AtomicInteger rowsReplayed = new AtomicInteger(0);
-        Composite startColumn = Composites.EMPTY;
-
-        int pageSize = calculatePageSize();
-        logger.trace("Using pageSize of {}", pageSize);
 
         // rate limit is in bytes per second. Uses Double.MAX_VALUE if disabled (set to 0 in cassandra.yaml).
         // max rate is scaled by the number of nodes in the cluster (CASSANDRA-5272).
@@ -375,133 +417,132 @@ public class HintedHandOffManager implements HintedHandOffManagerMBean
                            / (StorageService.instance.getTokenMetadata().getAllEndpoints().size() - 1);
         RateLimiter rateLimiter = RateLimiter.create(throttleInKB == 0 ? Double.MAX_VALUE : throttleInKB * 1024);
 
-        delivery:
-        while (true)
+        HintsDescriptor descriptor;
+        while ((descriptor = store.poll()) != null)
         {
-            long now = System.currentTimeMillis();
-            QueryFilter filter = QueryFilter.getSliceFilter(epkey,
-                                                            SystemKeyspace.HINTS,
-                                                            startColumn,
-                                                            Composites.EMPTY,
-                                                            false,
-                                                            pageSize,
-                                                            now);
-
-            ColumnFamily hintsPage = ColumnFamilyStore.removeDeleted(hintStore.getColumnFamily(filter), (int) (now / 1000));
-
-            if (pagingFinished(hintsPage, startColumn))
+            if (!deliver(store, descriptor, endpoint, rateLimiter, rowsReplayed))
             {
-                logger.info("Finished hinted handoff of {} rows to endpoint {}", rowsReplayed, endpoint);
-                break;
+                store.offerFirst(descriptor);
+                return;
             }
+            store.delete(descriptor);
+        }
+        logger.info("Finished hinted handoff of {} rows to endpoint {}", rowsReplayed, endpoint);
+    }
 
-            // check if node is still alive and we should continue delivery process
-            if (!FailureDetector.instance.isAlive(endpoint))
-            {
-                logger.info("Endpoint {} died during hint delivery; aborting ({} delivered)", endpoint, rowsReplayed);
-                break;
-            }
+    /**
+     * Sends the hints of a file a page at a time, recording how far the file is delivered once all of the hints of
+     * a page are acknowledged, so that an interrupted delivery resumes from there.
+     *
+     * @return true if all of the hints of the file were delivered or skipped, false if delivery was interrupted
+     */
+    private boolean deliver(HintsStore store, HintsDescriptor descriptor, InetAddress endpoint, RateLimiter rateLimiter, final AtomicInteger rowsReplayed)
+    {
+        HintsReader reader = store.openReader(descriptor);
+        // the hints of the host were deleted since the file was polled
+        if (reader == null)
+            return true;
 
-            List<WriteResponseHandler<Mutation>> responseHandlers = Lists.newArrayList();
-            for (final Cell hint : hintsPage)
+        try
+        {
+            boolean finished = false;
+            while (!finished)
             {
-                // check if hints delivery has been paused during the process
-                if (hintedHandOffPaused)
+                // check if node is still alive and we should continue delivery process
+                if (!FailureDetector.instance.isAlive(endpoint))
                 {
-                    logger.trace("Hints delivery process is paused, aborting");
-                    break delivery;
+                    logger.info("Endpoint {} died during hint delivery; aborting ({} delivered)", endpoint, rowsReplayed);
+                    return false;
                 }
 
-                // Skip tombstones:
-                // if we iterate quickly enough, it's possible that we could request a new page in the same millisecond
-                // in which the local deletion timestamp was generated on the last column in the old page, in which
-                // case the hint will have no columns (since it's deleted) but will still be included in the resultset
-                // since (even with gcgs=0) it's still a "relevant" tombstone.
-                if (!hint.isLive())
-                    continue;
-
-                startColumn = hint.name();
-
-                int version = Int32Type.instance.compose(hint.name().get(1));
-                DataInputStream in = new DataInputStream(ByteBufferUtil.inputStream(hint.value()));
-                Mutation mutation;
-                try
+                long now = System.currentTimeMillis();
+                List<WriteResponseHandler<Mutation>> responseHandlers = Lists.newArrayList();
+                for (int i = 0; i < PAGE_SIZE; i++)
                 {
-                    mutation = Mutation.serializer.deserialize(in, version);
-                }
-                catch (UnknownColumnFamilyException e)
-                {
-                    logger.trace("Skipping delivery of hint for deleted table", e);
-                    deleteHint(hostIdBytes, hint.name(), hint.timestamp());
-                    continue;
-                }
-                catch (IOException e)
-                {
-                    throw new AssertionError(e);
-                }
+                    // check if hints delivery has been paused during the process
+                    if (hintedHandOffPaused)
+                    {
+                        logger.trace("Hints delivery process is paused, aborting");
+                        return false;
+                    }
 
-                for (UUID cfId : mutation.getColumnFamilyIds())
-                {
-                    if (hint.timestamp() <= SystemKeyspace.getTruncatedAt(cfId))
+                    byte[] serializedHint = reader.readHint();
+                    if (serializedHint == null)
                     {
-                        logger.trace("Skipping delivery of hint for truncated table {}", cfId);
-                        mutation = mutation.without(cfId);
+                        finished = true;
+                        break;
                     }
-                }
 
-                if (mutation.isEmpty())
-                {
-                    deleteHint(hostIdBytes, hint.name(), hint.timestamp());
-                    continue;
-                }
+                    Hint hint;
+                    try
+                    {
+                        hint = Hint.serializer.deserialize(new DataInputStream(new FastByteArrayInputStream(serializedHint)),
+                                                           descriptor.messagingVersion);
+                    }
+                    catch (UnknownColumnFamilyException e)
+                    {
+                        logger.trace("Skipping delivery of hint for deleted table", e);
+                        continue;
+                    }
+                    catch (IOException e)
+                    {
+                        throw new AssertionError(e);
+                    }
 
-                MessageOut<Mutation> message = mutation.createMessage();
-                rateLimiter.acquire(message.serializedSize(MessagingService.current_version));
-                Runnable callback = new Runnable()
-                {
-                    public void run()
+                    if (!hint.isLive(now))
+                        continue;
+
+                    Mutation mutation = hint.mutation;
+                    for (UUID cfId : mutation.getColumnFamilyIds())
                     {
-                        rowsReplayed.incrementAndGet();
-                        deleteHint(hostIdBytes, hint.name(), hint.timestamp());
+                        if (hint.creationTime <= SystemKeyspace.getTruncatedAt(cfId))
+                        {
+                            logger.trace("Skipping delivery of hint for truncated table {}", cfId);
+                            mutation = mutation.without(cfId);
+                        }
                     }
-                };
-                WriteResponseHandler<Mutation> responseHandler = new WriteResponseHandler<>(endpoint, WriteType.SIMPLE, callback);
-                MessagingService.instance().sendRR(message, endpoint, responseHandler, false);
-                responseHandlers.add(responseHandler);
-            }
 
-            for (WriteResponseHandler<Mutation> handler : responseHandlers)
-            {
-                try
-                {
-                    handler.get();
+                    if (mutation.isEmpty())
+                        continue;
+
+                    MessageOut<Mutation> message = mutation.createMessage();
+                    rateLimiter.acquire(message.serializedSize(MessagingService.current_version));
+                    final int size = serializedHint.length;
+                    Runnable callback = new Runnable()
+                    {
+                        public void run()
+                        {
+                            rowsReplayed.incrementAndGet();
+                            metrics.hintsDelivered.mark();
+                            metrics.hintsDeliveredBytes.mark(size);
+                        }
+                    };
+                    WriteResponseHandler<Mutation> responseHandler = new WriteResponseHandler<>(endpoint, WriteType.SIMPLE, callback);
+                    MessagingService.instance().sendRR(message, endpoint, responseHandler, false);
+                    responseHandlers.add(responseHandler);
                 }
-                catch (WriteTimeoutException|WriteFailureException e)
+
+                for (WriteResponseHandler<Mutation> handler : responseHandlers)
                 {
-                    logger.info("Failed replaying hints to {}; aborting ({} delivered), error : {}",
-                        endpoint, rowsReplayed, e.getMessage());
-                    break delivery;
+                    try
+                    {
+                        handler.get();
+                    }
+                    catch (WriteTimeoutException|WriteFailureException e)
+                    {
+                        logger.info("Failed replaying hints to {}; aborting ({} delivered), error : {}",
+                            endpoint, rowsReplayed, e.getMessage());
+                        return false;
+                    }
                 }
+                store.markDispatchOffset(descriptor, reader.getPosition());
             }
+            return true;
+        }
+        finally
+        {
+            reader.close();
         }
-
-        // Flush all the tombstones to disk
-        hintStore.forceBlockingFlush("Forcing a flush after delivering hints");
-    }
-
-    // read less columns (mutations) per page if they are very large
-    private int calculatePageSize()
-    {
-        int meanColumnCount = hintStore.getMeanColumns();
-        if (meanColumnCount <= 0)
-            return PAGE_SIZE;
-
-        int averageColumnSize = (int) (hintStore.metric.meanRowSize.getValue() / meanColumnCount);
-        if (averageColumnSize <= 0)
-            return PAGE_SIZE;
-
-        // page size of 1 does not allow actual paging b/c of >= behavior on startColumn
-        return Math.max(2, Math.min(PAGE_SIZE, 4 * 1024 * 1024 / averageColumnSize));
     }
 
     /**
@@ -512,23 +553,15 @@ public class HintedHandOffManager implements HintedHandOffManagerMBean
     {
         logger.trace("Started scheduleAllDeliveries");
 
-        // Force a major compaction to get rid of the tombstones and expired hints. Do it once, before we schedule any
-        // individual replay, to avoid N - 1 redundant individual compactions (when N is the number of nodes with hints
-        // to deliver to).
-        compact();
-
-        IPartitioner p = StorageService.getPartitioner();
-        RowPosition minPos = p.getMinimumToken().minKeyBound();
-        Range<RowPosition> range = new Range<>(minPos, minPos);
-        IDiskAtomFilter filter = new NamesQueryFilter(ImmutableSortedSet.<CellName>of());
-        List<Row> rows = hintStore.getRangeSlice(range, null, filter, Integer.MAX_VALUE, System.currentTimeMillis());
-        for (Row row : rows)
+        for (HintsStore store : catalog.stores())
         {
-            UUID hostId = UUIDGen.getUUID(row.key.getKey());
-            InetAddress target = StorageService.instance.getTokenMetadata().getEndpointForHostId(hostId);
-            // token may have since been removed (in which case we have just read back a tombstone)
+            if (!store.hasFiles())
+                continue;
+
+            InetAddress target = StorageService.instance.getTokenMetadata().getEndpointForHostId(store.hostId);
+            // host may have since been removed
             if (target != null)
-                scheduleHintDelivery(target, false);
+                scheduleHintDelivery(target);
         }
 
         logger.trace("Finished scheduleAllDeliveries");
@@ -539,7 +572,7 @@ public class HintedHandOffManager implements HintedHandOffManagerMBean
      * When we learn that some endpoint is back up we deliver the data
      * to him via an event driven mechanism.
     */
-    public void scheduleHintDelivery(final InetAddress to, final boolean precompact)
+    public void scheduleHintDelivery(final InetAddress to)
     {
         // We should not deliver hints to the same host in 2 different threads
         if (!queuedDeliveries.add(to))
@@ -553,11 +586,6 @@ public class HintedHandOffManager implements HintedHandOffManagerMBean
             {
                 try
                 {
-                    // If it's an individual node hint replay (triggered by Gossip or via JMX), and not the global scheduled replay
-                    // (every 10 minutes), force a major compaction to get rid of the tombstones and expired hints.
-                    if (precompact)
-                        compact();
-
                     deliverHintsToEndpoint(to);
                 }
                 finally
@@ -570,7 +598,7 @@ public class HintedHandOffManager implements HintedHandOffManagerMBean
 
     public void scheduleHintDelivery(String to) throws UnknownHostException
     {
-        scheduleHintDelivery(InetAddress.getByName(to), true);
+        scheduleHintDelivery(InetAddress.getByName(to));
     }
 
     public void pauseHintsDelivery(boolean b)
@@ -580,46 +608,31 @@ public class HintedHandOffManager implements HintedHandOffManagerMBean
 
     public List<String> listEndpointsPendingHints()
     {
-        Token.TokenFactory tokenFactory = StorageService.getPartitioner().getTokenFactory();
-
-        // Extract the keys as strings to be reported.
-        LinkedList<String> result = new LinkedList<>();
-        for (Row row : getHintsSlice(1))
+        List<String> result = new ArrayList<>();
+        for (HintsStore store : catalog.stores())
         {
-            if (row.cf != null) //ignore removed rows
-                result.addFirst(tokenFactory.toString(row.key.getToken()));
+            if (!store.hasFiles())
+                continue;
+
+            InetAddress endpoint = StorageService.instance.getTokenMetadata().getEndpointForHostId(store.hostId);
+            result.add(endpoint == null ? store.hostId.toString() : endpoint.getHostAddress());
         }
         return result;
     }
 
-    private List<Row> getHintsSlice(int columnCount)
+    /**
+     * Completes the hints files being written to, forcing them to disk, e.g. once no more hints can be written
+     * while draining.
+     */
+    public void closeHintsFiles()
     {
-        // Get count # of columns...
-        SliceQueryFilter predicate = new SliceQueryFilter(ColumnSlice.ALL_COLUMNS_ARRAY,
-                                                          false,
-                                                          columnCount);
-
-        // From keys "" to ""...
-        IPartitioner partitioner = StorageService.getPartitioner();
-        RowPosition minPos = partitioner.getMinimumToken().minKeyBound();
-        Range<RowPosition> range = new Range<>(minPos, minPos);
+        catalog.closeAllWriters();
+    }
 
-        try
-        {
-            RangeSliceCommand cmd = new RangeSliceCommand(SystemKeyspace.NAME,
-                                                          SystemKeyspace.HINTS,
-                                                          System.currentTimeMillis(),
-                                                          predicate,
-                                                          range,
-                                                          null,
-                                                          LARGE_NUMBER);
-            return StorageProxy.getRangeSlice(cmd, ConsistencyLevel.ONE);
-        }
-        catch (Exception e)
-        {
-            logger.info("HintsCF getEPPendingHints timed out.");
-            throw new RuntimeException(e);
-        }
+    @VisibleForTesting
+    HintsCatalog getCatalog()
+    {
+        return catalog;
     }
 
     @VisibleForTesting
@@ -627,5 +640,6 @@ public class HintedHandOffManager implements HintedHandOffManagerMBean
     {
         shutdown(executor, hintDeliveryExecutor);
         awaitTermination(timeout, units, executor, hintDeliveryExecutor);
+        catalog.closeAllWriters();
     }
 }
@@ -35,7 +35,9 @@ public interface HintedHandOffManagerMBean
     public void truncateAllHints() throws ExecutionException, InterruptedException;
 
     /**
-     * List all the endpoints that this node has hints for.
+     * List all the endpoints that this node has hints for. Since hints are stored in files rather than in
+     * system.hints, endpoints are listed by IP address instead of by the token of their host ID, and by host ID
+     * for those no longer in the ring.
      * @return set of endpoints; as Strings
      */
     public List<String> listEndpointsPendingHints();
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db;
+
+import java.util.*;
+
+import com.google.common.base.Function;
+import com.google.common.base.Supplier;
+
+import org.apache.cassandra.db.lifecycle.View;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.tracing.Tracing;
+
+/**
+ * The index entries of the partitions of a multi-partition query that are read locally from the same table.
+ *
+ * The first of those local reads to run looks them all up, on the read stage, with a single ordered pass over the
+ * index of each sstable (see {@link SSTableReader#getPositions}); the others wait for it. Each read then finds the
+ * entries of its partition here while it runs, instead of searching the index of every sstable again, whether or
+ * not the key cache is enabled. Entries already in the key cache are left to it, and the key cache and bloom filter
+ * stats are only updated by the reads, as for any other.
+ */
+public class IndexEntryBatch
+{
+    private static final ThreadLocal<IndexEntryBatch> current = new ThreadLocal<>();
+
+    private final ColumnFamilyStore cfs;
+    private final List<DecoratedKey> keys = new ArrayList<>();
+
+    // the entries found, or null ones for keys looked up but not found, by sstable; set once by lookUp()
+    private Map<SSTableReader, Map<DecoratedKey, RowIndexEntry>> entries;
+
+    public IndexEntryBatch(ColumnFamilyStore cfs)
+    {
+        this.cfs = cfs;
+    }
+
+    /**
+     * Adds the key of a partition that will be read, before any read of the batch starts.
+     */
+    public void add(DecoratedKey key)
+    {
+        keys.add(key);
+    }
+
+    public int size()
+    {
+        return keys.size();
+    }
+
+    /**
+     * Runs the given read with the entries of the batch, which it looks up first if no other read of the batch did.
+     */
+    public <T> T read(Supplier<T> read)
+    {
+        lookUp();
+        current.set(this);
+        try
+        {
+            return read.get();
+        }
+        finally
+        {
+            current.remove();
+        }
+    }
+
+    /**
+     * @return the batch of the local read running on this thread, if any
+     */
+    public static IndexEntryBatch current()
+    {
+        return current.get();
+    }
+
+    /**
+     * @return true if the key was looked up in the sstable, in which case {@link #get} returns what was found
+     */
+    public boolean contains(SSTableReader sstable, DecoratedKey key)
+    {
+        Map<DecoratedKey, RowIndexEntry> found = entries.get(sstable);
+        return found != null && found.containsKey(key);
+    }
+
+    /**
+     * @return the index entry of the key in the sstable, or null if it isn't there
+     */
+    public RowIndexEntry get(SSTableReader sstable, DecoratedKey key)
+    {
+        return entries.get(sstable).get(key);
+    }
+
+    private synchronized void lookUp()
+    {
+        if (entries != null)
+            return;
+
+        Map<SSTableReader, Map<DecoratedKey, RowIndexEntry>> found = new HashMap<>();
+        List<DecoratedKey> sorted = new ArrayList<>(keys.size());
+        for (DecoratedKey key : keys)
+        {
+            if (!cfs.containsCachedRow(key))
+                sorted.add(key);
+        }
+
+        if (sorted.size() > 1)
+        {
+            Collections.sort(sorted);
+            final DecoratedKey left = sorted.get(0);
+            final DecoratedKey right = sorted.get(sorted.size() - 1);
+            try (ColumnFamilyStore.RefViewFragment view = cfs.selectAndReference(new Function<View, List<SSTableReader>>()
+            {
+                public List<SSTableReader> apply(View view)
+                {
+                    return cfs.getCompactionStrategy().filterSSTablesForReads(view.sstablesInBounds(left, right));
+                }
+            }))
+            {
+                Tracing.trace("Looking up index entries of {} partitions in {} sstables", sorted.size(), view.sstables.size());
+                for (SSTableReader sstable : view.sstables)
+                {
+                    // the keys the reads would search the index for
+                    List<DecoratedKey> candidates = new ArrayList<>(sorted.size());
+                    for (DecoratedKey key : sorted)
+                    {
+                        if ((candidates.isEmpty() || !candidates.get(candidates.size() - 1).equals(key))
+                            && sstable.getBloomFilter().isPresent(key)
+                            && sstable.getCachedPosition(key, false) == null)
+                            candidates.add(key);
+                    }
+                    if (candidates.isEmpty())
+                        continue;
+
+                    RowIndexEntry[] positions = sstable.getPositions(candidates, false);
+                    Map<DecoratedKey, RowIndexEntry> inSSTable = new HashMap<>(candidates.size() * 2);
+                    for (int i = 0; i < positions.length; i++)
+                        inSSTable.put(candidates.get(i), positions[i]);
+                    found.put(sstable, inSSTable);
+                }
+            }
+        }
+        entries = found;
+    }
+}
@@ -19,15 +19,26 @@ package org.apache.cassandra.db;
 
 import java.io.File;
 import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Function;
+import com.google.common.collect.Iterables;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,7 +49,9 @@ import org.apache.cassandra.db.commitlog.CommitLog;
 import org.apache.cassandra.db.commitlog.ReplayPosition;
 import org.apache.cassandra.db.composites.CellNameType;
 import org.apache.cassandra.db.index.SecondaryIndexManager;
+import org.apache.cassandra.dht.IPartitioner;
 import org.apache.cassandra.dht.Murmur3Partitioner.LongToken;
+import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.io.sstable.Descriptor;
 import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.apache.cassandra.io.sstable.format.SSTableWriter;
@@ -48,6 +61,9 @@ import org.apache.cassandra.utils.*;
 import org.apache.cassandra.utils.concurrent.OpOrder;
 import org.apache.cassandra.utils.memory.*;
 
+import static org.apache.cassandra.utils.Throwables.maybeFail;
+import static org.apache.cassandra.utils.Throwables.merge;
+
 public class Memtable implements Comparable<Memtable>
 {
     private static final Logger logger = LoggerFactory.getLogger(Memtable.class);
@@ -55,10 +71,10 @@ public class Memtable implements Comparable<Memtable>
     @VisibleForTesting
     public static final MemtablePool MEMORY_POOL = DatabaseDescriptor.getMemtableAllocatorPool();
     private static final int ROW_OVERHEAD_HEAP_SIZE = estimateRowOverhead(Integer.parseInt(System.getProperty("cassandra.memtable_row_overhead_computation_step", "100000")));
+    // memtables with fewer partitions per shard than this are not worth splitting on flush
+    private static final int MIN_PARTITIONS_PER_FLUSH_SHARD = 1000;
 
     private final MemtableAllocator allocator;
-    private final AtomicLong liveDataSize = new AtomicLong(0);
-    private final AtomicLong currentOperations = new AtomicLong(0);
 
     // the write barrier for directing writes to this memtable during a switch
     private volatile OpOrder.Barrier writeBarrier;
@@ -82,10 +98,10 @@ public class Memtable implements Comparable<Memtable>
         }
     }
 
-    // We index the memtable by RowPosition only for the purpose of being able
-    // to select key range using Token.KeyBound. However put() ensures that we
-    // actually only store DecoratedKey.
-    private final ConcurrentNavigableMap<RowPosition, AtomicBTreeColumns> rows = new ConcurrentSkipListMap<>();
+    // The partitions are spread over one or more shards owning disjoint token ranges, in token order; see
+    // CFMetaData.getMemtableShards(). shardBoundaries[i] is the first token owned by shards[i + 1].
+    private final Shard[] shards;
+    private final Token[] shardBoundaries;
     public final ColumnFamilyStore cfs;
     private final long creationNano = System.nanoTime();
 
@@ -103,6 +119,11 @@ public class Memtable implements Comparable<Memtable>
         this.commitLogLowerBound = commitLogLowerBound;
         this.allocator = MEMORY_POOL.newAllocator();
         this.initialComparator = cfs.metadata.comparator;
+        // order preserving partitioners do not spread keys evenly over the token space, so splitting it buys nothing
+        this.shardBoundaries = cfs.partitioner.preservesOrder()
+                             ? new Token[0]
+                             : shardBoundaries(cfs.partitioner, cfs.metadata.getMemtableShards());
+        this.shards = newShards(shardBoundaries.length + 1);
         this.cfs.scheduleFlush();
     }
 
@@ -113,6 +134,62 @@ public class Memtable implements Comparable<Memtable>
         this.initialComparator = metadata.comparator;
         this.cfs = null;
         this.allocator = null;
+        this.shardBoundaries = new Token[0];
+        this.shards = newShards(1);
+    }
+
+    /**
+     * The partitions of one token range of the memtable. Each shard keeps its own size accounting,
+     * so that writers to different ranges share neither the map nor the counters.
+     */
+    private static final class Shard
+    {
+        // We index the memtable by RowPosition only for the purpose of being able
+        // to select key range using Token.KeyBound. However put() ensures that we
+        // actually only store DecoratedKey.
+        final ConcurrentNavigableMap<RowPosition, AtomicBTreeColumns> rows = new ConcurrentSkipListMap<>();
+        final AtomicLong liveDataSize = new AtomicLong(0);
+        final AtomicLong currentOperations = new AtomicLong(0);
+    }
+
+    private static Shard[] newShards(int count)
+    {
+        Shard[] shards = new Shard[count];
+        for (int i = 0; i < count; i++)
+            shards[i] = new Shard();
+        return shards;
+    }
+
+    /**
+     * @return the count - 1 tokens splitting the ring into count (a power of two) equally sized ranges, in token order
+     */
+    @VisibleForTesting
+    static Token[] shardBoundaries(IPartitioner partitioner, int count)
+    {
+        List<Token> boundaries = new ArrayList<>(count - 1);
+        Token minimum = partitioner.getMinimumToken();
+        addShardBoundaries(partitioner, minimum, minimum, count, boundaries);
+        return boundaries.toArray(new Token[boundaries.size()]);
+    }
+
+    private static void addShardBoundaries(IPartitioner partitioner, Token left, Token right, int count, List<Token> boundaries)
+    {
+        if (count <= 1)
+            return;
+
+        Token midpoint = partitioner.midpoint(left, right);
+        addShardBoundaries(partitioner, left, midpoint, count / 2, boundaries);
+        boundaries.add(midpoint);
+        addShardBoundaries(partitioner, midpoint, right, count / 2, boundaries);
+    }
+
+    private int shardIndex(Token token)
+    {
+        if (shardBoundaries.length == 0)
+            return 0;
+
+        int i = Arrays.binarySearch(shardBoundaries, token);
+        return i >= 0 ? i + 1 : -i - 1;
     }
 
     public MemtableAllocator getAllocator()
@@ -122,12 +199,18 @@ public class Memtable implements Comparable<Memtable>
 
     public long getLiveDataSize()
     {
-        return liveDataSize.get();
+        long size = 0;
+        for (Shard shard : shards)
+            size += shard.liveDataSize.get();
+        return size;
     }
 
     public long getOperations()
     {
-        return currentOperations.get();
+        long operations = 0;
+        for (Shard shard : shards)
+            operations += shard.currentOperations.get();
+        return operations;
     }
 
     @VisibleForTesting
@@ -186,7 +269,12 @@ public class Memtable implements Comparable<Memtable>
 
     public boolean isClean()
     {
-        return rows.isEmpty();
+        for (Shard shard : shards)
+        {
+            if (!shard.rows.isEmpty())
+                return false;
+        }
+        return true;
     }
 
     public boolean mayContainDataBefore(ReplayPosition position)
@@ -211,7 +299,8 @@ public class Memtable implements Comparable<Memtable>
      */
     long put(DecoratedKey key, ColumnFamily cf, SecondaryIndexManager.Updater indexer, OpOrder.Group opGroup)
     {
-        AtomicBTreeColumns previous = rows.get(key);
+        Shard shard = shards[shardIndex(key.getToken())];
+        AtomicBTreeColumns previous = shard.rows.get(key);
 
         long initialSize = 0;
         if (previous == null)
@@ -219,7 +308,7 @@ public class Memtable implements Comparable<Memtable>
             AtomicBTreeColumns empty = cf.cloneMeShallow(AtomicBTreeColumns.factory, false);
             final DecoratedKey cloneKey = allocator.clone(key, opGroup);
             // We'll add the columns later. This avoids wasting works if we get beaten in the putIfAbsent
-            previous = rows.putIfAbsent(cloneKey, empty);
+            previous = shard.rows.putIfAbsent(cloneKey, empty);
             if (previous == null)
             {
                 previous = empty;
@@ -237,8 +326,8 @@ public class Memtable implements Comparable<Memtable>
 
         final AtomicBTreeColumns.ColumnUpdater updater = previous.addAllWithSizeDelta(cf, allocator, opGroup, indexer);
         minTimestamp = Math.min(minTimestamp, updater.minTimestamp);
-        liveDataSize.addAndGet(initialSize + updater.dataSize);
-        currentOperations.addAndGet(cf.getColumnCount() + (cf.isMarkedForDelete() ? 1 : 0) + cf.deletionInfo().rangeCount());
+        shard.liveDataSize.addAndGet(initialSize + updater.dataSize);
+        shard.currentOperations.addAndGet(cf.getColumnCount() + (cf.isMarkedForDelete() ? 1 : 0) + cf.deletionInfo().rangeCount());
         return updater.colUpdateTimeDelta;
     }
 
@@ -247,9 +336,12 @@ public class Memtable implements Comparable<Memtable>
     {
         StringBuilder builder = new StringBuilder();
         builder.append("{");
-        for (Map.Entry<RowPosition, AtomicBTreeColumns> entry : rows.entrySet())
+        for (Shard shard : shards)
         {
-            builder.append(entry.getKey()).append(": ").append(entry.getValue()).append(", ");
+            for (Map.Entry<RowPosition, AtomicBTreeColumns> entry : shard.rows.entrySet())
+            {
+                builder.append(entry.getKey()).append(": ").append(entry.getValue()).append(", ");
+            }
         }
         builder.append("}");
         return builder.toString();
@@ -257,13 +349,16 @@ public class Memtable implements Comparable<Memtable>
 
     public int partitionCount()
     {
-        return rows.size();
+        int count = 0;
+        for (Shard shard : shards)
+            count += shard.rows.size();
+        return count;
     }
 
     public String toString()
     {
         return String.format("Memtable-%s@%s(%s serialized bytes, %s ops, %.0f%%/%.0f%% of on/off-heap limit)",
-                             cfs.name, hashCode(), FBUtilities.prettyPrintMemory(liveDataSize.get()), currentOperations,
+                             cfs.name, hashCode(), FBUtilities.prettyPrintMemory(getLiveDataSize()), getOperations(),
                              100 * allocator.onHeap().ownershipRatio(), 100 * allocator.offHeap().ownershipRatio());
     }
 
@@ -273,21 +368,38 @@ public class Memtable implements Comparable<Memtable>
      */
     public Iterator<Map.Entry<DecoratedKey, ColumnFamily>> getEntryIterator(final RowPosition startWith, final RowPosition stopAt)
     {
+        // the shards are in token order, so visiting those overlapping the range in turn preserves the ordering
+        final int firstShard = shardIndex(startWith.getToken());
+        final int lastShard = stopAt.isMinimum() ? shards.length - 1 : shardIndex(stopAt.getToken());
         return new Iterator<Map.Entry<DecoratedKey, ColumnFamily>>()
         {
-            private Iterator<? extends Map.Entry<? extends RowPosition, AtomicBTreeColumns>> iter = stopAt.isMinimum()
-                    ? rows.tailMap(startWith).entrySet().iterator()
-                    : rows.subMap(startWith, true, stopAt, true).entrySet().iterator();
+            private int shardIndex = firstShard - 1;
+            private Iterator<? extends Map.Entry<? extends RowPosition, AtomicBTreeColumns>> iter = Collections.emptyIterator();
 
+            // the shard and iterator that returned currentEntry, as hasNext() may have moved on to the next shard
+            private Shard currentShard;
+            private Iterator<? extends Map.Entry<? extends RowPosition, AtomicBTreeColumns>> currentIter;
             private Map.Entry<? extends RowPosition, ? extends ColumnFamily> currentEntry;
 
             public boolean hasNext()
             {
+                while (!iter.hasNext() && shardIndex < lastShard)
+                {
+                    ConcurrentNavigableMap<RowPosition, AtomicBTreeColumns> rows = shards[++shardIndex].rows;
+                    iter = stopAt.isMinimum()
+                         ? rows.tailMap(startWith).entrySet().iterator()
+                         : rows.subMap(startWith, true, stopAt, true).entrySet().iterator();
+                }
                 return iter.hasNext();
             }
 
             public Map.Entry<DecoratedKey, ColumnFamily> next()
             {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                currentShard = shards[shardIndex];
+                currentIter = iter;
                 Map.Entry<? extends RowPosition, ? extends ColumnFamily> entryRowPosition = iter.next();
                 // Actual stored key should be true DecoratedKey
                 assert entryRowPosition.getKey() instanceof DecoratedKey;
@@ -307,8 +419,8 @@ public class Memtable implements Comparable<Memtable>
 
             public void remove()
             {
-                iter.remove();
-                liveDataSize.addAndGet(-currentEntry.getValue().dataSize());
+                currentIter.remove();
+                currentShard.liveDataSize.addAndGet(-currentEntry.getValue().dataSize());
                 currentEntry = null;
             }
         };
@@ -316,16 +428,39 @@ public class Memtable implements Comparable<Memtable>
 
     public ColumnFamily getColumnFamily(DecoratedKey key)
     {
-        return rows.get(key);
+        return shards[shardIndex(key.getToken())].rows.get(key);
     }
 
-    public SSTableReader flush()
+    public Collection<SSTableReader> flush()
     {
-        long estimatedSize = estimatedSize();
-        Directories.DataDirectory dataDirectory = cfs.directories.getWriteableLocation(estimatedSize);
-        File sstableDirectory = cfs.directories.getLocationForDisk(dataDirectory);
-        assert sstableDirectory != null : "Flush task is not bound to any disk";
-        return writeSortedContents(sstableDirectory);
+        long start = System.nanoTime();
+        List<List<ConcurrentNavigableMap<RowPosition, AtomicBTreeColumns>>> flushShards = splitForFlush(DatabaseDescriptor.getMemtableFlushShards());
+
+        Collection<SSTableReader> flushed;
+        long bytesFlushed = 0;
+        if (flushShards.size() == 1)
+        {
+            List<ConcurrentNavigableMap<RowPosition, AtomicBTreeColumns>> toFlush = flushShards.get(0);
+            long estimatedSize = estimatedSize(toFlush);
+            Directories.DataDirectory dataDirectory = cfs.directories.getWriteableLocation(estimatedSize);
+            File sstableDirectory = cfs.directories.getLocationForDisk(dataDirectory);
+            assert sstableDirectory != null : "Flush task is not bound to any disk";
+            logger.info("Writing {}", Memtable.this.toString());
+            SSTableReader reader = writeSortedContents(sstableDirectory, toFlush);
+            flushed = reader == null ? Collections.<SSTableReader>emptyList() : Collections.singletonList(reader);
+        }
+        else
+        {
+            logger.info("Writing {} as {} sstables", Memtable.this.toString(), flushShards.size());
+            flushed = writeShardedContents(flushShards);
+        }
+
+        for (SSTableReader reader : flushed)
+            bytesFlushed += reader.onDiskLength();
+        long elapsedNanos = System.nanoTime() - start;
+        if (bytesFlushed > 0 && elapsedNanos > 0)
+            cfs.metric.flushThroughput.update((long) (bytesFlushed / (elapsedNanos / 1e9)));
+        return flushed;
     }
 
     public long getMinTimestamp()
@@ -333,54 +468,106 @@ public class Memtable implements Comparable<Memtable>
         return minTimestamp;
     }
 
-    private long estimatedSize()
+    private long estimatedSize(List<ConcurrentNavigableMap<RowPosition, AtomicBTreeColumns>> toFlush)
     {
         long keySize = 0;
-        for (RowPosition key : rows.keySet())
+        long partitions = 0;
+        for (Map<RowPosition, AtomicBTreeColumns> rows : toFlush)
         {
-            //  make sure we don't write non-sensical keys
-            assert key instanceof DecoratedKey;
-            keySize += ((DecoratedKey)key).getKey().remaining();
+            for (RowPosition key : rows.keySet())
+            {
+                //  make sure we don't write non-sensical keys
+                assert key instanceof DecoratedKey;
+                keySize += ((DecoratedKey)key).getKey().remaining();
+                partitions++;
+            }
         }
+        // the data size is only tracked per memtable shard, so attribute it in proportion to the partitions
+        long dataSize = getLiveDataSize() * partitions / Math.max(1, partitionCount());
         return (long) ((keySize // index entries
                         + keySize // keys in data file
-                        + liveDataSize.get()) // data
+                        + dataSize) // data
                        * 1.2); // bloom filter and row index overhead
     }
 
-    private SSTableReader writeSortedContents(File sstableDirectory)
+    private static int size(List<ConcurrentNavigableMap<RowPosition, AtomicBTreeColumns>> toFlush)
     {
-        logger.info("Writing {}", Memtable.this.toString());
+        int size = 0;
+        for (Map<RowPosition, AtomicBTreeColumns> rows : toFlush)
+            size += rows.size();
+        return size;
+    }
 
-        SSTableReader ssTable;
-        // errors when creating the writer that may leave empty temp files.
-        try (SSTableWriter writer = createFlushWriter(cfs.getTempSSTablePath(sstableDirectory)))
+    /**
+     * @return the partitions from {@code from} inclusive to {@code to} exclusive, or to the end of the memtable if
+     * {@code to} is null, as one map for each shard with partitions in that range, in token order
+     */
+    private List<ConcurrentNavigableMap<RowPosition, AtomicBTreeColumns>> partitions(RowPosition from, RowPosition to)
+    {
+        List<ConcurrentNavigableMap<RowPosition, AtomicBTreeColumns>> partitions = new ArrayList<>();
+        for (Shard shard : shards)
         {
-            boolean trackContention = logger.isTraceEnabled();
-            int heavilyContendedRowCount = 0;
-            // (we can't clear out the map as-we-go to free up memory,
-            //  since the memtable is being used for queries in the "pending flush" category)
-            for (Map.Entry<RowPosition, AtomicBTreeColumns> entry : rows.entrySet())
-            {
-                AtomicBTreeColumns cf = entry.getValue();
+            ConcurrentNavigableMap<RowPosition, AtomicBTreeColumns> rows = to == null
+                                                                          ? shard.rows.tailMap(from, true)
+                                                                          : shard.rows.subMap(from, true, to, false);
+            if (!rows.isEmpty())
+                partitions.add(rows);
+        }
+        return partitions;
+    }
 
-                if (cf.isMarkedForDelete() && cf.hasColumns())
-                {
-                    // When every node is up, there's no reason to write batchlog data out to sstables
-                    // (which in turn incurs cost like compaction) since the BL write + delete cancel each other out,
-                    // and BL data is strictly local, so we don't need to preserve tombstones for repair.
-                    // If we have a data row + row level tombstone, then writing it is effectively an expensive no-op so we skip it.
-                    // See CASSANDRA-4667.
-                    if (cfs.name.equals(SystemKeyspace.BATCHLOG) && cfs.keyspace.getName().equals(SystemKeyspace.NAME))
-                        continue;
-                }
+    /**
+     * Splits the memtable into at most {@code flushShards} disjoint, contiguous token ranges holding a similar number
+     * of partitions each, so that they may be written to separate sstables concurrently. Memtables that are too
+     * small to benefit are returned whole.
+     */
+    private List<List<ConcurrentNavigableMap<RowPosition, AtomicBTreeColumns>>> splitForFlush(int flushShards)
+    {
+        List<ConcurrentNavigableMap<RowPosition, AtomicBTreeColumns>> all = new ArrayList<>(shards.length);
+        for (Shard shard : shards)
+            all.add(shard.rows);
+
+        int partitions = size(all);
+        flushShards = Math.min(flushShards, partitions / MIN_PARTITIONS_PER_FLUSH_SHARD);
+        if (flushShards <= 1)
+            return Collections.singletonList(all);
+
+        // writes have all completed by the time we flush, so the maps are stable while we pick boundaries
+        int partitionsPerShard = partitions / flushShards;
+        List<RowPosition> boundaries = new ArrayList<>(flushShards);
+        int i = 0;
+        for (RowPosition key : Iterables.concat(Iterables.transform(all, KEYS)))
+        {
+            if (i++ % partitionsPerShard == 0)
+            {
+                boundaries.add(key);
+                if (boundaries.size() == flushShards)
+                    break;
+            }
+        }
 
-                if (trackContention && cf.usePessimisticLocking())
-                    heavilyContendedRowCount++;
+        List<List<ConcurrentNavigableMap<RowPosition, AtomicBTreeColumns>>> split = new ArrayList<>(boundaries.size());
+        for (int j = 0; j < boundaries.size(); j++)
+            split.add(partitions(boundaries.get(j), j == boundaries.size() - 1 ? null : boundaries.get(j + 1)));
+        return split;
+    }
 
-                if (!cf.isEmpty())
-                    writer.append((DecoratedKey)entry.getKey(), cf);
+    private static final Function<ConcurrentNavigableMap<RowPosition, AtomicBTreeColumns>, Iterable<RowPosition>> KEYS =
+        new Function<ConcurrentNavigableMap<RowPosition, AtomicBTreeColumns>, Iterable<RowPosition>>()
+        {
+            public Iterable<RowPosition> apply(ConcurrentNavigableMap<RowPosition, AtomicBTreeColumns> rows)
+            {
+                return rows.keySet();
             }
+        };
+
+    private SSTableReader writeSortedContents(File sstableDirectory, List<ConcurrentNavigableMap<RowPosition, AtomicBTreeColumns>> toFlush)
+    {
+        SSTableReader ssTable;
+        // errors when creating the writer that may leave empty temp files.
+        try (SSTableWriter writer = createFlushWriter(cfs.getTempSSTablePath(sstableDirectory), size(toFlush)))
+        {
+            appendSortedContents(writer, toFlush);
 
             long bytesFlushed = writer.getFilePointer();
             if (bytesFlushed > 0)
@@ -404,19 +591,170 @@ public class Memtable implements Comparable<Memtable>
             // Update the metrics
             cfs.metric.bytesFlushed.inc(bytesFlushed);
 
-            if (heavilyContendedRowCount > 0)
-                logger.trace(String.format("High update contention in %d/%d partitions of %s ", heavilyContendedRowCount, rows.size(), Memtable.this.toString()));
-
             return ssTable;
         }
     }
 
-    private SSTableWriter createFlushWriter(String filename)
+    /**
+     * Writes each flush shard to its own sstable on the shared flush shard executor, spreading them over the
+     * writeable data directories. Every shard is prepared (i.e. written, synced and renamed into place) before any
+     * is committed, so the memtable either yields all of its sstables or, if any shard fails, none of them.
+     */
+    private Collection<SSTableReader> writeShardedContents(List<List<ConcurrentNavigableMap<RowPosition, AtomicBTreeColumns>>> flushShards)
+    {
+        long largestShard = 0;
+        for (List<ConcurrentNavigableMap<RowPosition, AtomicBTreeColumns>> toFlush : flushShards)
+            largestShard = Math.max(largestShard, estimatedSize(toFlush));
+        List<Directories.DataDirectory> dataDirectories = cfs.directories.getWriteableLocations(largestShard);
+
+        List<Future<SSTableWriter>> futures = new ArrayList<>(flushShards.size());
+        for (int i = 0; i < flushShards.size(); i++)
+        {
+            File sstableDirectory = cfs.directories.getLocationForDisk(dataDirectories.get(i % dataDirectories.size()));
+            assert sstableDirectory != null : "Flush task is not bound to any disk";
+            futures.add(ColumnFamilyStore.flushShardExecutor.submit(new FlushShard(sstableDirectory, flushShards.get(i))));
+        }
+
+        Throwable fail = null;
+        List<SSTableWriter> prepared = new ArrayList<>(flushShards.size());
+        for (Future<SSTableWriter> future : futures)
+        {
+            try
+            {
+                SSTableWriter writer = future.get();
+                if (writer != null)
+                    prepared.add(writer);
+            }
+            catch (ExecutionException e)
+            {
+                fail = merge(fail, e.getCause());
+            }
+            catch (InterruptedException e)
+            {
+                fail = merge(fail, new AssertionError(e));
+            }
+        }
+
+        if (fail != null)
+        {
+            // the shards that did complete are already in place on disk, so obsolete them to have their files removed
+            for (SSTableWriter writer : prepared)
+                fail = discardPrepared(writer, fail);
+            maybeFail(fail);
+        }
+
+        long bytesFlushed = 0;
+        List<SSTableReader> readers = new ArrayList<>(prepared.size());
+        for (SSTableWriter writer : prepared)
+        {
+            bytesFlushed += writer.getFilePointer();
+            fail = writer.commit(fail);
+            readers.add(writer.finished());
+        }
+        maybeFail(fail);
+
+        logger.debug("Completed flushing {} ({}) to {} sstables for commitlog position {}",
+                     Memtable.this.toString(), FBUtilities.prettyPrintMemory(bytesFlushed), readers.size(), commitLogUpperBound);
+        cfs.metric.bytesFlushed.inc(bytesFlushed);
+        return readers;
+    }
+
+    private static Throwable discardPrepared(SSTableWriter writer, Throwable accumulate)
+    {
+        try
+        {
+            accumulate = writer.commit(accumulate);
+            SSTableReader reader = writer.finished();
+            reader.markObsolete(null);
+            reader.selfRef().release();
+        }
+        catch (Throwable t)
+        {
+            accumulate = merge(accumulate, t);
+        }
+        return accumulate;
+    }
+
+    private void appendSortedContents(SSTableWriter writer, List<ConcurrentNavigableMap<RowPosition, AtomicBTreeColumns>> toFlush)
+    {
+        boolean trackContention = logger.isTraceEnabled();
+        int heavilyContendedRowCount = 0;
+        // (we can't clear out the map as-we-go to free up memory,
+        //  since the memtable is being used for queries in the "pending flush" category)
+        for (Map<RowPosition, AtomicBTreeColumns> rows : toFlush)
+        {
+            for (Map.Entry<RowPosition, AtomicBTreeColumns> entry : rows.entrySet())
+            {
+                AtomicBTreeColumns cf = entry.getValue();
+
+                if (cf.isMarkedForDelete() && cf.hasColumns())
+                {
+                    // When every node is up, there's no reason to write batchlog data out to sstables
+                    // (which in turn incurs cost like compaction) since the BL write + delete cancel each other out,
+                    // and BL data is strictly local, so we don't need to preserve tombstones for repair.
+                    // If we have a data row + row level tombstone, then writing it is effectively an expensive no-op so we skip it.
+                    // See CASSANDRA-4667.
+                    if (cfs.name.equals(SystemKeyspace.BATCHLOG) && cfs.keyspace.getName().equals(SystemKeyspace.NAME))
+                        continue;
+                }
+
+                if (trackContention && cf.usePessimisticLocking())
+                    heavilyContendedRowCount++;
+
+                if (!cf.isEmpty())
+                    writer.append((DecoratedKey)entry.getKey(), cf);
+            }
+        }
+
+        if (heavilyContendedRowCount > 0)
+            logger.trace(String.format("High update contention in %d/%d partitions of %s ", heavilyContendedRowCount, size(toFlush), Memtable.this.toString()));
+    }
+
+    private SSTableWriter createFlushWriter(String filename, long keyCount)
     {
         MetadataCollector sstableMetadataCollector = new MetadataCollector(cfs.metadata.comparator)
                                                      .commitLogLowerBound(commitLogLowerBound.get())
                                                      .commitLogUpperBound(commitLogUpperBound.get());
-        return SSTableWriter.create(Descriptor.fromFilename(filename), (long) rows.size(), ActiveRepairService.UNREPAIRED_SSTABLE, cfs.metadata, cfs.partitioner, sstableMetadataCollector);
+        return SSTableWriter.create(Descriptor.fromFilename(filename), keyCount, ActiveRepairService.UNREPAIRED_SSTABLE, cfs.metadata, cfs.partitioner, sstableMetadataCollector);
+    }
+
+    /**
+     * Writes one token range shard of the memtable flush, leaving the sstable prepared but not committed.
+     * Returns null if the shard had nothing that needed to be retained.
+     */
+    private final class FlushShard implements Callable<SSTableWriter>
+    {
+        private final File sstableDirectory;
+        private final List<ConcurrentNavigableMap<RowPosition, AtomicBTreeColumns>> toFlush;
+
+        private FlushShard(File sstableDirectory, List<ConcurrentNavigableMap<RowPosition, AtomicBTreeColumns>> toFlush)
+        {
+            this.sstableDirectory = sstableDirectory;
+            this.toFlush = toFlush;
+        }
+
+        public SSTableWriter call()
+        {
+            SSTableWriter writer = createFlushWriter(cfs.getTempSSTablePath(sstableDirectory), size(toFlush));
+            try
+            {
+                appendSortedContents(writer, toFlush);
+                if (writer.getFilePointer() == 0)
+                {
+                    writer.abort();
+                    return null;
+                }
+
+                // temp sstables should contain non-repaired data.
+                writer.setOpenResult(true).prepareToCommit();
+                return writer;
+            }
+            catch (Throwable t)
+            {
+                maybeFail(writer.abort(t));
+                throw t;
+            }
+        }
     }
 
     private static int estimateRowOverhead(final int count)
@@ -106,9 +106,9 @@ public class RowIndexEntry<T> implements IMeasurableMemory
 
     public static class Serializer implements IndexSerializer<IndexHelper.IndexInfo>
     {
-        private final ISerializer<IndexHelper.IndexInfo> idxSerializer;
+        private final IndexHelper.IndexInfo.Serializer idxSerializer;
 
-        public Serializer(ISerializer<IndexHelper.IndexInfo> idxSerializer)
+        public Serializer(IndexHelper.IndexInfo.Serializer idxSerializer)
         {
             this.idxSerializer = idxSerializer;
         }
@@ -122,8 +122,7 @@ public class RowIndexEntry<T> implements IMeasurableMemory
             {
                 DeletionTime.serializer.serialize(rie.deletionTime(), out);
                 out.writeInt(rie.columnsIndex().size());
-                for (IndexHelper.IndexInfo info : rie.columnsIndex())
-                    idxSerializer.serialize(info, out);
+                idxSerializer.serialize(rie.columnsIndex(), out);
             }
         }
 
@@ -137,9 +136,11 @@ public class RowIndexEntry<T> implements IMeasurableMemory
                 DeletionTime deletionTime = DeletionTime.serializer.deserialize(in);
 
                 int entries = in.readInt();
-                List<IndexHelper.IndexInfo> columnsIndex = new ArrayList<>(entries);
-                for (int i = 0; i < entries; i++)
-                    columnsIndex.add(idxSerializer.deserialize(in));
+                // the column index is left serialized, see IndexHelper.SerializedIndex
+                int indexSize = size
+                              - Ints.checkedCast(DeletionTime.serializer.serializedSize(deletionTime, TypeSizes.NATIVE))
+                              - TypeSizes.NATIVE.sizeof(entries);
+                List<IndexHelper.IndexInfo> columnsIndex = idxSerializer.deserializeIndex(in, entries, indexSize);
 
                 return new IndexedEntry(position, deletionTime, columnsIndex);
             }
@@ -174,12 +175,9 @@ public class RowIndexEntry<T> implements IMeasurableMemory
 
                 size += DeletionTime.serializer.serializedSize(rie.deletionTime(), TypeSizes.NATIVE);
                 size += TypeSizes.NATIVE.sizeof(index.size());
-
-                for (IndexHelper.IndexInfo info : index)
-                    size += idxSerializer.serializedSize(info, TypeSizes.NATIVE);
+                size += idxSerializer.serializedSize(index, TypeSizes.NATIVE);
             }
 
-
             return size;
         }
     }
@@ -222,8 +220,11 @@ public class RowIndexEntry<T> implements IMeasurableMemory
             TypeSizes typeSizes = TypeSizes.NATIVE;
             long size = DeletionTime.serializer.serializedSize(deletionTime, typeSizes);
             size += typeSizes.sizeof(columnsIndex.size()); // number of entries
-            for (IndexHelper.IndexInfo info : columnsIndex)
-                size += idxSerializer.serializedSize(info, typeSizes);
+            if (columnsIndex instanceof IndexHelper.SerializedIndex)
+                size += ((IndexHelper.SerializedIndex) columnsIndex).serializedSize();
+            else
+                for (IndexHelper.IndexInfo info : columnsIndex)
+                    size += idxSerializer.serializedSize(info, typeSizes);
 
             return Ints.checkedCast(size);
         }
@@ -231,6 +232,11 @@ public class RowIndexEntry<T> implements IMeasurableMemory
         @Override
         public long unsharedHeapSize()
         {
+            if (columnsIndex instanceof IndexHelper.SerializedIndex)
+                return BASE_SIZE
+                       + ((IndexHelper.SerializedIndex) columnsIndex).unsharedHeapSize()
+                       + deletionTime.unsharedHeapSize();
+
             long entrySize = 0;
             for (IndexHelper.IndexInfo idx : columnsIndex)
                 entrySize += idx.unsharedHeapSize();
@@ -79,6 +79,7 @@ public abstract class AbstractCommitLogService
                 long syncExceededIntervalBy = 0; // time that syncs exceeded pollInterval since firstLagAt
                 int lagCount = 0;
                 int syncCount = 0;
+                long lastSyncStartedNanos = System.nanoTime();
 
                 boolean run = true;
                 while (run)
@@ -90,15 +91,20 @@ public abstract class AbstractCommitLogService
 
                         // sync and signal
                         long syncStarted = System.currentTimeMillis();
+                        long syncStartedNanos = System.nanoTime();
+                        syncStarted();
                         commitLog.sync(shutdown);
                         lastSyncedAt = syncStarted;
                         syncComplete.signalAll();
+                        long syncEndedNanos = System.nanoTime();
+                        syncCompleted(syncEndedNanos - syncStartedNanos, syncStartedNanos - lastSyncStartedNanos);
+                        lastSyncStartedNanos = syncStartedNanos;
 
 
                         // sleep any time we have left before the next one is due
                         long now = System.currentTimeMillis();
-                        long sleep = syncStarted + pollIntervalMillis - now;
-                        if (sleep < 0)
+                        long sleepNanos = syncStartedNanos + syncIntervalNanos() - System.nanoTime();
+                        if (sleepNanos < 0)
                         {
                             // if we have lagged noticeably, update our lag counter
                             if (firstLagAt == 0)
@@ -106,7 +112,7 @@ public abstract class AbstractCommitLogService
                                 firstLagAt = now;
                                 totalSyncDuration = syncExceededIntervalBy = syncCount = lagCount = 0;
                             }
-                            syncExceededIntervalBy -= sleep;
+                            syncExceededIntervalBy += TimeUnit.NANOSECONDS.toMillis(-sleepNanos);
                             lagCount++;
                         }
                         syncCount++;
@@ -120,12 +126,12 @@ public abstract class AbstractCommitLogService
                         }
 
                         // if we have lagged this round, we probably have work to do already so we don't sleep
-                        if (sleep < 0 || !run)
+                        if (sleepNanos < 0 || !run)
                             continue;
 
                         try
                         {
-                            haveWork.tryAcquire(sleep, TimeUnit.MILLISECONDS);
+                            haveWork.tryAcquire(sleepNanos, TimeUnit.NANOSECONDS);
                             haveWork.drainPermits();
                         }
                         catch (InterruptedException e)
@@ -167,6 +173,31 @@ public abstract class AbstractCommitLogService
 
     protected abstract void maybeWaitForSync(Allocation alloc);
 
+    /**
+     * @return the time from the start of one sync to the start of the next, unless woken early
+     */
+    protected long syncIntervalNanos()
+    {
+        return TimeUnit.MILLISECONDS.toNanos(pollIntervalMillis);
+    }
+
+    /**
+     * Called by the sync thread before each sync.
+     */
+    protected void syncStarted()
+    {
+    }
+
+    /**
+     * Called by the sync thread after each sync.
+     *
+     * @param syncNanos how long the sync took
+     * @param sinceLastSyncNanos the time between the start of the previous sync and this one
+     */
+    protected void syncCompleted(long syncNanos, long sinceLastSyncNanos)
+    {
+    }
+
     /**
      * Sync immediately, but don't block for the sync to cmplete
      */
@@ -220,4 +251,17 @@ public abstract class AbstractCommitLogService
     {
         return pending.get();
     }
+
+    public long getSyncWindowNanos()
+    {
+        return syncIntervalNanos();
+    }
+
+    /**
+     * @return the number of pending log messages that starts a sync early, or 0 if syncs are not started by count
+     */
+    public long getSyncBatchSize()
+    {
+        return 0;
+    }
 }
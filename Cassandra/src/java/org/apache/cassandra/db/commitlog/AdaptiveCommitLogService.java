@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.commitlog;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+
+/**
+ * A commitlog service that, like group mode, will not ack a write until the commit log segment has been synced, but
+ * adapts the window between syncs to the observed sync latency and write arrival rate. The window is as long as it can
+ * be while still acking writes within commitlog_sync_adaptive_target_latency_in_ms, so that each sync covers as many
+ * writes as possible, and a sync is started early once the writes expected in a window have arrived.
+ */
+public class AdaptiveCommitLogService extends AbstractCommitLogService
+{
+    // weights of the newest observation in the smoothed sync duration and its deviation, as for TCP round trip times
+    private static final double DURATION_GAIN = 0.125;
+    private static final double DEVIATION_GAIN = 0.25;
+    // deviations above the smoothed sync duration taken as its 99th percentile
+    private static final int DEVIATIONS = 4;
+
+    private final long targetLatencyNanos;
+
+    // writes started since the last sync began, and how many of them the running sync was started for
+    private final AtomicLong arrived = new AtomicLong(0);
+    private long syncArrivals;
+
+    // only updated by the sync thread
+    private double syncNanos;
+    private double syncDeviationNanos;
+    private double arrivalsPerNano;
+
+    private volatile long windowNanos;
+    private volatile long batchSize = 1;
+    // no writes arrived for the last sync, so the first to arrive starts the next one
+    private volatile boolean idle = true;
+
+    public AdaptiveCommitLogService(CommitLog commitLog)
+    {
+        this(commitLog, DatabaseDescriptor.getCommitLogSyncAdaptiveTargetLatency());
+    }
+
+    @VisibleForTesting
+    AdaptiveCommitLogService(CommitLog commitLog, double targetLatencyMillis)
+    {
+        super(commitLog, "ADAPTIVE-COMMIT-LOG-WRITER", (long) Math.ceil(targetLatencyMillis));
+        targetLatencyNanos = (long) (targetLatencyMillis * 1000000);
+        windowNanos = targetLatencyNanos / 2;
+    }
+
+    protected void maybeWaitForSync(CommitLogSegment.Allocation alloc)
+    {
+        arrived.incrementAndGet();
+        // wait until record has been safely persisted to disk, starting the sync early if the batch is complete
+        if (pending.incrementAndGet() >= batchSize)
+            haveWork.release();
+        alloc.awaitDiskSync(commitLog.metrics.waitingOnCommit);
+        pending.decrementAndGet();
+    }
+
+    @Override
+    protected long syncIntervalNanos()
+    {
+        return idle ? targetLatencyNanos : windowNanos;
+    }
+
+    @Override
+    protected void syncStarted()
+    {
+        syncArrivals = arrived.getAndSet(0);
+    }
+
+    @Override
+    protected void syncCompleted(long syncNanos, long sinceLastSyncNanos)
+    {
+        adapt(syncNanos, syncArrivals, sinceLastSyncNanos);
+    }
+
+    /**
+     * Adapts the window and batch size to a completed sync.
+     *
+     * @param syncNanos how long the sync took
+     * @param batchSize the number of writes started between the start of the previous sync and this one
+     * @param sinceLastSyncNanos the time between the start of the previous sync and this one
+     */
+    @VisibleForTesting
+    void adapt(long syncNanos, long batchSize, long sinceLastSyncNanos)
+    {
+        // a sync with nothing to write says nothing about the disk
+        idle = batchSize == 0;
+        if (idle)
+        {
+            this.batchSize = 1;
+            return;
+        }
+
+        if (this.syncNanos == 0)
+        {
+            this.syncNanos = syncNanos;
+            syncDeviationNanos = syncNanos / 2;
+        }
+        else
+        {
+            syncDeviationNanos += DEVIATION_GAIN * (Math.abs(syncNanos - this.syncNanos) - syncDeviationNanos);
+            this.syncNanos += DURATION_GAIN * (syncNanos - this.syncNanos);
+        }
+        if (sinceLastSyncNanos > 0)
+            arrivalsPerNano += DURATION_GAIN * ((double) batchSize / sinceLastSyncNanos - arrivalsPerNano);
+
+        // a write arriving just as a sync starts waits out the window and then the next sync, so the window is what
+        // is left of the target once a slow sync has been allowed for; if syncs alone exceed it, sync continuously
+        long slowSyncNanos = (long) (this.syncNanos + DEVIATIONS * syncDeviationNanos);
+        windowNanos = Math.max(0, targetLatencyNanos - slowSyncNanos);
+        // writes expected per window; where that is under one there is nothing to gain from waiting for company
+        this.batchSize = Math.max(1, (long) (arrivalsPerNano * windowNanos));
+    }
+
+    @Override
+    public long getSyncBatchSize()
+    {
+        return batchSize;
+    }
+}
@@ -21,6 +21,7 @@ import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 
@@ -105,6 +106,9 @@ public class CommitLog implements CommitLogMBean
             case group:
                 executor = new GroupCommitLogService(this);
                 break;
+            case adaptive:
+                executor = new AdaptiveCommitLogService(this);
+                break;
             default:
                 throw new IllegalArgumentException("Unknown commitlog service type: " + DatabaseDescriptor.getCommitLogSync());
         }
@@ -393,6 +397,18 @@ public class CommitLog implements CommitLogMBean
         return allocator.onDiskSize();
     }
 
+    @Override
+    public long getSyncWindowInMicros()
+    {
+        return TimeUnit.NANOSECONDS.toMicros(executor.getSyncWindowNanos());
+    }
+
+    @Override
+    public long getSyncBatchSize()
+    {
+        return executor.getSyncBatchSize();
+    }
+
     @Override
     public Map<String, Double> getActiveSegmentCompressionRatios()
     {
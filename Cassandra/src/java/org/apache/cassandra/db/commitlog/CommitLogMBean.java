@@ -84,4 +84,16 @@ public interface CommitLogMBean
      * @return A map between active log segments and the compression ratio achieved for each.
      */
     public Map<String, Double> getActiveSegmentCompressionRatios();
+
+    /**
+     * @return The time between the starts of consecutive commit log syncs, in microseconds. In adaptive sync mode
+     * this follows the observed sync latency and write arrival rate.
+     */
+    public long getSyncWindowInMicros();
+
+    /**
+     * @return The number of writes per sync. In adaptive sync mode, the number of writes after which a sync is started
+     * without waiting out the window; 0 in the other modes.
+     */
+    public long getSyncBatchSize();
 }
@@ -26,23 +26,31 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Predicate;
+import com.google.common.base.Throwables;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.Uninterruptibles;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.tjake.ICRC32;
 
-import org.apache.cassandra.concurrent.Stage;
-import org.apache.cassandra.concurrent.StageManager;
+import org.apache.cassandra.concurrent.DebuggableThreadPoolExecutor;
 import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.config.Schema;
 import org.apache.cassandra.db.*;
 import org.apache.cassandra.exceptions.ConfigurationException;
@@ -54,11 +62,12 @@ import org.apache.cassandra.io.util.FastByteArrayInputStream;
 import org.apache.cassandra.io.util.FileDataInput;
 import org.apache.cassandra.io.util.FileUtils;
 import org.apache.cassandra.io.util.RandomAccessReader;
+import org.apache.cassandra.metrics.CommitLogMetrics;
+import org.apache.cassandra.net.MessagingService;
 import org.apache.cassandra.utils.ByteBufferUtil;
 import org.apache.cassandra.utils.CRC32Factory;
 import org.apache.cassandra.utils.FBUtilities;
 import org.apache.cassandra.utils.JVMStabilityInspector;
-import org.apache.cassandra.utils.WrappedRunnable;
 import org.cliffc.high_scale_lib.NonBlockingHashSet;
 
 public class CommitLogReplayer
@@ -66,36 +75,41 @@ public class CommitLogReplayer
     static final String IGNORE_REPLAY_ERRORS_PROPERTY = "cassandra.commitlog.ignorereplayerrors";
     private static final Logger logger = LoggerFactory.getLogger(CommitLogReplayer.class);
     private static final int MAX_OUTSTANDING_REPLAY_COUNT = Integer.getInteger("cassandra.commitlog_max_outstanding_replay_count", 1024);
+    // segments read (and decompressed) concurrently, which is also how far reading may run ahead of replay
+    private static final int REPLAY_READER_COUNT = Integer.getInteger("cassandra.commitlog_replay_readers", Math.min(4, FBUtilities.getAvailableProcessors()));
     private static final int LEGACY_END_OF_SEGMENT_MARKER = 0;
 
     private static final Set<UUID> SEEN_COLUMN_FAMILIES = Collections.newSetFromMap(new ConcurrentHashMap<>());
     private final Set<Keyspace> keyspacesRecovered;
     private final List<Future<?>> futures;
-    private final Map<UUID, AtomicInteger> invalidMutations;
+    private final ConcurrentMap<UUID, AtomicInteger> invalidMutations;
     private final AtomicInteger replayedCount;
     private final Map<UUID, ReplayPosition.ReplayFilter> cfPersisted;
     private final ReplayPosition globalPosition;
-    private final ICRC32 checksum;
-    private byte[] buffer;
-    private byte[] uncompressedBuffer;
 
     private final ReplayFilter replayFilter;
     private final CommitLogArchiver archiver;
+    private final CommitLogMetrics metrics;
+    private final long replayStart;
+    private long replayedBytes;
+
+    // single threaded executors that deserialize and apply mutations; every mutation of a partition is applied
+    // by the same one, so mutations to a partition are applied in commit log order. Created on first use.
+    private ExecutorService[] replayLanes;
 
     CommitLogReplayer(CommitLog commitLog, ReplayPosition globalPosition, Map<UUID, ReplayPosition.ReplayFilter> cfPersisted, ReplayFilter replayFilter)
     {
         this.keyspacesRecovered = new NonBlockingHashSet<Keyspace>();
         this.futures = new ArrayList<Future<?>>();
-        this.buffer = new byte[4096];
-        this.uncompressedBuffer = new byte[4096];
-        this.invalidMutations = new HashMap<UUID, AtomicInteger>();
+        this.invalidMutations = new ConcurrentHashMap<UUID, AtomicInteger>();
         // count the number of replayed mutation. We don't really care about atomicity, but we need it to be a reference.
         this.replayedCount = new AtomicInteger();
-        this.checksum = CRC32Factory.instance.create();
         this.cfPersisted = cfPersisted;
         this.globalPosition = globalPosition;
         this.replayFilter = replayFilter;
         this.archiver = commitLog.archiver;
+        this.metrics = commitLog.metrics;
+        this.replayStart = System.nanoTime();
     }
 
     public static CommitLogReplayer construct(CommitLog commitLog)
@@ -183,36 +197,115 @@ public class CommitLogReplayer
         return filtered;
     }
 
+    /**
+     * Reads the segments concurrently, but hands their mutations to {@link #replayMutation} in segment order and
+     * from the calling thread, so that the replay positions seen are the same as for a sequential replay.
+     */
     public void recover(File[] clogs) throws IOException
     {
         List<File> filteredLogs = filterCommitLogFiles(clogs);
 
-        int i = 0;
-        for (File clog: filteredLogs)
+        ExecutorService executor = DebuggableThreadPoolExecutor.createWithFixedPoolSize("CommitLogReplayReader", REPLAY_READER_COUNT);
+        try
         {
-            i++;
-            recover(clog, i == filteredLogs.size());
+            // only read ahead as many segments as there are readers, to bound the memory holding unreplayed segments
+            Deque<Future<SegmentContents>> reading = new ArrayDeque<>(REPLAY_READER_COUNT);
+            int i = 0;
+            while (i < filteredLogs.size() || !reading.isEmpty())
+            {
+                while (i < filteredLogs.size() && reading.size() < REPLAY_READER_COUNT)
+                {
+                    File clog = filteredLogs.get(i++);
+                    reading.add(executor.submit(new SegmentReader(clog, i == filteredLogs.size())));
+                }
+                replay(getUnchecked(reading.poll()));
+            }
         }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    public void recover(File file, boolean tolerateTruncation) throws IOException
+    {
+        replay(new SegmentReader(file, tolerateTruncation).call());
     }
 
-    public int blockForWrites()
+    private void replay(SegmentContents contents) throws IOException
+    {
+        for (ReplayEntry entry : contents.entries)
+            replayMutation(entry.buffer, entry.buffer.length, entry.entryLocation, entry.desc, entry.path);
+
+        replayedBytes += contents.bytesRead;
+        metrics.replayedBytes.mark(contents.bytesRead);
+
+        // surface an unignored error only once everything read before it has been replayed, as sequential replay would
+        if (contents.failure != null)
+            throw contents.failure;
+    }
+
+    private static <V> V getUnchecked(Future<V> future) throws IOException
+    {
+        try
+        {
+            return Uninterruptibles.getUninterruptibly(future);
+        }
+        catch (ExecutionException e)
+        {
+            Throwables.propagateIfPossible(e.getCause(), IOException.class);
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    public int blockForWrites() throws IOException
     {
         for (Map.Entry<UUID, AtomicInteger> entry : invalidMutations.entrySet())
             logger.warn(String.format("Skipped %d mutations from unknown (probably removed) CF with id %s", entry.getValue().intValue(), entry.getKey()));
 
-        // wait for all the writes to finish on the mutation stage
-        FBUtilities.waitOnFutures(futures);
+        // wait for all the writes to finish on the replay lanes
+        try
+        {
+            waitForMutations();
+        }
+        finally
+        {
+            if (replayLanes != null)
+            {
+                for (ExecutorService lane : replayLanes)
+                    lane.shutdownNow();
+                replayLanes = null;
+            }
+        }
         logger.trace("Finished waiting on mutations from recovery");
 
         // flush replayed keyspaces
-        futures.clear();
         for (Keyspace keyspace : keyspacesRecovered)
             futures.addAll(keyspace.flush());
         FBUtilities.waitOnFutures(futures);
+        futures.clear();
+
+        long elapsedNanos = System.nanoTime() - replayStart;
+        metrics.replayTime.update(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (replayedBytes > 0 && elapsedNanos > 0)
+            metrics.replayThroughput.update((long) ((replayedBytes / (1024.0 * 1024.0)) / (elapsedNanos / 1e9)));
         return replayedCount.get();
     }
 
-    private int readSyncMarker(CommitLogDescriptor descriptor, int offset, RandomAccessReader reader, boolean tolerateTruncation) throws IOException
+    private void waitForMutations() throws IOException
+    {
+        try
+        {
+            for (Future<?> future : futures)
+                getUnchecked(future);
+        }
+        finally
+        {
+            futures.clear();
+        }
+    }
+
+    private static int readSyncMarker(CommitLogDescriptor descriptor, int offset, RandomAccessReader reader, boolean tolerateTruncation) throws IOException
     {
         if (offset > reader.length() - CommitLogSegment.SYNC_MARKER_SIZE)
         {
@@ -336,256 +429,361 @@ public class CommitLogReplayer
         return filter == null || filter.shouldReplay(position);
     }
 
-    @SuppressWarnings("resource")
-    public void recover(File file, boolean tolerateTruncation) throws IOException
+    public boolean logAndCheckIfShouldSkip(File file, CommitLogDescriptor desc)
     {
-        CommitLogDescriptor desc = CommitLogDescriptor.fromFileName(file.getName());
-        RandomAccessReader reader = RandomAccessReader.open(new File(file.getAbsolutePath()));
-        try
+        logger.debug("Replaying {} (CL version {}, messaging version {}, compression {})",
+                    file.getPath(),
+                    desc.version,
+                    desc.getMessagingVersion(),
+                    desc.compression);
+
+        if (globalPosition.segment > desc.id)
         {
-            if (desc.version < CommitLogDescriptor.VERSION_21)
-            {
-                if (logAndCheckIfShouldSkip(file, desc))
-                    return;
-                if (globalPosition.segment == desc.id)
-                    reader.seek(globalPosition.position);
-                replaySyncSection(reader, (int) reader.getPositionLimit(), desc, desc.fileName(), tolerateTruncation);
-                return;
-            }
+            logger.trace("skipping replay of fully-flushed {}", file);
+            return true;
+        }
+        return false;
+    }
 
-            final long segmentId = desc.id;
+    /**
+     * Reads, decompresses and checks one segment, collecting the serialized mutations that may need replaying.
+     * Readers of different segments run concurrently, so each has its own buffers.
+     */
+    private final class SegmentReader implements Callable<SegmentContents>
+    {
+        private final File file;
+        private final boolean tolerateTruncation;
+        private final SegmentContents contents = new SegmentContents();
+        private final ICRC32 checksum = CRC32Factory.instance.create();
+        private byte[] buffer = new byte[4096];
+        private byte[] uncompressedBuffer = new byte[4096];
+
+        SegmentReader(File file, boolean tolerateTruncation)
+        {
+            this.file = file;
+            this.tolerateTruncation = tolerateTruncation;
+        }
+
+        public SegmentContents call()
+        {
             try
             {
-                desc = CommitLogDescriptor.readHeader(reader);
+                read();
             }
             catch (IOException e)
             {
-                desc = null;
-            }
-            if (desc == null) {
-                // Presumably a failed CRC or other IO error occurred, which may be ok if it's the last segment
-                // where we tolerate (and expect) truncation
-                handleReplayError(file.getPath(), tolerateTruncation, "Could not read commit log descriptor in file %s", file);
-                return;
-            }
-            if (segmentId != desc.id)
-            {
-                handleReplayError(file.getPath(), false, "Segment id mismatch (filename %d, descriptor %d) in file %s", segmentId, desc.id, file);
-                // continue processing if ignored.
+                contents.failure = e;
             }
+            return contents;
+        }
 
-            if (logAndCheckIfShouldSkip(file, desc))
-                return;
-
-            ICompressor compressor = null;
-            if (desc.compression != null)
+        @SuppressWarnings("resource")
+        private void read() throws IOException
+        {
+            CommitLogDescriptor desc = CommitLogDescriptor.fromFileName(file.getName());
+            RandomAccessReader reader = RandomAccessReader.open(new File(file.getAbsolutePath()));
+            try
             {
+                if (desc.version < CommitLogDescriptor.VERSION_21)
+                {
+                    if (logAndCheckIfShouldSkip(file, desc))
+                        return;
+                    if (globalPosition.segment == desc.id)
+                        reader.seek(globalPosition.position);
+                    readSyncSection(reader, (int) reader.getPositionLimit(), desc, desc.fileName(), tolerateTruncation);
+                    return;
+                }
+
+                final long segmentId = desc.id;
                 try
                 {
-                    compressor = CompressionParameters.createCompressor(desc.compression);
+                    desc = CommitLogDescriptor.readHeader(reader);
                 }
-                catch (ConfigurationException e)
+                catch (IOException e)
                 {
-                    handleReplayError(file.getPath(), false, "Unknown compression: %s", e.getMessage());
+                    desc = null;
+                }
+                if (desc == null) {
+                    // Presumably a failed CRC or other IO error occurred, which may be ok if it's the last segment
+                    // where we tolerate (and expect) truncation
+                    handleReplayError(file.getPath(), tolerateTruncation, "Could not read commit log descriptor in file %s", file);
                     return;
                 }
-            }
-
-            assert reader.length() <= Integer.MAX_VALUE;
-            int end = (int) reader.getFilePointer();
-            int replayEnd = end;
-
-            while ((end = readSyncMarker(desc, end, reader, tolerateTruncation)) >= 0)
-            {
-                int replayPos = replayEnd + CommitLogSegment.SYNC_MARKER_SIZE;
-
-                if (logger.isTraceEnabled())
-                    logger.trace("Replaying {} between {} and {}", file, reader.getFilePointer(), end);
-                if (compressor != null)
-                {
-                    int uncompressedLength = reader.readInt();
-                    replayEnd = replayPos + uncompressedLength;
-                } else
+                if (segmentId != desc.id)
                 {
-                    replayEnd = end;
+                    handleReplayError(file.getPath(), false, "Segment id mismatch (filename %d, descriptor %d) in file %s", segmentId, desc.id, file);
+                    // continue processing if ignored.
                 }
 
-                if (segmentId == globalPosition.segment && replayEnd < globalPosition.position)
-                    // Skip over flushed section.
-                    continue;
+                if (logAndCheckIfShouldSkip(file, desc))
+                    return;
 
-                FileDataInput sectionReader = reader;
-                String errorContext = desc.fileName();
-                // In the uncompressed case the last non-fully-flushed section can be anywhere in the file.
-                boolean tolerateErrorsInSection = tolerateTruncation;
-                if (compressor != null)
+                ICompressor compressor = null;
+                if (desc.compression != null)
                 {
-                    // In the compressed case we know if this is the last section.
-                    tolerateErrorsInSection &= end == reader.length() || end < 0;
-
-                    int start = (int) reader.getFilePointer();
                     try
                     {
-                        int compressedLength = end - start;
-                        if (logger.isTraceEnabled())
-                            logger.trace("Decompressing {} between replay positions {} and {}",
-                                         file,
-                                         replayPos,
-                                         replayEnd);
-                        if (compressedLength > buffer.length)
-                            buffer = new byte[(int) (1.2 * compressedLength)];
-                        reader.readFully(buffer, 0, compressedLength);
-                        int uncompressedLength = replayEnd - replayPos;
-                        if (uncompressedLength > uncompressedBuffer.length)
-                            uncompressedBuffer = new byte[(int) (1.2 * uncompressedLength)];
-                        compressedLength = compressor.uncompress(buffer, 0, compressedLength, uncompressedBuffer, 0);
-                        sectionReader = new ByteBufferDataInput(ByteBuffer.wrap(uncompressedBuffer), reader.getPath(), replayPos, 0);
-                        errorContext = "compressed section at " + start + " in " + errorContext;
+                        compressor = CompressionParameters.createCompressor(desc.compression);
                     }
-                    catch (IOException | ArrayIndexOutOfBoundsException e)
+                    catch (ConfigurationException e)
                     {
-                        handleReplayError(reader.getPath(),
-                                          tolerateErrorsInSection,
-                                          "Unexpected exception decompressing section at %d: %s",
-                                          start, e);
-                        continue;
+                        handleReplayError(file.getPath(), false, "Unknown compression: %s", e.getMessage());
+                        return;
                     }
                 }
 
-                if (!replaySyncSection(sectionReader, replayEnd, desc, errorContext, tolerateErrorsInSection))
-                    break;
-            }
-        }
-        finally
-        {
-            FileUtils.closeQuietly(reader);
-            logger.debug("Finished reading {}", file);
-        }
-    }
+                assert reader.length() <= Integer.MAX_VALUE;
+                int end = (int) reader.getFilePointer();
+                int replayEnd = end;
 
-    public boolean logAndCheckIfShouldSkip(File file, CommitLogDescriptor desc)
-    {
-        logger.debug("Replaying {} (CL version {}, messaging version {}, compression {})",
-                    file.getPath(),
-                    desc.version,
-                    desc.getMessagingVersion(),
-                    desc.compression);
+                while ((end = readSyncMarker(desc, end, reader, tolerateTruncation)) >= 0)
+                {
+                    int replayPos = replayEnd + CommitLogSegment.SYNC_MARKER_SIZE;
 
-        if (globalPosition.segment > desc.id)
-        {
-            logger.trace("skipping replay of fully-flushed {}", file);
-            return true;
+                    if (logger.isTraceEnabled())
+                        logger.trace("Replaying {} between {} and {}", file, reader.getFilePointer(), end);
+                    if (compressor != null)
+                    {
+                        int uncompressedLength = reader.readInt();
+                        replayEnd = replayPos + uncompressedLength;
+                    } else
+                    {
+                        replayEnd = end;
+                    }
+
+                    if (segmentId == globalPosition.segment && replayEnd < globalPosition.position)
+                        // Skip over flushed section.
+                        continue;
+
+                    FileDataInput sectionReader = reader;
+                    String errorContext = desc.fileName();
+                    // In the uncompressed case the last non-fully-flushed section can be anywhere in the file.
+                    boolean tolerateErrorsInSection = tolerateTruncation;
+                    if (compressor != null)
+                    {
+                        // In the compressed case we know if this is the last section.
+                        tolerateErrorsInSection &= end == reader.length() || end < 0;
+
+                        int start = (int) reader.getFilePointer();
+                        try
+                        {
+                            int compressedLength = end - start;
+                            if (logger.isTraceEnabled())
+                                logger.trace("Decompressing {} between replay positions {} and {}",
+                                             file,
+                                             replayPos,
+                                             replayEnd);
+                            if (compressedLength > buffer.length)
+                                buffer = new byte[(int) (1.2 * compressedLength)];
+                            reader.readFully(buffer, 0, compressedLength);
+                            int uncompressedLength = replayEnd - replayPos;
+                            if (uncompressedLength > uncompressedBuffer.length)
+                                uncompressedBuffer = new byte[(int) (1.2 * uncompressedLength)];
+                            compressedLength = compressor.uncompress(buffer, 0, compressedLength, uncompressedBuffer, 0);
+                            sectionReader = new ByteBufferDataInput(ByteBuffer.wrap(uncompressedBuffer), reader.getPath(), replayPos, 0);
+                            errorContext = "compressed section at " + start + " in " + errorContext;
+                        }
+                        catch (IOException | ArrayIndexOutOfBoundsException e)
+                        {
+                            handleReplayError(reader.getPath(),
+                                              tolerateErrorsInSection,
+                                              "Unexpected exception decompressing section at %d: %s",
+                                              start, e);
+                            continue;
+                        }
+                    }
+
+                    if (!readSyncSection(sectionReader, replayEnd, desc, errorContext, tolerateErrorsInSection))
+                        break;
+                }
+            }
+            finally
+            {
+                contents.bytesRead = reader.getFilePointer();
+                FileUtils.closeQuietly(reader);
+                logger.debug("Finished reading {}", file);
+            }
         }
-        return false;
-    }
 
-    /**
-     * Replays a sync section containing a list of mutations.
-     *
-     * @return Whether replay should continue with the next section.
-     */
-    private boolean replaySyncSection(FileDataInput reader, int end, CommitLogDescriptor desc, String errorContext, boolean tolerateErrors) throws IOException
-    {
-         /* read the logs populate Mutation and apply */
-        while (reader.getFilePointer() < end && !reader.isEOF())
+        /**
+         * Reads the mutations of a sync section, checking their checksums.
+         *
+         * @return Whether replay should continue with the next section.
+         */
+        private boolean readSyncSection(FileDataInput reader, int end, CommitLogDescriptor desc, String errorContext, boolean tolerateErrors) throws IOException
         {
-            long mutationStart = reader.getFilePointer();
-            if (logger.isTraceEnabled())
-                logger.trace("Reading mutation at {}", mutationStart);
-
-            long claimedCRC32;
-            int serializedSize;
-            try
+             /* read the logs populate Mutation and apply */
+            while (reader.getFilePointer() < end && !reader.isEOF())
             {
-                // We rely on reading serialized size == 0 (LEGACY_END_OF_SEGMENT_MARKER) to identify the end
-                // of a segment, which happens naturally due to the 0 padding of the empty segment on creation.
-                // However, with 2.1 era commitlogs it's possible that the last mutation ended less than 4 bytes 
-                // from the end of the file, which means that we'll be unable to read an a full int and instead 
-                // read an EOF here
-                if(end - reader.getFilePointer() < 4)
-                {
-                    logger.trace("Not enough bytes left for another mutation in this CommitLog segment, continuing");
-                    return false;
-                }
+                long mutationStart = reader.getFilePointer();
+                if (logger.isTraceEnabled())
+                    logger.trace("Reading mutation at {}", mutationStart);
 
-                // any of the reads may hit EOF
-                serializedSize = reader.readInt();
-                if (serializedSize == LEGACY_END_OF_SEGMENT_MARKER)
+                long claimedCRC32;
+                int serializedSize;
+                try
                 {
-                    logger.trace("Encountered end of segment marker at {}", reader.getFilePointer());
-                    return false;
-                }
+                    // We rely on reading serialized size == 0 (LEGACY_END_OF_SEGMENT_MARKER) to identify the end
+                    // of a segment, which happens naturally due to the 0 padding of the empty segment on creation.
+                    // However, with 2.1 era commitlogs it's possible that the last mutation ended less than 4 bytes 
+                    // from the end of the file, which means that we'll be unable to read an a full int and instead 
+                    // read an EOF here
+                    if(end - reader.getFilePointer() < 4)
+                    {
+                        logger.trace("Not enough bytes left for another mutation in this CommitLog segment, continuing");
+                        return false;
+                    }
+
+                    // any of the reads may hit EOF
+                    serializedSize = reader.readInt();
+                    if (serializedSize == LEGACY_END_OF_SEGMENT_MARKER)
+                    {
+                        logger.trace("Encountered end of segment marker at {}", reader.getFilePointer());
+                        return false;
+                    }
 
-                // Mutation must be at LEAST 10 bytes:
-                // 3 each for a non-empty Keyspace and Key (including the
-                // 2-byte length from writeUTF/writeWithShortLength) and 4 bytes for column count.
-                // This prevents CRC by being fooled by special-case garbage in the file; see CASSANDRA-2128
-                if (serializedSize < 10)
+                    // Mutation must be at LEAST 10 bytes:
+                    // 3 each for a non-empty Keyspace and Key (including the
+                    // 2-byte length from writeUTF/writeWithShortLength) and 4 bytes for column count.
+                    // This prevents CRC by being fooled by special-case garbage in the file; see CASSANDRA-2128
+                    if (serializedSize < 10)
+                    {
+                        handleReplayError(reader.getPath(),
+                                          tolerateErrors,
+                                          "Invalid mutation size %d at %d in %s",
+                                          serializedSize, mutationStart, errorContext);
+                        return false;
+                    }
+
+                    long claimedSizeChecksum;
+                    if (desc.version < CommitLogDescriptor.VERSION_21)
+                        claimedSizeChecksum = reader.readLong();
+                    else
+                        claimedSizeChecksum = reader.readInt() & 0xffffffffL;
+                    checksum.reset();
+                    if (desc.version < CommitLogDescriptor.VERSION_20)
+                        checksum.update(serializedSize);
+                    else
+                        checksum.updateInt(serializedSize);
+
+                    if (checksum.getValue() != claimedSizeChecksum)
+                    {
+                        handleReplayError(reader.getPath(),
+                                          tolerateErrors,
+                                          "Mutation size checksum failure at %d in %s",
+                                          mutationStart, errorContext);
+                        return false;
+                    }
+                    // ok.
+
+                    if (serializedSize > buffer.length)
+                        buffer = new byte[(int) (1.2 * serializedSize)];
+                    reader.readFully(buffer, 0, serializedSize);
+                    if (desc.version < CommitLogDescriptor.VERSION_21)
+                        claimedCRC32 = reader.readLong();
+                    else
+                        claimedCRC32 = reader.readInt() & 0xffffffffL;
+                }
+                catch (EOFException eof)
                 {
                     handleReplayError(reader.getPath(),
                                       tolerateErrors,
-                                      "Invalid mutation size %d at %d in %s",
-                                      serializedSize, mutationStart, errorContext);
-                    return false;
+                                      "Unexpected end of segment",
+                                      mutationStart, errorContext);
+                    return false; // last CL entry didn't get completely written. that's ok.
                 }
 
-                long claimedSizeChecksum;
-                if (desc.version < CommitLogDescriptor.VERSION_21)
-                    claimedSizeChecksum = reader.readLong();
-                else
-                    claimedSizeChecksum = reader.readInt() & 0xffffffffL;
-                checksum.reset();
-                if (desc.version < CommitLogDescriptor.VERSION_20)
-                    checksum.update(serializedSize);
-                else
-                    checksum.updateInt(serializedSize);
-
-                if (checksum.getValue() != claimedSizeChecksum)
+                checksum.update(buffer, 0, serializedSize);
+                if (claimedCRC32 != checksum.getValue())
                 {
                     handleReplayError(reader.getPath(),
                                       tolerateErrors,
-                                      "Mutation size checksum failure at %d in %s",
+                                      "Mutation checksum failure at %d in %s",
                                       mutationStart, errorContext);
-                    return false;
+                    continue;
                 }
-                // ok.
-
-                if (serializedSize > buffer.length)
-                    buffer = new byte[(int) (1.2 * serializedSize)];
-                reader.readFully(buffer, 0, serializedSize);
-                if (desc.version < CommitLogDescriptor.VERSION_21)
-                    claimedCRC32 = reader.readLong();
-                else
-                    claimedCRC32 = reader.readInt() & 0xffffffffL;
-            }
-            catch (EOFException eof)
-            {
-                handleReplayError(reader.getPath(),
-                                  tolerateErrors,
-                                  "Unexpected end of segment",
-                                  mutationStart, errorContext);
-                return false; // last CL entry didn't get completely written. that's ok.
+                contents.entries.add(new ReplayEntry(Arrays.copyOf(buffer, serializedSize), (int) reader.getFilePointer(), desc, reader.getPath()));
             }
+            return true;
+        }
+    }
 
-            checksum.update(buffer, 0, serializedSize);
-            if (claimedCRC32 != checksum.getValue())
+    private static final class SegmentContents
+    {
+        final List<ReplayEntry> entries = new ArrayList<>();
+        long bytesRead;
+        IOException failure;
+    }
+
+    private static final class ReplayEntry
+    {
+        final byte[] buffer;
+        final int entryLocation;
+        final CommitLogDescriptor desc;
+        final String path;
+
+        ReplayEntry(byte[] buffer, int entryLocation, CommitLogDescriptor desc, String path)
+        {
+            this.buffer = buffer;
+            this.entryLocation = entryLocation;
+            this.desc = desc;
+            this.path = path;
+        }
+    }
+
+    /**
+     * Deserializes and replays a commit log entry. Entries are passed in commit log order; the buffer holds only this
+     * entry and is not reused, so it may be retained.
+     */
+    void replayMutation(final byte[] inputBuffer, final int size,
+            final int entryLocation, final CommitLogDescriptor desc, final String path) throws IOException
+    {
+        Callable<Void> task = new Callable<Void>()
+        {
+            public Void call() throws IOException
             {
-                handleReplayError(reader.getPath(),
-                                  tolerateErrors,
-                                  "Mutation checksum failure at %d in %s",
-                                  mutationStart, errorContext);
-                continue;
+                Mutation mutation = deserializeMutation(inputBuffer, size, desc, path);
+                if (mutation != null)
+                    applyMutation(mutation, entryLocation, desc);
+                return null;
             }
-            replayMutation(buffer, serializedSize, (int) reader.getFilePointer(), desc, reader.getPath());
+        };
+        futures.add(replayLane(inputBuffer, size, desc).submit(task));
+        if (futures.size() > MAX_OUTSTANDING_REPLAY_COUNT)
+            waitForMutations();
+    }
+
+    /**
+     * @return the lane for the partition of the serialized mutation, found from its key without deserializing the rest
+     */
+    private ExecutorService replayLane(byte[] inputBuffer, int size, CommitLogDescriptor desc)
+    {
+        if (replayLanes == null)
+        {
+            replayLanes = new ExecutorService[DatabaseDescriptor.getConcurrentWriters()];
+            for (int i = 0; i < replayLanes.length; i++)
+                replayLanes[i] = DebuggableThreadPoolExecutor.createWithFixedPoolSize("CommitLogReplayer:" + i, 1);
         }
-        return true;
+
+        int hash = 0;
+        try (FastByteArrayInputStream bufIn = new FastByteArrayInputStream(inputBuffer, 0, size))
+        {
+            DataInputStream in = new DataInputStream(bufIn);
+            if (desc.getMessagingVersion() < MessagingService.VERSION_20)
+                in.readUTF();
+            hash = ByteBufferUtil.readWithShortLength(in).hashCode();
+        }
+        catch (IOException e)
+        {
+            // leave it to deserialization to report the broken mutation
+        }
+        return replayLanes[(hash & Integer.MAX_VALUE) % replayLanes.length];
     }
 
     /**
-     * Deserializes and replays a commit log entry.
+     * @return the mutation, or null if it is for an unknown table or could not be deserialized but the error is ignored
      */
-    void replayMutation(byte[] inputBuffer, int size,
-            final int entryLocation, final CommitLogDescriptor desc, String path) throws IOException
+    private Mutation deserializeMutation(byte[] inputBuffer, int size, CommitLogDescriptor desc, String path) throws IOException
     {
         final Mutation mutation;
         try (FastByteArrayInputStream bufIn = new FastByteArrayInputStream(inputBuffer, 0, size))
@@ -604,17 +802,12 @@ public class CommitLogReplayer
         catch (UnknownColumnFamilyException ex)
         {
             if (ex.cfId == null)
-                return;
-            AtomicInteger i = invalidMutations.get(ex.cfId);
+                return null;
             SEEN_COLUMN_FAMILIES.add(ex.cfId);
-            if (i == null)
-            {
-                i = new AtomicInteger(1);
-                invalidMutations.put(ex.cfId, i);
-            }
-            else
+            AtomicInteger i = invalidMutations.putIfAbsent(ex.cfId, new AtomicInteger(1));
+            if (i != null)
                 i.incrementAndGet();
-            return;
+            return null;
         }
         catch (Throwable t)
         {
@@ -634,55 +827,49 @@ public class CommitLogReplayer
                               "Exception follows: %s",
                               f.getAbsolutePath(),
                               t);
-            return;
+            return null;
         }
 
         if (logger.isTraceEnabled())
             logger.trace("replaying mutation for {}.{}: {}", mutation.getKeyspaceName(), ByteBufferUtil.bytesToHex(mutation.key()), "{" + StringUtils.join(mutation.getColumnFamilies().iterator(), ", ") + "}");
+        return mutation;
+    }
 
-        Runnable runnable = new WrappedRunnable()
-        {
-            public void runMayThrow() throws IOException
-            {
-                if (Schema.instance.getKSMetaData(mutation.getKeyspaceName()) == null)
-                    return;
-                if (pointInTimeExceeded(mutation))
-                    return;
+    @VisibleForTesting
+    void applyMutation(Mutation mutation, int entryLocation, CommitLogDescriptor desc)
+    {
+        if (Schema.instance.getKSMetaData(mutation.getKeyspaceName()) == null)
+            return;
+        if (pointInTimeExceeded(mutation))
+            return;
 
-                final Keyspace keyspace = Keyspace.open(mutation.getKeyspaceName());
+        final Keyspace keyspace = Keyspace.open(mutation.getKeyspaceName());
 
-                // Rebuild the mutation, omitting column families that
-                //    a) the user has requested that we ignore,
-                //    b) have already been flushed,
-                // or c) are part of a cf that was dropped.
-                // Keep in mind that the cf.name() is suspect. do every thing based on the cfid instead.
-                Mutation newMutation = null;
-                for (ColumnFamily columnFamily : replayFilter.filter(mutation))
-                {
-                    if (Schema.instance.getCF(columnFamily.id()) == null)
-                        continue; // dropped
+        // Rebuild the mutation, omitting column families that
+        //    a) the user has requested that we ignore,
+        //    b) have already been flushed,
+        // or c) are part of a cf that was dropped.
+        // Keep in mind that the cf.name() is suspect. do every thing based on the cfid instead.
+        Mutation newMutation = null;
+        for (ColumnFamily columnFamily : replayFilter.filter(mutation))
+        {
+            if (Schema.instance.getCF(columnFamily.id()) == null)
+                continue; // dropped
 
-                    if (shouldReplay(columnFamily.id(), new ReplayPosition(desc.id, entryLocation)))
-                    {
-                        if (newMutation == null)
-                            newMutation = new Mutation(mutation.getKeyspaceName(), mutation.key());
-                        newMutation.add(columnFamily);
-                        replayedCount.incrementAndGet();
-                    }
-                }
-                if (newMutation != null)
-                {
-                    assert !newMutation.isEmpty();
-                    Keyspace.open(newMutation.getKeyspaceName()).apply(newMutation, false);
-                    keyspacesRecovered.add(keyspace);
-                }
+            if (shouldReplay(columnFamily.id(), new ReplayPosition(desc.id, entryLocation)))
+            {
+                if (newMutation == null)
+                    newMutation = new Mutation(mutation.getKeyspaceName(), mutation.key());
+                newMutation.add(columnFamily);
+                replayedCount.incrementAndGet();
             }
-        };
-        futures.add(StageManager.getStage(Stage.MUTATION).submit(runnable));
-        if (futures.size() > MAX_OUTSTANDING_REPLAY_COUNT)
+        }
+        if (newMutation != null)
         {
-            FBUtilities.waitOnFutures(futures);
-            futures.clear();
+            assert !newMutation.isEmpty();
+            Keyspace.open(newMutation.getKeyspaceName()).apply(newMutation, false);
+            keyspacesRecovered.add(keyspace);
+            metrics.replayedMutations.mark();
         }
     }
 
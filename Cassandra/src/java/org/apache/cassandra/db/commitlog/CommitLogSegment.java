@@ -43,6 +43,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.Config;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.config.Schema;
 import org.apache.cassandra.db.ColumnFamily;
@@ -119,8 +120,11 @@ public abstract class CommitLogSegment
 
     static CommitLogSegment createSegment(CommitLog commitLog)
     {
-        return commitLog.configuration.useCompression() ? new CompressedSegment(commitLog)
-                                                        : new MemoryMappedSegment(commitLog);
+        if (commitLog.configuration.useCompression())
+            return new CompressedSegment(commitLog);
+        return DatabaseDescriptor.getCommitLogSegmentType() == Config.CommitLogSegmentType.direct
+               ? new DirectIOSegment(commitLog)
+               : new MemoryMappedSegment(commitLog);
     }
 
     static long getNextId()
@@ -142,7 +146,7 @@ public abstract class CommitLogSegment
 
         try
         {
-            channel = FileChannel.open(logFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.READ, StandardOpenOption.CREATE);
+            channel = openChannel(logFile);
             fd = CLibrary.getfd(channel);
         }
         catch (IOException e)
@@ -158,6 +162,14 @@ public abstract class CommitLogSegment
         allocatePosition.set(lastSyncedOffset + SYNC_MARKER_SIZE);
     }
 
+    /**
+     * Opens the channel for the segment file, creating the file. Called from the constructor.
+     */
+    FileChannel openChannel(File logFile) throws IOException
+    {
+        return FileChannel.open(logFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.READ, StandardOpenOption.CREATE);
+    }
+
     abstract ByteBuffer createBuffer(CommitLog commitLog);
 
     /**
@@ -326,10 +338,18 @@ public abstract class CommitLogSegment
     {
         close();
         if (deleteFile)
-            FileUtils.deleteWithConfirm(logFile);
+            deleteFile();
         commitLog.allocator.addSize(-onDiskSize());
     }
 
+    /**
+     * Removes the closed segment's file.
+     */
+    void deleteFile()
+    {
+        FileUtils.deleteWithConfirm(logFile);
+    }
+
     /**
      * @return the current ReplayPosition for this log segment
      */
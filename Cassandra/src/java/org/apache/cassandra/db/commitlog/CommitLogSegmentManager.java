@@ -41,6 +41,7 @@ import com.google.common.util.concurrent.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.cassandra.config.Config;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.config.Schema;
 import org.apache.cassandra.db.ColumnFamilyStore;
@@ -103,6 +104,10 @@ public class CommitLogSegmentManager
 
     void start()
     {
+        // the spare files of direct segments take up commit log space too
+        if (usesDirectSegments())
+            addSize(DirectIOSegment.spareFilesSize());
+
         // The run loop for the manager thread
         Runnable runnable = new WrappedRunnable()
         {
@@ -362,7 +367,13 @@ public class CommitLogSegmentManager
      */
     void recycleSegment(final File file)
     {
-        // (don't decrease managed size, since this was never a "live" segment)
+        // (don't decrease managed size, since this was never a "live" segment, but count it as a spare if it's kept)
+        if (usesDirectSegments() && DirectIOSegment.recycle(file, size.get() + DatabaseDescriptor.getCommitLogSegmentSize()))
+        {
+            addSize(DatabaseDescriptor.getCommitLogSegmentSize());
+            logger.trace("(Unopened) segment {} is no longer needed and will be reused", file);
+            return;
+        }
         logger.trace("(Unopened) segment {} is no longer needed and will be deleted now", file);
         FileUtils.deleteWithConfirm(file);
     }
@@ -385,6 +396,12 @@ public class CommitLogSegmentManager
         });
     }
 
+    private boolean usesDirectSegments()
+    {
+        return !commitLog.configuration.useCompression()
+               && DatabaseDescriptor.getCommitLogSegmentType() == Config.CommitLogSegmentType.direct;
+    }
+
     /**
      * Adjust the tracked on-disk size. Called by individual segments to reflect writes, allocations and discards.
      * @param addedSize
@@ -561,6 +578,7 @@ public class CommitLogSegmentManager
             segment.close();
 
         CompressedSegment.shutdown();
+        DirectIOSegment.shutdown();
     }
 
     /**
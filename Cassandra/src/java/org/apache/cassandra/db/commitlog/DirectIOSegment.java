@@ -0,0 +1,287 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.commitlog;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.io.FSWriteError;
+import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.utils.CLibrary;
+import org.apache.cassandra.utils.SyncUtil;
+import org.apache.cassandra.utils.memory.MemoryUtil;
+
+/*
+ * Direct I/O segment. Provides a block-aligned off-heap buffer for the mutation threads. On sync writes the blocks
+ * covering the section to their position in the file, forces them with fdatasync and drops them from the page cache,
+ * so the commit log neither maps new files nor leaves dirty pages behind for the kernel to write back.
+ * Segment files are preallocated to the full segment size and, once discarded, are kept in a ring of spare files
+ * that new segments take over instead of creating and growing files of their own. Spare files count towards
+ * commitlog_total_space_in_mb like the files of live segments.
+ */
+public class DirectIOSegment extends CommitLogSegment
+{
+    private static final Logger logger = LoggerFactory.getLogger(DirectIOSegment.class);
+
+    /** Writes to the file are made in whole, aligned blocks of this size. */
+    static final int BLOCK_SIZE = 4096;
+
+    // spare files are not valid commit log names, so they are never replayed
+    private static final String SPARE_FILE_PREFIX = "CommitLogSpare-";
+    private static final String SPARE_FILE_EXTENSION = ".segment";
+
+    /** Preallocated files of discarded segments, ready to be taken over by new segments. */
+    static final Queue<File> spareFiles = new ConcurrentLinkedQueue<>();
+    static Queue<ByteBuffer> bufferPool = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Maximum number of buffers in the pool: one segment being synced, one written to and one in reserve.
+     * Buffers beyond these are left to the garbage collector.
+     */
+    static final int MAX_BUFFERPOOL_SIZE = 3;
+
+    static
+    {
+        // take over the spare files left by a previous run
+        File[] spares = new File(DatabaseDescriptor.getCommitLogLocation()).listFiles(new FilenameFilter()
+        {
+            public boolean accept(File dir, String name)
+            {
+                return name.startsWith(SPARE_FILE_PREFIX) && name.endsWith(SPARE_FILE_EXTENSION);
+            }
+        });
+        // null if the directory does not exist yet, or can't be read
+        if (spares != null)
+        {
+            long maxSpareFiles = DatabaseDescriptor.getTotalCommitlogSpaceInMB() * 1024 * 1024 / DatabaseDescriptor.getCommitLogSegmentSize();
+            for (File spare : spares)
+            {
+                if (spare.length() == DatabaseDescriptor.getCommitLogSegmentSize() && spareFiles.size() < maxSpareFiles)
+                    spareFiles.add(spare);
+                else
+                    FileUtils.deleteWithConfirm(spare);
+            }
+        }
+    }
+
+    /**
+     * Constructs a new segment file.
+     */
+    DirectIOSegment(CommitLog commitLog)
+    {
+        super(commitLog);
+        // mark the initial sync marker as uninitialised, and get it to disk with the header so that a taken over file
+        // does not expose the previous segment's contents as part of this one
+        int firstSync = buffer.position();
+        buffer.putInt(firstSync + 0, 0);
+        buffer.putInt(firstSync + 4, 0);
+        writeBlocks(0, firstSync + SYNC_MARKER_SIZE);
+    }
+
+    @Override
+    FileChannel openChannel(File logFile) throws IOException
+    {
+        File spare = spareFiles.poll();
+        if (spare != null)
+        {
+            // the space of the spare is accounted for again once the buffer of the segment is created
+            commitLog.allocator.addSize(-DatabaseDescriptor.getCommitLogSegmentSize());
+            try
+            {
+                Files.move(spare.toPath(), logFile.toPath());
+            }
+            catch (IOException e)
+            {
+                logger.warn("Could not reuse commit log file {}; creating a new one", spare, e);
+                FileUtils.deleteWithConfirm(spare);
+            }
+        }
+
+        FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.READ, StandardOpenOption.CREATE);
+        try
+        {
+            if (channel.size() < DatabaseDescriptor.getCommitLogSegmentSize())
+                preallocate(channel, DatabaseDescriptor.getCommitLogSegmentSize());
+        }
+        catch (IOException e)
+        {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    /**
+     * Fills the file with zeroes up to its full size, so that syncs only ever overwrite allocated blocks.
+     */
+    private static void preallocate(FileChannel channel, int size) throws IOException
+    {
+        ByteBuffer zeroes = ByteBuffer.allocateDirect(1 << 20);
+        try
+        {
+            long position = channel.size();
+            while (position < size)
+            {
+                zeroes.clear().limit((int) Math.min(zeroes.capacity(), size - position));
+                position += channel.write(zeroes, position);
+            }
+            SyncUtil.force(channel, true);
+        }
+        finally
+        {
+            FileUtils.clean(zeroes);
+        }
+    }
+
+    ByteBuffer createBuffer(CommitLog commitLog)
+    {
+        ByteBuffer buf = bufferPool.poll();
+        if (buf == null)
+            buf = allocateAligned(DatabaseDescriptor.getCommitLogSegmentSize());
+        else
+            buf.clear();
+        commitLog.allocator.addSize(DatabaseDescriptor.getCommitLogSegmentSize());
+        return buf;
+    }
+
+    private static ByteBuffer allocateAligned(int size)
+    {
+        ByteBuffer buf = ByteBuffer.allocateDirect(size + BLOCK_SIZE);
+        int offset = (int) (BLOCK_SIZE - (MemoryUtil.getAddress(buf) & (BLOCK_SIZE - 1))) & (BLOCK_SIZE - 1);
+        buf.position(offset).limit(offset + size);
+        return buf.slice();
+    }
+
+    @Override
+    void write(int startMarker, int nextMarker)
+    {
+        // if there's room in the discard section to write an empty header,
+        // zero out the next sync marker so replayer can cleanly exit
+        if (nextMarker <= buffer.capacity() - SYNC_MARKER_SIZE)
+        {
+            buffer.putInt(nextMarker, 0);
+            buffer.putInt(nextMarker + 4, 0);
+        }
+
+        // write previous sync marker to point to next sync marker
+        // we don't chain the crcs here to ensure this method is idempotent if it fails
+        writeSyncMarker(id, buffer, startMarker, startMarker, nextMarker);
+
+        writeBlocks(startMarker, nextMarker + SYNC_MARKER_SIZE);
+    }
+
+    /**
+     * Writes the blocks of the buffer covering the given range to the same position in the file, and syncs them.
+     * Only one thread can be here at a given time; this is protected by synchronization on CommitLogSegment.sync().
+     */
+    private void writeBlocks(int start, int end)
+    {
+        int blockStart = start & -BLOCK_SIZE;
+        int blockEnd = Math.min(buffer.capacity(), (end + BLOCK_SIZE - 1) & -BLOCK_SIZE);
+        ByteBuffer toWrite = buffer.duplicate();
+        toWrite.limit(blockEnd).position(blockStart);
+        try
+        {
+            while (toWrite.hasRemaining())
+                channel.write(toWrite, toWrite.position());
+            SyncUtil.force(channel, false);
+        }
+        catch (IOException e)
+        {
+            throw new FSWriteError(e, getPath());
+        }
+        CLibrary.trySkipCache(fd, blockStart, blockEnd - blockStart);
+    }
+
+    @Override
+    void deleteFile()
+    {
+        // the segment still counts towards the used space, which discard() then takes it off of
+        if (recycle(logFile, commitLog.allocator.onDiskSize()))
+            commitLog.allocator.addSize(onDiskSize());
+        else
+            super.deleteFile();
+    }
+
+    /**
+     * Keeps a commit log file that is no longer needed as a spare for a future segment, if it has the full segment
+     * size and the space used by the commit log, spare files included, stays within commitlog_total_space_in_mb.
+     * The caller accounts for the space of the spare if it is kept.
+     *
+     * @param usedSpace the space used by the commit log once the file is kept
+     * @return true if the file was kept, false if the caller should delete it
+     */
+    static boolean recycle(File file, long usedSpace)
+    {
+        if (file.length() != DatabaseDescriptor.getCommitLogSegmentSize()
+            || usedSpace > DatabaseDescriptor.getTotalCommitlogSpaceInMB() * 1024 * 1024)
+            return false;
+
+        File spare = new File(file.getParentFile(), SPARE_FILE_PREFIX + CommitLogDescriptor.fromFileName(file.getName()).id + SPARE_FILE_EXTENSION);
+        try
+        {
+            Files.move(file.toPath(), spare.toPath());
+        }
+        catch (IOException e)
+        {
+            logger.warn("Could not keep commit log file {} for reuse", file, e);
+            return false;
+        }
+        spareFiles.add(spare);
+        return true;
+    }
+
+    /**
+     * @return the space used by the spare files
+     */
+    static long spareFilesSize()
+    {
+        return (long) spareFiles.size() * DatabaseDescriptor.getCommitLogSegmentSize();
+    }
+
+    @Override
+    public long onDiskSize()
+    {
+        return DatabaseDescriptor.getCommitLogSegmentSize();
+    }
+
+    @Override
+    protected void internalClose()
+    {
+        if (bufferPool.size() < MAX_BUFFERPOOL_SIZE)
+            bufferPool.add(buffer);
+
+        super.internalClose();
+    }
+
+    static void shutdown()
+    {
+        bufferPool.clear();
+    }
+}
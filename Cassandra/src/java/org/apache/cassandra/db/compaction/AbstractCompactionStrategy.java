@@ -230,9 +230,9 @@ public abstract class AbstractCompactionStrategy
      * Handle a flushed memtable.
      *
      * @param memtable the flushed memtable
-     * @param sstable the written sstable. can be null if the memtable was clean.
+     * @param sstables the written sstables. can be empty if the memtable was clean.
      */
-    public void replaceFlushed(Memtable memtable, SSTableReader sstable)
+    public void replaceFlushed(Memtable memtable, Collection<SSTableReader> sstables)
     {
     }
 
@@ -297,6 +297,15 @@ public abstract class AbstractCompactionStrategy
         return false;
     }
 
+    /**
+     * @return true if the background tasks of the strategy can run concurrently with one another, in which case an
+     * idle compaction thread looks for the next one as soon as a task is picked, rather than once it is done
+     */
+    public boolean hasConcurrentBackgroundTasks()
+    {
+        return false;
+    }
+
     public String getName()
     {
         return getClass().getSimpleName();
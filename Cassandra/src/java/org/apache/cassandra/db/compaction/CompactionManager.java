@@ -108,6 +108,8 @@ public class CompactionManager implements CompactionManagerMBean
     private final CompactionExecutor executor = new CompactionExecutor();
     private final CompactionExecutor validationExecutor = new ValidationExecutor();
     private final static CompactionExecutor cacheCleanupExecutor = new CacheCleanupExecutor();
+    private final CompactionExecutor parallelValidationExecutor = new ParallelValidationExecutor();
+    private final CompactionExecutor subRangeCompactionExecutor = new SubRangeCompactionExecutor();
 
     private final CompactionMetrics metrics = new CompactionMetrics(executor, validationExecutor);
     @VisibleForTesting
@@ -200,6 +202,8 @@ public class CompactionManager implements CompactionManagerMBean
         // shutdown executors to prevent further submission
         executor.shutdown();
         validationExecutor.shutdown();
+        parallelValidationExecutor.shutdown();
+        subRangeCompactionExecutor.shutdown();
         cacheCleanupExecutor.shutdown();
 
         // interrupt compactions and validations
@@ -211,7 +215,7 @@ public class CompactionManager implements CompactionManagerMBean
         // wait for tasks to terminate
         // compaction tasks are interrupted above, so it shuold be fairy quick
         // until not interrupted tasks to complete.
-        for (ExecutorService exec : Arrays.asList(executor, validationExecutor, cacheCleanupExecutor))
+        for (ExecutorService exec : Arrays.asList(executor, validationExecutor, parallelValidationExecutor, subRangeCompactionExecutor, cacheCleanupExecutor))
         {
             try
             {
@@ -261,6 +265,8 @@ public class CompactionManager implements CompactionManagerMBean
                     logger.trace("No tasks available");
                     return;
                 }
+                if (strategy.hasConcurrentBackgroundTasks())
+                    submitBackground(cfs);
                 task.execute(metrics);
             }
             finally
@@ -1268,34 +1274,23 @@ public class CompactionManager implements CompactionManagerMBean
             MerkleTree tree = new MerkleTree(cfs.partitioner, validator.desc.range, MerkleTree.RECOMMENDED_DEPTH, (int) Math.pow(2, depth));
 
             long start = System.nanoTime();
-            try (AbstractCompactionStrategy.ScannerList scanners = cfs.getCompactionStrategy().getScanners(sstables, validator.desc.range))
+            try
             {
-                CompactionIterable ci = new ValidationCompactionIterable(cfs, scanners.scanners, gcBefore);
-                Iterator<AbstractCompactedRow> iter = ci.iterator();
-                metrics.beginCompaction(ci);
-                try
-                {
-                    // validate the CF as we iterate over it
-                    validator.prepare(cfs, tree);
-                    while (iter.hasNext())
-                    {
-                        if (ci.isStopRequested())
-                            throw new CompactionInterruptedException(ci.getCompactionInfo());
-                        AbstractCompactedRow row = iter.next();
-                        validator.add(row);
-                    }
-                    validator.complete();
-                }
-                finally
+                validator.prepare(cfs, tree);
+                List<Validator.SubRangeValidator> subRanges = validator.split(DatabaseDescriptor.getConcurrentValidations());
+                if (subRanges.size() == 1)
+                    validateSubRange(cfs, sstables, gcBefore, subRanges.get(0));
+                else
+                    validateSubRanges(cfs, sstables, gcBefore, subRanges);
+                validator.complete();
+            }
+            finally
+            {
+                // we can only clear the snapshot if we are not doing a global snapshot validation (we then clear it once anticompaction
+                // is done).
+                if (isSnapshotValidation && !isGlobalSnapshotValidation)
                 {
-                    // we can only clear the snapshot if we are not doing a global snapshot validation (we then clear it once anticompaction
-                    // is done).
-                    if (isSnapshotValidation && !isGlobalSnapshotValidation)
-                    {
-                        cfs.clearSnapshot(snapshotName);
-                    }
-
-                    metrics.finishCompaction(ci);
+                    cfs.clearSnapshot(snapshotName);
                 }
             }
 
@@ -1318,6 +1313,77 @@ public class CompactionManager implements CompactionManagerMBean
         }
     }
 
+    /**
+     * Scans the rows of the sub-range and adds them to its validator.
+     */
+    @SuppressWarnings("resource")
+    private void validateSubRange(ColumnFamilyStore cfs, Collection<SSTableReader> sstables, int gcBefore, Validator.SubRangeValidator subRange)
+    {
+        try (AbstractCompactionStrategy.ScannerList scanners = cfs.getCompactionStrategy().getScanners(sstables, subRange.range))
+        {
+            CompactionIterable ci = new ValidationCompactionIterable(cfs, scanners.scanners, gcBefore);
+            Iterator<AbstractCompactedRow> iter = ci.iterator();
+            metrics.beginCompaction(ci);
+            try
+            {
+                // validate the CF as we iterate over it
+                while (iter.hasNext())
+                {
+                    if (ci.isStopRequested())
+                        throw new CompactionInterruptedException(ci.getCompactionInfo());
+                    AbstractCompactedRow row = iter.next();
+                    subRange.add(row);
+                }
+            }
+            finally
+            {
+                metrics.finishCompaction(ci);
+            }
+        }
+    }
+
+    /**
+     * Validates each sub-range on a thread of the parallel validation executor, and waits for all of them to be done,
+     * even if one fails, as they read the sstables referenced by the caller.
+     */
+    private void validateSubRanges(final ColumnFamilyStore cfs, final Collection<SSTableReader> sstables, final int gcBefore, List<Validator.SubRangeValidator> subRanges)
+    {
+        List<Future<?>> futures = new ArrayList<>(subRanges.size());
+        for (final Validator.SubRangeValidator subRange : subRanges)
+        {
+            futures.add(parallelValidationExecutor.submit(new Runnable()
+            {
+                public void run()
+                {
+                    validateSubRange(cfs, sstables, gcBefore, subRange);
+                }
+            }));
+        }
+
+        Throwable fail = null;
+        for (Future<?> future : futures)
+        {
+            try
+            {
+                Uninterruptibles.getUninterruptibly(future);
+            }
+            catch (ExecutionException e)
+            {
+                fail = Throwables.merge(fail, e.getCause());
+            }
+        }
+        Throwables.maybeFail(fail);
+    }
+
+    /**
+     * Merges a token sub-range of a compaction split by {@link CompactionTask} on a thread of the sub-range compaction
+     * executor.
+     */
+    Future<Long> submitSubRangeCompaction(Callable<Long> subRange)
+    {
+        return subRangeCompactionExecutor.submit(subRange);
+    }
+
     private synchronized Refs<SSTableReader> getSSTablesToValidate(ColumnFamilyStore cfs, Validator validator)
     {
         Refs<SSTableReader> sstables;
@@ -1702,6 +1768,22 @@ public class CompactionManager implements CompactionManagerMBean
         }
     }
 
+    private static class ParallelValidationExecutor extends CompactionExecutor
+    {
+        public ParallelValidationExecutor()
+        {
+            super(DatabaseDescriptor.getConcurrentValidations(), "ParallelValidationExecutor");
+        }
+    }
+
+    private static class SubRangeCompactionExecutor extends CompactionExecutor
+    {
+        public SubRangeCompactionExecutor()
+        {
+            super(Math.max(1, DatabaseDescriptor.getConcurrentCompactors() * (DatabaseDescriptor.getCompactionSubRanges() - 1)), "SubRangeCompactionExecutor");
+        }
+    }
+
     private static class CacheCleanupExecutor extends CompactionExecutor
     {
         public CacheCleanupExecutor()
@@ -1865,6 +1947,30 @@ public class CompactionManager implements CompactionManagerMBean
         validationExecutor.setMaximumPoolSize(number);
     }
 
+    public int getConcurrentValidations()
+    {
+        return DatabaseDescriptor.getConcurrentValidations();
+    }
+
+    public synchronized void setConcurrentValidations(int number)
+    {
+        if (number <= 0)
+            throw new IllegalArgumentException("concurrent_validations should be strictly greater than 0");
+
+        // the core size may never exceed the maximum one
+        if (number > parallelValidationExecutor.getMaximumPoolSize())
+        {
+            parallelValidationExecutor.setMaximumPoolSize(number);
+            parallelValidationExecutor.setCorePoolSize(number);
+        }
+        else
+        {
+            parallelValidationExecutor.setCorePoolSize(number);
+            parallelValidationExecutor.setMaximumPoolSize(number);
+        }
+        DatabaseDescriptor.setConcurrentValidations(number);
+    }
+
     /**
      * Try to stop all of the compactions for given ColumnFamilies.
      *
@@ -104,4 +104,15 @@ public interface CompactionManagerMBean
      * @param number New maximum of validator threads
      */
     public void setMaximumValidatorThreads(int number);
+
+    /**
+     * Returns the number of threads a single validation is scanned on
+     */
+    public int getConcurrentValidations();
+
+    /**
+     * Allows user to change the number of threads a single validation is scanned on, resizing the pool they share.
+     * @param number New number of threads per validation
+     */
+    public void setConcurrentValidations(int number);
 }
@@ -17,18 +17,28 @@
  */
 package org.apache.cassandra.db.compaction;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 import org.apache.cassandra.db.Directories;
 import org.apache.cassandra.db.compaction.writers.CompactionAwareWriter;
@@ -44,8 +54,12 @@ import org.apache.cassandra.db.ColumnFamilyStore;
 import org.apache.cassandra.db.SystemKeyspace;
 import org.apache.cassandra.db.compaction.CompactionManager.CompactionExecutorStatsCollector;
 import org.apache.cassandra.db.lifecycle.LifecycleTransaction;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.service.ActiveRepairService;
 import org.apache.cassandra.utils.CloseableIterator;
+import org.apache.cassandra.utils.Pair;
+import org.apache.cassandra.utils.Throwables;
 import org.apache.cassandra.utils.UUIDGen;
 import org.apache.cassandra.utils.concurrent.Refs;
 
@@ -57,6 +71,8 @@ public class CompactionTask extends AbstractCompactionTask
     protected static long totalBytesCompacted = 0;
     private CompactionExecutorStatsCollector collector;
     private static final boolean CONSIDER_CONCURRENT_COMPACTIONS = Boolean.getBoolean("palantir_cassandra.consider_concurrent_compactions");
+    // the number of index summary entries of each sstable sampled to split a compaction into sub-ranges
+    private static final int SUB_RANGE_SAMPLES_PER_SSTABLE = 128;
 
     public CompactionTask(ColumnFamilyStore cfs, LifecycleTransaction txn, int gcBefore, boolean offline)
     {
@@ -165,63 +181,99 @@ public class CompactionTask extends AbstractCompactionTask
             SSTableFormat.Type sstableFormat = getFormatType(transaction.originals());
 
             List<SSTableReader> newSStables;
-            AbstractCompactionIterable ci;
+            long[] mergedRowCounts;
 
-            // SSTableScanners need to be closed before markCompactedSSTablesReplaced call as scanners contain references
-            // to both ifile and dfile and SSTR will throw deletion errors on Windows if it tries to delete before scanner is closed.
-            // See CASSANDRA-8019 and CASSANDRA-8399
-            try (Refs<SSTableReader> refs = Refs.ref(actuallyCompact);
-                 AbstractCompactionStrategy.ScannerList scanners = strategy.getScanners(actuallyCompact))
+            List<Range<Token>> subRanges = getSubRanges(actuallyCompact);
+            if (subRanges.size() > 1)
             {
-                ci = new CompactionIterable(compactionType, scanners.scanners, controller, sstableFormat, taskId);
-                try (CloseableIterator<AbstractCompactedRow> iter = ci.iterator())
+                logger.debug("Compacting ({}) in {} sub-ranges", taskIdLoggerMsg, subRanges.size());
+                List<SubRangeCompaction> compactions;
+                try (Refs<SSTableReader> refs = Refs.ref(actuallyCompact))
                 {
-                    long lastCheckObsoletion = start;
-
-                    if (!controller.cfs.getCompactionStrategy().isActive)
-                        throw new CompactionInterruptedException(ci.getCompactionInfo());
+                    compactions = compactSubRanges(controller, actuallyCompact, subRanges, sstableFormat, taskId);
+                }
+                catch (Exception e)
+                {
+                    throw new CompactionException(taskIdLoggerMsg, ssTableLoggerMsg.toString(), e);
+                }
+                finally
+                {
+                    Directories.removeExpectedSpaceUsedByCompaction(expectedWriteSize, CONSIDER_CONCURRENT_COMPACTIONS);
+                    if (taskId != null)
+                        SystemKeyspace.finishCompaction(taskId);
+                }
 
-                    if (collector != null)
-                        collector.beginCompaction(ci);
+                newSStables = new ArrayList<>();
+                mergedRowCounts = new long[0];
+                for (SubRangeCompaction compaction : compactions)
+                {
+                    newSStables.addAll(compaction.writer.finished());
+                    totalKeysWritten += compaction.keysWritten;
+                    estimatedKeys += compaction.writer.estimatedKeys();
+                    mergedRowCounts = addMergedRowCounts(mergedRowCounts, compaction.ci.getMergedRowCounts());
+                }
+            }
+            else
+            {
+                AbstractCompactionIterable ci;
 
-                    try (CompactionAwareWriter writer = getCompactionAwareWriter(cfs, transaction, actuallyCompact))
+                // SSTableScanners need to be closed before markCompactedSSTablesReplaced call as scanners contain references
+                // to both ifile and dfile and SSTR will throw deletion errors on Windows if it tries to delete before scanner is closed.
+                // See CASSANDRA-8019 and CASSANDRA-8399
+                try (Refs<SSTableReader> refs = Refs.ref(actuallyCompact);
+                     AbstractCompactionStrategy.ScannerList scanners = strategy.getScanners(actuallyCompact))
+                {
+                    ci = new CompactionIterable(compactionType, scanners.scanners, controller, sstableFormat, taskId);
+                    try (CloseableIterator<AbstractCompactedRow> iter = ci.iterator())
                     {
-                        estimatedKeys = writer.estimatedKeys();
-                        while (iter.hasNext())
-                        {
-                            if (ci.isStopRequested())
-                                throw new CompactionInterruptedException(ci.getCompactionInfo());
+                        long lastCheckObsoletion = start;
 
-                            try (AbstractCompactedRow row = iter.next())
+                        if (!controller.cfs.getCompactionStrategy().isActive)
+                            throw new CompactionInterruptedException(ci.getCompactionInfo());
+
+                        if (collector != null)
+                            collector.beginCompaction(ci);
+
+                        try (CompactionAwareWriter writer = getCompactionAwareWriter(cfs, transaction, actuallyCompact))
+                        {
+                            estimatedKeys = writer.estimatedKeys();
+                            while (iter.hasNext())
                             {
-                                if (writer.append(row))
-                                    totalKeysWritten++;
+                                if (ci.isStopRequested())
+                                    throw new CompactionInterruptedException(ci.getCompactionInfo());
 
-                                if (System.nanoTime() - lastCheckObsoletion > TimeUnit.MINUTES.toNanos(1L))
+                                try (AbstractCompactedRow row = iter.next())
                                 {
-                                    controller.maybeRefreshOverlaps();
-                                    lastCheckObsoletion = System.nanoTime();
+                                    if (writer.append(row))
+                                        totalKeysWritten++;
+
+                                    if (System.nanoTime() - lastCheckObsoletion > TimeUnit.MINUTES.toNanos(1L))
+                                    {
+                                        controller.maybeRefreshOverlaps();
+                                        lastCheckObsoletion = System.nanoTime();
+                                    }
                                 }
                             }
-                        }
-
-                        // don't replace old sstables yet, as we need to mark the compaction finished in the system table
-                        newSStables = writer.finish();
-                    } catch (Exception e) {
-                        throw new CompactionException(taskIdLoggerMsg, ssTableLoggerMsg.toString(), e);
-                    }
-                    finally
-                    {
-                        Directories.removeExpectedSpaceUsedByCompaction(expectedWriteSize, CONSIDER_CONCURRENT_COMPACTIONS);
-                        // point of no return -- the new sstables are live on disk; next we'll start deleting the old ones
-                        // (in replaceCompactedSSTables)
-                        if (taskId != null)
-                            SystemKeyspace.finishCompaction(taskId);
 
-                        if (collector != null)
-                            collector.finishCompaction(ci);
+                            // don't replace old sstables yet, as we need to mark the compaction finished in the system table
+                            newSStables = writer.finish();
+                        } catch (Exception e) {
+                            throw new CompactionException(taskIdLoggerMsg, ssTableLoggerMsg.toString(), e);
+                        }
+                        finally
+                        {
+                            Directories.removeExpectedSpaceUsedByCompaction(expectedWriteSize, CONSIDER_CONCURRENT_COMPACTIONS);
+                            // point of no return -- the new sstables are live on disk; next we'll start deleting the old ones
+                            // (in replaceCompactedSSTables)
+                            if (taskId != null)
+                                SystemKeyspace.finishCompaction(taskId);
+
+                            if (collector != null)
+                                collector.finishCompaction(ci);
+                        }
                     }
                 }
+                mergedRowCounts = ci.getMergedRowCounts();
             }
 
             // log a bunch of statistics about the result and save to system table compaction_history
@@ -242,7 +294,7 @@ public class CompactionTask extends AbstractCompactionTask
             {
                 double mbps = dTime > 0 ? (double) endsize / (1024 * 1024) / ((double) dTime / 1000) : 0;
                 long totalSourceRows = 0;
-                String mergeSummary = updateCompactionHistory(cfs.keyspace.getName(), cfs.getColumnFamilyName(), ci, startsize, endsize);
+                String mergeSummary = updateCompactionHistory(cfs.keyspace.getName(), cfs.getColumnFamilyName(), mergedRowCounts, startsize, endsize);
                 logger.debug(String.format("Compacted (%s) %d sstables to [%s] to level=%d.  %,d bytes to %,d (~%d%% of original) in %,dms = %fMB/s.  %,d total partitions merged to %,d.  Partition merge counts were {%s}",
                                            taskIdLoggerMsg, transaction.originals().size(), newSSTableNames.toString(), getLevel(), startsize, endsize, (int) (ratio * 100), dTime, mbps, totalSourceRows, totalKeysWritten, mergeSummary));
                 logger.trace(String.format("CF Total Bytes Compacted: %,d", CompactionTask.addToTotalBytesCompacted(endsize)));
@@ -262,9 +314,259 @@ public class CompactionTask extends AbstractCompactionTask
 
     }
 
+    /**
+     * @return true if the compaction may be split into token sub-ranges, each written by its own
+     * {@link DefaultCompactionWriter}; tasks writing their sstables with another writer must return false
+     */
+    protected boolean canSplitIntoSubRanges()
+    {
+        return true;
+    }
+
+    /**
+     * Splits the token range of the sstables into compaction_sub_ranges sub-ranges to be compacted in parallel, each
+     * holding about as many bytes of the sstables, based on samples of their index summaries weighted by their size.
+     *
+     * @return the sub-ranges, in token order, or the whole ring if the compaction is not to be split
+     */
+    @VisibleForTesting
+    List<Range<Token>> getSubRanges(Set<SSTableReader> sstables)
+    {
+        Token minimum = cfs.partitioner.getMinimumToken();
+        int count = DatabaseDescriptor.getCompactionSubRanges();
+        if (count <= 1 || offline || !canSplitIntoSubRanges()
+            || SSTableReader.getTotalBytes(sstables) < DatabaseDescriptor.getCompactionSubRangeMinSize())
+            return Collections.singletonList(new Range<>(minimum, minimum));
+
+        List<Pair<Token, Long>> samples = new ArrayList<>();
+        long totalWeight = 0;
+        for (SSTableReader sstable : sstables)
+        {
+            int summarySize = sstable.getIndexSummarySize();
+            int sampleCount = Math.min(summarySize, SUB_RANGE_SAMPLES_PER_SSTABLE);
+            for (int i = 0; i < sampleCount; i++)
+            {
+                byte[] key = sstable.getIndexSummaryKey((int) ((long) i * summarySize / sampleCount));
+                long weight = sstable.onDiskLength() / sampleCount;
+                samples.add(Pair.create(cfs.partitioner.getToken(ByteBuffer.wrap(key)), weight));
+                totalWeight += weight;
+            }
+        }
+        Collections.sort(samples, new Comparator<Pair<Token, Long>>()
+        {
+            public int compare(Pair<Token, Long> o1, Pair<Token, Long> o2)
+            {
+                return o1.left.compareTo(o2.left);
+            }
+        });
+
+        // end a sub-range at the sample past each count-th of the total weight, unless it has the same token as the
+        // previous boundary, so that a sub-range may end up bigger but never empty
+        List<Range<Token>> ranges = new ArrayList<>(count);
+        Token left = minimum;
+        long weight = 0;
+        for (Pair<Token, Long> sample : samples)
+        {
+            weight += sample.right;
+            if (ranges.size() < count - 1
+                && weight * count >= totalWeight * (ranges.size() + 1)
+                && sample.left.compareTo(left) > 0)
+            {
+                ranges.add(new Range<>(left, sample.left));
+                left = sample.left;
+            }
+        }
+        ranges.add(new Range<>(left, minimum));
+        return ranges;
+    }
+
+    /**
+     * Merges each sub-range of the sstables into its own writer, the first one on this thread and the others on the
+     * sub-range compaction executor, stopping all of them if one fails. As the writers only finish their own sstables,
+     * the sstables of all of them then replace the originals in the transaction at once.
+     *
+     * @return the committed compactions of the sub-ranges
+     */
+    private List<SubRangeCompaction> compactSubRanges(CompactionController controller,
+                                                      Set<SSTableReader> actuallyCompact,
+                                                      List<Range<Token>> subRanges,
+                                                      SSTableFormat.Type sstableFormat,
+                                                      UUID taskId)
+    {
+        List<SubRangeCompaction> compactions = new ArrayList<>(subRanges.size());
+        Throwable fail = null;
+        try
+        {
+            for (Range<Token> range : subRanges)
+            {
+                // the controller looks up the sstables overlapping each key in key order, so each sub-range needs its own
+                SubRangeCompaction compaction = new SubRangeCompaction(range, compactions.isEmpty() ? controller : null, compactions);
+                compactions.add(compaction);
+                compaction.open(actuallyCompact, subRanges.size(), sstableFormat, taskId);
+            }
+
+            if (!cfs.getCompactionStrategy().isActive)
+                throw new CompactionInterruptedException(compactions.get(0).ci.getCompactionInfo());
+
+            List<Future<Long>> futures = new ArrayList<>(compactions.size() - 1);
+            for (SubRangeCompaction compaction : compactions.subList(1, compactions.size()))
+                futures.add(CompactionManager.instance.submitSubRangeCompaction(compaction));
+
+            try
+            {
+                compactions.get(0).call();
+            }
+            catch (Throwable t)
+            {
+                fail = t;
+            }
+            // wait for every sub-range, even once one failed, before closing their scanners and writers
+            for (Future<Long> future : futures)
+            {
+                try
+                {
+                    Uninterruptibles.getUninterruptibly(future);
+                }
+                catch (ExecutionException e)
+                {
+                    fail = Throwables.merge(fail, e.getCause());
+                }
+            }
+
+            if (fail == null)
+                commitSubRanges(compactions);
+        }
+        catch (Throwable t)
+        {
+            fail = Throwables.merge(fail, t);
+        }
+
+        for (SubRangeCompaction compaction : compactions)
+            fail = compaction.close(fail);
+        Throwables.maybeFail(fail);
+        return compactions;
+    }
+
+    /**
+     * Replaces the originals with the sstables written for all the sub-ranges, as a single update of the transaction.
+     */
+    private void commitSubRanges(List<SubRangeCompaction> compactions)
+    {
+        List<SSTableReader> newSSTables = new ArrayList<>();
+        for (SubRangeCompaction compaction : compactions)
+        {
+            compaction.writer.prepareToCommit();
+            newSSTables.addAll(compaction.writer.finished());
+        }
+        for (SSTableReader sstable : newSSTables)
+            transaction.update(sstable, false);
+        transaction.checkpoint();
+        if (!offline)
+            transaction.obsoleteOriginals();
+        transaction.prepareToCommit();
+
+        Throwable accumulate = null;
+        for (SubRangeCompaction compaction : compactions)
+            accumulate = compaction.writer.commit(accumulate);
+        Throwables.maybeFail(transaction.commit(accumulate));
+    }
+
+    /**
+     * The merge of the sstables over one token sub-range of a compaction into its own sstables.
+     */
+    private final class SubRangeCompaction implements Callable<Long>
+    {
+        private final Range<Token> range;
+        private final boolean ownsController;
+        private final List<SubRangeCompaction> siblings;
+        private CompactionController controller;
+        private AbstractCompactionStrategy.ScannerList scanners;
+        private CompactionIterable ci;
+        private CompactionAwareWriter writer;
+        private long keysWritten;
+
+        private SubRangeCompaction(Range<Token> range, CompactionController controller, List<SubRangeCompaction> siblings)
+        {
+            this.range = range;
+            this.controller = controller;
+            this.ownsController = controller == null;
+            this.siblings = siblings;
+        }
+
+        @SuppressWarnings("resource")
+        private void open(Set<SSTableReader> actuallyCompact, int subRanges, SSTableFormat.Type sstableFormat, UUID taskId)
+        {
+            if (ownsController)
+                controller = getCompactionController(transaction.originals());
+            scanners = cfs.getCompactionStrategy().getScanners(actuallyCompact, range);
+            ci = new CompactionIterable(compactionType, scanners.scanners, controller, sstableFormat, taskId);
+            writer = new DefaultCompactionWriter(cfs, transaction, actuallyCompact, offline, compactionType, subRanges);
+        }
+
+        public Long call() throws Exception
+        {
+            if (collector != null)
+                collector.beginCompaction(ci);
+
+            try (CloseableIterator<AbstractCompactedRow> iter = ci.iterator())
+            {
+                long lastCheckObsoletion = System.nanoTime();
+                while (iter.hasNext())
+                {
+                    if (ci.isStopRequested())
+                        throw new CompactionInterruptedException(ci.getCompactionInfo());
+
+                    try (AbstractCompactedRow row = iter.next())
+                    {
+                        if (writer.append(row))
+                            keysWritten++;
+
+                        if (System.nanoTime() - lastCheckObsoletion > TimeUnit.MINUTES.toNanos(1L))
+                        {
+                            controller.maybeRefreshOverlaps();
+                            lastCheckObsoletion = System.nanoTime();
+                        }
+                    }
+                }
+            }
+            catch (Throwable t)
+            {
+                // the compaction fails as a whole, so there is no point in merging the other sub-ranges any further
+                for (SubRangeCompaction sibling : siblings)
+                    sibling.ci.stop();
+                throw t;
+            }
+            finally
+            {
+                if (collector != null)
+                    collector.finishCompaction(ci);
+            }
+            return keysWritten;
+        }
+
+        private Throwable close(Throwable accumulate)
+        {
+            List<AutoCloseable> closeables = new ArrayList<>(3);
+            if (writer != null)
+                closeables.add(writer);
+            if (scanners != null)
+                closeables.add(scanners);
+            if (ownsController && controller != null)
+                closeables.add(controller);
+            return Throwables.close(accumulate, closeables);
+        }
+    }
+
     public static String updateCompactionHistory(String keyspaceName, String columnFamilyName, AbstractCompactionIterable ci, long startSize, long endSize)
     {
-        long[] counts = ci.getMergedRowCounts();
+        return updateCompactionHistory(keyspaceName, columnFamilyName, ci.getMergedRowCounts(), startSize, endSize);
+    }
+
+    /**
+     * @param counts the number of rows merged from one sstable at index 0, from two at index 1, etc.
+     */
+    public static String updateCompactionHistory(String keyspaceName, String columnFamilyName, long[] counts, long startSize, long endSize)
+    {
         StringBuilder mergeSummary = new StringBuilder(counts.length * 10);
         Map<Integer, Long> mergedRows = new HashMap<>();
         for (int i = 0; i < counts.length; i++)
@@ -281,6 +583,14 @@ public class CompactionTask extends AbstractCompactionTask
         return mergeSummary.toString();
     }
 
+    private static long[] addMergedRowCounts(long[] counts, long[] moreCounts)
+    {
+        long[] sum = Arrays.copyOf(counts, Math.max(counts.length, moreCounts.length));
+        for (int i = 0; i < moreCounts.length; i++)
+            sum[i] += moreCounts[i];
+        return sum;
+    }
+
     public static long getMinRepairedAt(Set<SSTableReader> actuallyCompact)
     {
         long minRepairedAt= Long.MAX_VALUE;
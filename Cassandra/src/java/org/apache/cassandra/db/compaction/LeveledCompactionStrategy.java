@@ -139,6 +139,16 @@ public class LeveledCompactionStrategy extends AbstractCompactionStrategy
 
     }
 
+    /**
+     * Compactions of disjoint L0 buckets, and of non-overlapping candidates of the higher levels, run concurrently,
+     * see LeveledManifest.getCandidatesFor().
+     */
+    @Override
+    public boolean hasConcurrentBackgroundTasks()
+    {
+        return true;
+    }
+
     @Override
     public AbstractCompactionTask getUserDefinedTask(Collection<SSTableReader> sstables, int gcBefore)
     {
@@ -48,6 +48,12 @@ public class LeveledCompactionTask extends CompactionTask
         return new MaxSSTableSizeWriter(cfs, txn, nonExpiredSSTables, maxSSTableBytes, getLevel(), false, compactionType);
     }
 
+    @Override
+    protected boolean canSplitIntoSubRanges()
+    {
+        return false;
+    }
+
     @Override
     protected boolean partialCompactionsAcceptable()
     {
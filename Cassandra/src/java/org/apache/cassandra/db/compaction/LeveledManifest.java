@@ -37,6 +37,8 @@ import org.slf4j.LoggerFactory;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.ColumnFamilyStore;
 import org.apache.cassandra.db.RowPosition;
+import org.apache.cassandra.db.lifecycle.SSTableIntervalTree;
+import org.apache.cassandra.db.lifecycle.View;
 import org.apache.cassandra.dht.Bounds;
 import org.apache.cassandra.dht.Range;
 import org.apache.cassandra.dht.Token;
@@ -86,6 +88,8 @@ public class LeveledManifest
     private final long maxSSTableSizeInBytes;
     private final SizeTieredCompactionStrategyOptions options;
     private final int [] compactionCounter;
+    // the L0 sstables of a running compaction into L1 of buckets that do not overlap one another, if any
+    private Set<SSTableReader> mergedL0Candidates = Collections.emptySet();
 
     LeveledManifest(ColumnFamilyStore cfs, int maxSSTableSizeInMB, SizeTieredCompactionStrategyOptions options)
     {
@@ -579,6 +583,20 @@ public class LeveledManifest
         return overlapped;
     }
 
+    private static Set<SSTableReader> overlapping(SSTableReader sstable, SSTableIntervalTree tree)
+    {
+        return overlapping(sstable.first.getToken(), sstable.last.getToken(), tree);
+    }
+
+    /**
+     * @return sstables from @param tree that contain keys between @param start and @param end, inclusive.
+     */
+    private static Set<SSTableReader> overlapping(Token start, Token end, SSTableIntervalTree tree)
+    {
+        assert start.compareTo(end) <= 0;
+        return new HashSet<>(View.sstablesInBounds(start.minKeyBound(), end.maxKeyBound(), tree));
+    }
+
     private static final Predicate<SSTableReader> suspectP = new Predicate<SSTableReader>()
     {
         public boolean apply(SSTableReader candidate)
@@ -601,18 +619,6 @@ public class LeveledManifest
 
         if (level == 0)
         {
-            Set<SSTableReader> compactingL0 = getCompacting(0);
-
-            RowPosition lastCompactingKey = null;
-            RowPosition firstCompactingKey = null;
-            for (SSTableReader candidate : compactingL0)
-            {
-                if (firstCompactingKey == null || candidate.first.compareTo(firstCompactingKey) < 0)
-                    firstCompactingKey = candidate.first;
-                if (lastCompactingKey == null || candidate.last.compareTo(lastCompactingKey) > 0)
-                    lastCompactingKey = candidate.last;
-            }
-
             // L0 is the dumping ground for new sstables which thus may overlap each other.
             //
             // We treat L0 compactions specially:
@@ -623,65 +629,71 @@ public class LeveledManifest
             // 3. If total candidate size is less than maxSSTableSizeInMB, we won't bother compacting with L1,
             //    and the result of the compaction will stay in L0 instead of being promoted (see promote())
             //
+            // As the candidates are a bucket of L0 sstables overlapping one another (see getL0Bucket()) along with the
+            // L1 sstables they overlap, the range an L0 compaction writes to in L1 is covered by its own sstables. So
+            // the buckets of the sstables that overlap no compacting L0 or L1 sstable can be compacted concurrently
+            // with the running L0 compactions without creating overlap in L1, which lets L0 keep up when flushes are
+            // split into token range shards.
+            //
+            // The buckets that are too small to be compacted on their own, such as single sstables of disjoint flush
+            // shards, are merged into one candidate set instead. Its range in L1 spans the gaps between its buckets,
+            // where the L0 sstables flushed meanwhile would be compacted into L1 concurrently, so it is only compacted
+            // into L1 when no other L0 compaction runs, and no other one starts until it is done.
+            //
             // Note that we ignore suspect-ness of L1 sstables here, since if an L1 sstable is suspect we're
             // basically screwed, since we expect all or most L0 sstables to overlap with each L1 sstable.
             // So if an L1 sstable is suspect we can't do much besides try anyway and hope for the best.
-            Set<SSTableReader> candidates = new HashSet<>();
-            long candidatesTotalSize = 0L;
+            if (!Sets.intersection(mergedL0Candidates, compacting).isEmpty())
+                return Collections.emptyList();
+            mergedL0Candidates = Collections.emptySet();
+
+            SSTableIntervalTree compactingTree = SSTableIntervalTree.build(Sets.union(getCompacting(0), getCompacting(1)));
             Set<SSTableReader> remaining = new HashSet<>();
-            Iterables.addAll(remaining, Iterables.filter(getLevel(0), Predicates.not(suspectP)));
+            for (SSTableReader sstable : Iterables.filter(getLevel(0), Predicates.not(suspectP)))
+            {
+                if (!compacting.contains(sstable) && overlapping(sstable, compactingTree).isEmpty())
+                    remaining.add(sstable);
+            }
+            SSTableIntervalTree remainingTree = SSTableIntervalTree.build(remaining);
+
+            Set<SSTableReader> seen = new HashSet<>();
+            Set<SSTableReader> merged = new HashSet<>();
+            long mergedSize = 0;
             for (SSTableReader sstable : ageSortedSSTables(remaining))
             {
-                if (candidates.contains(sstable))
-                    continue;
-                Sets.SetView<SSTableReader> overlappedL0 = Sets.union(Collections.singleton(sstable), overlapping(sstable, remaining));
-                if (!Sets.intersection(overlappedL0, compactingL0).isEmpty())
+                if (!seen.add(sstable))
                     continue;
-                for (SSTableReader newCandidate : overlappedL0)
+                Set<SSTableReader> candidates = getL0Bucket(sstable, remainingTree);
+                seen.addAll(candidates);
+                Set<SSTableReader> bucket = candidates;
+
+                // leave everything in L0 if we didn't end up with a full sstable's worth of data
+                if (SSTableReader.getTotalBytes(candidates) > maxSSTableSizeInBytes)
                 {
-                    // skip this sstable if it will push the current compaction over the expected limit.
-                    if (LIMIT_TOTAL_COMPACTING_SIZE_IN_L0 && (candidatesTotalSize + newCandidate.onDiskLength()) > MAX_COMPACTING_SIZE_IN_L0) {
-                        logger.trace("Skipping sstable {} with size {} as it's {} bytes over max allowed of {}.",
-                                     newCandidate.getFilename(),
-                                     FileUtils.stringifyFileSize(newCandidate.onDiskLength()),
-                                     FileUtils.stringifyFileSize((candidatesTotalSize + newCandidate.onDiskLength()) - MAX_COMPACTING_SIZE_IN_L0),
-                                     FileUtils.stringifyFileSize(MAX_COMPACTING_SIZE_IN_L0));
+                    // add sstables from L1 that overlap candidates, none of which should be compacting
+                    // as they would overlap one of the candidates
+                    Set<SSTableReader> l1overlapping = overlapping(candidates, getLevel(1));
+                    if (!Sets.intersection(l1overlapping, compacting).isEmpty())
                         continue;
-                    }
-                    if (firstCompactingKey == null || lastCompactingKey == null || overlapping(firstCompactingKey.getToken(), lastCompactingKey.getToken(), Arrays.asList(newCandidate)).size() == 0)
-                    {
-                        candidates.add(newCandidate);
-                        candidatesTotalSize += newCandidate.onDiskLength();
-                    }
-                    remaining.remove(newCandidate);
+                    candidates = Sets.union(candidates, l1overlapping);
+                }
+                else if (USE_STCS_ALWAYS_IN_L0)
+                {
+                    candidates = new HashSet<>(getSSTablesForSTCS(candidates, QUITE_SMALL_TO_MINIMIZE_CHURN));
                 }
 
-                if (candidates.size() > MAX_COMPACTING_L0)
+                if (candidates.size() >= 2)
+                    return candidates;
+
+                long bucketSize = SSTableReader.getTotalBytes(bucket);
+                if (merged.size() + bucket.size() <= MAX_COMPACTING_L0
+                    && (!LIMIT_TOTAL_COMPACTING_SIZE_IN_L0 || mergedSize + bucketSize <= MAX_COMPACTING_SIZE_IN_L0))
                 {
-                    // limit to only the MAX_COMPACTING_L0 oldest candidates
-                    candidates = new HashSet<>(ageSortedSSTables(candidates).subList(0, MAX_COMPACTING_L0));
-                    break;
+                    merged.addAll(bucket);
+                    mergedSize += bucketSize;
                 }
             }
-
-            // leave everything in L0 if we didn't end up with a full sstable's worth of data
-            if (SSTableReader.getTotalBytes(candidates) > maxSSTableSizeInBytes)
-            {
-                // add sstables from L1 that overlap candidates
-                // if the overlapping ones are already busy in a compaction, leave it out.
-                // TODO try to find a set of L0 sstables that only overlaps with non-busy L1 sstables
-                Set<SSTableReader> l1overlapping = overlapping(candidates, getLevel(1));
-                if (Sets.intersection(l1overlapping, compacting).size() > 0)
-                    return Collections.emptyList();
-                if (!overlapping(candidates, compactingL0).isEmpty())
-                    return Collections.emptyList();
-                candidates = Sets.union(candidates, l1overlapping);
-            } else if (USE_STCS_ALWAYS_IN_L0)
-                candidates = new HashSet<>(getSSTablesForSTCS(candidates, QUITE_SMALL_TO_MINIMIZE_CHURN));
-            if (candidates.size() < 2)
-                return Collections.emptyList();
-            else
-                return candidates;
+            return getMergedL0Candidates(merged, compacting);
         }
 
         // for non-L0 compactions, pick up where we left off last time
@@ -698,11 +710,13 @@ public class LeveledManifest
         }
 
         // look for a non-suspect keyspace to compact with, starting with where we left off last time,
-        // and wrapping back to the beginning of the generation if necessary
+        // and wrapping back to the beginning of the generation if necessary; as the sstables of a level above 0 do
+        // not overlap, compactions of candidates that are not compacting can run concurrently with the running ones
+        SSTableIntervalTree nextLevel = SSTableIntervalTree.build(getLevel(level + 1));
         for (int i = 0; i < getLevel(level).size(); i++)
         {
             SSTableReader sstable = getLevel(level).get((start + i) % getLevel(level).size());
-            Set<SSTableReader> candidates = Sets.union(Collections.singleton(sstable), overlapping(sstable, getLevel(level + 1)));
+            Set<SSTableReader> candidates = Sets.union(Collections.singleton(sstable), overlapping(sstable, nextLevel));
             if (Iterables.any(candidates, suspectP))
                 continue;
             if (Sets.intersection(candidates, compacting).isEmpty())
@@ -713,6 +727,77 @@ public class LeveledManifest
         return Collections.emptyList();
     }
 
+    /**
+     * @return the candidates for compacting together the L0 buckets that could not be compacted on their own, or
+     * an empty list if there are not enough of them or they would overlap a running compaction in L1
+     */
+    private Collection<SSTableReader> getMergedL0Candidates(Set<SSTableReader> merged, Set<SSTableReader> compacting)
+    {
+        if (merged.size() < 2)
+            return Collections.emptyList();
+
+        Set<SSTableReader> candidates = merged;
+        if (SSTableReader.getTotalBytes(merged) > maxSSTableSizeInBytes)
+        {
+            if (!getCompacting(0).isEmpty())
+                return Collections.emptyList();
+            Set<SSTableReader> l1overlapping = overlapping(merged, getLevel(1));
+            if (!Sets.intersection(l1overlapping, compacting).isEmpty())
+                return Collections.emptyList();
+            mergedL0Candidates = merged;
+            candidates = Sets.union(merged, l1overlapping);
+        }
+        else if (USE_STCS_ALWAYS_IN_L0)
+        {
+            candidates = new HashSet<>(getSSTablesForSTCS(merged, QUITE_SMALL_TO_MINIMIZE_CHURN));
+        }
+        return candidates.size() >= 2 ? candidates : Collections.<SSTableReader>emptyList();
+    }
+
+    /**
+     * Picks the oldest sstables of the tree overlapping seed, directly or through one another, up to MAX_COMPACTING_L0
+     * of them (and MAX_COMPACTING_SIZE_IN_L0 bytes if limited). As each of them overlaps the ones picked before it,
+     * they cover a single contiguous range of tokens, from the first token of the bucket to its last.
+     *
+     * @return the bucket, including seed
+     */
+    private Set<SSTableReader> getL0Bucket(SSTableReader seed, SSTableIntervalTree sstables)
+    {
+        Set<SSTableReader> bucket = new HashSet<>();
+        bucket.add(seed);
+        long bucketSize = seed.onDiskLength();
+        Token first = seed.first.getToken();
+        Token last = seed.last.getToken();
+        boolean grown = true;
+        while (grown && bucket.size() < MAX_COMPACTING_L0)
+        {
+            grown = false;
+            for (SSTableReader sstable : ageSortedSSTables(overlapping(first, last, sstables)))
+            {
+                if (bucket.size() >= MAX_COMPACTING_L0)
+                    break;
+                if (bucket.contains(sstable))
+                    continue;
+                // skip this sstable if it will push the current compaction over the expected limit.
+                if (LIMIT_TOTAL_COMPACTING_SIZE_IN_L0 && (bucketSize + sstable.onDiskLength()) > MAX_COMPACTING_SIZE_IN_L0)
+                {
+                    logger.trace("Skipping sstable {} with size {} as it's {} bytes over max allowed of {}.",
+                                 sstable.getFilename(),
+                                 FileUtils.stringifyFileSize(sstable.onDiskLength()),
+                                 FileUtils.stringifyFileSize((bucketSize + sstable.onDiskLength()) - MAX_COMPACTING_SIZE_IN_L0),
+                                 FileUtils.stringifyFileSize(MAX_COMPACTING_SIZE_IN_L0));
+                    continue;
+                }
+                bucket.add(sstable);
+                bucketSize += sstable.onDiskLength();
+                first = first.compareTo(sstable.first.getToken()) <= 0 ? first : sstable.first.getToken();
+                last = last.compareTo(sstable.last.getToken()) >= 0 ? last : sstable.last.getToken();
+                grown = true;
+            }
+        }
+        return bucket;
+    }
+
     private Set<SSTableReader> getCompacting(int level)
     {
         Set<SSTableReader> sstables = new HashSet<>();
@@ -82,6 +82,12 @@ public class SSTableSplitter {
             return new MaxSSTableSizeWriter(cfs, txn, nonExpiredSSTables, sstableSizeInMB * 1024L * 1024L, 0, true, compactionType);
         }
 
+        @Override
+        protected boolean canSplitIntoSubRanges()
+        {
+            return false;
+        }
+
         @Override
         protected boolean partialCompactionsAcceptable()
         {
@@ -359,5 +359,11 @@ public class SizeTieredCompactionStrategy extends AbstractCompactionStrategy
         {
             return new SplittingSizeTieredCompactionWriter(cfs, txn, nonExpiredSSTables, compactionType);
         }
+
+        @Override
+        protected boolean canSplitIntoSubRanges()
+        {
+            return false;
+        }
     }
 }
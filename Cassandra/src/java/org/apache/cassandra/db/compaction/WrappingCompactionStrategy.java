@@ -244,6 +244,13 @@ public final class WrappingCompactionStrategy extends AbstractCompactionStrategy
         return repaired.shouldDefragment();
     }
 
+    @Override
+    public boolean hasConcurrentBackgroundTasks()
+    {
+        assert repaired.getClass().equals(unrepaired.getClass());
+        return repaired.hasConcurrentBackgroundTasks();
+    }
+
     @Override
     public String getName()
     {
@@ -45,13 +45,25 @@ public abstract class CompactionAwareWriter extends Transactional.AbstractTransa
     protected final SSTableRewriter sstableWriter;
 
     public CompactionAwareWriter(ColumnFamilyStore cfs, LifecycleTransaction txn, Set<SSTableReader> nonExpiredSSTables, boolean offline)
+    {
+        this(cfs, txn, nonExpiredSSTables, offline, 1);
+    }
+
+    /**
+     * @param subRanges the number of token sub-ranges the compaction is split into, each written by its own writer;
+     *                  if more than one, the caller commits the transaction once all of them are prepared, see
+     *                  {@link SSTableRewriter#constructForSharedTransaction}
+     */
+    public CompactionAwareWriter(ColumnFamilyStore cfs, LifecycleTransaction txn, Set<SSTableReader> nonExpiredSSTables, boolean offline, int subRanges)
     {
         this.cfs = cfs;
         this.nonExpiredSSTables = nonExpiredSSTables;
-        this.estimatedTotalKeys = SSTableReader.getApproximateKeyCount(nonExpiredSSTables);
+        this.estimatedTotalKeys = Math.max(1, SSTableReader.getApproximateKeyCount(nonExpiredSSTables) / subRanges);
         this.maxAge = CompactionTask.getMaxDataAge(nonExpiredSSTables);
         this.minRepairedAt = CompactionTask.getMinRepairedAt(nonExpiredSSTables);
-        this.sstableWriter = new SSTableRewriter(cfs, txn, maxAge, offline);
+        this.sstableWriter = subRanges > 1
+                             ? SSTableRewriter.constructForSharedTransaction(cfs, txn, maxAge, offline)
+                             : new SSTableRewriter(cfs, txn, maxAge, offline);
     }
 
     /**
@@ -90,6 +102,14 @@ public abstract class CompactionAwareWriter extends Transactional.AbstractTransa
         return sstableWriter.finished();
     }
 
+    /**
+     * @return the written sstables, once prepared to commit
+     */
+    public List<SSTableReader> finished()
+    {
+        return sstableWriter.finished();
+    }
+
     /**
      * estimated number of keys we should write
      */
@@ -320,46 +320,51 @@ public class Tracker
         apply(View.markFlushing(memtable));
     }
 
-    public void replaceFlushed(Memtable memtable, SSTableReader sstable)
+    public void replaceFlushed(Memtable memtable, Collection<SSTableReader> sstables)
     {
         assert !isDummy();
-        if (sstable == null)
+        if (sstables.isEmpty())
         {
-            // sstable may be null if we flushed batchlog and nothing needed to be retained
-            // if it's null, we don't care what state the cfstore is in, we just replace it and continue
-            apply(View.replaceFlushed(memtable, null));
+            // sstables may be empty if we flushed batchlog and nothing needed to be retained
+            // if so, we don't care what state the cfstore is in, we just replace it and continue
+            apply(View.replaceFlushed(memtable, sstables));
             return;
         }
 
-        sstable.setupKeyCache();
-        // back up before creating a new Snapshot (which makes the new one eligible for compaction)
-        maybeIncrementallyBackup(sstable);
+        for (SSTableReader sstable : sstables)
+        {
+            sstable.setupKeyCache();
+            // back up before creating a new Snapshot (which makes the new one eligible for compaction)
+            maybeIncrementallyBackup(sstable);
+        }
 
-        apply(View.replaceFlushed(memtable, sstable));
+        // every sstable written for the memtable becomes visible in the same view transition
+        apply(View.replaceFlushed(memtable, sstables));
 
         Throwable fail;
-        fail = updateSizeTracking(emptySet(), singleton(sstable), null);
+        fail = updateSizeTracking(emptySet(), sstables, null);
 
         maybeFail(fail);
     }
 
     /**
-     * permit compaction of the provided sstable; this translates to notifying compaction
-     * strategies of its existence, and potentially submitting a background task
+     * permit compaction of the provided sstables; this translates to notifying compaction
+     * strategies of their existence, and potentially submitting a background task
      */
-    public void permitCompactionOfFlushed(SSTableReader sstable)
+    public void permitCompactionOfFlushed(Collection<SSTableReader> sstables)
     {
-        if (sstable == null)
+        if (sstables.isEmpty())
             return;
 
-        apply(View.permitCompactionOfFlushed(sstable));
+        apply(View.permitCompactionOfFlushed(sstables));
 
         if (isDummy())
             return;
 
         if (cfstore.isValid())
         {
-            notifyAdded(sstable);
+            for (SSTableReader sstable : sstables)
+                notifyAdded(sstable);
             CompactionManager.instance.submitBackground(cfstore);
         }
         else
@@ -369,7 +374,6 @@ public class Tracker
     }
 
 
-
     // MISCELLANEOUS public utility calls
 
     public Set<SSTableReader> getSSTables()
@@ -33,13 +33,13 @@ import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.apache.cassandra.utils.Interval;
 
 import static com.google.common.base.Predicates.equalTo;
+import static com.google.common.base.Predicates.in;
 import static com.google.common.base.Predicates.not;
 import static com.google.common.collect.ImmutableList.copyOf;
 import static com.google.common.collect.ImmutableList.of;
 import static com.google.common.collect.Iterables.all;
 import static com.google.common.collect.Iterables.concat;
 import static com.google.common.collect.Iterables.filter;
-import static java.util.Collections.singleton;
 import static org.apache.cassandra.db.lifecycle.Helpers.emptySet;
 import static org.apache.cassandra.db.lifecycle.Helpers.replace;
 
@@ -235,7 +235,7 @@ public class View
     }
 
     // called after flush: removes memtable from flushingMemtables, and inserts flushed into the live sstable set
-    static Function<View, View> replaceFlushed(final Memtable memtable, final SSTableReader flushed)
+    static Function<View, View> replaceFlushed(final Memtable memtable, final Collection<SSTableReader> flushed)
     {
         return new Function<View, View>()
         {
@@ -244,29 +244,30 @@ public class View
                 List<Memtable> flushingMemtables = copyOf(filter(view.flushingMemtables, not(equalTo(memtable))));
                 assert flushingMemtables.size() == view.flushingMemtables.size() - 1;
 
-                if (flushed == null)
+                if (flushed == null || flushed.isEmpty())
                     return new View(view.liveMemtables, flushingMemtables, view.sstablesMap,
                                     view.compacting, view.premature, view.intervalTree);
 
-                Map<SSTableReader, SSTableReader> sstableMap = replace(view.sstablesMap, emptySet(), singleton(flushed));
-                Set<SSTableReader> compacting = replace(view.compacting, emptySet(), singleton(flushed));
-                Set<SSTableReader> premature = replace(view.premature, emptySet(), singleton(flushed));
+                Map<SSTableReader, SSTableReader> sstableMap = replace(view.sstablesMap, emptySet(), flushed);
+                Set<SSTableReader> compacting = replace(view.compacting, emptySet(), flushed);
+                Set<SSTableReader> premature = replace(view.premature, emptySet(), flushed);
                 return new View(view.liveMemtables, flushingMemtables, sstableMap, compacting, premature,
                                 SSTableIntervalTree.build(sstableMap.keySet()));
             }
         };
     }
 
-    static Function<View, View> permitCompactionOfFlushed(final SSTableReader reader)
+    static Function<View, View> permitCompactionOfFlushed(final Collection<SSTableReader> readers)
     {
+        final Set<SSTableReader> expectAndRemove = ImmutableSet.copyOf(readers);
         return new Function<View, View>()
         {
 
             @Nullable
             public View apply(View view)
             {
-                Set<SSTableReader> premature = ImmutableSet.copyOf(filter(view.premature, not(equalTo(reader))));
-                Set<SSTableReader> compacting = ImmutableSet.copyOf(filter(view.compacting, not(equalTo(reader))));
+                Set<SSTableReader> premature = ImmutableSet.copyOf(filter(view.premature, not(in(expectAndRemove))));
+                Set<SSTableReader> compacting = ImmutableSet.copyOf(filter(view.compacting, not(in(expectAndRemove))));
                 return new View(view.liveMemtables, view.flushingMemtables, view.sstablesMap, compacting, premature, view.intervalTree);
             }
         };
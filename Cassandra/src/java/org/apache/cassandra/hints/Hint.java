@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.hints;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cassandra.db.Mutation;
+import org.apache.cassandra.db.TypeSizes;
+import org.apache.cassandra.io.IVersionedSerializer;
+import org.apache.cassandra.io.util.DataOutputPlus;
+
+/**
+ * A mutation to replay on a node once it is back up, along with when it was created and how long it may be replayed
+ * for (the smallest gc_grace_seconds of its tables, so that deletes aren't "undone" by delivery of an old hint).
+ */
+public final class Hint
+{
+    public static final IVersionedSerializer<Hint> serializer = new Serializer();
+
+    public final Mutation mutation;
+    /** in milliseconds, to compare against truncation times */
+    public final long creationTime;
+    /** in seconds */
+    public final int ttl;
+
+    public Hint(Mutation mutation, long creationTime, int ttl)
+    {
+        this.mutation = mutation;
+        this.creationTime = creationTime;
+        this.ttl = ttl;
+    }
+
+    public boolean isLive(long now)
+    {
+        return now < creationTime + TimeUnit.SECONDS.toMillis(ttl);
+    }
+
+    private static class Serializer implements IVersionedSerializer<Hint>
+    {
+        public void serialize(Hint hint, DataOutputPlus out, int version) throws IOException
+        {
+            out.writeLong(hint.creationTime);
+            out.writeInt(hint.ttl);
+            Mutation.serializer.serialize(hint.mutation, out, version);
+        }
+
+        public Hint deserialize(DataInput in, int version) throws IOException
+        {
+            long creationTime = in.readLong();
+            int ttl = in.readInt();
+            return new Hint(Mutation.serializer.deserialize(in, version), creationTime, ttl);
+        }
+
+        public long serializedSize(Hint hint, int version)
+        {
+            return TypeSizes.NATIVE.sizeof(hint.creationTime)
+                   + TypeSizes.NATIVE.sizeof(hint.ttl)
+                   + Mutation.serializer.serializedSize(hint.mutation, version);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.hints;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.io.util.FileUtils;
+
+/**
+ * The {@link HintsStore}s of all the hosts we have hints for, backed by the files of the hints directory.
+ */
+public final class HintsCatalog
+{
+    private static final Logger logger = LoggerFactory.getLogger(HintsCatalog.class);
+
+    private final File directory;
+    private final ConcurrentMap<UUID, HintsStore> stores = new ConcurrentHashMap<>();
+
+    private HintsCatalog(File directory)
+    {
+        this.directory = directory;
+    }
+
+    /**
+     * Loads the hints files left in {@code directory}, creating the directory if needed.
+     */
+    public static HintsCatalog load(File directory)
+    {
+        FileUtils.createDirectory(directory);
+
+        Map<UUID, List<HintsDescriptor>> descriptors = new HashMap<>();
+        File[] files = directory.listFiles();
+        if (files == null)
+            throw new RuntimeException("Could not list files in " + directory);
+
+        for (File file : files)
+        {
+            HintsDescriptor descriptor = HintsDescriptor.fromFileName(file.getName());
+            if (descriptor == null)
+            {
+                logger.debug("Ignoring {}, which is not a hints file", file);
+                continue;
+            }
+            List<HintsDescriptor> hostDescriptors = descriptors.get(descriptor.hostId);
+            if (hostDescriptors == null)
+            {
+                hostDescriptors = new ArrayList<>();
+                descriptors.put(descriptor.hostId, hostDescriptors);
+            }
+            hostDescriptors.add(descriptor);
+        }
+
+        HintsCatalog catalog = new HintsCatalog(directory);
+        for (Map.Entry<UUID, List<HintsDescriptor>> entry : descriptors.entrySet())
+        {
+            Collections.sort(entry.getValue(), new Comparator<HintsDescriptor>()
+            {
+                public int compare(HintsDescriptor d1, HintsDescriptor d2)
+                {
+                    return Long.compare(d1.timestamp, d2.timestamp);
+                }
+            });
+            catalog.stores.put(entry.getKey(), new HintsStore(entry.getKey(), directory, entry.getValue()));
+        }
+        return catalog;
+    }
+
+    /**
+     * @return the store of {@code hostId}, created if needed
+     */
+    public HintsStore get(UUID hostId)
+    {
+        HintsStore store = stores.get(hostId);
+        if (store == null)
+        {
+            store = new HintsStore(hostId, directory, Collections.<HintsDescriptor>emptyList());
+            HintsStore previous = stores.putIfAbsent(hostId, store);
+            if (previous != null)
+                store = previous;
+        }
+        return store;
+    }
+
+    /**
+     * @return the store of {@code hostId}, or null if no hints were ever written for it
+     */
+    public HintsStore getIfPresent(UUID hostId)
+    {
+        return stores.get(hostId);
+    }
+
+    public Collection<HintsStore> stores()
+    {
+        return stores.values();
+    }
+
+    public boolean hasFiles()
+    {
+        for (HintsStore store : stores.values())
+        {
+            if (store.hasFiles())
+                return true;
+        }
+        return false;
+    }
+
+    public void syncAll()
+    {
+        for (HintsStore store : stores.values())
+            store.sync();
+    }
+
+    public void closeAllWriters()
+    {
+        for (HintsStore store : stores.values())
+            store.closeWriter();
+    }
+
+    public void deleteAllHints()
+    {
+        for (HintsStore store : stores.values())
+            store.deleteAllHints();
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.hints;
+
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Identifies a hints file: the host its hints are for, when the file was created (which orders the files of a host)
+ * and the messaging version its mutations are serialized with. All three are encoded in the file name,
+ * {@code <host id>-<timestamp>-<version>.hints}.
+ */
+public final class HintsDescriptor
+{
+    private static final Pattern pattern = Pattern.compile("^([0-9a-fA-F-]{36})-(\\d+)-(\\d+)\\.hints$");
+
+    public final UUID hostId;
+    public final long timestamp;
+    public final int messagingVersion;
+
+    public HintsDescriptor(UUID hostId, long timestamp, int messagingVersion)
+    {
+        this.hostId = hostId;
+        this.timestamp = timestamp;
+        this.messagingVersion = messagingVersion;
+    }
+
+    public String fileName()
+    {
+        return String.format("%s-%s-%s.hints", hostId, timestamp, messagingVersion);
+    }
+
+    /**
+     * @return the descriptor of the hints file named {@code fileName}, or null if it is not the name of a hints file
+     */
+    public static HintsDescriptor fromFileName(String fileName)
+    {
+        Matcher matcher = pattern.matcher(fileName);
+        if (!matcher.matches())
+            return null;
+        return new HintsDescriptor(UUID.fromString(matcher.group(1)),
+                                   Long.parseLong(matcher.group(2)),
+                                   Integer.parseInt(matcher.group(3)));
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+            return true;
+        if (!(o instanceof HintsDescriptor))
+            return false;
+        HintsDescriptor that = (HintsDescriptor) o;
+        return hostId.equals(that.hostId) && timestamp == that.timestamp && messagingVersion == that.messagingVersion;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * (31 * hostId.hashCode() + Long.hashCode(timestamp)) + messagingVersion;
+    }
+
+    @Override
+    public String toString()
+    {
+        return fileName();
+    }
+}
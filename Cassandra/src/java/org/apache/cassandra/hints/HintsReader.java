@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.hints;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.tjake.ICRC32;
+import org.apache.cassandra.io.FSReadError;
+import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.io.util.RandomAccessReader;
+import org.apache.cassandra.utils.CRC32Factory;
+
+/**
+ * Reads the hints written by {@link HintsWriter} sequentially, from a given position of the file, checking their
+ * checksums.
+ */
+public final class HintsReader implements Closeable
+{
+    private static final Logger logger = LoggerFactory.getLogger(HintsReader.class);
+
+    private final File file;
+    private final RandomAccessReader reader;
+    private final ICRC32 checksum = CRC32Factory.instance.create();
+
+    private HintsReader(File file, RandomAccessReader reader)
+    {
+        this.file = file;
+        this.reader = reader;
+    }
+
+    public static HintsReader open(File file, long position)
+    {
+        RandomAccessReader reader = RandomAccessReader.open(file);
+        reader.seek(position);
+        return new HintsReader(file, reader);
+    }
+
+    /**
+     * @return the next serialized hint, or null at the end of the file. A corrupted or partially written entry also
+     * ends the file, since the entries after it cannot be found.
+     */
+    public byte[] readHint()
+    {
+        if (reader.isEOF())
+            return null;
+
+        long position = reader.getFilePointer();
+        try
+        {
+            int length = reader.readInt();
+            checksum.reset();
+            checksum.updateInt(length);
+            if ((reader.readInt() & 0xffffffffL) != checksum.getValue() || length < 0)
+            {
+                logger.warn("Hint size checksum failure at {} in {}, skipping the rest of the file", position, file);
+                return null;
+            }
+
+            byte[] hint = new byte[length];
+            reader.readFully(hint);
+            checksum.update(hint, 0, length);
+            if ((reader.readInt() & 0xffffffffL) != checksum.getValue())
+            {
+                logger.warn("Hint checksum failure at {} in {}, skipping the rest of the file", position, file);
+                return null;
+            }
+            return hint;
+        }
+        catch (EOFException e)
+        {
+            logger.warn("Partially written hint at {} in {}, skipping it", position, file);
+            return null;
+        }
+        catch (IOException e)
+        {
+            throw new FSReadError(e, file);
+        }
+    }
+
+    /**
+     * @return the position of the next hint in the file
+     */
+    public long getPosition()
+    {
+        return reader.getFilePointer();
+    }
+
+    public void close()
+    {
+        FileUtils.closeQuietly(reader);
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.hints;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.io.FSWriteError;
+import org.apache.cassandra.net.MessagingService;
+
+/**
+ * The hints files of a single host: the file hints are currently appended to, and the completed files waiting to be
+ * delivered, oldest first. Files are delivered whole and deleted once delivered; a delivery that is interrupted
+ * resumes from the last hint known to be delivered.
+ *
+ * How far a file is delivered is only kept in memory, so after a restart a partly delivered file is delivered again
+ * from its start. Hints are mutations, so delivering some of them twice does no harm.
+ */
+public final class HintsStore
+{
+    private static final Logger logger = LoggerFactory.getLogger(HintsStore.class);
+
+    public final UUID hostId;
+    private final File directory;
+
+    private final Deque<HintsDescriptor> dispatchQueue = new ConcurrentLinkedDeque<>();
+    private final Map<HintsDescriptor, Long> dispatchOffsets = new ConcurrentHashMap<>();
+    // the files polled for delivery and not yet deleted or offered back
+    private final Set<HintsDescriptor> dispatching = Collections.newSetFromMap(new ConcurrentHashMap<HintsDescriptor, Boolean>());
+
+    // guarded by this
+    private volatile HintsWriter writer;
+    private HintsDescriptor writerDescriptor;
+    private long lastTimestamp;
+
+    HintsStore(UUID hostId, File directory, List<HintsDescriptor> descriptors)
+    {
+        this.hostId = hostId;
+        this.directory = directory;
+        for (HintsDescriptor descriptor : descriptors)
+        {
+            dispatchQueue.offerLast(descriptor);
+            lastTimestamp = Math.max(lastTimestamp, descriptor.timestamp);
+        }
+    }
+
+    /**
+     * Appends a hint to the current file, which is completed once larger than max_hints_file_size_in_mb.
+     *
+     * @return the number of bytes written
+     */
+    public synchronized int write(Hint hint)
+    {
+        try
+        {
+            if (writer == null)
+            {
+                // timestamps order the files of a host, so keep them unique
+                lastTimestamp = Math.max(System.currentTimeMillis(), lastTimestamp + 1);
+                writerDescriptor = new HintsDescriptor(hostId, lastTimestamp, MessagingService.current_version);
+                writer = new HintsWriter(file(writerDescriptor));
+            }
+
+            int size = writer.write(hint, writerDescriptor.messagingVersion);
+            if (writer.size() >= DatabaseDescriptor.getMaxHintsFileSize())
+                closeWriter();
+            return size;
+        }
+        catch (IOException e)
+        {
+            throw new FSWriteError(e, file(writerDescriptor));
+        }
+    }
+
+    /**
+     * Forces the hints written so far to disk.
+     */
+    public synchronized void sync()
+    {
+        if (writer == null)
+            return;
+
+        try
+        {
+            writer.sync();
+        }
+        catch (IOException e)
+        {
+            throw new FSWriteError(e, file(writerDescriptor));
+        }
+    }
+
+    /**
+     * Completes the current file, if any, making it available for delivery. Hints written afterwards go to a new file.
+     */
+    public synchronized void closeWriter()
+    {
+        if (writer == null)
+            return;
+
+        try
+        {
+            writer.close();
+        }
+        catch (IOException e)
+        {
+            throw new FSWriteError(e, file(writerDescriptor));
+        }
+        finally
+        {
+            writer = null;
+        }
+        dispatchQueue.offerLast(writerDescriptor);
+    }
+
+    /**
+     * @return whether any hints were written for the host and are not delivered yet
+     */
+    public boolean hasFiles()
+    {
+        return writer != null || !dispatchQueue.isEmpty();
+    }
+
+    /**
+     * @return the oldest completed file, which the caller delivers then either deletes or offers back, or null
+     */
+    public synchronized HintsDescriptor poll()
+    {
+        HintsDescriptor descriptor = dispatchQueue.pollFirst();
+        if (descriptor != null)
+            dispatching.add(descriptor);
+        return descriptor;
+    }
+
+    /**
+     * Puts back a file whose delivery was interrupted, so that it is delivered first next time, unless the hints of
+     * the host were deleted in the meantime.
+     */
+    public synchronized void offerFirst(HintsDescriptor descriptor)
+    {
+        dispatching.remove(descriptor);
+        if (file(descriptor).exists())
+            dispatchQueue.offerFirst(descriptor);
+        else
+            dispatchOffsets.remove(descriptor);
+    }
+
+    /**
+     * Opens a file for delivery, positioned after the hints already delivered.
+     *
+     * @return the reader, or null if the file was deleted since it was polled, with all the hints of the host
+     */
+    public synchronized HintsReader openReader(HintsDescriptor descriptor)
+    {
+        File file = file(descriptor);
+        if (!file.exists())
+            return null;
+
+        Long offset = dispatchOffsets.get(descriptor);
+        return HintsReader.open(file, offset == null ? 0 : offset);
+    }
+
+    /**
+     * Records that the hints of a file up to {@code offset} are delivered.
+     */
+    public void markDispatchOffset(HintsDescriptor descriptor, long offset)
+    {
+        dispatchOffsets.put(descriptor, offset);
+    }
+
+    /**
+     * Deletes a file polled from this store, once delivered.
+     */
+    public void delete(HintsDescriptor descriptor)
+    {
+        dispatching.remove(descriptor);
+        deleteFile(descriptor);
+    }
+
+    /**
+     * Deletes all the files of the host, delivered or not. The files being delivered are deleted too; their delivery
+     * stops short of the hints not read yet only if it has not opened them already.
+     */
+    public synchronized void deleteAllHints()
+    {
+        closeWriter(); // queues the current file, deleted with the others
+
+        HintsDescriptor descriptor;
+        while ((descriptor = dispatchQueue.pollFirst()) != null)
+            deleteFile(descriptor);
+        for (HintsDescriptor polled : dispatching)
+            deleteFile(polled);
+    }
+
+    private void deleteFile(HintsDescriptor descriptor)
+    {
+        dispatchOffsets.remove(descriptor);
+        File file = file(descriptor);
+        if (!file.delete() && file.exists())
+            logger.warn("Failed to delete hints file {}", file);
+    }
+
+    private File file(HintsDescriptor descriptor)
+    {
+        return new File(directory, descriptor.fileName());
+    }
+}
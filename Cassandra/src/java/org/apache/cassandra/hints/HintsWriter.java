@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.hints;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import com.github.tjake.ICRC32;
+import org.apache.cassandra.io.util.DataOutputBuffer;
+import org.apache.cassandra.utils.CRC32Factory;
+import org.apache.cassandra.utils.SyncUtil;
+
+/**
+ * Appends hints to a hints file, each as its serialized size, the checksum of the size, the serialized hint and the
+ * checksum of the size and hint, like the entries of the commit log. Writes are buffered until {@link #sync()}.
+ */
+final class HintsWriter implements Closeable
+{
+    // int: size + int: size checksum + int: hint checksum
+    static final int ENTRY_OVERHEAD_SIZE = 12;
+
+    private final FileOutputStream fileOut;
+    private final DataOutputStream out;
+    private final ICRC32 checksum = CRC32Factory.instance.create();
+    private long size;
+
+    HintsWriter(File file) throws IOException
+    {
+        fileOut = new FileOutputStream(file);
+        out = new DataOutputStream(new BufferedOutputStream(fileOut, 64 * 1024));
+    }
+
+    /**
+     * @return the number of bytes appended
+     */
+    int write(Hint hint, int version) throws IOException
+    {
+        DataOutputBuffer buffer = new DataOutputBuffer();
+        Hint.serializer.serialize(hint, buffer, version);
+        int length = buffer.getLength();
+
+        checksum.reset();
+        checksum.updateInt(length);
+        out.writeInt(length);
+        out.writeInt(checksum.getCrc());
+        checksum.update(buffer.getData(), 0, length);
+        out.write(buffer.getData(), 0, length);
+        out.writeInt(checksum.getCrc());
+
+        size += length + ENTRY_OVERHEAD_SIZE;
+        return length + ENTRY_OVERHEAD_SIZE;
+    }
+
+    long size()
+    {
+        return size;
+    }
+
+    void sync() throws IOException
+    {
+        out.flush();
+        SyncUtil.sync(fileOut);
+    }
+
+    public void close() throws IOException
+    {
+        try
+        {
+            sync();
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+}
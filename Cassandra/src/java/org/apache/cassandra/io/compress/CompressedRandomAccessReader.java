@@ -28,6 +28,7 @@ import java.util.zip.Adler32;
 
 import com.google.common.primitives.Ints;
 
+import org.apache.cassandra.cache.ChunkCache;
 import org.apache.cassandra.io.FSReadError;
 import org.apache.cassandra.io.sstable.CorruptSSTableException;
 import org.apache.cassandra.io.util.*;
@@ -44,12 +45,25 @@ public class CompressedRandomAccessReader extends RandomAccessReader
         return new CompressedRandomAccessReader(channel, metadata, null, null);
     }
 
+    /**
+     * Opens a reader of the sstable data file that goes through the {@link ChunkCache}, if enabled.
+     */
     public static CompressedRandomAccessReader open(ICompressedFile file)
     {
         return new CompressedRandomAccessReader(file.channel(),
                                                 file.getMetadata(),
                                                 file,
-                                                file instanceof PoolingSegmentedFile ? (PoolingSegmentedFile) file : null);
+                                                file instanceof PoolingSegmentedFile ? (PoolingSegmentedFile) file : null,
+                                                ChunkCache.instance);
+    }
+
+    /**
+     * Opens a reader of the sstable data file that bypasses the {@link ChunkCache}, for sequential scans which would
+     * evict hot chunks.
+     */
+    public static CompressedRandomAccessReader openUncached(ICompressedFile file)
+    {
+        return new CompressedRandomAccessReader(file.channel(), file.getMetadata(), file, null);
     }
 
     private final TreeMap<Long, MappedByteBuffer> chunkSegments;
@@ -65,10 +79,19 @@ public class CompressedRandomAccessReader extends RandomAccessReader
     // raw checksum bytes
     private ByteBuffer checksumBytes;
 
+    // null if the chunks read are not cached, such as those of compactions which would evict hot ones
+    private final ChunkCache chunkCache;
+
     protected CompressedRandomAccessReader(ChannelProxy channel, CompressionMetadata metadata, ICompressedFile file, PoolingSegmentedFile owner)
+    {
+        this(channel, metadata, file, owner, null);
+    }
+
+    protected CompressedRandomAccessReader(ChannelProxy channel, CompressionMetadata metadata, ICompressedFile file, PoolingSegmentedFile owner, ChunkCache chunkCache)
     {
         super(channel, metadata.chunkLength(), metadata.compressedFileLength, metadata.compressor().preferredBufferType(), owner);
         this.metadata = metadata;
+        this.chunkCache = chunkCache;
         checksum = new Adler32();
 
         chunkSegments = file == null ? null : file.chunkSegments();
@@ -140,13 +163,10 @@ public class CompressedRandomAccessReader extends RandomAccessReader
                 buffer.flip();
             }
 
-            // buffer offset is always aligned
-            bufferOffset = position & ~(buffer.capacity() - 1);
-            buffer.position((int) (position - bufferOffset));
-            // the length() can be provided at construction time, to override the true (uncompressed) length of the file;
-            // this is permitted to occur within a compressed segment, so we truncate validBufferBytes if we cross the imposed length
-            if (bufferOffset + buffer.limit() > length())
-                buffer.limit((int)(length() - bufferOffset));
+            if (chunkCache != null)
+                chunkCache.put(getPath(), chunkPosition(position), buffer);
+
+            positionBuffer(position);
         }
         catch (CorruptBlockException e)
         {
@@ -203,13 +223,10 @@ public class CompressedRandomAccessReader extends RandomAccessReader
                 buffer.flip();
             }
 
-            // buffer offset is always aligned
-            bufferOffset = position & ~(buffer.capacity() - 1);
-            buffer.position((int) (position - bufferOffset));
-            // the length() can be provided at construction time, to override the true (uncompressed) length of the file;
-            // this is permitted to occur within a compressed segment, so we truncate validBufferBytes if we cross the imposed length
-            if (bufferOffset + buffer.limit() > length())
-                buffer.limit((int)(length() - bufferOffset));
+            if (chunkCache != null)
+                chunkCache.put(getPath(), chunkPosition(position), buffer);
+
+            positionBuffer(position);
         }
         catch (CorruptBlockException e)
         {
@@ -218,9 +235,36 @@ public class CompressedRandomAccessReader extends RandomAccessReader
 
     }
 
+    private long chunkPosition(long position)
+    {
+        return position & ~(buffer.capacity() - 1);
+    }
+
+    private void positionBuffer(long position)
+    {
+        // buffer offset is always aligned
+        bufferOffset = chunkPosition(position);
+        buffer.position((int) (position - bufferOffset));
+        // the length() can be provided at construction time, to override the true (uncompressed) length of the file;
+        // this is permitted to occur within a compressed segment, so we truncate validBufferBytes if we cross the imposed length
+        if (bufferOffset + buffer.limit() > length())
+            buffer.limit((int)(length() - bufferOffset));
+    }
+
     @Override
     protected void reBuffer()
     {
+        if (chunkCache != null)
+        {
+            long position = current();
+            assert position < metadata.dataLength;
+            if (chunkCache.get(getPath(), chunkPosition(position), buffer))
+            {
+                positionBuffer(position);
+                return;
+            }
+        }
+
         if (chunkSegments != null)
         {
             reBufferMmap();
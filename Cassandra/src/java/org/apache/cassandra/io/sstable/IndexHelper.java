@@ -18,7 +18,8 @@
 package org.apache.cassandra.io.sstable;
 
 import java.io.*;
-import java.util.Collections;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
 import java.util.Comparator;
 import java.util.List;
 
@@ -89,7 +90,6 @@ public class IndexHelper
         if (lastIndex >= indexList.size())
             return -1;
 
-        IndexInfo target = new IndexInfo(name, name, 0, 0);
         /*
         Take the example from the unit test, and say your index looks like this:
         [0..5][10..15][20..25]
@@ -103,22 +103,46 @@ public class IndexHelper
         i.e. 17 in this example, compared to the firstName part of the index slots.  bsearch will give us the
         first slot where firstName > start ([20..25] here), so we subtract an extra one to get the slot just before.
         */
-        int startIdx = 0;
-        List<IndexInfo> toSearch = indexList;
+        int low = 0;
+        int high = indexList.size() - 1;
         if (lastIndex >= 0)
         {
             if (reversed)
-            {
-                toSearch = indexList.subList(0, lastIndex + 1);
-            }
+                high = lastIndex;
             else
-            {
-                startIdx = lastIndex;
-                toSearch = indexList.subList(lastIndex, indexList.size());
-            }
+                low = lastIndex;
+        }
+
+        // searches in place rather than with Collections.binarySearch, so that a SerializedIndex only deserializes
+        // the names it compares
+        while (low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            int cmp = comparator.compare(nameFor(indexList, mid, reversed), name);
+            if (cmp < 0)
+                low = mid + 1;
+            else if (cmp > 0)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return reversed ? low - 1 : low;
+    }
+
+    /**
+     * @return the name of the index block {@code i} that a search for a slice start is compared to: its last name for
+     * a forward slice, its first name for a reversed one
+     */
+    private static Composite nameFor(List<IndexInfo> indexList, int i, boolean reversed)
+    {
+        if (indexList instanceof SerializedIndex)
+        {
+            SerializedIndex index = (SerializedIndex) indexList;
+            return reversed ? index.firstName(i) : index.lastName(i);
         }
-        int index = Collections.binarySearch(toSearch, target, getComparator(comparator, reversed));
-        return startIdx + (index < 0 ? -index - (reversed ? 2 : 1) : index);
+
+        IndexInfo info = indexList.get(i);
+        return reversed ? info.firstName : info.lastName;
     }
 
     public static Comparator<IndexInfo> getComparator(final CType nameComparator, boolean reversed)
@@ -175,6 +199,63 @@ public class IndexHelper
                      + typeSizes.sizeof(info.offset)
                      + typeSizes.sizeof(info.width);
             }
+
+            /**
+             * Serializes the entries of a column index back to back, copying the bytes of a {@link SerializedIndex}
+             * as they are.
+             */
+            public void serialize(List<IndexInfo> index, DataOutputPlus out) throws IOException
+            {
+                if (index instanceof SerializedIndex)
+                {
+                    out.write(((SerializedIndex) index).bytes.duplicate());
+                    return;
+                }
+
+                for (IndexInfo info : index)
+                    serialize(info, out);
+            }
+
+            public long serializedSize(List<IndexInfo> index, TypeSizes typeSizes)
+            {
+                if (index instanceof SerializedIndex)
+                    return ((SerializedIndex) index).serializedSize();
+
+                long size = 0;
+                for (IndexInfo info : index)
+                    size += serializedSize(info, typeSizes);
+                return size;
+            }
+
+            /**
+             * Reads the {@code size} bytes of {@code entries} serialized entries at once, leaving them serialized.
+             */
+            public SerializedIndex deserializeIndex(DataInput in, int entries, int size) throws IOException
+            {
+                byte[] bytes = new byte[size];
+                in.readFully(bytes);
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+                int[] positions = new int[entries];
+                int position = 0;
+                for (int i = 0; i < entries; i++)
+                {
+                    if (position > size - 2)
+                        throw new IOException(String.format("Column index of %d bytes too short for %d entries", size, entries));
+                    positions[i] = position;
+                    // the first and last names, with their short length (see AbstractCType.Serializer)
+                    position += 2 + SerializedIndex.nameLength(buffer, position);
+                    if (position > size - 2)
+                        throw new IOException(String.format("Column index of %d bytes too short for %d entries", size, entries));
+                    position += 2 + SerializedIndex.nameLength(buffer, position);
+                    // the offset and width
+                    position += 16;
+                }
+                if (position != size)
+                    throw new IOException(String.format("Column index of %d entries is %d bytes, expected %d", entries, size, position));
+
+                return new SerializedIndex(type, buffer, positions);
+            }
         }
 
         public long unsharedHeapSize()
@@ -182,4 +263,88 @@ public class IndexHelper
             return EMPTY_SIZE + firstName.unsharedHeapSize() + lastName.unsharedHeapSize();
         }
     }
+
+    /**
+     * A column index left in the serialized form it is read in, from the partition index or the key cache, whose
+     * entries are only deserialized when accessed. A wide partition has an entry per column_index_size_in_kb of data,
+     * and deserializing them all for each read would allocate two names per entry, whereas {@link #indexFor} only
+     * deserializes the few names its binary search compares to.
+     */
+    public static class SerializedIndex extends AbstractList<IndexInfo>
+    {
+        private static final long EMPTY_SIZE = ObjectSizes.measure(new SerializedIndex(null, null, null));
+
+        private final CType type;
+        private final ByteBuffer bytes;
+        // the position in bytes of each entry
+        private final int[] positions;
+
+        private SerializedIndex(CType type, ByteBuffer bytes, int[] positions)
+        {
+            this.type = type;
+            this.bytes = bytes;
+            this.positions = positions;
+        }
+
+        public int size()
+        {
+            return positions.length;
+        }
+
+        public IndexInfo get(int i)
+        {
+            return new IndexInfo(firstName(i), lastName(i), offset(i), width(i));
+        }
+
+        public Composite firstName(int i)
+        {
+            return name(positions[i]);
+        }
+
+        public Composite lastName(int i)
+        {
+            return name(lastNamePosition(i));
+        }
+
+        public long offset(int i)
+        {
+            int lastName = lastNamePosition(i);
+            return bytes.getLong(lastName + 2 + nameLength(bytes, lastName));
+        }
+
+        public long width(int i)
+        {
+            int lastName = lastNamePosition(i);
+            return bytes.getLong(lastName + 2 + nameLength(bytes, lastName) + 8);
+        }
+
+        private int lastNamePosition(int i)
+        {
+            int firstName = positions[i];
+            return firstName + 2 + nameLength(bytes, firstName);
+        }
+
+        private Composite name(int position)
+        {
+            ByteBuffer name = bytes.duplicate();
+            name.position(position + 2);
+            name.limit(position + 2 + nameLength(bytes, position));
+            return type.fromByteBuffer(name);
+        }
+
+        public int serializedSize()
+        {
+            return bytes.remaining();
+        }
+
+        private static int nameLength(ByteBuffer bytes, int position)
+        {
+            return bytes.getShort(position) & 0xFFFF;
+        }
+
+        public long unsharedHeapSize()
+        {
+            return EMPTY_SIZE + ObjectSizes.sizeOnHeapOf(bytes) + ObjectSizes.sizeOfArray(positions);
+        }
+    }
 }
@@ -111,10 +111,19 @@ public class IndexSummary extends WrappedSharedCloseable
     // binary search is notoriously more difficult to get right than it looks; this is lifted from
     // Harmony's Collections implementation
     public int binarySearch(RowPosition key)
+    {
+        return binarySearch(key, 0);
+    }
+
+    /**
+     * Same as {@link #binarySearch(RowPosition)}, but only considers the entries from fromIndex on, for the lookup
+     * of keys in increasing order.
+     */
+    public int binarySearch(RowPosition key, int fromIndex)
     {
         // We will be comparing non-native Keys, so use a buffer with appropriate byte order
         ByteBuffer hollow = MemoryUtil.getHollowDirectByteBuffer().order(ByteOrder.BIG_ENDIAN);
-        int low = 0, mid = offsetCount, high = mid - 1, result = -1;
+        int low = fromIndex, mid = offsetCount, high = mid - 1, result = -1;
         while (low <= high)
         {
             mid = (low + high) >> 1;
@@ -24,6 +24,7 @@ import java.util.concurrent.CopyOnWriteArraySet;
 
 import com.google.common.base.Predicates;
 import com.google.common.collect.Collections2;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import com.google.common.io.Files;
 import org.slf4j.Logger;
@@ -119,6 +120,14 @@ public abstract class SSTable
         return true;
     }
 
+    /**
+     * @return the components this sstable is made of
+     */
+    public Set<Component> getComponents()
+    {
+        return ImmutableSet.copyOf(components);
+    }
+
     /**
      * If the given @param key occupies only part of a larger buffer, allocate a new buffer that is only
      * as large as necessary.
@@ -30,6 +30,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.codahale.metrics.Counter;
+import org.apache.cassandra.cache.ChunkCache;
 import org.apache.cassandra.concurrent.ScheduledExecutors;
 import org.apache.cassandra.utils.FBUtilities;
 import org.apache.cassandra.utils.concurrent.Blocker;
@@ -84,6 +85,9 @@ public class SSTableDeletingTask implements Runnable
             failedTasks.add(this);
             return;
         }
+        // the chunks of a deleted file could otherwise be served to a new file by the same name
+        if (ChunkCache.instance != null)
+            ChunkCache.instance.invalidateFile(desc.filenameFor(Component.DATA));
         // let the remainder be cleaned up by delete
         SSTable.delete(desc, Sets.difference(components, Collections.singleton(Component.DATA)));
         if (totalDiskSpaceUsed != null)
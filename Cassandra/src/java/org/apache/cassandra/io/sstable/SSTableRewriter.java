@@ -68,6 +68,7 @@ public class SSTableRewriter extends Transactional.AbstractTransactional impleme
 
     private final List<SSTableWriter> writers = new ArrayList<>();
     private final boolean isOffline; // true for operations that are performed without Cassandra running (prevents updates of Tracker)
+    private final boolean sharedTransaction; // true if the caller updates and commits the transaction, see constructForSharedTransaction()
 
     private SSTableWriter writer;
     private Map<DecoratedKey, RowIndexEntry> cachedKeys = new HashMap<>();
@@ -87,6 +88,11 @@ public class SSTableRewriter extends Transactional.AbstractTransactional impleme
 
     @VisibleForTesting
     public SSTableRewriter(ColumnFamilyStore cfs, LifecycleTransaction transaction, long maxAge, boolean isOffline, long preemptiveOpenInterval)
+    {
+        this(cfs, transaction, maxAge, isOffline, preemptiveOpenInterval, false);
+    }
+
+    private SSTableRewriter(ColumnFamilyStore cfs, LifecycleTransaction transaction, long maxAge, boolean isOffline, long preemptiveOpenInterval, boolean sharedTransaction)
     {
         this.transaction = transaction;
         for (SSTableReader sstable : this.transaction.originals())
@@ -95,6 +101,20 @@ public class SSTableRewriter extends Transactional.AbstractTransactional impleme
         this.maxAge = maxAge;
         this.isOffline = isOffline;
         this.preemptiveOpenInterval = preemptiveOpenInterval;
+        this.sharedTransaction = sharedTransaction;
+    }
+
+    /**
+     * Creates one of several rewriters writing concurrently for the same transaction, each over its own range of keys.
+     * Preparing and committing such a rewriter only finishes its own writers: the caller then adds the sstables of all
+     * of them to the transaction, and prepares and commits it once.
+     *
+     * Their sstables are never opened early, as the starts of the originals cannot be moved past keys that the other
+     * rewriters may not have written yet.
+     */
+    public static SSTableRewriter constructForSharedTransaction(ColumnFamilyStore cfs, LifecycleTransaction transaction, long maxAge, boolean isOffline)
+    {
+        return new SSTableRewriter(cfs, transaction, maxAge, isOffline, Long.MAX_VALUE, true);
     }
 
     private static long calculateOpenInterval(boolean shouldOpenEarly)
@@ -186,7 +206,8 @@ public class SSTableRewriter extends Transactional.AbstractTransactional impleme
         for (SSTableWriter writer : writers)
             accumulate = writer.abort(accumulate);
         // abort the lifecycle transaction
-        accumulate = transaction.abort(accumulate);
+        if (!sharedTransaction)
+            accumulate = transaction.abort(accumulate);
         return accumulate;
     }
 
@@ -194,7 +215,8 @@ public class SSTableRewriter extends Transactional.AbstractTransactional impleme
     {
         for (SSTableWriter writer : writers)
             accumulate = writer.commit(accumulate);
-        accumulate = transaction.commit(accumulate);
+        if (!sharedTransaction)
+            accumulate = transaction.commit(accumulate);
         return accumulate;
     }
 
@@ -358,9 +380,14 @@ public class SSTableRewriter extends Transactional.AbstractTransactional impleme
             assert writer.getFilePointer() > 0;
             writer.setRepairedAt(repairedAt).setOpenResult(true).prepareToCommit();
             SSTableReader reader = writer.finished();
-            transaction.update(reader, false);
+            if (!sharedTransaction)
+                transaction.update(reader, false);
             preparedForCommit.add(reader);
         }
+
+        if (sharedTransaction)
+            return;
+
         transaction.checkpoint();
 
         if (throwLate)
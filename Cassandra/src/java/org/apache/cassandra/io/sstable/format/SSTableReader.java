@@ -787,7 +787,7 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
                     : estimateRowsFromIndex(primaryIndex); // statistics is supposed to be optional
 
             if (recreateBloomFilter)
-                bf = FilterFactory.getFilter(estimatedKeys, metadata.getBloomFilterFpChance(), true);
+                bf = FilterFactory.getFilter(estimatedKeys, metadata.getBloomFilterFpChance(), metadata.getBloomFilterType(), true);
 
             try (IndexSummaryBuilder summaryBuilder = summaryLoaded ? null : new IndexSummaryBuilder(estimatedKeys, metadata.getMinIndexInterval(), samplingLevel))
             {
@@ -1596,6 +1596,22 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
     {
         return getPosition(key, op, updateCacheAndStats, false);
     }
+    /**
+     * Looks up the index entries of several partitions at once, as getPosition(key, EQ, updateCacheAndStats) would
+     * for each of them. Formats may override this to share the work between the keys.
+     *
+     * @param keys the keys of the partitions, sorted in increasing order
+     * @param updateCacheAndStats true if updating stats and cache
+     * @return the index entries, in the order of keys, with null for the keys not present
+     */
+    public RowIndexEntry[] getPositions(List<DecoratedKey> keys, boolean updateCacheAndStats)
+    {
+        RowIndexEntry[] entries = new RowIndexEntry[keys.size()];
+        for (int i = 0; i < entries.length; i++)
+            entries[i] = getPosition(keys.get(i), Operator.EQ, updateCacheAndStats);
+        return entries;
+    }
+
     /**
      * @param key The key to apply as the rhs to the given Operator. A 'fake' key is allowed to
      * allow key selection by token bounds but only if op != * EQ
@@ -1945,6 +1961,15 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
         return dfile.createReader();
     }
 
+    /**
+     * @return a reader of the data file for sequential scans, such as range reads, validations and streaming, which
+     * bypasses the chunk cache so as not to evict the chunks of point reads
+     */
+    public RandomAccessReader openUncachedDataReader()
+    {
+        return dfile.createUncachedReader();
+    }
+
     public RandomAccessReader openIndexReader()
     {
         if (ifile != null)
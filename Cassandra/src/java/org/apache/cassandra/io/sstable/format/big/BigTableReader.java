@@ -22,6 +22,7 @@ import org.apache.cassandra.cache.KeyCacheKey;
 import org.apache.cassandra.config.CFMetaData;
 import org.apache.cassandra.db.DataRange;
 import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.IndexEntryBatch;
 import org.apache.cassandra.db.RowIndexEntry;
 import org.apache.cassandra.db.RowPosition;
 import org.apache.cassandra.db.columniterator.OnDiskAtomIterator;
@@ -134,6 +135,27 @@ public class BigTableReader extends SSTableReader
             }
         }
 
+        // then the entries looked up for the multi-partition query this read is part of, if any
+        IndexEntryBatch batch = op == Operator.EQ ? IndexEntryBatch.current() : null;
+        if (batch != null && batch.contains(this, (DecoratedKey) key))
+        {
+            RowIndexEntry indexEntry = batch.get(this, (DecoratedKey) key);
+            if (updateCacheAndStats)
+            {
+                if (indexEntry == null)
+                {
+                    bloomFilterTracker.addFalsePositive();
+                }
+                else
+                {
+                    cacheKey((DecoratedKey) key, indexEntry);
+                    bloomFilterTracker.addTruePositive();
+                }
+            }
+            Tracing.trace("Partition index entry {}found in batch for sstable {}", indexEntry == null ? "not " : "", descriptor.generation);
+            return indexEntry;
+        }
+
         // check the smallest and greatest keys in the sstable to see if it can't be present
         boolean skip = false;
         if (key.compareTo(first) < 0)
@@ -257,5 +279,130 @@ public class BigTableReader extends SSTableReader
         return null;
     }
 
+    /**
+     * Looks the keys up in a single forward pass. The index summary is searched from where the previous key was
+     * found, and the index is read through the same input for as long as the keys fall in the part of the file it
+     * covers, so that keys close to each other are found in the same buffer (or mmap'd segment) instead of each
+     * opening and seeking the index again. The scan for a key stops at the first greater index key, where the scan
+     * for the next key starts.
+     */
+    @Override
+    public RowIndexEntry[] getPositions(List<DecoratedKey> keys, boolean updateCacheAndStats)
+    {
+        if (ifile == null)
+            return super.getPositions(keys, updateCacheAndStats);
+
+        RowIndexEntry[] entries = new RowIndexEntry[keys.size()];
+        int summaryIndex = 0;
+        // the index has been read up to this position for the previous keys, so entries before it are of smaller keys
+        long scanned = 0;
+        FileDataInput in = null;
+        // the positions the current input can be sought to
+        long inStart = 0;
+        long inEnd = 0;
+        int opened = 0;
+        String path = null;
+        try
+        {
+            for (int k = 0; k < entries.length; k++)
+            {
+                DecoratedKey key = keys.get(k);
+                if (k > 0)
+                {
+                    int comparison = keys.get(k - 1).compareTo(key);
+                    assert comparison <= 0 : "keys must be sorted";
+                    if (comparison == 0)
+                    {
+                        entries[k] = entries[k - 1];
+                        continue;
+                    }
+                }
+
+                if (!bf.isPresent(key))
+                    continue;
+
+                KeyCacheKey cacheKey = new KeyCacheKey(metadata.ksAndCFName, descriptor, key.getKey());
+                RowIndexEntry cachedPosition = getCachedPosition(cacheKey, updateCacheAndStats);
+                if (cachedPosition != null)
+                {
+                    entries[k] = cachedPosition;
+                    continue;
+                }
+
+                if (key.compareTo(first) < 0 || key.compareTo(last) > 0)
+                {
+                    if (updateCacheAndStats)
+                        bloomFilterTracker.addFalsePositive();
+                    continue;
+                }
+
+                int binarySearchResult = indexSummary.binarySearch(key, summaryIndex);
+                int sampledIndex = getIndexSummaryIndexFromBinarySearchResult(binarySearchResult);
+                summaryIndex = Math.max(0, sampledIndex);
+                long position = Math.max(scanned, getIndexScanPositionFromBinarySearchResult(binarySearchResult, indexSummary));
+                long end = sampledIndex + 1 < indexSummary.size() ? indexSummary.getPosition(sampledIndex + 1) : ifile.length;
 
+                RowIndexEntry indexEntry = null;
+                while (position < end)
+                {
+                    if (in == null || position < inStart || position >= inEnd)
+                    {
+                        FileUtils.closeQuietly(in);
+                        in = ifile.getSegment(position);
+                        path = in.getPath();
+                        inStart = position;
+                        inEnd = position + in.bytesRemaining();
+                        opened++;
+                    }
+                    else if (in.getFilePointer() != position)
+                    {
+                        in.seek(position);
+                    }
+
+                    ByteBuffer indexKey = ByteBufferUtil.readWithShortLength(in);
+                    int comparison = partitioner.decorateKey(indexKey).compareTo(key);
+                    if (comparison == 0)
+                    {
+                        indexEntry = rowIndexEntrySerializer.deserialize(in, descriptor.version);
+                        scanned = in.getFilePointer();
+                        break;
+                    }
+                    if (comparison > 0)
+                    {
+                        // the key isn't there, and the next one can't be before this entry
+                        scanned = position;
+                        break;
+                    }
+                    RowIndexEntry.Serializer.skip(in);
+                    position = in.getFilePointer();
+                }
+
+                if (indexEntry == null)
+                {
+                    if (updateCacheAndStats)
+                        bloomFilterTracker.addFalsePositive();
+                    continue;
+                }
+
+                if (updateCacheAndStats)
+                {
+                    cacheKey(key, indexEntry);
+                    bloomFilterTracker.addTruePositive();
+                }
+                entries[k] = indexEntry;
+            }
+        }
+        catch (IOException e)
+        {
+            markSuspect();
+            throw new CorruptSSTableException(e, path);
+        }
+        finally
+        {
+            FileUtils.closeQuietly(in);
+        }
+
+        Tracing.trace("Partition index lookup of {} keys for sstable {} read the index from {} positions", keys.size(), descriptor.generation, opened);
+        return entries;
+    }
 }
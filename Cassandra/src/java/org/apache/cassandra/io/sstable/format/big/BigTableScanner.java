@@ -88,7 +88,7 @@ public class BigTableScanner implements ISSTableScanner
     {
         assert sstable != null;
 
-        this.dfile = limiter == null ? sstable.openDataReader() : sstable.openDataReader(limiter);
+        this.dfile = limiter == null ? sstable.openUncachedDataReader() : sstable.openDataReader(limiter);
         this.ifile = sstable.openIndexReader();
         this.sstable = sstable;
         this.dataRange = dataRange;
@@ -108,7 +108,7 @@ public class BigTableScanner implements ISSTableScanner
     {
         assert sstable != null;
 
-        this.dfile = limiter == null ? sstable.openDataReader() : sstable.openDataReader(limiter);
+        this.dfile = limiter == null ? sstable.openUncachedDataReader() : sstable.openDataReader(limiter);
         this.ifile = sstable.openIndexReader();
         this.sstable = sstable;
         this.dataRange = null;
@@ -114,6 +114,11 @@ public class CompressedPoolingSegmentedFile extends PoolingSegmentedFile impleme
         return CompressedRandomAccessReader.open(this);
     }
 
+    public RandomAccessReader createUncachedReader()
+    {
+        return CompressedRandomAccessReader.openUncached(this);
+    }
+
     public RandomAccessReader createThrottledReader(RateLimiter limiter)
     {
         return CompressedThrottledReader.open(this, limiter);
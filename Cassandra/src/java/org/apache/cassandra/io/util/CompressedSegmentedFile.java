@@ -162,6 +162,11 @@ public class CompressedSegmentedFile extends SegmentedFile implements ICompresse
         return CompressedRandomAccessReader.open(this);
     }
 
+    public RandomAccessReader createUncachedReader()
+    {
+        return CompressedRandomAccessReader.openUncached(this);
+    }
+
     public RandomAccessReader createThrottledReader(RateLimiter limiter)
     {
         return CompressedThrottledReader.open(this, limiter);
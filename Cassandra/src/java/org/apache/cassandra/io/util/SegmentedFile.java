@@ -113,6 +113,14 @@ public abstract class SegmentedFile extends SharedCloseableImpl
         return RandomAccessReader.open(channel, length);
     }
 
+    /**
+     * @return a reader for sequential scans, which bypasses the chunk cache if the file has one
+     */
+    public RandomAccessReader createUncachedReader()
+    {
+        return createReader();
+    }
+
     public RandomAccessReader createThrottledReader(RateLimiter limiter)
     {
         assert limiter != null;
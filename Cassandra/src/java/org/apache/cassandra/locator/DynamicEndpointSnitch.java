@@ -25,13 +25,13 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.codahale.metrics.ExponentiallyDecayingReservoir;
-
 import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.UniformSnapshot;
 import org.apache.cassandra.concurrent.ScheduledExecutors;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.net.MessagingService;
@@ -50,9 +50,11 @@ public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILa
 
     private static final boolean USE_SEVERITY = !Boolean.getBoolean("cassandra.ignore_dynamic_snitch_severity");
 
-    private static final double ALPHA = 0.75; // set to 0.75 to make EDS more biased to towards the newer values
     private static final int WINDOW_SIZE = 100;
 
+    // lists of endpoints up to this size are sorted in place, without allocating
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
     private final int UPDATE_INTERVAL_IN_MS = DatabaseDescriptor.getDynamicUpdateInterval();
     private final int RESET_INTERVAL_IN_MS = DatabaseDescriptor.getDynamicResetInterval();
     private final double BADNESS_THRESHOLD = DatabaseDescriptor.getDynamicBadnessThreshold();
@@ -70,8 +72,17 @@ public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILa
     private String mbeanName;
     private boolean registered = false;
 
-    private volatile HashMap<InetAddress, Double> scores = new HashMap<>();
-    private final ConcurrentHashMap<InetAddress, ExponentiallyDecayingReservoir> samples = new ConcurrentHashMap<>();
+    private volatile Scores scores = Scores.EMPTY;
+    private final ConcurrentHashMap<InetAddress, Samples> samples = new ConcurrentHashMap<>();
+
+    // scratch space of sortByProximityWithBadness()
+    private static final ThreadLocal<double[][]> badnessScores = new ThreadLocal<double[][]>()
+    {
+        protected double[][] initialValue()
+        {
+            return new double[2][INSERTION_SORT_THRESHOLD];
+        }
+    };
 
     public final IEndpointSnitch subsnitch;
 
@@ -158,18 +169,35 @@ public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILa
 
     private void sortByProximityWithScore(final InetAddress address, List<InetAddress> addresses)
     {
-        // Scores can change concurrently from a call to this method. But Collections.sort() expects
-        // its comparator to be "stable", that is 2 endpoint should compare the same way for the duration
-        // of the sort() call. As we copy the scores map on write, it is thus enough to alias the current
-        // version of it during this call.
-        final HashMap<InetAddress, Double> scores = this.scores;
-        Collections.sort(addresses, new Comparator<InetAddress>()
+        // Scores can change concurrently from a call to this method. But sorting expects its comparison
+        // to be "stable", that is 2 endpoint should compare the same way for the duration of the sort.
+        // As the scores are replaced rather than updated, it is thus enough to alias the current version
+        // of them during this call.
+        final Scores scores = this.scores;
+        if (addresses.size() > INSERTION_SORT_THRESHOLD)
+        {
+            Collections.sort(addresses, new Comparator<InetAddress>()
+            {
+                public int compare(InetAddress a1, InetAddress a2)
+                {
+                    return compareEndpoints(address, a1, a2, scores);
+                }
+            });
+            return;
+        }
+
+        // the usual handful of replicas: a stable insertion sort in place
+        for (int i = 1; i < addresses.size(); i++)
         {
-            public int compare(InetAddress a1, InetAddress a2)
+            InetAddress endpoint = addresses.get(i);
+            int j = i - 1;
+            while (j >= 0 && compareEndpoints(address, addresses.get(j), endpoint, scores) > 0)
             {
-                return compareEndpoints(address, a1, a2, scores);
+                addresses.set(j + 1, addresses.get(j));
+                j--;
             }
-        });
+            addresses.set(j + 1, endpoint);
+        }
     }
 
     private void sortByProximityWithBadness(final InetAddress address, List<InetAddress> addresses)
@@ -178,27 +206,35 @@ public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILa
             return;
 
         subsnitch.sortByProximity(address, addresses);
-        HashMap<InetAddress, Double> scores = this.scores; // Make sure the score don't change in the middle of the loop below
-                                                           // (which wouldn't really matter here but its cleaner that way).
-        ArrayList<Double> subsnitchOrderedScores = new ArrayList<>(addresses.size());
-        for (InetAddress inet : addresses)
+        Scores scores = this.scores; // Make sure the score don't change in the middle of the loop below
+                                     // (which wouldn't really matter here but its cleaner that way).
+        double[][] scratch = badnessScores.get();
+        if (scratch[0].length < addresses.size())
+        {
+            scratch = new double[2][addresses.size()];
+            badnessScores.set(scratch);
+        }
+        double[] subsnitchOrderedScores = scratch[0];
+        double[] sortedScores = scratch[1];
+
+        int scored = 0;
+        for (int i = 0; i < addresses.size(); i++)
         {
-            Double score = scores.get(inet);
-            if (score == null)
+            int id = scores.id(addresses.get(i));
+            if (id < 0)
                 continue;
-            subsnitchOrderedScores.add(score);
+            subsnitchOrderedScores[scored++] = scores.scores[id];
         }
 
         // Sort the scores and then compare them (positionally) to the scores in the subsnitch order.
         // If any of the subsnitch-ordered scores exceed the optimal/sorted score by BADNESS_THRESHOLD, use
         // the score-sorted ordering instead of the subsnitch ordering.
-        ArrayList<Double> sortedScores = new ArrayList<>(subsnitchOrderedScores);
-        Collections.sort(sortedScores);
+        System.arraycopy(subsnitchOrderedScores, 0, sortedScores, 0, scored);
+        Arrays.sort(sortedScores, 0, scored);
 
-        Iterator<Double> sortedScoreIterator = sortedScores.iterator();
-        for (Double subsnitchScore : subsnitchOrderedScores)
+        for (int i = 0; i < scored; i++)
         {
-            if (subsnitchScore > (sortedScoreIterator.next() * (1.0 + BADNESS_THRESHOLD)))
+            if (subsnitchOrderedScores[i] > (sortedScores[i] * (1.0 + BADNESS_THRESHOLD)))
             {
                 sortByProximityWithScore(address, addresses);
                 return;
@@ -207,27 +243,21 @@ public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILa
     }
 
     // Compare endpoints given an immutable snapshot of the scores
-    private int compareEndpoints(InetAddress target, InetAddress a1, InetAddress a2, Map<InetAddress, Double> scores)
+    private int compareEndpoints(InetAddress target, InetAddress a1, InetAddress a2, Scores scores)
     {
-        Double scored1 = scores.get(a1);
-        Double scored2 = scores.get(a2);
-        
-        if (scored1 == null)
-        {
-            scored1 = 0.0;
-        }
+        int id1 = scores.id(a1);
+        int id2 = scores.id(a2);
+        double scored1 = id1 < 0 ? 0.0 : scores.scores[id1];
+        double scored2 = id2 < 0 ? 0.0 : scores.scores[id2];
 
-        if (scored2 == null)
-        {
-            scored2 = 0.0;
-        }
-
-        if (scored1.equals(scored2))
-            return subsnitch.compareEndpoints(target, a1, a2);
         if (scored1 < scored2)
             return -1;
-        else
+        if (scored1 > scored2)
             return 1;
+        // the ranks break ties the way the subsnitch does for this node, for the endpoints they know
+        if (id1 >= 0 && id2 >= 0 && target.equals(scores.local))
+            return Integer.compare(scores.ranks[id1], scores.ranks[id2]);
+        return subsnitch.compareEndpoints(target, a1, a2);
     }
 
     public int compareEndpoints(InetAddress target, InetAddress a1, InetAddress a2)
@@ -240,10 +270,10 @@ public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILa
 
     public void receiveTiming(InetAddress host, long latency) // this is cheap
     {
-        ExponentiallyDecayingReservoir sample = samples.get(host);
+        Samples sample = samples.get(host);
         if (sample == null)
         {
-            ExponentiallyDecayingReservoir maybeNewSample = new ExponentiallyDecayingReservoir(WINDOW_SIZE, ALPHA);
+            Samples maybeNewSample = new Samples();
             sample = samples.putIfAbsent(host, maybeNewSample);
             if (sample == null)
                 sample = maybeNewSample;
@@ -252,9 +282,9 @@ public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILa
     }
 
     public Optional<Snapshot> getSnapshot(InetAddress endpoint) {
-        ExponentiallyDecayingReservoir endpointSamples = samples.get(endpoint);
+        Samples endpointSamples = samples.get(endpoint);
         if (endpointSamples != null) {
-            return Optional.ofNullable(samples.get(endpoint).getSnapshot());
+            return Optional.of(endpointSamples.getSnapshot());
         } else {
             return Optional.empty();
         }
@@ -276,31 +306,36 @@ public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILa
         double maxLatency = 1;
         // We're going to weight the latency for each host against the worst one we see, to
         // arrive at sort of a 'badness percentage' for them. First, find the worst for each:
-        HashMap<InetAddress, Double> newScores = new HashMap<>();
-        for (Map.Entry<InetAddress, ExponentiallyDecayingReservoir> entry : samples.entrySet())
+        List<InetAddress> endpoints = new ArrayList<>(samples.size());
+        List<Double> medians = new ArrayList<>(samples.size());
+        for (Map.Entry<InetAddress, Samples> entry : samples.entrySet())
         {
             double mean = entry.getValue().getSnapshot().getMedian();
             if (mean > maxLatency)
                 maxLatency = mean;
+            endpoints.add(entry.getKey());
+            medians.add(mean);
         }
         // now make another pass to do the weighting based on the maximums we found before
-        for (Map.Entry<InetAddress, ExponentiallyDecayingReservoir> entry: samples.entrySet())
+        double[] newScores = new double[endpoints.size()];
+        for (int i = 0; i < endpoints.size(); i++)
         {
-            double score = entry.getValue().getSnapshot().getMedian() / maxLatency;
+            double score = medians.get(i) / maxLatency;
             // finally, add the severity without any weighting, since hosts scale this relative to their own load and the size of the task causing the severity.
             // "Severity" is basically a measure of compaction activity (CASSANDRA-3722).
             if (USE_SEVERITY)
-                score += StorageService.instance.getSeverity(entry.getKey());
+                score += StorageService.instance.getSeverity(endpoints.get(i));
             // lowest score (least amount of badness) wins.
-            newScores.put(entry.getKey(), score);
+            newScores[i] = score;
         }
-        scores = newScores;
+        scores = new Scores(endpoints, newScores, subsnitch);
         if (logger.isDebugEnabled()) {
             logAddressOrdering();
         }
     }
 
     private synchronized void logAddressOrdering() {
+        Map<InetAddress, Double> scores = getScores();
         List<InetAddress> addresses = new ArrayList<>(scores.keySet());
         InetAddress local = FBUtilities.getBroadcastAddress();
         List<InetAddress> sortedBySubsnitch = subsnitch.getSortedListByProximity(local, addresses);
@@ -340,7 +375,11 @@ public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILa
 
     public Map<InetAddress, Double> getScores()
     {
-        return scores;
+        Scores scores = this.scores;
+        HashMap<InetAddress, Double> map = new HashMap<>();
+        for (Map.Entry<InetAddress, Integer> entry : scores.ids.entrySet())
+            map.put(entry.getKey(), scores.scores[entry.getValue()]);
+        return map;
     }
 
     public int getUpdateInterval()
@@ -365,11 +404,11 @@ public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILa
     {
         InetAddress host = InetAddress.getByName(hostname);
         ArrayList<Double> timings = new ArrayList<Double>();
-        ExponentiallyDecayingReservoir sample = samples.get(host);
+        Samples sample = samples.get(host);
         if (sample != null)
         {
-            for (double time: sample.getSnapshot().getValues())
-                timings.add(time);
+            for (long time : sample.getSnapshot().getValues())
+                timings.add((double) time);
         }
         return timings;
     }
@@ -406,16 +445,95 @@ public class DynamicEndpointSnitch extends AbstractEndpointSnitch implements ILa
     // Return the max score for the endpoint in the provided list, or -1.0 if no node have a score.
     private double maxScore(List<InetAddress> endpoints)
     {
+        Scores scores = this.scores;
         double maxScore = -1.0;
         for (InetAddress endpoint : endpoints)
         {
-            Double score = scores.get(endpoint);
-            if (score == null)
+            int id = scores.id(endpoint);
+            if (id < 0)
                 continue;
 
-            if (score > maxScore)
-                maxScore = score;
+            if (scores.scores[id] > maxScore)
+                maxScore = scores.scores[id];
         }
         return maxScore;
     }
+
+    /**
+     * The last WINDOW_SIZE timings of an endpoint, in a ring that is written without locking: concurrent timings
+     * only contend on the slot counter.
+     */
+    private static final class Samples
+    {
+        private final AtomicLongArray timings = new AtomicLongArray(WINDOW_SIZE);
+        private final AtomicLong count = new AtomicLong();
+
+        void update(long latency)
+        {
+            timings.lazySet((int) (count.getAndIncrement() % WINDOW_SIZE), latency);
+        }
+
+        Snapshot getSnapshot()
+        {
+            long[] values = new long[(int) Math.min(count.get(), WINDOW_SIZE)];
+            for (int i = 0; i < values.length; i++)
+                values[i] = timings.get(i);
+            return new UniformSnapshot(values);
+        }
+    }
+
+    /**
+     * The scores of the endpoints with timings, in an array indexed by the id each endpoint has in {@link #ids}, along
+     * with the rank of each endpoint in the order of the scores, ties broken by the subsnitch proximity to this node.
+     * The ranks only hold for sorts by proximity to this node, which are the common case; the others break ties with
+     * the subsnitch. Immutable, so that a sort sees the same scores throughout.
+     */
+    private static final class Scores
+    {
+        static final Scores EMPTY = new Scores(Collections.<InetAddress>emptyList(), new double[0], null);
+
+        final Map<InetAddress, Integer> ids;
+        final double[] scores;
+        // the node the ranks are relative to
+        final InetAddress local;
+        final int[] ranks;
+
+        Scores(final List<InetAddress> endpoints, final double[] scores, final IEndpointSnitch subsnitch)
+        {
+            this.ids = new HashMap<>(endpoints.size());
+            for (int i = 0; i < endpoints.size(); i++)
+                ids.put(endpoints.get(i), i);
+            this.scores = scores;
+
+            final InetAddress local = FBUtilities.getBroadcastAddress();
+            this.local = local;
+            Comparator<Integer> comparator = new Comparator<Integer>()
+            {
+                public int compare(Integer id1, Integer id2)
+                {
+                    int cmp = Double.compare(scores[id1], scores[id2]);
+                    return cmp != 0 ? cmp : subsnitch.compareEndpoints(local, endpoints.get(id1), endpoints.get(id2));
+                }
+            };
+            Integer[] sorted = new Integer[endpoints.size()];
+            for (int i = 0; i < sorted.length; i++)
+                sorted[i] = i;
+            Arrays.sort(sorted, comparator);
+
+            // endpoints that compare the same share their rank, which keeps sorting them stable
+            this.ranks = new int[endpoints.size()];
+            for (int rank = 0; rank < sorted.length; rank++)
+            {
+                boolean tied = rank > 0 && comparator.compare(sorted[rank - 1], sorted[rank]) == 0;
+                ranks[sorted[rank]] = tied ? ranks[sorted[rank - 1]] : rank;
+            }
+        }
+
+        // the id of the endpoint, or -1 if it has no score
+        int id(InetAddress endpoint)
+        {
+            Integer id = ids.get(endpoint);
+            return id == null ? -1 : id;
+        }
+    }
 }
@@ -151,6 +151,12 @@ public class PendingRangeMaps implements Iterable<Map.Entry<Range<Token>, List<I
         }
     }
 
+    public void addPendingRanges(Collection<Range<Token>> ranges, InetAddress address)
+    {
+        for (Range<Token> range : ranges)
+            addPendingRange(range, address);
+    }
+
     static final void addIntersections(Set<InetAddress> endpointsToAdd,
                                        NavigableMap<Range<Token>, List<InetAddress>> smallerMap,
                                        NavigableMap<Range<Token>, List<InetAddress>> biggerMap)
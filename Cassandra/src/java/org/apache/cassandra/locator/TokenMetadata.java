@@ -48,8 +48,11 @@ public class TokenMetadata
      * Maintains token to endpoint map of every node in the cluster.
      * Each Token is associated with exactly one Address, but each Address may have
      * multiple tokens.  Hence, the BiMultiValMap collection.
+     *
+     * The map is shared with the copies of cloneOnlyTokenMap() until either side changes it, see tokenMapForWrite().
      */
-    private final BiMultiValMap<Token, InetAddress> tokenToEndpointMap;
+    private BiMultiValMap<Token, InetAddress> tokenToEndpointMap;
+    private volatile boolean tokenMapShared;
 
     /** Maintains endpoint to host ID map of every node in the cluster */
     private final BiMap<InetAddress, UUID> endpointToHostIdMap;
@@ -86,6 +89,8 @@ public class TokenMetadata
     private final Set<InetAddress> leavingEndpoints = new HashSet<>();
     // this is a cache of the calculation from {tokenToEndpointMap, bootstrapTokens, leavingEndpoints}
     private final ConcurrentMap<String, PendingRangeMaps> pendingRanges = new ConcurrentHashMap<String, PendingRangeMaps>();
+    // the ranges of each bootstrapping endpoint in the last calculation of the pending ranges of a keyspace
+    private final ConcurrentMap<String, BootstrapRanges> bootstrapRanges = new ConcurrentHashMap<>();
 
     // nodes which are migrating to the new tokens in the ring
     private final Set<Pair<Token, InetAddress>> movingEndpoints = new HashSet<>();
@@ -108,19 +113,35 @@ public class TokenMetadata
     // signals replication strategies that nodes have joined or left the ring and they need to recompute ownership
     private volatile long ringVersion = 0;
 
+    // changes whenever the normal tokens or the topology do, which is all the bootstrap ranges depend on besides the
+    // leaving endpoints; guarded by lock
+    private long normalRingVersion = 0;
+
     public TokenMetadata()
     {
         this(SortedBiMultiValMap.<Token, InetAddress>create(null, inetaddressCmp),
+             null,
              HashBiMap.<InetAddress, UUID>create(),
-             new Topology());
+             new Topology(),
+             0);
     }
 
-    private TokenMetadata(BiMultiValMap<Token, InetAddress> tokenToEndpointMap, BiMap<InetAddress, UUID> endpointsMap, Topology topology)
+    /**
+     * @param sortedTokens the sorted tokens of {@code tokenToEndpointMap} if it is shared with another TokenMetadata,
+     * or null if it belongs to this one
+     */
+    private TokenMetadata(BiMultiValMap<Token, InetAddress> tokenToEndpointMap,
+                          ArrayList<Token> sortedTokens,
+                          BiMap<InetAddress, UUID> endpointsMap,
+                          Topology topology,
+                          long normalRingVersion)
     {
         this.tokenToEndpointMap = tokenToEndpointMap;
+        this.tokenMapShared = sortedTokens != null;
         this.topology = topology;
         endpointToHostIdMap = endpointsMap;
-        sortedTokens = sortTokens();
+        this.sortedTokens = sortedTokens == null ? sortTokens() : sortedTokens;
+        this.normalRingVersion = normalRingVersion;
     }
 
     private ArrayList<Token> sortTokens()
@@ -128,6 +149,19 @@ public class TokenMetadata
         return new ArrayList<>(tokenToEndpointMap.keySet());
     }
 
+    /**
+     * @return the token map, copied first if it is shared with a clone; must be called under the write lock
+     */
+    private BiMultiValMap<Token, InetAddress> tokenMapForWrite()
+    {
+        if (tokenMapShared)
+        {
+            tokenToEndpointMap = SortedBiMultiValMap.create(tokenToEndpointMap, null, inetaddressCmp);
+            tokenMapShared = false;
+        }
+        return tokenToEndpointMap;
+    }
+
     public void lock() {
         publicLock.writeLock().lock();
     }
@@ -190,6 +224,8 @@ public class TokenMetadata
         try
         {
             boolean shouldSortTokens = false;
+            BiMultiValMap<Token, InetAddress> tokenToEndpointMap = tokenMapForWrite();
+            normalRingVersion++;
             for (InetAddress endpoint : endpointTokens.keySet())
             {
                 Collection<Token> tokens = endpointTokens.get(endpoint);
@@ -466,8 +502,9 @@ public class TokenMetadata
         try
         {
             bootstrapTokens.removeValue(endpoint);
-            tokenToEndpointMap.removeValue(endpoint);
+            tokenMapForWrite().removeValue(endpoint);
             topology.removeEndpoint(endpoint);
+            normalRingVersion++;
             leavingEndpoints.remove(endpoint);
             if (replacementToOriginal.remove(endpoint) != null)
             {
@@ -498,6 +535,7 @@ public class TokenMetadata
         {
             logger.info("Updating topology for {}", endpoint);
             topology.updateEndpoint(endpoint);
+            normalRingVersion++;
             invalidateCachedRings();
         }
         finally
@@ -519,6 +557,7 @@ public class TokenMetadata
         {
             logger.info("Updating topology for all endpoints that have changed");
             topology.updateEndpoints();
+            normalRingVersion++;
             invalidateCachedRings();
         }
         finally
@@ -645,6 +684,9 @@ public class TokenMetadata
     /**
      * Create a copy of TokenMetadata with only tokenToEndpointMap. That is, pending ranges,
      * bootstrap tokens and leaving endpoints are not included in the copy.
+     *
+     * The copy shares the token map, and whichever of the two changes it first copies it then: most copies are only
+     * read, and those that are changed only copy it once however many changes they go through.
      */
     public TokenMetadata cloneOnlyTokenMap()
     {
@@ -652,9 +694,12 @@ public class TokenMetadata
         lock.readLock().lock();
         try
         {
-            return new TokenMetadata(SortedBiMultiValMap.create(tokenToEndpointMap, null, inetaddressCmp),
+            tokenMapShared = true;
+            return new TokenMetadata(tokenToEndpointMap,
+                                     sortedTokens,
                                      HashBiMap.create(endpointToHostIdMap),
-                                     new Topology(topology));
+                                     new Topology(topology),
+                                     normalRingVersion);
         }
         finally
         {
@@ -847,7 +892,9 @@ public class TokenMetadata
      * but it does not matter as we can clean up the data afterwards.
      *
      * NOTE: This is heavy and ineffective operation. This will be done only once when a node
-     * changes state in the cluster, so it should be manageable.
+     * changes state in the cluster, so it should be manageable. The ranges of the bootstrapping
+     * nodes are kept between calculations, so that a node starting to bootstrap while others
+     * already are only costs the calculation of its own ranges, see BootstrapRanges.
      */
     public void calculatePendingRanges(AbstractReplicationStrategy strategy, String keyspaceName)
     {
@@ -860,6 +907,7 @@ public class TokenMetadata
                     logger.trace("No bootstrapping, leaving or moving nodes -> empty pending ranges for {}", keyspaceName);
 
                 pendingRanges.put(keyspaceName, new PendingRangeMaps());
+                bootstrapRanges.remove(keyspaceName);
             }
             else
             {
@@ -873,6 +921,7 @@ public class TokenMetadata
                 Set<InetAddress> leavingEndpoints = new HashSet<>();
                 Set<Pair<Token, InetAddress>> movingEndpoints = new HashSet<>();
                 TokenMetadata metadata;
+                long version;
 
                 publicLock.readLock().lock();
                 lock.readLock().lock();
@@ -882,6 +931,7 @@ public class TokenMetadata
                     leavingEndpoints.addAll(this.leavingEndpoints);
                     movingEndpoints.addAll(this.movingEndpoints);
                     metadata = this.cloneOnlyTokenMap();
+                    version = normalRingVersion;
                 }
                 finally
                 {
@@ -889,8 +939,14 @@ public class TokenMetadata
                     publicLock.readLock().unlock();
                 }
 
+                BootstrapRanges previous = bootstrapRanges.get(keyspaceName);
+                if (previous != null && !previous.isValidFor(strategy, version, leavingEndpoints))
+                    previous = null;
+                BootstrapRanges current = new BootstrapRanges(strategy, version, leavingEndpoints);
                 pendingRanges.put(keyspaceName, calculatePendingRanges(strategy, metadata, bootstrapTokens,
-                                                                       leavingEndpoints, movingEndpoints));
+                                                                       leavingEndpoints, movingEndpoints,
+                                                                       previous, current));
+                bootstrapRanges.put(keyspaceName, current);
                 long took = System.currentTimeMillis() - startedAt;
 
                 if (logger.isDebugEnabled())
@@ -902,25 +958,44 @@ public class TokenMetadata
     }
 
     /**
+     * Forgets the pending ranges of a dropped keyspace, along with the ranges of the bootstrapping endpoints kept for
+     * its next calculation.
+     */
+    public void removeKeyspace(String keyspaceName)
+    {
+        synchronized (pendingRanges)
+        {
+            pendingRanges.remove(keyspaceName);
+            bootstrapRanges.remove(keyspaceName);
+        }
+    }
+
+    /**
+     * @param previous the ranges of the bootstrapping endpoints of the last calculation, if it was against the same ring
+     * @param current where to record the ranges of the bootstrapping endpoints of this calculation
      * @see TokenMetadata#calculatePendingRanges(AbstractReplicationStrategy, String)
      */
     private static PendingRangeMaps calculatePendingRanges(AbstractReplicationStrategy strategy,
                                                            TokenMetadata metadata,
                                                            BiMultiValMap<Token, InetAddress> bootstrapTokens,
                                                            Set<InetAddress> leavingEndpoints,
-                                                           Set<Pair<Token, InetAddress>> movingEndpoints)
+                                                           Set<Pair<Token, InetAddress>> movingEndpoints,
+                                                           BootstrapRanges previous,
+                                                           BootstrapRanges current)
     {
         PendingRangeMaps newPendingRanges = new PendingRangeMaps();
 
-        Multimap<InetAddress, Range<Token>> addressRanges = strategy.getAddressRanges(metadata);
-
         // Copy of metadata reflecting the situation after all leave operations are finished.
         TokenMetadata allLeftMetadata = removeEndpoints(metadata.cloneOnlyTokenMap(), leavingEndpoints);
 
         // get all ranges that will be affected by leaving nodes
         Set<Range<Token>> affectedRanges = new HashSet<Range<Token>>();
-        for (InetAddress endpoint : leavingEndpoints)
-            affectedRanges.addAll(addressRanges.get(endpoint));
+        if (!leavingEndpoints.isEmpty())
+        {
+            Multimap<InetAddress, Range<Token>> addressRanges = strategy.getAddressRanges(metadata);
+            for (InetAddress endpoint : leavingEndpoints)
+                affectedRanges.addAll(addressRanges.get(endpoint));
+        }
 
         // for each of those ranges, find what new nodes will be responsible for the range when
         // all leaving nodes are gone.
@@ -938,18 +1013,23 @@ public class TokenMetadata
         // now continue the calculation by checking bootstrapping nodes.
 
         // For each of the bootstrapping nodes, simply add and remove them one by one to
-        // allLeftMetadata and check in between what their ranges would be.
+        // allLeftMetadata and check in between what their ranges would be, unless the previous
+        // calculation already did.
         Multimap<InetAddress, Token> bootstrapAddresses = bootstrapTokens.inverse();
         for (InetAddress endpoint : bootstrapAddresses.keySet())
         {
-            Collection<Token> tokens = bootstrapAddresses.get(endpoint);
+            Set<Token> tokens = ImmutableSet.copyOf(bootstrapAddresses.get(endpoint));
 
-            allLeftMetadata.updateNormalTokens(tokens, endpoint);
-            for (Range<Token> range : strategy.getAddressRanges(allLeftMetadata).get(endpoint))
+            Collection<Range<Token>> ranges = previous == null ? null : previous.get(endpoint, tokens);
+            if (ranges == null)
             {
-                newPendingRanges.addPendingRange(range, endpoint);
+                allLeftMetadata.updateNormalTokens(tokens, endpoint);
+                // copied, as the view of the multimap would keep the ranges of the whole ring around for reuse
+                ranges = ImmutableList.copyOf(strategy.getAddressRanges(allLeftMetadata).get(endpoint));
+                allLeftMetadata.removeEndpoint(endpoint);
             }
-            allLeftMetadata.removeEndpoint(endpoint);
+            current.put(endpoint, tokens, ranges);
+            newPendingRanges.addPendingRanges(ranges, endpoint);
         }
 
         // At this stage newPendingRanges has been updated according to leaving and bootstrapping nodes.
@@ -1003,6 +1083,49 @@ public class TokenMetadata
         return newPendingRanges;
     }
 
+    /**
+     * The ranges of the bootstrapping endpoints in a calculation of the pending ranges of a keyspace.
+     *
+     * They only depend on the replication strategy, the normal ring, the leaving endpoints and the tokens of each
+     * endpoint, so as long as the first three stay the same, the next calculation reuses the ranges of the endpoints
+     * still bootstrapping the same tokens, and only calculates those of the endpoints that started since.
+     */
+    private static final class BootstrapRanges
+    {
+        private final AbstractReplicationStrategy strategy;
+        private final long normalRingVersion;
+        private final Set<InetAddress> leavingEndpoints;
+        private final Map<InetAddress, Pair<Set<Token>, Collection<Range<Token>>>> ranges = new HashMap<>();
+
+        BootstrapRanges(AbstractReplicationStrategy strategy, long normalRingVersion, Set<InetAddress> leavingEndpoints)
+        {
+            this.strategy = strategy;
+            this.normalRingVersion = normalRingVersion;
+            this.leavingEndpoints = leavingEndpoints;
+        }
+
+        boolean isValidFor(AbstractReplicationStrategy strategy, long normalRingVersion, Set<InetAddress> leavingEndpoints)
+        {
+            return this.strategy == strategy
+                   && this.normalRingVersion == normalRingVersion
+                   && this.leavingEndpoints.equals(leavingEndpoints);
+        }
+
+        /**
+         * @return the ranges of {@code endpoint} if it was bootstrapping the same {@code tokens}, null otherwise
+         */
+        Collection<Range<Token>> get(InetAddress endpoint, Set<Token> tokens)
+        {
+            Pair<Set<Token>, Collection<Range<Token>>> entry = ranges.get(endpoint);
+            return entry != null && entry.left.equals(tokens) ? entry.right : null;
+        }
+
+        void put(InetAddress endpoint, Set<Token> tokens, Collection<Range<Token>> endpointRanges)
+        {
+            ranges.put(endpoint, Pair.create(tokens, endpointRanges));
+        }
+    }
+
     public Token getPredecessor(Token token)
     {
         List tokens = sortedTokens();
@@ -1152,14 +1275,16 @@ public class TokenMetadata
         lock.writeLock().lock();
         try
         {
-            tokenToEndpointMap.clear();
+            tokenMapForWrite().clear();
             endpointToHostIdMap.clear();
             bootstrapTokens.clear();
             leavingEndpoints.clear();
             pendingRanges.clear();
+            bootstrapRanges.clear();
             movingEndpoints.clear();
-            sortedTokens.clear();
+            sortedTokens = sortTokens();
             topology.clear();
+            normalRingVersion++;
             invalidateCachedRings();
         }
         finally
@@ -31,15 +31,21 @@ public class CQLMetrics
     public final Counter regularStatementsExecuted;
     public final Counter preparedStatementsExecuted;
     public final Counter preparedStatementsEvicted;
+    public final Counter normalizedStatementsHits;
+    public final Counter normalizedStatementsMisses;
 
     public final Gauge<Integer> preparedStatementsCount;
     public final Gauge<Double> preparedStatementsRatio;
+    public final Gauge<Integer> normalizedStatementsCount;
+    public final Gauge<Double> normalizedStatementsHitRate;
 
     public CQLMetrics()
     {
         regularStatementsExecuted = Metrics.counter(factory.createMetricName("RegularStatementsExecuted"));
         preparedStatementsExecuted = Metrics.counter(factory.createMetricName("PreparedStatementsExecuted"));
         preparedStatementsEvicted = Metrics.counter(factory.createMetricName("PreparedStatementsEvicted"));
+        normalizedStatementsHits = Metrics.counter(factory.createMetricName("NormalizedStatementsHits"));
+        normalizedStatementsMisses = Metrics.counter(factory.createMetricName("NormalizedStatementsMisses"));
 
         preparedStatementsCount = Metrics.register(factory.createMetricName("PreparedStatementsCount"), new Gauge<Integer>()
         {
@@ -65,5 +71,20 @@ public class CQLMetrics
                 return regularStatementsExecuted.getCount() + preparedStatementsExecuted.getCount();
             }
         });
+        normalizedStatementsCount = Metrics.register(factory.createMetricName("NormalizedStatementsCount"), new Gauge<Integer>()
+        {
+            public Integer getValue()
+            {
+                return QueryProcessor.normalizedStatementsCount();
+            }
+        });
+        normalizedStatementsHitRate = Metrics.register(factory.createMetricName("NormalizedStatementsHitRate"), new RatioGauge()
+        {
+            public Ratio getRatio()
+            {
+                return Ratio.of(normalizedStatementsHits.getCount(),
+                                normalizedStatementsHits.getCount() + normalizedStatementsMisses.getCount());
+            }
+        });
     }
 }
@@ -22,6 +22,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.RatioGauge;
+import com.codahale.metrics.Timer;
 import org.apache.cassandra.cache.ICache;
 
 import static org.apache.cassandra.metrics.CassandraMetricsRegistry.Metrics;
@@ -43,6 +44,10 @@ public class CacheMetrics
     public final Gauge<Long> size;
     /** Total number of cache entries */
     public final Gauge<Integer> entries;
+    /** Time taken to load the saved cache at startup */
+    public final Timer loadTime;
+    /** Time taken by each save of the cache */
+    public final Timer saveTime;
 
     /**
      * Create metrics for given cache.
@@ -85,5 +90,7 @@ public class CacheMetrics
                 return cache.size();
             }
         });
+        loadTime = Metrics.timer(factory.createMetricName("LoadTime"));
+        saveTime = Metrics.timer(factory.createMetricName("SaveTime"));
     }
 }
@@ -79,6 +79,8 @@ public class ColumnFamilyMetrics
     public final Counter pendingFlushes;
     /** Total number of bytes flushed since server [re]start */
     public final Counter bytesFlushed;
+    /** Throughput of each memtable flush, in bytes/s of sstable data written */
+    public final ColumnFamilyHistogram flushThroughput;
     /** Total number of bytes written by compaction since server [re]start */
     public final Counter compactionBytesWritten;
     /** Total number of compactions since server [re]start */
@@ -417,6 +419,7 @@ public class ColumnFamilyMetrics
         largePartitionsCompacted = Metrics.counter("LargePartitionsCompacted");
         pendingFlushes = createColumnFamilyCounter("PendingFlushes");
         bytesFlushed = createColumnFamilyCounter("BytesFlushed");
+        flushThroughput = createColumnFamilyHistogram("FlushThroughput", cfs.keyspace.metric.flushThroughput, false);
         compactionBytesWritten = createColumnFamilyCounter("CompactionBytesWritten");
         compactionsCompleted = createColumnFamilyCounter("CompactionsCompleted");
         pendingCompactions = createColumnFamilyGauge("PendingCompactions", new Gauge<Integer>()
@@ -19,6 +19,8 @@ package org.apache.cassandra.metrics;
 
 
 import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.Timer;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.commitlog.AbstractCommitLogService;
@@ -45,11 +47,23 @@ public class CommitLogMetrics
     public final Timer waitingOnSegmentAllocation;
     /** The time spent waiting on CL sync; for Periodic this is only occurs when the sync is lagging its sync interval */
     public final Timer waitingOnCommit;
+    /** Bytes of commit log segments read during replay */
+    public final Meter replayedBytes;
+    /** Number of mutations applied during replay */
+    public final Meter replayedMutations;
+    /** Commit log bytes replayed per second, in MB/s, for each replay */
+    public final Histogram replayThroughput;
+    /** Time from the start of replay until the replayed mutations are applied and flushed */
+    public final Timer replayTime;
     
     public CommitLogMetrics()
     {
         waitingOnSegmentAllocation = Metrics.timer(factory.createMetricName("WaitingOnSegmentAllocation"));
         waitingOnCommit = Metrics.timer(factory.createMetricName("WaitingOnCommit"));
+        replayedBytes = Metrics.meter(factory.createMetricName("ReplayedBytes"));
+        replayedMutations = Metrics.meter(factory.createMetricName("ReplayedMutations"));
+        replayThroughput = Metrics.histogram(factory.createMetricName("ReplayThroughput"), false);
+        replayTime = Metrics.timer(factory.createMetricName("ReplayTime"));
     }
 
     public void attach(final AbstractCommitLogService service, final CommitLogSegmentManager allocator)
@@ -18,6 +18,8 @@
 package org.apache.cassandra.metrics;
 
 import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Meter;
@@ -25,6 +27,7 @@ import com.codahale.metrics.Meter;
 import static org.apache.cassandra.metrics.CassandraMetricsRegistry.Metrics;
 
 
+import org.apache.cassandra.net.OutboundConnection;
 import org.apache.cassandra.net.OutboundTcpConnectionPool;
 
 /**
@@ -44,7 +47,7 @@ public class ConnectionMetrics
     public final Gauge<Long> largeMessageCompletedTasks;
     /** Dropped tasks for large message TCP Connections */
     public final Gauge<Long> largeMessageDroppedTasks;
-    /** Pending tasks for small message TCP Connections */
+    /** Pending tasks for small message TCP Connections, over all of them when striped */
     public final Gauge<Integer> smallMessagePendingTasks;
     /** Completed tasks for small message TCP Connections */
     public final Gauge<Long> smallMessageCompletedTasks;
@@ -61,6 +64,7 @@ public class ConnectionMetrics
     public final Meter timeouts;
 
     private final MetricNameFactory factory;
+    private final List<String> connectionMetricNames = new ArrayList<>();
 
     /**
      * Create metrics for given connection pool.
@@ -100,21 +104,21 @@ public class ConnectionMetrics
         {
             public Integer getValue()
             {
-                return connectionPool.smallMessages.getPendingMessages();
+                return connectionPool.getSmallMessagePendingMessages();
             }
         });
         smallMessageCompletedTasks = Metrics.register(factory.createMetricName("SmallMessageCompletedTasks"), new Gauge<Long>()
         {
             public Long getValue()
             {
-                return connectionPool.smallMessages.getCompletedMesssages();
+                return connectionPool.getSmallMessageCompletedMessages();
             }
         });
         smallMessageDroppedTasks = Metrics.register(factory.createMetricName("SmallMessageDroppedTasks"), new Gauge<Long>()
         {
             public Long getValue()
             {
-                return connectionPool.smallMessages.getDroppedMessages();
+                return connectionPool.getSmallMessageDroppedMessages();
             }
         });
         gossipMessagePendingTasks = Metrics.register(factory.createMetricName("GossipMessagePendingTasks"), new Gauge<Integer>()
@@ -139,6 +143,28 @@ public class ConnectionMetrics
             }
         });
         timeouts = Metrics.meter(factory.createMetricName("Timeouts"));
+
+        for (int i = 0; i < connectionPool.smallMessages.length; i++)
+            registerConnection(connectionPool.smallMessages.length == 1 ? "SmallMessage" : "SmallMessage" + i, connectionPool.smallMessages[i]);
+        registerConnection("LargeMessage", connectionPool.largeMessages);
+        registerConnection("GossipMessage", connectionPool.gossipMessages);
+    }
+
+    /**
+     * Registers the backlog depth and the time messages wait in the backlog of a single connection.
+     */
+    private void registerConnection(String label, final OutboundConnection connection)
+    {
+        Metrics.register(factory.createMetricName(label + "BacklogDepth"), new Gauge<Integer>()
+        {
+            public Integer getValue()
+            {
+                return connection.getPendingMessages();
+            }
+        });
+        Metrics.register(factory.createMetricName(label + "DrainLatency"), connection.getDrainLatency());
+        connectionMetricNames.add(label + "BacklogDepth");
+        connectionMetricNames.add(label + "DrainLatency");
     }
 
     public void release()
@@ -153,5 +179,7 @@ public class ConnectionMetrics
         Metrics.remove(factory.createMetricName("GossipMessageCompletedTasks"));
         Metrics.remove(factory.createMetricName("GossipMessageDroppedTasks"));
         Metrics.remove(factory.createMetricName("Timeouts"));
+        for (String name : connectionMetricNames)
+            Metrics.remove(factory.createMetricName(name));
     }
 }
@@ -21,6 +21,7 @@ import java.net.InetAddress;
 import java.util.Map.Entry;
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
 import org.apache.cassandra.db.HintedHandOffManager;
 import org.apache.cassandra.db.SystemKeyspace;
 import org.apache.cassandra.utils.UUIDGen;
@@ -42,6 +43,15 @@ public class HintedHandoffMetrics
 
     private static final MetricNameFactory factory = new DefaultNameFactory("HintedHandOffManager");
 
+    /** Hints written to the hints files */
+    public final Meter hintsWritten = Metrics.meter(factory.createMetricName("HintsWritten"));
+    /** Bytes of hints written to the hints files */
+    public final Meter hintsWrittenBytes = Metrics.meter(factory.createMetricName("HintsWrittenBytes"));
+    /** Hints delivered, i.e. acknowledged by their target */
+    public final Meter hintsDelivered = Metrics.meter(factory.createMetricName("HintsDelivered"));
+    /** Bytes of hints delivered */
+    public final Meter hintsDeliveredBytes = Metrics.meter(factory.createMetricName("HintsDeliveredBytes"));
+
     /** Total number of hints which are not stored, This is not a cache. */
     private final LoadingCache<InetAddress, DifferencingCounter> notStored = CacheBuilder.newBuilder().build(new CacheLoader<InetAddress, DifferencingCounter>()
     {
@@ -100,6 +100,8 @@ public class KeyspaceMetrics
 
     /** Column update time delta on this Keyspace */
     public final Histogram colUpdateTimeDeltaHistogram;
+    /** Throughput of each memtable flush in this keyspace, in bytes/s of sstable data written */
+    public final Histogram flushThroughput;
     /** Request rounds in range scan queries on this keyspace */
     public final Histogram coordinatorScanRequestRounds;
     /** Number of separate requests in a range scan query on this keyspace **/
@@ -260,13 +262,14 @@ public class KeyspaceMetrics
         droppableRangeTombstonesReadHistogram = Metrics.histogram(factory.createMetricName("DroppableRangeTombstonesReadHistogram"), false);
         rangeTombstonesHistogram = Metrics.histogram(factory.createMetricName("RangeTombstonesHistogram"), false);
         colUpdateTimeDeltaHistogram = Metrics.histogram(factory.createMetricName("ColUpdateTimeDeltaHistogram"), false);
+        flushThroughput = Metrics.histogram(factory.createMetricName("FlushThroughput"), false);
         coordinatorScanRequestRounds = Metrics.histogram(factory.createMetricName("CoordinatorScanRequestRounds"), false);
         coordinatorScanRequestQueries = Metrics.histogram(factory.createMetricName("CoordinatorScanRequestQueries"), false);
         coordinatorScanRequestTokenRanges = Metrics.histogram(factory.createMetricName("CoordinatorScanRequestTokenRanges"), false);
         // add manually since histograms do not use createKeyspaceGauge method
         allMetrics.addAll(Lists.newArrayList("SSTablesPerReadHistogram", "TombstoneScannedHistogram", "LiveScannedHistogram",
                 "DroppableTombstonesReadHistogram", "DroppableTtlsReadHistogram", "LiveReadHistogram", "TombstonesReadHistogram",
-                "CoordinatorScanRequestRounds", "CoordinatorScanRequestQueries", "CoordinatorScanRequestTokenRanges"));
+                "FlushThroughput", "CoordinatorScanRequestRounds", "CoordinatorScanRequestQueries", "CoordinatorScanRequestTokenRanges"));
 
         casPrepare = new LatencyMetrics(factory, "CasPrepare");
         casPropose = new LatencyMetrics(factory, "CasPropose");
@@ -22,6 +22,7 @@ import java.util.concurrent.ConcurrentMap;
 
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
 import org.cliffc.high_scale_lib.NonBlockingHashMap;
 
 import static org.apache.cassandra.metrics.CassandraMetricsRegistry.Metrics;
@@ -38,6 +39,14 @@ public class StreamingMetrics
     public static final Counter activeStreamsOutbound = Metrics.counter(DefaultNameFactory.createMetricName(TYPE_NAME, "ActiveOutboundStreams", null));
     public static final Counter totalIncomingBytes = Metrics.counter(DefaultNameFactory.createMetricName(TYPE_NAME, "TotalIncomingBytes", null));
     public static final Counter totalOutgoingBytes = Metrics.counter(DefaultNameFactory.createMetricName(TYPE_NAME, "TotalOutgoingBytes", null));
+    /** Rate, in bytes per second, at which files are received */
+    public static final Meter incomingThroughput = Metrics.meter(DefaultNameFactory.createMetricName(TYPE_NAME, "IncomingThroughput", null));
+    /** Rate, in bytes per second, at which files are sent */
+    public static final Meter outgoingThroughput = Metrics.meter(DefaultNameFactory.createMetricName(TYPE_NAME, "OutgoingThroughput", null));
+    /** Number of sstables received as their entire component files */
+    public static final Counter entireSSTablesIncoming = Metrics.counter(DefaultNameFactory.createMetricName(TYPE_NAME, "EntireSSTablesIncoming", null));
+    /** Number of sstables sent as their entire component files */
+    public static final Counter entireSSTablesOutgoing = Metrics.counter(DefaultNameFactory.createMetricName(TYPE_NAME, "EntireSSTablesOutgoing", null));
     public final Counter incomingBytes;
     public final Counter outgoingBytes;
 
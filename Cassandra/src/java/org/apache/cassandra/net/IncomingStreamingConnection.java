@@ -56,9 +56,9 @@ public class IncomingStreamingConnection extends Thread implements Closeable
     {
         try
         {
-            // streaming connections are per-session and have a fixed version.
-            // we can't do anything with a wrong-version stream connection, so drop it.
-            if (version != StreamMessage.CURRENT_VERSION)
+            // streaming connections are per-session and have a fixed version, chosen by the initiator of the session.
+            // we can't do anything with a stream connection of a version we don't know, so drop it.
+            if (!StreamMessage.isSupported(version))
                 throw new IOException(String.format("Received stream using protocol version %d (my version %d). Terminating connection", version, StreamMessage.CURRENT_VERSION));
 
             DataInput input = new DataInputStream(socket.getInputStream());
@@ -464,7 +464,8 @@ public final class MessagingService implements MessagingServiceMBean
      *
      * @param localEp InetAddress whose port to listen on.
      */
-    private void listen(InetAddress localEp) throws ConfigurationException
+    @VisibleForTesting
+    public void listen(InetAddress localEp) throws ConfigurationException
     {
         for (ServerSocket ss : getServerSockets(localEp))
         {
@@ -585,9 +586,9 @@ public final class MessagingService implements MessagingServiceMBean
     }
 
 
-    public OutboundTcpConnection getConnection(InetAddress to, MessageOut msg)
+    public OutboundConnection getConnection(InetAddress to, MessageOut msg, int id)
     {
-        return getConnectionPool(to).getConnection(msg);
+        return getConnectionPool(to).getConnection(msg, id);
     }
 
     /**
@@ -734,7 +735,7 @@ public final class MessagingService implements MessagingServiceMBean
                 return;
 
         // get pooled connection (really, connection queue)
-        OutboundTcpConnection connection = getConnection(to, message);
+        OutboundConnection connection = getConnection(to, message, id);
 
         // write it
         connection.enqueue(message, id);
@@ -786,6 +787,7 @@ public final class MessagingService implements MessagingServiceMBean
                 }
 
             connectionManagers.values().forEach(OutboundTcpConnectionPool::close);
+            NettyOutboundConnection.shutdownEventLoops();
         }
         catch (IOException e)
         {
@@ -1031,11 +1033,21 @@ public final class MessagingService implements MessagingServiceMBean
                     logger.trace("Connection version {} from {}", version, socket.getInetAddress());
                     socket.setSoTimeout(0);
 
-                    Thread thread = isStream
-                                  ? new IncomingStreamingConnection(version, socket, connections)
-                                  : new IncomingTcpConnection(version, MessagingService.getBits(header, 2, 1) == 1, socket, connections);
-                    thread.start();
-                    connections.add((Closeable) thread);
+                    boolean compressed = MessagingService.getBits(header, 2, 1) == 1;
+                    Closeable connection;
+                    if (!isStream && NettyIncomingConnection.accepts(socket, version))
+                    {
+                        connection = new NettyIncomingConnection(version, compressed, socket, connections);
+                    }
+                    else
+                    {
+                        Thread thread = isStream
+                                      ? new IncomingStreamingConnection(version, socket, connections)
+                                      : new IncomingTcpConnection(version, compressed, socket, connections);
+                        thread.start();
+                        connection = (Closeable) thread;
+                    }
+                    connections.add(connection);
                     logger.trace("Successfully accepted incoming connection from {}", remote);
                 }
                 catch (AsynchronousCloseException e)
@@ -1133,7 +1145,7 @@ public final class MessagingService implements MessagingServiceMBean
     {
         Map<String, Integer> pendingTasks = new HashMap<String, Integer>(connectionManagers.size());
         for (Map.Entry<InetAddress, OutboundTcpConnectionPool> entry : connectionManagers.entrySet())
-            pendingTasks.put(entry.getKey().getHostAddress(), entry.getValue().smallMessages.getPendingMessages());
+            pendingTasks.put(entry.getKey().getHostAddress(), entry.getValue().getSmallMessagePendingMessages());
         return pendingTasks;
     }
 
@@ -1141,7 +1153,7 @@ public final class MessagingService implements MessagingServiceMBean
     {
         Map<String, Long> completedTasks = new HashMap<String, Long>(connectionManagers.size());
         for (Map.Entry<InetAddress, OutboundTcpConnectionPool> entry : connectionManagers.entrySet())
-            completedTasks.put(entry.getKey().getHostAddress(), entry.getValue().smallMessages.getCompletedMesssages());
+            completedTasks.put(entry.getKey().getHostAddress(), entry.getValue().getSmallMessageCompletedMessages());
         return completedTasks;
     }
 
@@ -1149,7 +1161,7 @@ public final class MessagingService implements MessagingServiceMBean
     {
         Map<String, Long> droppedTasks = new HashMap<String, Long>(connectionManagers.size());
         for (Map.Entry<InetAddress, OutboundTcpConnectionPool> entry : connectionManagers.entrySet())
-            droppedTasks.put(entry.getKey().getHostAddress(), entry.getValue().smallMessages.getDroppedMessages());
+            droppedTasks.put(entry.getKey().getHostAddress(), entry.getValue().getSmallMessageDroppedMessages());
         return droppedTasks;
     }
 
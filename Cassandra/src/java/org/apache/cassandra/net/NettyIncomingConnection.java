@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.net;
+
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.DecoderException;
+import io.netty.handler.codec.compression.Lz4FrameDecoder;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.xxhash.XXHashFactory;
+
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.UnknownColumnFamilyException;
+
+/**
+ * The receiving end of a messaging connection served by the event loops of {@link NettyOutboundConnection} instead
+ * of a thread of its own like {@link IncomingTcpConnection}. The accept thread reads the header of the connection
+ * as usual and hands the socket over to Netty.
+ */
+public class NettyIncomingConnection implements Closeable
+{
+    private static final Logger logger = LoggerFactory.getLogger(NettyIncomingConnection.class);
+
+    private final Channel channel;
+
+    /**
+     * @return true if the Netty transport is enabled and can read the connection with the given socket and header,
+     * which is neither encrypted, as the socket would then have no channel, nor from a node older than 2.1
+     */
+    static boolean accepts(Socket socket, int version)
+    {
+        return DatabaseDescriptor.getInternodeMessagingTransport() == Config.InternodeMessagingTransport.netty
+               && socket.getChannel() != null
+               && version >= MessagingService.VERSION_21
+               && version <= MessagingService.current_version;
+    }
+
+    @SuppressWarnings("resource")
+    public NettyIncomingConnection(int version, boolean compressed, Socket socket, final Set<Closeable> group)
+    {
+        channel = new NioSocketChannel(socket.getChannel());
+        if (DatabaseDescriptor.getInternodeRecvBufferSize() != null)
+            channel.config().setOption(ChannelOption.SO_RCVBUF, DatabaseDescriptor.getInternodeRecvBufferSize());
+        channel.pipeline().addLast("handshake", new Handshake(version, compressed));
+        channel.closeFuture().addListener(new ChannelFutureListener()
+        {
+            public void operationComplete(ChannelFuture future)
+            {
+                group.remove(NettyIncomingConnection.this);
+            }
+        });
+        NettyOutboundConnection.eventLoopGroup().register(channel);
+    }
+
+    @Override
+    public void close()
+    {
+        if (logger.isTraceEnabled())
+            logger.trace("Closing channel {}", channel);
+        channel.close();
+    }
+
+    /**
+     * @return the number of bytes of the message at the start of the buffer, or -1 if its header is incomplete
+     */
+    @VisibleForTesting
+    static int frameLength(ByteBuf in)
+    {
+        int start = in.readerIndex();
+        int end = in.writerIndex();
+        // magic, id and timestamp
+        int index = start + 12;
+        // the sender address as its length followed by its bytes
+        if (index + 1 > end)
+            return -1;
+        index += 1 + in.getUnsignedByte(index);
+        // verb and parameter count
+        if (index + 8 > end)
+            return -1;
+        int parameterCount = in.getInt(index + 4);
+        index += 8;
+        for (int i = 0; i < parameterCount; i++)
+        {
+            // the key as modified UTF-8 prefixed with its length, then the value prefixed with its length
+            if (index + 2 > end)
+                return -1;
+            index += 2 + in.getUnsignedShort(index);
+            if (index + 4 > end)
+                return -1;
+            index += 4 + in.getInt(index);
+        }
+        // payload size
+        if (index + 4 > end)
+            return -1;
+        index += 4 + in.getInt(index);
+        return index - start;
+    }
+
+    /**
+     * Sends our version, then waits for the version and address of the peer before setting up decompression and
+     * handing over to {@link MessageDecoder}.
+     */
+    private static class Handshake extends ByteToMessageDecoder
+    {
+        private final int version;
+        private final boolean compressed;
+
+        Handshake(int version, boolean compressed)
+        {
+            this.version = version;
+            this.compressed = compressed;
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception
+        {
+            // if this version is < the MS version the other node is trying
+            // to connect with, the other node will disconnect
+            ByteBuf out = ctx.alloc().buffer(4);
+            out.writeInt(MessagingService.current_version);
+            ctx.writeAndFlush(out);
+            super.channelActive(ctx);
+        }
+
+        protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception
+        {
+            // the maximum version, then the address as its length followed by its bytes
+            if (in.readableBytes() < 5 || in.readableBytes() < 5 + in.getUnsignedByte(in.readerIndex() + 4))
+                return;
+
+            int maxVersion = in.readInt();
+            InetAddress from = CompactEndpointSerializationHelper.deserialize(new ByteBufInputStream(in));
+            // record the (true) version of the endpoint
+            MessagingService.instance().setVersion(from, maxVersion);
+            logger.trace("Set version for {} to {} (will use {})", from, maxVersion, MessagingService.instance().getVersion(from));
+
+            if (compressed)
+            {
+                logger.trace("Upgrading incoming connection to be compressed");
+                ctx.pipeline().addAfter("handshake", "decompressor",
+                                        new Lz4FrameDecoder(LZ4Factory.fastestInstance(),
+                                                            XXHashFactory.fastestInstance().newStreamingHash32(OutboundTcpConnection.LZ4_HASH_SEED).asChecksum()));
+            }
+            ctx.pipeline().addLast("messages", new MessageDecoder(version));
+            // what is left of the input is passed on
+            ctx.pipeline().remove(this);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause)
+        {
+            MessageDecoder.handleException(ctx, cause);
+        }
+    }
+
+    /**
+     * Waits for messages to be received in full, which their header tells the size of, and deserializes them.
+     */
+    private static class MessageDecoder extends ByteToMessageDecoder
+    {
+        private final int version;
+
+        MessageDecoder(int version)
+        {
+            this.version = version;
+        }
+
+        protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception
+        {
+            if (in.readableBytes() < 4)
+                return;
+            MessagingService.validateMagic(in.getInt(in.readerIndex()));
+
+            int frameLength = frameLength(in);
+            if (frameLength < 0 || in.readableBytes() < frameLength)
+                return;
+
+            DataInput input = new ByteBufInputStream(in.readSlice(frameLength));
+            input.readInt(); // the magic, validated above
+            IncomingTcpConnection.receiveMessage(input, version);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause)
+        {
+            handleException(ctx, cause);
+        }
+
+        static void handleException(ChannelHandlerContext ctx, Throwable cause)
+        {
+            Throwable t = cause instanceof DecoderException && cause.getCause() != null ? cause.getCause() : cause;
+            if (t instanceof UnknownColumnFamilyException)
+                logger.warn("UnknownColumnFamilyException reading from socket; closing", t);
+            else if (t instanceof IOException)
+                logger.trace("IOException reading from socket; closing", t);
+            else
+                logger.error("Unexpected exception reading from socket; closing", t);
+            ctx.close();
+        }
+    }
+}
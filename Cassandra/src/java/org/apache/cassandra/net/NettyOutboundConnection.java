@@ -0,0 +1,749 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.net;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Timer;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.compression.Lz4FrameEncoder;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.ScheduledFuture;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.xxhash.XXHashFactory;
+
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.io.util.DataOutputBuffer;
+import org.apache.cassandra.io.util.DataOutputBufferFixed;
+import org.apache.cassandra.metrics.DecayingEstimatedHistogramReservoir;
+import org.apache.cassandra.net.OutboundTcpConnection.QueuedMessage;
+import org.apache.cassandra.net.OutboundTcpConnection.RetriedQueuedMessage;
+import org.apache.cassandra.utils.CoalescingStrategies;
+import org.apache.cassandra.utils.CoalescingStrategies.CoalescingStrategy;
+import org.apache.cassandra.utils.CoalescingStrategies.Parker;
+import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.JVMStabilityInspector;
+import org.apache.cassandra.utils.NanoTimeToCurrentTimeMillis;
+import org.apache.cassandra.utils.concurrent.MpscBlockingQueue;
+
+import static org.apache.cassandra.net.OutboundTcpConnection.CLOSE_SENTINEL;
+import static org.apache.cassandra.net.OutboundTcpConnection.LZ4_HASH_SEED;
+import static org.apache.cassandra.net.OutboundTcpConnection.MAX_COALESCED_MESSAGES;
+import static org.apache.cassandra.net.OutboundTcpConnection.WAIT_FOR_VERSION_MAX_TIME;
+
+/**
+ * An {@link OutboundConnection} served by one of a few Netty event loops shared by all connections, rather than by
+ * a thread of its own. The event loop drains the backlog in batches picked by the coalescing strategy, serializes
+ * each message straight into a pooled direct buffer and writes it without flushing; the batch is flushed once
+ * written, or once the delay the strategy asked to wait for more messages has passed, so that the messages
+ * arriving meanwhile go out with it. The handshake and framing are those of {@link OutboundTcpConnection}, so
+ * either transport can talk to the other.
+ *
+ * Encryption is not supported, see {@link OutboundTcpConnectionPool}, nor is talking to nodes older than 2.1.
+ */
+public class NettyOutboundConnection implements OutboundConnection
+{
+    private static final Logger logger = LoggerFactory.getLogger(NettyOutboundConnection.class);
+
+    private static final int THREADS = Integer.getInteger(Config.PROPERTY_PREFIX + "internode_netty_threads",
+                                                          FBUtilities.getAvailableProcessors());
+
+    /**
+     * The event loops of both the outbound and inbound Netty connections, started by the first of them and shut down
+     * with the messaging service.
+     */
+    private static EventLoopGroup eventLoopGroup;
+
+    private final OutboundTcpConnectionPool poolReference;
+    private final String name;
+    private final EventLoop eventLoop;
+    private final FlushDelay flushDelay = new FlushDelay();
+    private final CoalescingStrategy cs;
+
+    // Only the event loop takes messages off the backlog, or the producers expiring them while it doesn't hold the
+    // consumer lock, so it is never empty when the coalescing strategy is asked for a batch, which would block
+    private final BlockingQueue<QueuedMessage> backlog = new MpscBlockingQueue<>();
+    private final Lock consumerLock = new ReentrantLock();
+    // set by closeSocket() to the sentinel it queued, until drain() reaches it
+    private volatile QueuedMessage discardUntil;
+    private final Timer drainLatency = new Timer(new DecayingEstimatedHistogramReservoir());
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    // only accessed by the event loop
+    private final List<QueuedMessage> drainedMessages = new ArrayList<>(MAX_COALESCED_MESSAGES);
+    private int drainedIndex;
+    private Channel channel;
+    private boolean connecting;
+    private long connectStart;
+    private ScheduledFuture<?> scheduledFlush;
+
+    private volatile boolean isStopped = false;
+    private volatile int targetVersion = MessagingService.current_version;
+    private volatile long completed;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile int currentMsgBufferCount = 0;
+
+    public NettyOutboundConnection(OutboundTcpConnectionPool pool, String taskSuffix)
+    {
+        this.poolReference = pool;
+        this.name = "MessagingService-Outgoing-" + pool.endPoint() + "-" + taskSuffix;
+        this.eventLoop = eventLoopGroup().next();
+        this.cs = CoalescingStrategies.newCoalescingStrategy(DatabaseDescriptor.getOtcCoalescingStrategy(),
+                                                             DatabaseDescriptor.getOtcCoalescingWindow(),
+                                                             flushDelay,
+                                                             logger,
+                                                             pool.endPoint().getHostAddress());
+    }
+
+    static synchronized EventLoopGroup eventLoopGroup()
+    {
+        if (eventLoopGroup == null)
+            eventLoopGroup = new NioEventLoopGroup(THREADS, new NamedThreadFactory("MessagingService-Netty"));
+        return eventLoopGroup;
+    }
+
+    /**
+     * Shuts the event loops down once the connections they serve are closed. The tasks already scheduled, such as
+     * the draining of closed connections, still run.
+     */
+    static synchronized void shutdownEventLoops()
+    {
+        if (eventLoopGroup == null)
+            return;
+
+        eventLoopGroup.shutdownGracefully();
+        eventLoopGroup = null;
+    }
+
+    public void start()
+    {
+        // connects on the first message
+    }
+
+    public void enqueue(MessageOut<?> message, int id)
+    {
+        OutboundTcpConnection.expireMessages(backlog, consumerLock, dropped);
+        backlog.offer(new QueuedMessage(message, id));
+        scheduleDrain();
+    }
+
+    public void closeSocket(boolean destroyThread)
+    {
+        isStopped = destroyThread;
+        // only the event loop can take messages off the backlog, so it drops those queued before the sentinel
+        QueuedMessage sentinel = new QueuedMessage(CLOSE_SENTINEL, -1);
+        discardUntil = sentinel;
+        backlog.offer(sentinel);
+        scheduleDrain();
+    }
+
+    public void softCloseSocket()
+    {
+        enqueue(CLOSE_SENTINEL, -1);
+    }
+
+    public int getTargetVersion()
+    {
+        return targetVersion;
+    }
+
+    public int getPendingMessages()
+    {
+        return backlog.size() + currentMsgBufferCount;
+    }
+
+    public long getCompletedMesssages()
+    {
+        return completed;
+    }
+
+    public long getDroppedMessages()
+    {
+        return dropped.get();
+    }
+
+    public Timer getDrainLatency()
+    {
+        return drainLatency;
+    }
+
+    private void scheduleDrain()
+    {
+        if (!drainScheduled.compareAndSet(false, true))
+            return;
+
+        try
+        {
+            eventLoop.execute(this::drain);
+        }
+        catch (RejectedExecutionException e)
+        {
+            // the messaging service is shut down, and the connection with it, as OutboundTcpConnection once its
+            // thread has stopped
+            logger.trace("Not draining {} after the event loops were shut down", this);
+        }
+    }
+
+    /**
+     * Writes messages until the backlog is empty, the channel stops being writable or a connection has to be opened
+     * first. Everything else calls scheduleDrain() to resume it, so that it is never reentered from a listener or
+     * handler it triggers.
+     */
+    private void drain()
+    {
+        drainScheduled.set(false);
+        if (isStopped)
+        {
+            disconnect();
+            clearBacklog();
+            return;
+        }
+
+        while (true)
+        {
+            if (drainedIndex == drainedMessages.size())
+            {
+                drainedMessages.clear();
+                drainedIndex = 0;
+                if (!takeBatch())
+                {
+                    currentMsgBufferCount = 0;
+                    return;
+                }
+            }
+
+            long delay = flushDelay.take();
+            for (; drainedIndex < drainedMessages.size(); drainedIndex++)
+            {
+                currentMsgBufferCount = drainedMessages.size() - drainedIndex;
+                QueuedMessage qm = drainedMessages.get(drainedIndex);
+                QueuedMessage discardUntil = this.discardUntil;
+                if (discardUntil != null)
+                {
+                    if (qm != discardUntil)
+                    {
+                        qm.release();
+                        continue;
+                    }
+                    this.discardUntil = null;
+                }
+
+                if (qm.message == CLOSE_SENTINEL)
+                {
+                    disconnect();
+                    if (isStopped)
+                    {
+                        drainedIndex++;
+                        clearBacklog();
+                        return;
+                    }
+                    continue;
+                }
+
+                if (qm.isTimedOut())
+                {
+                    dropped.incrementAndGet();
+                    qm.release();
+                    continue;
+                }
+
+                if (channel == null)
+                {
+                    // resumes draining once connected, or drops the backlog if connecting fails
+                    connect();
+                    return;
+                }
+
+                if (!channel.isWritable())
+                {
+                    // the written messages have to go out for the channel to become writable again
+                    flush();
+                    return;
+                }
+
+                write(qm);
+            }
+
+            if (delay > 0)
+                scheduleFlush(delay);
+            else
+                flush();
+        }
+    }
+
+    /**
+     * Takes the next batch off the backlog into drainedMessages, holding the consumer lock so that no producer expires
+     * the messages in between the backlog being found not empty and the batch being taken.
+     *
+     * @return false if the backlog is empty
+     */
+    private boolean takeBatch()
+    {
+        consumerLock.lock();
+        try
+        {
+            if (backlog.isEmpty())
+                return false;
+            cs.coalesce(backlog, drainedMessages, MAX_COALESCED_MESSAGES);
+            return true;
+        }
+        catch (InterruptedException e)
+        {
+            throw new AssertionError(e);
+        }
+        finally
+        {
+            consumerLock.unlock();
+        }
+    }
+
+    private void write(final QueuedMessage qm)
+    {
+        ByteBuf buffer;
+        try
+        {
+            OutboundTcpConnection.traceSend(qm.message, poolReference.endPoint());
+            buffer = serialize(qm);
+            drainLatency.update(System.nanoTime() - qm.timestampNanos, TimeUnit.NANOSECONDS);
+        }
+        catch (Throwable e)
+        {
+            // nothing was written, so the connection can carry on
+            JVMStabilityInspector.inspectThrowable(e);
+            logger.error("error writing to {}", poolReference.endPoint(), e);
+            qm.release();
+            return;
+        }
+
+        channel.write(buffer).addListener(new ChannelFutureListener()
+        {
+            public void operationComplete(ChannelFuture future)
+            {
+                if (future.isSuccess())
+                {
+                    completed++;
+                    qm.release();
+                    return;
+                }
+
+                if (logger.isTraceEnabled())
+                    logger.trace("error writing to {}", poolReference.endPoint(), future.cause());
+
+                // if the message was important, such as a repair acknowledgement, put it back on the queue
+                // to retry after re-connecting.  See CASSANDRA-5393
+                if (qm.shouldRetry())
+                {
+                    backlog.offer(new RetriedQueuedMessage(qm));
+                    scheduleDrain();
+                }
+                else
+                {
+                    qm.release();
+                }
+            }
+        });
+    }
+
+    private ByteBuf serialize(QueuedMessage qm) throws IOException
+    {
+        int version = targetVersion;
+        // magic, id and timestamp
+        int size = 12 + qm.message.serializedSize(version);
+        ByteBuf buffer = channel.alloc().directBuffer(size, size);
+        boolean serialized = false;
+        try
+        {
+            DataOutputBuffer out = new DataOutputBufferFixed(buffer.nioBuffer(0, size));
+            out.writeInt(MessagingService.PROTOCOL_MAGIC);
+            out.writeInt(qm.id);
+            // int cast cuts off the high-order half of the timestamp, which we can assume remains
+            // the same between now and when the recipient reconstructs it.
+            out.writeInt((int) NanoTimeToCurrentTimeMillis.convert(qm.timestampNanos));
+            qm.message.serialize(out, version);
+            assert out.getLength() == size : String.format("%s message serialized to %d bytes instead of %d",
+                                                           qm.message.verb, out.getLength(), size);
+            buffer.writerIndex(size);
+            serialized = true;
+            return buffer;
+        }
+        finally
+        {
+            if (!serialized)
+                buffer.release();
+        }
+    }
+
+    private void scheduleFlush(long delayNanos)
+    {
+        if (scheduledFlush == null)
+            scheduledFlush = eventLoop.schedule(this::flush, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void flush()
+    {
+        if (scheduledFlush != null)
+        {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        if (channel != null)
+            channel.flush();
+    }
+
+    private void disconnect()
+    {
+        if (channel != null)
+        {
+            if (scheduledFlush != null)
+            {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+            // close once what was written is sent
+            channel.writeAndFlush(Unpooled.EMPTY_BUFFER).addListener(ChannelFutureListener.CLOSE);
+            if (logger.isTraceEnabled())
+                logger.trace("Socket to {} closed", poolReference.endPoint());
+            channel = null;
+        }
+    }
+
+    private void clearBacklog()
+    {
+        // clear out the queue, else gossip messages back up.
+        for (int i = drainedIndex; i < drainedMessages.size(); i++)
+            drainedMessages.get(i).release();
+        drainedMessages.clear();
+        drainedIndex = 0;
+        consumerLock.lock();
+        try
+        {
+            QueuedMessage qm;
+            while ((qm = backlog.poll()) != null)
+                qm.release();
+        }
+        finally
+        {
+            consumerLock.unlock();
+        }
+        discardUntil = null;
+        currentMsgBufferCount = 0;
+    }
+
+    private void connect()
+    {
+        if (connecting)
+            return;
+
+        if (logger.isTraceEnabled())
+            logger.trace("attempting to connect to {}", poolReference.endPoint());
+        connecting = true;
+        connectStart = System.nanoTime();
+        attemptConnect();
+    }
+
+    private void attemptConnect()
+    {
+        if (isStopped)
+        {
+            connecting = false;
+            return;
+        }
+
+        InetAddress endpoint = poolReference.endPoint();
+        targetVersion = MessagingService.instance().getVersion(endpoint);
+        Bootstrap bootstrap = new Bootstrap().group(eventLoop)
+                                             .channel(NioSocketChannel.class)
+                                             .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) DatabaseDescriptor.getRpcTimeout())
+                                             .option(ChannelOption.SO_KEEPALIVE, true)
+                                             .option(ChannelOption.TCP_NODELAY, OutboundTcpConnection.isLocalDC(endpoint)
+                                                                                ? OutboundTcpConnection.INTRADC_TCP_NODELAY
+                                                                                : DatabaseDescriptor.getInterDCTcpNoDelay())
+                                             .handler(new Handshake(targetVersion, OutboundTcpConnection.shouldCompressConnection(endpoint)));
+        if (DatabaseDescriptor.getInternodeSendBufferSize() != null)
+            bootstrap.option(ChannelOption.SO_SNDBUF, DatabaseDescriptor.getInternodeSendBufferSize());
+
+        InetSocketAddress remote = new InetSocketAddress(endpoint, DatabaseDescriptor.getStoragePort());
+        ChannelFuture future = DatabaseDescriptor.getOutboundBindAny()
+                             ? bootstrap.connect(remote)
+                             : bootstrap.connect(remote, new InetSocketAddress(FBUtilities.getLocalAddress(), 0));
+        future.addListener(new ChannelFutureListener()
+        {
+            public void operationComplete(ChannelFuture future)
+            {
+                if (!future.isSuccess())
+                    retryConnect(future.cause());
+            }
+        });
+    }
+
+    private void retryConnect(Throwable cause)
+    {
+        if (logger.isTraceEnabled())
+            logger.trace("unable to connect to " + poolReference.endPoint(), cause);
+
+        long timeout = TimeUnit.MILLISECONDS.toNanos(DatabaseDescriptor.getRpcTimeout());
+        if (!isStopped && System.nanoTime() - connectStart < timeout)
+            eventLoop.schedule(this::attemptConnect, OutboundTcpConnection.OPEN_RETRY_DELAY, TimeUnit.MILLISECONDS);
+        else
+            connectFailed();
+    }
+
+    private void connectFailed()
+    {
+        connecting = false;
+        clearBacklog();
+    }
+
+    private void connected(Channel channel)
+    {
+        logger.trace("Successfully connected to {}", poolReference.endPoint());
+        connecting = false;
+        this.channel = channel;
+        scheduleDrain();
+    }
+
+    /**
+     * Sends the header of the connection and waits for the version of the peer in reply, after which it answers with
+     * ours and our address, sets up compression and hands over to {@link ConnectedHandler}.
+     */
+    private class Handshake extends ByteToMessageDecoder
+    {
+        private final int version;
+        private final boolean compress;
+        private ScheduledFuture<?> timeout;
+        private boolean done;
+
+        Handshake(int version, boolean compress)
+        {
+            this.version = version;
+            this.compress = compress;
+        }
+
+        @Override
+        public void channelActive(final ChannelHandlerContext ctx) throws Exception
+        {
+            ByteBuf header = ctx.alloc().buffer(8);
+            ByteBufOutputStream out = new ByteBufOutputStream(header);
+            out.writeInt(MessagingService.PROTOCOL_MAGIC);
+            OutboundTcpConnection.writeHeader(out, version, compress);
+            ctx.writeAndFlush(header);
+
+            logger.info("Handshaking version with {}", poolReference.endPoint());
+            timeout = ctx.executor().schedule(new Runnable()
+            {
+                public void run()
+                {
+                    logger.info("Cannot handshake version with {}", poolReference.endPoint());
+                    ctx.close();
+                }
+            }, WAIT_FOR_VERSION_MAX_TIME, TimeUnit.MILLISECONDS);
+            super.channelActive(ctx);
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception
+        {
+            // the peer went away, or the handshake timed out
+            if (finish())
+                retryConnect(new IOException("Connection closed during handshake"));
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause)
+        {
+            if (logger.isTraceEnabled())
+                logger.trace("error handshaking with {}", poolReference.endPoint(), cause);
+            ctx.close();
+        }
+
+        protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception
+        {
+            if (in.readableBytes() < 4 || !finish())
+                return;
+
+            InetAddress endpoint = poolReference.endPoint();
+            int maxTargetVersion = in.readInt();
+            MessagingService.instance().setVersion(endpoint, maxTargetVersion);
+
+            if (version > maxTargetVersion)
+            {
+                logger.trace("Target max version is {}; will reconnect with that version", maxTargetVersion);
+                try
+                {
+                    if (DatabaseDescriptor.getSeeds().contains(endpoint))
+                        logger.warn("Seed gossip version is {}; will not connect with that version", maxTargetVersion);
+                }
+                catch (Throwable e)
+                {
+                    // If invalid yaml has been added to the config since startup, getSeeds() will throw an AssertionError
+                    // Additionally, third party seed providers may throw exceptions if network is flakey
+                    // Regardless of what's thrown, we must catch it, disconnect, and try again
+                    JVMStabilityInspector.inspectThrowable(e);
+                    logger.warn("Configuration error prevented outbound connection: {}", e.getLocalizedMessage());
+                }
+                ctx.close();
+                connectFailed();
+                return;
+            }
+
+            if (version < MessagingService.VERSION_21)
+            {
+                logger.warn("{} uses messaging version {}, which the Netty internode transport does not support; dropping messages to it",
+                            endpoint, version);
+                ctx.close();
+                connectFailed();
+                return;
+            }
+
+            if (version < maxTargetVersion && version < MessagingService.current_version)
+            {
+                logger.trace("Detected higher max version {} (using {}); will reconnect when queued messages are done",
+                             maxTargetVersion, version);
+                softCloseSocket();
+            }
+
+            ByteBuf reply = ctx.alloc().buffer();
+            ByteBufOutputStream replyOut = new ByteBufOutputStream(reply);
+            replyOut.writeInt(MessagingService.current_version);
+            CompactEndpointSerializationHelper.serialize(FBUtilities.getBroadcastAddress(), replyOut);
+            ctx.writeAndFlush(reply);
+
+            if (compress)
+            {
+                logger.trace("Upgrading OutputStream to be compressed");
+                ctx.pipeline().addLast(new Lz4FrameEncoder(LZ4Factory.fastestInstance(),
+                                                           false,
+                                                           1 << 14, // 16k block size, as OutboundTcpConnection
+                                                           XXHashFactory.fastestInstance().newStreamingHash32(LZ4_HASH_SEED).asChecksum()));
+            }
+            ctx.pipeline().replace(this, "connected", new ConnectedHandler());
+            connected(ctx.channel());
+        }
+
+        /**
+         * @return true the first time, when the handshake was still going on
+         */
+        private boolean finish()
+        {
+            if (done)
+                return false;
+            done = true;
+            if (timeout != null)
+                timeout.cancel(false);
+            return true;
+        }
+    }
+
+    /**
+     * Resumes draining when the channel becomes writable again, or reconnects when it closes.
+     */
+    private class ConnectedHandler extends ChannelInboundHandlerAdapter
+    {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg)
+        {
+            // nothing is expected back once connected
+            ReferenceCountUtil.release(msg);
+        }
+
+        @Override
+        public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception
+        {
+            if (ctx.channel().isWritable())
+                scheduleDrain();
+            super.channelWritabilityChanged(ctx);
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception
+        {
+            if (channel == ctx.channel())
+            {
+                disconnect();
+                scheduleDrain();
+            }
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause)
+        {
+            if (logger.isTraceEnabled())
+                logger.trace("error writing to {}", poolReference.endPoint(), cause);
+            ctx.close();
+        }
+    }
+
+    /**
+     * Records how long the coalescing strategy would park to wait for more messages, which the flush of the batch is
+     * delayed by instead.
+     */
+    private static class FlushDelay implements Parker
+    {
+        private long nanos;
+
+        public void park(long nanos)
+        {
+            this.nanos = nanos;
+        }
+
+        long take()
+        {
+            long taken = nanos;
+            nanos = 0;
+            return taken;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return name;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.net;
+
+import com.codahale.metrics.Timer;
+
+/**
+ * A connection to a peer that messages of one kind (small, large or gossip) are queued on, see
+ * {@link OutboundTcpConnectionPool}. Implementations connect lazily and reconnect as needed.
+ */
+public interface OutboundConnection
+{
+    public void start();
+
+    public void enqueue(MessageOut<?> message, int id);
+
+    /**
+     * Drops the queued messages and closes the connection. Messages queued afterwards open a new connection, unless
+     * {@code destroyThread} is true in which case the connection is closed for good.
+     */
+    public void closeSocket(boolean destroyThread);
+
+    /**
+     * Closes the connection once the messages queued so far are sent, so that the next ones reconnect.
+     */
+    public void softCloseSocket();
+
+    public int getTargetVersion();
+
+    public int getPendingMessages();
+
+    public long getCompletedMesssages();
+
+    public long getDroppedMessages();
+
+    /**
+     * @return the time messages spent in the backlog before being written
+     */
+    public Timer getDrainLatency();
+}
@@ -30,10 +30,11 @@ import java.nio.channels.WritableByteChannel;
 import java.util.*;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.zip.Checksum;
 
 import javax.net.ssl.SSLHandshakeException;
@@ -48,6 +49,7 @@ import net.jpountz.lz4.LZ4Factory;
 import net.jpountz.xxhash.XXHashFactory;
 
 import org.apache.cassandra.io.util.DataOutputStreamPlus;
+import org.apache.cassandra.metrics.DecayingEstimatedHistogramReservoir;
 import org.apache.cassandra.io.util.BufferedDataOutputStreamPlus;
 import org.apache.cassandra.io.util.WrappedDataOutputStreamPlus;
 import org.apache.cassandra.service.StorageService;
@@ -61,14 +63,16 @@ import org.apache.cassandra.utils.FBUtilities;
 import org.apache.cassandra.utils.JVMStabilityInspector;
 import org.apache.cassandra.utils.NanoTimeToCurrentTimeMillis;
 import org.apache.cassandra.utils.UUIDGen;
+import org.apache.cassandra.utils.concurrent.MpscBlockingQueue;
 import org.xerial.snappy.SnappyOutputStream;
 import org.apache.cassandra.config.Config;
 import org.apache.cassandra.config.DatabaseDescriptor;
 
+import com.codahale.metrics.Timer;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.Uninterruptibles;
 
-public class OutboundTcpConnection extends Thread
+public class OutboundTcpConnection extends Thread implements OutboundConnection
 {
     private static final Logger logger = LoggerFactory.getLogger(OutboundTcpConnection.class);
 
@@ -78,7 +82,7 @@ public class OutboundTcpConnection extends Thread
      * Enabled/disable TCP_NODELAY for intradc connections. Defaults to enabled.
      */
     private static final String INTRADC_TCP_NODELAY_PROPERTY = PREFIX + "otc_intradc_tcp_nodelay";
-    private static final boolean INTRADC_TCP_NODELAY = Boolean.valueOf(System.getProperty(INTRADC_TCP_NODELAY_PROPERTY, "true"));
+    static final boolean INTRADC_TCP_NODELAY = Boolean.valueOf(System.getProperty(INTRADC_TCP_NODELAY_PROPERTY, "true"));
     private static final boolean ENABLE_SSL_NTE = Boolean.valueOf(System.getProperty("palantir_cassandra.enable_ssl_nte", "true"));;
 
     /*
@@ -123,16 +127,23 @@ public class OutboundTcpConnection extends Thread
                     "Value provided for coalescing window must be greather than 0: " + coalescingWindow);
     }
 
-    private static final MessageOut CLOSE_SENTINEL = new MessageOut(MessagingService.Verb.INTERNAL_RESPONSE);
+    static final MessageOut CLOSE_SENTINEL = new MessageOut(MessagingService.Verb.INTERNAL_RESPONSE);
     private volatile boolean isStopped = false;
 
-    private static final int OPEN_RETRY_DELAY = 100; // ms between retries
+    static final int OPEN_RETRY_DELAY = 100; // ms between retries
     public static final int WAIT_FOR_VERSION_MAX_TIME = 5000;
     private static final int NO_VERSION = Integer.MIN_VALUE;
 
     static final int LZ4_HASH_SEED = 0x9747b28c;
 
-    private final BlockingQueue<QueuedMessage> backlog = new LinkedBlockingQueue<>();
+    static final int MAX_BACKLOG_BEFORE_EXPIRY = 1024;
+
+    private final BlockingQueue<QueuedMessage> backlog = new MpscBlockingQueue<>();
+    // held by run() while it takes messages off the backlog, and by the producers expiring them
+    private final Lock consumerLock = new ReentrantLock();
+    // set by closeSocket() to the sentinel it queued, until run() reaches it
+    private volatile QueuedMessage discardUntil;
+    private final Timer drainLatency = new Timer(new DecayingEstimatedHistogramReservoir());
 
     private final OutboundTcpConnectionPool poolReference;
 
@@ -151,7 +162,7 @@ public class OutboundTcpConnection extends Thread
         cs = newCoalescingStrategy(pool.endPoint().getHostAddress());
     }
 
-    private static boolean isLocalDC(InetAddress targetHost)
+    static boolean isLocalDC(InetAddress targetHost)
     {
         String remoteDC = DatabaseDescriptor.getEndpointSnitch().getDatacenter(targetHost);
         String localDC = DatabaseDescriptor.getEndpointSnitch().getDatacenter(FBUtilities.getBroadcastAddress());
@@ -160,29 +171,49 @@ public class OutboundTcpConnection extends Thread
 
     public void enqueue(MessageOut<?> message, int id)
     {
-        if (backlog.size() > 1024)
-            expireMessages();
+        expireMessages(backlog, consumerLock, dropped);
+        backlog.offer(new QueuedMessage(message, id));
+    }
+
+    /**
+     * Only the consumer may take messages off the backlog, so once the backlog is long, producers expire the timed
+     * out messages at its head while holding the consumer's lock, unless the consumer holds it to take a batch.
+     * A slow or hung socket thus bounds the backlog to about what arrives within a timeout.
+     */
+    static void expireMessages(BlockingQueue<QueuedMessage> backlog, Lock consumerLock, AtomicLong dropped)
+    {
+        if (backlog.size() <= MAX_BACKLOG_BEFORE_EXPIRY || !consumerLock.tryLock())
+            return;
+
         try
         {
-            backlog.put(new QueuedMessage(message, id));
+            QueuedMessage qm;
+            // non-droppable messages, such as the close sentinel, never time out
+            while ((qm = backlog.peek()) != null && qm.isTimedOut())
+            {
+                backlog.poll();
+                dropped.incrementAndGet();
+                qm.release();
+            }
         }
-        catch (InterruptedException e)
+        finally
         {
-            throw new AssertionError(e);
+            consumerLock.unlock();
         }
     }
 
-    void closeSocket(boolean destroyThread)
+    public void closeSocket(boolean destroyThread)
     {
         isStopped = destroyThread; // Exit loop to stop the thread
-        backlog.clear();
+        // only run() can take messages off the backlog, so it drops those queued before the sentinel.
         // in the "destroyThread = true" case, enqueuing the sentinel is important mostly to unblock the backlog.take()
-        // (via the CoalescingStrategy) in case there's a data race between this method enqueuing the sentinel
-        // and run() clearing the backlog on connection failure.
-        enqueue(CLOSE_SENTINEL, -1);
+        // (via the CoalescingStrategy).
+        QueuedMessage sentinel = new QueuedMessage(CLOSE_SENTINEL, -1);
+        discardUntil = sentinel;
+        backlog.offer(sentinel);
     }
 
-    void softCloseSocket()
+    public void softCloseSocket()
     {
         enqueue(CLOSE_SENTINEL, -1);
     }
@@ -201,6 +232,7 @@ public class OutboundTcpConnection extends Thread
         outer:
         while (!isStopped)
         {
+            consumerLock.lock();
             try
             {
                 cs.coalesce(backlog, drainedMessages, drainedMessageSize);
@@ -209,6 +241,10 @@ public class OutboundTcpConnection extends Thread
             {
                 throw new AssertionError(e);
             }
+            finally
+            {
+                consumerLock.unlock();
+            }
 
             currentMsgBufferCount = drainedMessages.size();
 
@@ -220,25 +256,40 @@ public class OutboundTcpConnection extends Thread
             {
                 try
                 {
+                    QueuedMessage discardUntil = this.discardUntil;
+                    if (discardUntil != null)
+                    {
+                        if (qm != discardUntil)
+                        {
+                            qm.release();
+                            continue;
+                        }
+                        this.discardUntil = null;
+                    }
+
                     MessageOut<?> m = qm.message;
                     if (m == CLOSE_SENTINEL)
                     {
                         disconnect();
                         if (isStopped)
+                        {
+                            drainedMessages.subList(0, drainedMessages.indexOf(qm) + 1).clear();
                             break outer;
+                        }
                         continue;
                     }
 
                     if (qm.isTimedOut())
+                    {
                         dropped.incrementAndGet();
+                        qm.release();
+                    }
                     else if (socket != null || connect())
                         writeConnected(qm, count == 1 && backlog.isEmpty());
                     else
                     {
                         // clear out the queue, else gossip messages back up.
-                        drainedMessages.clear();
-                        backlog.clear();
-                        currentMsgBufferCount = 0;
+                        clearBacklog(drainedMessages.subList(drainedMessages.indexOf(qm), drainedMessages.size()));
                         break inner;
                     }
                 }
@@ -253,6 +304,28 @@ public class OutboundTcpConnection extends Thread
             }
             drainedMessages.clear();
         }
+        // the rest of the batch and backlog will never be sent
+        clearBacklog(drainedMessages);
+    }
+
+    private void clearBacklog(List<QueuedMessage> drained)
+    {
+        for (QueuedMessage qm : drained)
+            qm.release();
+        drained.clear();
+        consumerLock.lock();
+        try
+        {
+            QueuedMessage qm;
+            while ((qm = backlog.poll()) != null)
+                qm.release();
+        }
+        finally
+        {
+            consumerLock.unlock();
+        }
+        discardUntil = null;
+        currentMsgBufferCount = 0;
     }
 
     public int getPendingMessages()
@@ -270,42 +343,59 @@ public class OutboundTcpConnection extends Thread
         return dropped.get();
     }
 
+    public Timer getDrainLatency()
+    {
+        return drainLatency;
+    }
+
     private boolean shouldCompressConnection()
+    {
+        return shouldCompressConnection(poolReference.endPoint());
+    }
+
+    static boolean shouldCompressConnection(InetAddress endpoint)
     {
         // assumes version >= 1.2
         return DatabaseDescriptor.internodeCompression() == Config.InternodeCompression.all
-               || (DatabaseDescriptor.internodeCompression() == Config.InternodeCompression.dc && !isLocalDC(poolReference.endPoint()));
+               || (DatabaseDescriptor.internodeCompression() == Config.InternodeCompression.dc && !isLocalDC(endpoint));
     }
 
-    private void writeConnected(QueuedMessage qm, boolean flush)
+    static void traceSend(MessageOut<?> message, InetAddress endpoint)
     {
-        try
+        byte[] sessionBytes = message.parameters.get(Tracing.TRACE_HEADER);
+        if (sessionBytes != null)
         {
-            byte[] sessionBytes = qm.message.parameters.get(Tracing.TRACE_HEADER);
-            if (sessionBytes != null)
+            UUID sessionId = UUIDGen.getUUID(ByteBuffer.wrap(sessionBytes));
+            TraceState state = Tracing.instance.get(sessionId);
+            String traceMessage = String.format("Sending %s message to %s", message.verb, endpoint);
+            // session may have already finished; see CASSANDRA-5668
+            if (state == null)
             {
-                UUID sessionId = UUIDGen.getUUID(ByteBuffer.wrap(sessionBytes));
-                TraceState state = Tracing.instance.get(sessionId);
-                String message = String.format("Sending %s message to %s", qm.message.verb, poolReference.endPoint());
-                // session may have already finished; see CASSANDRA-5668
-                if (state == null)
-                {
-                    byte[] traceTypeBytes = qm.message.parameters.get(Tracing.TRACE_TYPE);
-                    Tracing.TraceType traceType = traceTypeBytes == null ? Tracing.TraceType.QUERY : Tracing.TraceType.deserialize(traceTypeBytes[0]);
-                    TraceState.mutateWithTracing(ByteBuffer.wrap(sessionBytes), message, -1, traceType.getTTL());
-                }
-                else
-                {
-                    state.trace(message);
-                    if (qm.message.verb == MessagingService.Verb.REQUEST_RESPONSE)
-                        Tracing.instance.doneWithNonLocalSession(state);
-                }
+                byte[] traceTypeBytes = message.parameters.get(Tracing.TRACE_TYPE);
+                Tracing.TraceType traceType = traceTypeBytes == null ? Tracing.TraceType.QUERY : Tracing.TraceType.deserialize(traceTypeBytes[0]);
+                TraceState.mutateWithTracing(ByteBuffer.wrap(sessionBytes), traceMessage, -1, traceType.getTTL());
+            }
+            else
+            {
+                state.trace(traceMessage);
+                if (message.verb == MessagingService.Verb.REQUEST_RESPONSE)
+                    Tracing.instance.doneWithNonLocalSession(state);
             }
+        }
+    }
+
+    private void writeConnected(QueuedMessage qm, boolean flush)
+    {
+        try
+        {
+            traceSend(qm.message, poolReference.endPoint());
 
             long timestampMillis = NanoTimeToCurrentTimeMillis.convert(qm.timestampNanos);
             writeInternal(qm.message, qm.id, timestampMillis);
+            drainLatency.update(System.nanoTime() - qm.timestampNanos, TimeUnit.NANOSECONDS);
 
             completed++;
+            qm.release();
             if (flush)
                 out.flush();
         }
@@ -321,21 +411,15 @@ public class OutboundTcpConnection extends Thread
                 // if the message was important, such as a repair acknowledgement, put it back on the queue
                 // to retry after re-connecting.  See CASSANDRA-5393
                 if (qm.shouldRetry())
-                {
-                    try
-                    {
-                        backlog.put(new RetriedQueuedMessage(qm));
-                    }
-                    catch (InterruptedException e1)
-                    {
-                        throw new AssertionError(e1);
-                    }
-                }
+                    backlog.offer(new RetriedQueuedMessage(qm));
+                else
+                    qm.release();
             }
             else
             {
                 // Non IO exceptions are likely a programming error so let's not silence them
                 logger.error("error writing to {}", poolReference.endPoint(), e);
+                qm.release();
             }
         }
     }
@@ -355,7 +439,7 @@ public class OutboundTcpConnection extends Thread
         message.serialize(out, targetVersion);
     }
 
-    private static void writeHeader(DataOutput out, int version, boolean compressionEnabled) throws IOException
+    static void writeHeader(DataOutput out, int version, boolean compressionEnabled) throws IOException
     {
         // 2 bits: unused.  used to be "serializer type," which was always Binary
         // 1 bit: compression
@@ -573,23 +657,8 @@ public class OutboundTcpConnection extends Thread
         return version.get();
     }
 
-    private void expireMessages()
-    {
-        Iterator<QueuedMessage> iter = backlog.iterator();
-        while (iter.hasNext())
-        {
-            QueuedMessage qm = iter.next();
-            if (!qm.droppable)
-                continue;
-            if (!qm.isTimedOut())
-                return;
-            iter.remove();
-            dropped.incrementAndGet();
-        }
-    }
-
     /** messages that have not been retried yet */
-    private static class QueuedMessage implements Coalescable
+    static class QueuedMessage implements Coalescable
     {
         final MessageOut<?> message;
         final int id;
@@ -615,13 +684,22 @@ public class OutboundTcpConnection extends Thread
             return !droppable;
         }
 
+        /**
+         * Frees what the payload holds once the message won't be written again, see {@link IReleasablePayload}
+         */
+        void release()
+        {
+            if (message.payload instanceof IReleasablePayload)
+                ((IReleasablePayload) message.payload).release();
+        }
+
         public long timestampNanos()
         {
             return timestampNanos;
         }
     }
 
-    private static class RetriedQueuedMessage extends QueuedMessage
+    static class RetriedQueuedMessage extends QueuedMessage
     {
         RetriedQueuedMessage(QueuedMessage msg)
         {
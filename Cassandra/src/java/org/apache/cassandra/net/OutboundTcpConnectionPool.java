@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -28,6 +29,8 @@ import java.util.concurrent.TimeUnit;
 import org.apache.cassandra.concurrent.Stage;
 import org.apache.cassandra.config.Config;
 import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.IMutation;
+import org.apache.cassandra.db.ReadCommand;
 import org.apache.cassandra.db.SystemKeyspace;
 import org.apache.cassandra.locator.IEndpointSnitch;
 import org.apache.cassandra.metrics.ConnectionMetrics;
@@ -42,9 +45,13 @@ public class OutboundTcpConnectionPool
     // pointer for the real Address.
     private final InetAddress id;
     private final CountDownLatch started;
-    public final OutboundTcpConnection smallMessages;
-    public final OutboundTcpConnection largeMessages;
-    public final OutboundTcpConnection gossipMessages;
+    /**
+     * The connections small messages are striped over, see {@link #getConnection(MessageOut, int)}
+     */
+    public final OutboundConnection[] smallMessages;
+    public final OutboundConnection largeMessages;
+    public final OutboundConnection gossipMessages;
+    private final OutboundConnection[] connections;
 
     // pointer to the reset Address.
     private InetAddress resetEndpoint;
@@ -56,16 +63,32 @@ public class OutboundTcpConnectionPool
         resetEndpoint = SystemKeyspace.getPreferredIP(remoteEp);
         started = new CountDownLatch(1);
 
-        smallMessages = new OutboundTcpConnection(this, "Small");
-        largeMessages = new OutboundTcpConnection(this, "Large");
-        gossipMessages = new OutboundTcpConnection(this, "Gossip");
+        smallMessages = new OutboundConnection[DatabaseDescriptor.getOtcSmallMessageConnections()];
+        for (int i = 0; i < smallMessages.length; i++)
+            smallMessages[i] = newConnection(smallMessages.length == 1 ? "Small" : "Small" + i);
+        largeMessages = newConnection("Large");
+        gossipMessages = newConnection("Gossip");
+
+        connections = new OutboundConnection[smallMessages.length + 2];
+        System.arraycopy(smallMessages, 0, connections, 0, smallMessages.length);
+        connections[smallMessages.length] = largeMessages;
+        connections[smallMessages.length + 1] = gossipMessages;
+    }
+
+    private OutboundConnection newConnection(String taskSuffix)
+    {
+        // the Netty transport does not support encryption, which stays on the blocking one
+        if (DatabaseDescriptor.getInternodeMessagingTransport() == Config.InternodeMessagingTransport.netty
+            && !isEncryptedChannel(id))
+            return new NettyOutboundConnection(this, taskSuffix);
+        return new OutboundTcpConnection(this, taskSuffix);
     }
 
     /**
      * returns the appropriate connection based on message type.
      * returns null if a connection could not be established.
      */
-    OutboundTcpConnection getConnection(MessageOut msg)
+    OutboundConnection getConnection(MessageOut msg, int id)
     {
         if (Stage.GOSSIP == msg.getStage())
             return gossipMessages;
@@ -73,20 +96,67 @@ public class OutboundTcpConnectionPool
             // Application-level keepalive to avoid NLB idle resets around 6 minutes
             return largeMessages;
         }
-        return msg.payloadSize(smallMessages.getTargetVersion()) > LARGE_MESSAGE_THRESHOLD
+        return msg.payloadSize(smallMessages[0].getTargetVersion()) > LARGE_MESSAGE_THRESHOLD
                ? largeMessages
-               : smallMessages;
+               : smallMessages[smallMessageStripe(msg, id)];
+    }
+
+    /**
+     * Messages about a partition always go over the same connection, so that they are delivered in the order they
+     * were sent; responses, which need no ordering, are spread over all of them, and any other message goes over
+     * the first one.
+     */
+    private int smallMessageStripe(MessageOut msg, int id)
+    {
+        if (smallMessages.length == 1)
+            return 0;
+
+        ByteBuffer key = null;
+        if (msg.payload instanceof IMutation)
+            key = ((IMutation) msg.payload).key();
+        else if (msg.payload instanceof ReadCommand)
+            key = ((ReadCommand) msg.payload).key;
+
+        if (key != null)
+            return Math.floorMod(key.hashCode(), smallMessages.length);
+        if (msg.verb == MessagingService.Verb.REQUEST_RESPONSE || msg.verb == MessagingService.Verb.INTERNAL_RESPONSE)
+            return Math.floorMod(id, smallMessages.length);
+        return 0;
+    }
+
+    public int getSmallMessagePendingMessages()
+    {
+        int pending = 0;
+        for (OutboundConnection conn : smallMessages)
+            pending += conn.getPendingMessages();
+        return pending;
+    }
+
+    public long getSmallMessageCompletedMessages()
+    {
+        long completed = 0;
+        for (OutboundConnection conn : smallMessages)
+            completed += conn.getCompletedMesssages();
+        return completed;
+    }
+
+    public long getSmallMessageDroppedMessages()
+    {
+        long dropped = 0;
+        for (OutboundConnection conn : smallMessages)
+            dropped += conn.getDroppedMessages();
+        return dropped;
     }
 
     void reset()
     {
-        for (OutboundTcpConnection conn : new OutboundTcpConnection[] { smallMessages, largeMessages, gossipMessages })
+        for (OutboundConnection conn : connections)
             conn.closeSocket(false);
     }
 
     public void resetToNewerVersion(int version)
     {
-        for (OutboundTcpConnection conn : new OutboundTcpConnection[] { smallMessages, largeMessages, gossipMessages })
+        for (OutboundConnection conn : connections)
         {
             if (version > conn.getTargetVersion())
                 conn.softCloseSocket();
@@ -102,7 +172,7 @@ public class OutboundTcpConnectionPool
     {
         SystemKeyspace.updatePreferredIP(id, remoteEP);
         resetEndpoint = remoteEP;
-        for (OutboundTcpConnection conn : new OutboundTcpConnection[] { smallMessages, largeMessages, gossipMessages })
+        for (OutboundConnection conn : connections)
             conn.softCloseSocket();
 
         // release previous metrics and create new one with reset address
@@ -180,9 +250,8 @@ public class OutboundTcpConnectionPool
 
     public void start()
     {
-        smallMessages.start();
-        largeMessages.start();
-        gossipMessages.start();
+        for (OutboundConnection conn : connections)
+            conn.start();
 
         metrics = new ConnectionMetrics(id, this);
 
@@ -212,12 +281,11 @@ public class OutboundTcpConnectionPool
     public void close()
     {
         // these null guards are simply for tests
-        if (largeMessages != null)
-            largeMessages.closeSocket(true);
-        if (smallMessages != null)
-            smallMessages.closeSocket(true);
-        if (gossipMessages != null)
-            gossipMessages.closeSocket(true);
+        if (connections != null)
+        {
+            for (OutboundConnection conn : connections)
+                conn.closeSocket(true);
+        }
 
         metrics.release();
     }
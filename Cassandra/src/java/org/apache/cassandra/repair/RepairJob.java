@@ -19,6 +19,7 @@ package org.apache.cassandra.repair;
 
 import java.net.InetAddress;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.google.common.util.concurrent.*;
 import org.slf4j.Logger;
@@ -42,6 +43,8 @@ public class RepairJob extends AbstractFuture<RepairResult> implements Runnable
     private final RepairParallelism parallelismDegree;
     private final long repairedAt;
     private final ListeningExecutorService taskExecutor;
+    // all the validation tasks of the job, whose trees are released once they have been compared
+    private final List<ValidationTask> validationTasks = new CopyOnWriteArrayList<>();
 
     /**
      * Create repair job to run on specific columnfamily
@@ -138,10 +141,29 @@ public class RepairJob extends AbstractFuture<RepairResult> implements Runnable
                         taskExecutor.submit(task);
                     }
                 }
+                // the trees are needed until every task has compared them, even if one of them fails
+                Futures.successfulAsList(syncTasks).addListener(new Runnable()
+                {
+                    public void run()
+                    {
+                        releaseTrees();
+                    }
+                }, MoreExecutors.directExecutor());
                 return Futures.allAsList(syncTasks);
             }
         }, taskExecutor);
 
+        // If validation fails no tree is compared, so those received can be released
+        Futures.addCallback(validations, new FutureCallback<List<TreeResponse>>()
+        {
+            public void onSuccess(List<TreeResponse> trees) {}
+
+            public void onFailure(Throwable t)
+            {
+                releaseTrees();
+            }
+        }, MoreExecutors.directExecutor());
+
         // When all sync complete, set the final result
         Futures.addCallback(syncResults, new FutureCallback<List<SyncStat>>()
         {
@@ -167,6 +189,12 @@ public class RepairJob extends AbstractFuture<RepairResult> implements Runnable
         Futures.getUnchecked(validations);
     }
 
+    private void releaseTrees()
+    {
+        for (ValidationTask task : validationTasks)
+            task.release();
+    }
+
     /**
      * Creates {@link ValidationTask} and submit them to task executor in parallel.
      *
@@ -184,6 +212,7 @@ public class RepairJob extends AbstractFuture<RepairResult> implements Runnable
         {
             ValidationTask task = new ValidationTask(desc, endpoint, gcBefore);
             tasks.add(task);
+            validationTasks.add(task);
             session.waitForValidation(Pair.create(desc, endpoint), task);
             taskExecutor.execute(task);
         }
@@ -207,12 +236,14 @@ public class RepairJob extends AbstractFuture<RepairResult> implements Runnable
         logger.info("Validating {}", address);
         session.waitForValidation(Pair.create(desc, address), firstTask);
         tasks.add(firstTask);
+        validationTasks.add(firstTask);
         ValidationTask currentTask = firstTask;
         while (requests.size() > 0)
         {
             final InetAddress nextAddress = requests.poll();
             final ValidationTask nextTask = new ValidationTask(desc, nextAddress, gcBefore);
             tasks.add(nextTask);
+            validationTasks.add(nextTask);
             Futures.addCallback(currentTask, new FutureCallback<TreeResponse>()
             {
                 public void onSuccess(TreeResponse result)
@@ -264,12 +295,14 @@ public class RepairJob extends AbstractFuture<RepairResult> implements Runnable
             logger.info("Validating {}", address);
             session.waitForValidation(Pair.create(desc, address), firstTask);
             tasks.add(firstTask);
+            validationTasks.add(firstTask);
             ValidationTask currentTask = firstTask;
             while (requests.size() > 0)
             {
                 final InetAddress nextAddress = requests.poll();
                 final ValidationTask nextTask = new ValidationTask(desc, nextAddress, gcBefore);
                 tasks.add(nextTask);
+                validationTasks.add(nextTask);
                 Futures.addCallback(currentTask, new FutureCallback<TreeResponse>()
                 {
                     public void onSuccess(TreeResponse result)
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -97,6 +98,8 @@ public class RepairSession extends AbstractFuture<RepairSessionResult> implement
     private final ConcurrentMap<Pair<RepairJobDesc, InetAddress>, ValidationTask> validating = new ConcurrentHashMap<>();
     // Remote syncing jobs wait response in syncingTasks map
     private final ConcurrentMap<Pair<RepairJobDesc, NodePair>, RemoteSyncTask> syncingTasks = new ConcurrentHashMap<>();
+    // All the validation tasks of the session, whose trees are released once it is terminated
+    private final Queue<ValidationTask> validationTasks = new ConcurrentLinkedQueue<>();
 
     // Tasks(snapshot, validate request, differencing, ...) are run on taskExecutor
     private final ListeningExecutorService taskExecutor = MoreExecutors.listeningDecorator(DebuggableThreadPoolExecutor.createCachedThreadpoolWithMaxSize("RepairJobTask"));
@@ -148,7 +151,10 @@ public class RepairSession extends AbstractFuture<RepairSessionResult> implement
 
     public void waitForValidation(Pair<RepairJobDesc, InetAddress> key, ValidationTask task)
     {
+        validationTasks.add(task);
         validating.put(key, task);
+        if (terminated)
+            task.release();
     }
 
     public void waitForSync(Pair<RepairJobDesc, NodePair> key, RemoteSyncTask task)
@@ -169,6 +175,8 @@ public class RepairSession extends AbstractFuture<RepairSessionResult> implement
         if (task == null)
         {
             assert terminated;
+            if (tree != null)
+                tree.release();
             return;
         }
 
@@ -286,6 +294,9 @@ public class RepairSession extends AbstractFuture<RepairSessionResult> implement
         terminated = true;
         validating.clear();
         syncingTasks.clear();
+        // jobs release their trees once compared, but one that failed or was shut down may never get there
+        for (ValidationTask task : validationTasks)
+            task.release();
     }
 
     /**
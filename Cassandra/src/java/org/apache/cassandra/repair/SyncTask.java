@@ -26,6 +26,7 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.cassandra.dht.Range;
 import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.exceptions.RepairException;
 import org.apache.cassandra.tracing.Tracing;
 import org.apache.cassandra.utils.MerkleTree;
 
@@ -55,9 +56,33 @@ public abstract class SyncTask extends AbstractFuture<SyncStat> implements Runna
      */
     public void run()
     {
-        // compare trees, and collect differences
+        // compare trees, and collect differences; the trees are released if the session is terminated meanwhile
         List<Range<Token>> differences = new ArrayList<>();
-        differences.addAll(MerkleTree.difference(r1.tree, r2.tree));
+        if (!r1.startComparing())
+        {
+            setException(new RepairException(desc, "Repair session terminated before comparing trees"));
+            return;
+        }
+        try
+        {
+            if (!r2.startComparing())
+            {
+                setException(new RepairException(desc, "Repair session terminated before comparing trees"));
+                return;
+            }
+            try
+            {
+                differences.addAll(MerkleTree.difference(r1.tree, r2.tree));
+            }
+            finally
+            {
+                r2.doneComparing();
+            }
+        }
+        finally
+        {
+            r1.doneComparing();
+        }
 
         stat = new SyncStat(new NodePair(r1.endpoint, r2.endpoint), differences.size());
 
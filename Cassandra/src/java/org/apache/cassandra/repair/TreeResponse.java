@@ -29,9 +29,43 @@ public class TreeResponse
     public final InetAddress endpoint;
     public final MerkleTree tree;
 
+    // the number of sync tasks comparing the tree, which is only freed once they are done
+    private int comparing;
+    private boolean released;
+
     public TreeResponse(InetAddress endpoint, MerkleTree tree)
     {
         this.endpoint = endpoint;
         this.tree = tree;
     }
+
+    /**
+     * @return true if the tree can be compared until {@link #doneComparing()} is called, or false if it was released
+     */
+    synchronized boolean startComparing()
+    {
+        if (released)
+            return false;
+        comparing++;
+        return true;
+    }
+
+    synchronized void doneComparing()
+    {
+        assert comparing > 0;
+        if (--comparing == 0 && released)
+            tree.release();
+    }
+
+    /**
+     * Releases the tree, once no sync task is comparing it anymore. Any later comparison fails.
+     */
+    synchronized void release()
+    {
+        if (released)
+            return;
+        released = true;
+        if (comparing == 0)
+            tree.release();
+    }
 }
@@ -36,6 +36,10 @@ public class ValidationTask extends AbstractFuture<TreeResponse> implements Runn
     private final InetAddress endpoint;
     private final int gcBefore;
 
+    // the tree received, until released, which also frees any tree received later
+    private TreeResponse response;
+    private boolean released;
+
     public ValidationTask(RepairJobDesc desc, InetAddress endpoint, int gcBefore)
     {
         this.desc = desc;
@@ -57,7 +61,7 @@ public class ValidationTask extends AbstractFuture<TreeResponse> implements Runn
      *
      * @param tree MerkleTree that is sent from replica. Null if validation failed on replica node.
      */
-    public void treeReceived(MerkleTree tree)
+    public synchronized void treeReceived(MerkleTree tree)
     {
         if (tree == null)
         {
@@ -65,7 +69,25 @@ public class ValidationTask extends AbstractFuture<TreeResponse> implements Runn
         }
         else
         {
-            set(new TreeResponse(endpoint, tree));
+            TreeResponse received = new TreeResponse(endpoint, tree);
+            if (!released && set(received))
+                response = received;
+            else
+                tree.release();
+        }
+    }
+
+    /**
+     * Release the tree received from replica, or the one received later if any, once no longer needed. A tree that
+     * sync tasks are comparing is freed once they are done.
+     */
+    public synchronized void release()
+    {
+        released = true;
+        if (response != null)
+        {
+            response.release();
+            response = null;
         }
     }
 }
@@ -20,6 +20,8 @@ package org.apache.cassandra.repair;
 import java.net.InetAddress;
 import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
 
@@ -32,6 +34,8 @@ import org.apache.cassandra.concurrent.StageManager;
 import org.apache.cassandra.db.ColumnFamilyStore;
 import org.apache.cassandra.db.DecoratedKey;
 import org.apache.cassandra.db.compaction.AbstractCompactedRow;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.net.MessagingService;
 import org.apache.cassandra.repair.messages.ValidationComplete;
 import org.apache.cassandra.tracing.Tracing;
@@ -44,7 +48,8 @@ import org.apache.cassandra.utils.MerkleTree.RowHash;
  *
  * Lifecycle:
  * 1. prepare() - Initialize tree with samples.
- * 2. add() - 0 or more times, to add hashes to the tree.
+ * 2. add() - 0 or more times, to add hashes to the tree; or, once split(), add() to each
+ *    SubRangeValidator the rows of its sub-range, from as many threads.
  * 3. complete() - Enqueues any operations that were blocked waiting for a valid tree.
  */
 public class Validator implements Runnable
@@ -56,15 +61,10 @@ public class Validator implements Runnable
     public final int gcBefore;
     private final boolean evenTreeDistribution;
 
-    // null when all rows with the min token have been consumed
     private long validated;
     private MerkleTree tree;
-    // current range being updated
-    private MerkleTree.TreeRange range;
-    // iterator for iterating sub ranges (MT's leaves)
-    private MerkleTree.TreeRangeIterator ranges;
-    // last key seen
-    private DecoratedKey lastKey;
+    // the sub-ranges the tree is filled from: a single one covering the whole range unless split
+    private List<SubRangeValidator> subRanges;
 
     public Validator(RepairJobDesc desc, InetAddress initiator, int gcBefore)
     {
@@ -77,8 +77,7 @@ public class Validator implements Runnable
         this.initiator = initiator;
         this.gcBefore = gcBefore;
         validated = 0;
-        range = null;
-        ranges = null;
+        subRanges = null;
         this.evenTreeDistribution = evenTreeDistribution;
     }
 
@@ -119,7 +118,39 @@ public class Validator implements Runnable
             }
         }
         logger.debug("Prepared AEService tree of size {} for {}", tree.size(), desc);
-        ranges = tree.invalids();
+        subRanges = Collections.singletonList(new SubRangeValidator(desc.range, tree.invalids()));
+    }
+
+    /**
+     * Splits the range being validated into at most count sub-ranges, each made of contiguous leaves of the tree, so
+     * that they can be scanned and hashed concurrently: their leaves being distinct, the validators of the sub-ranges
+     * fill a part of the final tree each. Rows must then be added to the validator of their sub-range rather than to
+     * this validator. Wrapping ranges are not split.
+     *
+     * @return the validators of the sub-ranges, in token order
+     */
+    public List<SubRangeValidator> split(int count)
+    {
+        assert subRanges != null : "Validator was not prepared()";
+        assert subRanges.size() == 1 && subRanges.get(0).lastKey == null : "Validator was already split or used";
+        if (count <= 1 || desc.range.isWrapAround() || tree.size() < 2)
+            return subRanges;
+
+        List<MerkleTree.TreeRange> leaves = new ArrayList<>();
+        for (MerkleTree.TreeRange leaf : tree.invalids())
+            leaves.add(leaf);
+
+        int splits = Math.min(count, leaves.size());
+        List<SubRangeValidator> split = new ArrayList<>(splits);
+        for (int i = 0; i < splits; i++)
+        {
+            List<MerkleTree.TreeRange> group = leaves.subList(i * leaves.size() / splits, (i + 1) * leaves.size() / splits);
+            Range<Token> range = new Range<>(group.get(0).left, group.get(group.size() - 1).right);
+            split.add(new SubRangeValidator(range, group.iterator()));
+        }
+        subRanges = split;
+        logger.debug("Split validation of {} into {} sub-ranges", desc, splits);
+        return split;
     }
 
     /**
@@ -130,27 +161,74 @@ public class Validator implements Runnable
      */
     public void add(AbstractCompactedRow row)
     {
-        assert desc.range.contains(row.key.getToken()) : row.key.getToken() + " is not contained in " + desc.range;
-        assert lastKey == null || lastKey.compareTo(row.key) < 0
-               : "row " + row.key + " received out of order wrt " + lastKey;
-        lastKey = row.key;
+        assert subRanges.size() == 1 : "Rows of a split validation must be added to its sub-ranges";
+        subRanges.get(0).add(row);
+    }
 
-        if (range == null)
-            range = ranges.next();
+    /**
+     * Fills the leaves of the tree covering a sub-range of the validated range. Each sub-range can be validated on a
+     * thread of its own.
+     */
+    public class SubRangeValidator
+    {
+        /** The sub-range whose rows are to be added. */
+        public final Range<Token> range;
+        // iterator for iterating sub ranges (MT's leaves)
+        private final Iterator<MerkleTree.TreeRange> ranges;
+        // current range being updated
+        private MerkleTree.TreeRange current;
+        // last key seen
+        private DecoratedKey lastKey;
+        private long validated;
 
-        // generate new ranges as long as case 1 is true
-        while (!range.contains(row.key.getToken()))
+        private SubRangeValidator(Range<Token> range, Iterator<MerkleTree.TreeRange> ranges)
         {
-            // add the empty hash, and move to the next range
-            range.ensureHashInitialised();
-            range = ranges.next();
+            this.range = range;
+            this.ranges = ranges;
         }
 
-        // case 3 must be true: mix in the hashed row
-        RowHash rowHash = rowHash(row);
-        if (rowHash != null)
+        /**
+         * Called (in order) for every row present in the sub-range.
+         * Hashes the row, and adds it to the tree being built.
+         *
+         * @param row Row to add hash
+         */
+        public void add(AbstractCompactedRow row)
         {
-            range.addHash(rowHash);
+            assert range.contains(row.key.getToken()) : row.key.getToken() + " is not contained in " + range;
+            assert lastKey == null || lastKey.compareTo(row.key) < 0
+                   : "row " + row.key + " received out of order wrt " + lastKey;
+            lastKey = row.key;
+
+            if (current == null)
+                current = ranges.next();
+
+            // generate new ranges as long as case 1 is true
+            while (!current.contains(row.key.getToken()))
+            {
+                // add the empty hash, and move to the next range
+                current.ensureHashInitialised();
+                current = ranges.next();
+            }
+
+            // case 3 must be true: mix in the hashed row
+            validated++;
+            RowHash rowHash = rowHash(row);
+            if (rowHash != null)
+            {
+                current.addHash(rowHash);
+            }
+        }
+
+        private void complete()
+        {
+            if (current != null)
+                current.ensureHashInitialised();
+            while (ranges.hasNext())
+            {
+                current = ranges.next();
+                current.ensureHashInitialised();
+            }
         }
     }
 
@@ -193,9 +271,8 @@ public class Validator implements Runnable
 
     }
 
-    private MerkleTree.RowHash rowHash(AbstractCompactedRow row)
+    private static MerkleTree.RowHash rowHash(AbstractCompactedRow row)
     {
-        validated++;
         // MerkleTree uses XOR internally, so we want lots of output bits here
         CountingDigest digest = new CountingDigest(FBUtilities.newMessageDigest("SHA-256"));
         row.update(digest);
@@ -217,8 +294,6 @@ public class Validator implements Runnable
     {
         completeTree();
 
-        StageManager.getStage(Stage.ANTI_ENTROPY).execute(this);
-
         if (logger.isDebugEnabled())
         {
             // log distribution of rows in tree
@@ -227,19 +302,22 @@ public class Validator implements Runnable
             logger.debug("Validated {} partitions for {}.  Partition sizes are:", validated, desc.sessionId);
             tree.histogramOfRowSizePerLeaf().log(logger);
         }
+
+        // the tree is no longer modified, so it waits to be sent off heap, and is released once written
+        tree.moveOffHeap();
+        StageManager.getStage(Stage.ANTI_ENTROPY).execute(this);
     }
 
     @VisibleForTesting
     public void completeTree()
     {
-        assert ranges != null : "Validator was not prepared()";
+        assert subRanges != null : "Validator was not prepared()";
 
-        if (range != null)
-            range.ensureHashInitialised();
-        while (ranges.hasNext())
+        validated = 0;
+        for (SubRangeValidator subRange : subRanges)
         {
-            range = ranges.next();
-            range.ensureHashInitialised();
+            subRange.complete();
+            validated += subRange.validated;
         }
     }
 
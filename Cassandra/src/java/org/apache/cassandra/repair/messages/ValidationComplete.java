@@ -22,15 +22,18 @@ import java.io.IOException;
 
 import org.apache.cassandra.db.TypeSizes;
 import org.apache.cassandra.io.util.DataOutputPlus;
+import org.apache.cassandra.net.IReleasablePayload;
 import org.apache.cassandra.repair.RepairJobDesc;
 import org.apache.cassandra.utils.MerkleTree;
 
 /**
  * ValidationComplete message is sent when validation compaction completed successfully.
  *
+ * The tree sent is off heap, and is released once the message has been written.
+ *
  * @since 2.0
  */
-public class ValidationComplete extends RepairMessage
+public class ValidationComplete extends RepairMessage implements IReleasablePayload
 {
     public static MessageSerializer serializer = new ValidationCompleteSerializer();
 
@@ -54,6 +57,12 @@ public class ValidationComplete extends RepairMessage
         this.tree = tree;
     }
 
+    public void release()
+    {
+        if (tree != null)
+            tree.release();
+    }
+
     private static class ValidationCompleteSerializer implements MessageSerializer<ValidationComplete>
     {
         public void serialize(ValidationComplete message, DataOutputPlus out, int version) throws IOException
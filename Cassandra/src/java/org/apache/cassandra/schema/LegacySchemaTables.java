@@ -54,6 +54,7 @@ import org.apache.cassandra.locator.AbstractReplicationStrategy;
 import org.apache.cassandra.service.StorageService;
 import org.apache.cassandra.utils.ByteBufferUtil;
 import org.apache.cassandra.utils.FBUtilities;
+import org.apache.cassandra.utils.FilterFactory;
 
 import static org.apache.cassandra.cql3.QueryProcessor.executeOnceInternal;
 import static org.apache.cassandra.utils.FBUtilities.fromJsonMap;
@@ -92,6 +93,7 @@ public class LegacySchemaTables
                 + "keyspace_name text,"
                 + "columnfamily_name text,"
                 + "bloom_filter_fp_chance double,"
+                + "bloom_filter_type text,"
                 + "caching text,"
                 + "cf_id uuid," // post-2.1 UUID cfid
                 + "comment text,"
@@ -109,6 +111,7 @@ public class LegacySchemaTables
                 + "max_compaction_threshold int,"
                 + "max_index_interval int,"
                 + "memtable_flush_period_in_ms int,"
+                + "memtable_shards int,"
                 + "min_compaction_threshold int,"
                 + "min_index_interval int,"
                 + "read_repair_chance double,"
@@ -889,6 +892,9 @@ public class LegacySchemaTables
             }
 
             adder.add("bloom_filter_fp_chance", table.getBloomFilterFpChance());
+            // only set when not the default, like memtable_shards below
+            if (table.getBloomFilterType() != CFMetaData.DEFAULT_BLOOM_FILTER_TYPE)
+                adder.add("bloom_filter_type", table.getBloomFilterType().toString());
             adder.add("caching", table.getCaching().toString());
             adder.add("comment", table.getComment());
             adder.add("compaction_strategy_class", table.compactionStrategyClass.getName());
@@ -902,6 +908,10 @@ public class LegacySchemaTables
             adder.add("max_compaction_threshold", table.getMaxCompactionThreshold());
             adder.add("max_index_interval", table.getMaxIndexInterval());
             adder.add("memtable_flush_period_in_ms", table.getMemtableFlushPeriod());
+            // only set when not the default, so that tables which don't use it have the same schema as on older
+            // nodes, and the same digest; see resetDefaultOptions() for when it is reset
+            if (table.getMemtableShards() != CFMetaData.DEFAULT_MEMTABLE_SHARDS)
+                adder.add("memtable_shards", table.getMemtableShards());
             adder.add("min_compaction_threshold", table.getMinCompactionThreshold());
             adder.add("min_index_interval", table.getMinIndexInterval());
             adder.add("read_repair_chance", table.getReadRepairChance());
@@ -923,6 +933,20 @@ public class LegacySchemaTables
         }
     }
 
+    /**
+     * Deletes the options that are only written when they differ from their default, if they are reset to it.
+     */
+    private static void resetDefaultOptions(CFMetaData oldTable, CFMetaData newTable, long timestamp, Mutation mutation)
+    {
+        CFRowAdder adder = new CFRowAdder(mutation.addOrGet(Columnfamilies), Columnfamilies.comparator.make(newTable.cfName), timestamp);
+
+        if (oldTable.getMemtableShards() != newTable.getMemtableShards() && newTable.getMemtableShards() == CFMetaData.DEFAULT_MEMTABLE_SHARDS)
+            adder.add("memtable_shards", null);
+
+        if (oldTable.getBloomFilterType() != newTable.getBloomFilterType() && newTable.getBloomFilterType() == CFMetaData.DEFAULT_BLOOM_FILTER_TYPE)
+            adder.add("bloom_filter_type", null);
+    }
+
     public static Mutation makeUpdateTableMutation(KSMetaData keyspace,
                                                    CFMetaData oldTable,
                                                    CFMetaData newTable,
@@ -931,6 +955,7 @@ public class LegacySchemaTables
         Mutation mutation = makeCreateKeyspaceMutation(keyspace, timestamp, false);
 
         addTableToSchemaMutation(newTable, timestamp, false, mutation);
+        resetDefaultOptions(oldTable, newTable, timestamp, mutation);
 
         MapDifference<ByteBuffer, ColumnDefinition> columnDiff = Maps.difference(oldTable.getColumnMetadata(),
                                                                                  newTable.getColumnMetadata());
@@ -1096,6 +1121,8 @@ public class LegacySchemaTables
             cfm.comment(result.getString("comment"));
         if (result.has("memtable_flush_period_in_ms"))
             cfm.memtableFlushPeriod(result.getInt("memtable_flush_period_in_ms"));
+        if (result.has("memtable_shards"))
+            cfm.memtableShards(result.getInt("memtable_shards"));
         cfm.caching(CachingOptions.fromString(result.getString("caching")));
         if (result.has("default_time_to_live"))
             cfm.defaultTimeToLive(result.getInt("default_time_to_live"));
@@ -1116,6 +1143,9 @@ public class LegacySchemaTables
         else
             cfm.bloomFilterFpChance(cfm.getBloomFilterFpChance());
 
+        if (result.has("bloom_filter_type"))
+            cfm.bloomFilterType(FilterFactory.Type.fromString(result.getString("bloom_filter_type")));
+
         if (result.has("dropped_columns"))
             cfm.droppedColumns(convertDroppedColumns(result.getMap("dropped_columns", UTF8Type.instance, LongType.instance)));
 
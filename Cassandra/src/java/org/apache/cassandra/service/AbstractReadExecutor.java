@@ -37,6 +37,7 @@ import org.apache.cassandra.config.Schema;
 import org.apache.cassandra.config.ReadRepairDecision;
 import org.apache.cassandra.db.ColumnFamilyStore;
 import org.apache.cassandra.db.ConsistencyLevel;
+import org.apache.cassandra.db.IndexEntryBatch;
 import org.apache.cassandra.db.ReadCommand;
 import org.apache.cassandra.db.ReadResponse;
 import org.apache.cassandra.db.Row;
@@ -72,6 +73,8 @@ public abstract class AbstractReadExecutor
     protected final TraceState traceState;
     protected final ColumnFamilyStore cfs;
     protected final ConcurrentLinkedQueue<Long> latencies;
+    // the index entries shared with the other local reads of a multi-partition query, set before it executes
+    IndexEntryBatch indexEntryBatch;
 
     AbstractReadExecutor(ReadCommand command, ConsistencyLevel consistencyLevel, List<InetAddress> targetReplicas, ColumnFamilyStore cfs)
     {
@@ -127,7 +130,7 @@ public abstract class AbstractReadExecutor
             long localStart = System.nanoTime();
             logger.trace("reading {} locally", readCommand.isDigestQuery() ? "digest" : "data");
             KeyspaceAwareSepQueue.setCurrentKeyspace(command.ksName);
-            StageManager.getStage(stage(command)).maybeExecuteImmediately(new LocalReadRunnable(command, handler));
+            StageManager.getStage(stage(command)).maybeExecuteImmediately(new LocalReadRunnable(command, handler, indexEntryBatch));
             latencies.add(System.nanoTime() - localStart);
         }
         logger.trace("measured read latencies {} ns", latencies);
@@ -480,7 +480,11 @@ public class ActiveRepairService implements IEndpointStateChangeSubscriber, IFai
         RepairJobDesc desc = message.desc;
         RepairSession session = sessions.get(desc.sessionId);
         if (session == null)
+        {
+            if (message.messageType == RepairMessage.Type.VALIDATION_COMPLETE && ((ValidationComplete) message).tree != null)
+                ((ValidationComplete) message).tree.release();
             return;
+        }
         switch (message.messageType)
         {
             case VALIDATION_COMPLETE:
@@ -21,10 +21,13 @@ import java.io.DataInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
@@ -105,7 +108,26 @@ public class CacheService implements CacheServiceMBean
         // as values are constant size we can use singleton weigher
         // where 48 = 40 bytes (average size of the key) + 8 bytes (size of value)
         ICache<KeyCacheKey, RowIndexEntry> kc;
-        kc = ConcurrentLinkedHashCache.create(keyCacheInMemoryCapacity);
+        String cacheProviderClassName = DatabaseDescriptor.getKeyCacheClassName();
+        if (cacheProviderClassName == null || keyCacheInMemoryCapacity == 0)
+        {
+            kc = ConcurrentLinkedHashCache.create(keyCacheInMemoryCapacity);
+        }
+        else
+        {
+            CacheProvider<KeyCacheKey, RowIndexEntry> cacheProvider;
+            try
+            {
+                Class<CacheProvider<KeyCacheKey, RowIndexEntry>> cacheProviderClass =
+                    (Class<CacheProvider<KeyCacheKey, RowIndexEntry>>) Class.forName(cacheProviderClassName);
+                cacheProvider = cacheProviderClass.newInstance();
+            }
+            catch (Exception e)
+            {
+                throw new RuntimeException("Cannot find configured key cache provider class " + cacheProviderClassName);
+            }
+            kc = cacheProvider.create();
+        }
         AutoSavingCache<KeyCacheKey, RowIndexEntry> keyCache = new AutoSavingCache<>(kc, CacheType.KEY_CACHE, new KeyCacheSerializer());
 
         int keyCacheKeysToSave = DatabaseDescriptor.getKeyCacheKeysToSave();
@@ -380,6 +402,10 @@ public class CacheService implements CacheServiceMBean
                 }
             });
         }
+
+        public void cleanupAfterDeserialize()
+        {
+        }
     }
 
     public static class RowCacheSerializer implements CacheSerializer<RowCacheKey, IRowCacheEntry>
@@ -411,10 +437,17 @@ public class CacheService implements CacheServiceMBean
                 }
             });
         }
+
+        public void cleanupAfterDeserialize()
+        {
+        }
     }
 
     public static class KeyCacheSerializer implements CacheSerializer<KeyCacheKey, RowIndexEntry>
     {
+        // sstables by generation, for each table loaded, since tables are loaded in parallel
+        private final ConcurrentMap<ColumnFamilyStore, Map<Integer, SSTableReader>> sstablesByGeneration = new ConcurrentHashMap<>();
+
         public void serialize(KeyCacheKey key, DataOutputPlus out, ColumnFamilyStore cfs) throws IOException
         {
             RowIndexEntry entry = CacheService.instance.keyCache.getInternal(key);
@@ -442,7 +475,7 @@ public class CacheService implements CacheServiceMBean
             int generation = input.readInt();
             input.readBoolean(); // backwards compatibility for "promoted indexes" boolean
             SSTableReader reader = null;
-            if (cfs == null || !cfs.isKeyCacheEnabled() || (reader = findDesc(generation, cfs.getSSTables())) == null)
+            if (cfs == null || !cfs.isKeyCacheEnabled() || (reader = findDesc(generation, cfs)) == null)
             {
                 RowIndexEntry.Serializer.skip(input);
                 return null;
@@ -451,14 +484,24 @@ public class CacheService implements CacheServiceMBean
             return Futures.immediateFuture(Pair.create(new KeyCacheKey(cfs.metadata.ksAndCFName, reader.descriptor, key), entry));
         }
 
-        private SSTableReader findDesc(int generation, Collection<SSTableReader> collection)
+        private SSTableReader findDesc(int generation, ColumnFamilyStore cfs)
         {
-            for (SSTableReader sstable : collection)
+            Map<Integer, SSTableReader> sstables = sstablesByGeneration.get(cfs);
+            if (sstables == null)
             {
-                if (sstable.descriptor.generation == generation)
-                    return sstable;
+                sstables = new HashMap<>();
+                for (SSTableReader sstable : cfs.getSSTables())
+                    sstables.put(sstable.descriptor.generation, sstable);
+                Map<Integer, SSTableReader> previous = sstablesByGeneration.putIfAbsent(cfs, sstables);
+                if (previous != null)
+                    sstables = previous;
             }
-            return null;
+            return sstables.get(generation);
+        }
+
+        public void cleanupAfterDeserialize()
+        {
+            sstablesByGeneration.clear();
         }
     }
 }
@@ -26,6 +26,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import com.google.common.base.Predicate;
+import com.google.common.base.Supplier;
 import com.google.common.cache.CacheLoader;
 import com.google.common.collect.*;
 import com.google.common.util.concurrent.Uninterruptibles;
@@ -1063,7 +1064,7 @@ public class StorageProxy implements StorageProxyMBean
         UUID hostId = StorageService.instance.getTokenMetadata().getHostId(target);
         if (hostId != null)
         {
-            HintedHandOffManager.instance.hintFor(mutation, now, ttl, Pair.create(target, hostId)).apply();
+            HintedHandOffManager.instance.writeHint(mutation, now, ttl, Pair.create(target, hostId));
             StorageMetrics.totalHints.inc();
         }
         else
@@ -1421,17 +1422,21 @@ public class StorageProxy implements StorageProxyMBean
             if (!commandsToRetry.isEmpty())
                 Tracing.trace("Retrying {} commands", commandsToRetry.size());
 
-            // send out read requests
             for (int i = 0; i < commands.size(); i++)
             {
                 ReadCommand command = commands.get(i);
                 assert !command.isDigestQuery();
 
-                AbstractReadExecutor exec = AbstractReadExecutor.getReadExecutor(command, consistencyLevel);
-                exec.executeAsync();
-                readExecutors[i] = exec;
+                readExecutors[i] = AbstractReadExecutor.getReadExecutor(command, consistencyLevel);
             }
 
+            if (readExecutors.length > 1)
+                batchLocalIndexEntries(readExecutors);
+
+            // send out read requests
+            for (AbstractReadExecutor exec : readExecutors)
+                exec.executeAsync();
+
             for (AbstractReadExecutor exec : readExecutors)
                 exec.maybeTryAdditionalReplicas();
 
@@ -1590,16 +1595,48 @@ public class StorageProxy implements StorageProxyMBean
         return rows;
     }
 
+    /**
+     * Groups the partitions of a multi-partition query that are read locally by table, so that the first local read
+     * of each table looks up the index entries of all of them at once, on the read stage (see {@link IndexEntryBatch}).
+     */
+    private static void batchLocalIndexEntries(AbstractReadExecutor[] readExecutors)
+    {
+        InetAddress local = FBUtilities.getBroadcastAddress();
+        Map<ColumnFamilyStore, IndexEntryBatch> batches = new HashMap<>();
+        for (AbstractReadExecutor exec : readExecutors)
+        {
+            if (!exec.getContactedReplicas().contains(local))
+                continue;
+
+            IndexEntryBatch batch = batches.get(exec.cfs);
+            if (batch == null)
+            {
+                batch = new IndexEntryBatch(exec.cfs);
+                batches.put(exec.cfs, batch);
+            }
+            batch.add(exec.cfs.partitioner.decorateKey(exec.command.key));
+        }
+
+        for (AbstractReadExecutor exec : readExecutors)
+        {
+            IndexEntryBatch batch = batches.get(exec.cfs);
+            if (batch != null && batch.size() > 1)
+                exec.indexEntryBatch = batch;
+        }
+    }
+
     static class LocalReadRunnable extends DroppableRunnable
     {
         private final ReadCommand command;
         private final ReadCallback<ReadResponse, Row> handler;
+        private final IndexEntryBatch indexEntryBatch;
 
-        LocalReadRunnable(ReadCommand command, ReadCallback<ReadResponse, Row> handler)
+        LocalReadRunnable(ReadCommand command, ReadCallback<ReadResponse, Row> handler, IndexEntryBatch indexEntryBatch)
         {
             super(MessagingService.Verb.READ);
             this.command = command;
             this.handler = handler;
+            this.indexEntryBatch = indexEntryBatch;
             LocalReadRunnableTimeoutWatcher.INSTANCE.watch(command);
         }
 
@@ -1607,8 +1644,16 @@ public class StorageProxy implements StorageProxyMBean
         {
             try
             {
-                Keyspace keyspace = Keyspace.open(command.ksName);
-                Row r = command.getRow(keyspace);
+                final Keyspace keyspace = Keyspace.open(command.ksName);
+                Row r = indexEntryBatch == null
+                      ? command.getRow(keyspace)
+                      : indexEntryBatch.read(new Supplier<Row>()
+                        {
+                            public Row get()
+                            {
+                                return command.getRow(keyspace);
+                            }
+                        });
                 ReadResponse result = ReadVerbHandler.getResponse(command, r);
                 LocalReadRunnableTimeoutWatcher.INSTANCE.unwatch(command);
                 handler.response(result);
@@ -721,6 +721,7 @@ public class StorageService extends NotificationBroadcasterSupport implements IE
                 counterMutationStage.awaitTermination(3600, TimeUnit.SECONDS);
                 mutationStage.awaitTermination(3600, TimeUnit.SECONDS);
                 StorageProxy.instance.verifyNoHintsInProgress();
+                HintedHandOffManager.instance.closeHintsFiles();
 
                 List<Future<?>> flushes = new ArrayList<>();
                 for (Keyspace keyspace : Keyspace.all())
@@ -863,6 +864,7 @@ public class StorageService extends NotificationBroadcasterSupport implements IE
             appStates.put(ApplicationState.HOST_ID, valueFactory.hostId(localHostId));
             appStates.put(ApplicationState.RPC_ADDRESS, valueFactory.rpcaddress(FBUtilities.getBroadcastRpcAddress()));
             appStates.put(ApplicationState.RELEASE_VERSION, valueFactory.releaseVersion());
+            appStates.put(ApplicationState.STREAMING_VERSION, valueFactory.streamingVersion());
             logger.info("Starting up server gossip");
             Gossiper.instance.register(this);
             Gossiper.instance.start(SystemKeyspace.incrementAndGetGeneration(), appStates); // needed for node-ring gathering.
@@ -2882,7 +2884,7 @@ public class StorageService extends NotificationBroadcasterSupport implements IE
 
         if (tokenMetadata.isMember(endpoint))
         {
-            HintedHandOffManager.instance.scheduleHintDelivery(endpoint, true);
+            HintedHandOffManager.instance.scheduleHintDelivery(endpoint);
             notifyUp(endpoint);
         }
     }
@@ -4612,6 +4614,7 @@ public class StorageService extends NotificationBroadcasterSupport implements IE
         mutationStage.awaitTermination(3600, TimeUnit.SECONDS);
 
         StorageProxy.instance.verifyNoHintsInProgress();
+        HintedHandOffManager.instance.closeHintsFiles();
 
         setMode(Mode.DRAINING, "flushing column families", false);
         // count CFs first, since forceFlush could block for the flushWriter to get a queue slot empty
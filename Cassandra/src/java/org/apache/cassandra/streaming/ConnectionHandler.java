@@ -82,11 +82,11 @@ public class ConnectionHandler
     {
         logger.debug("[Stream #{}] Sending stream init for incoming stream", session.planId());
         Socket incomingSocket = session.createConnection();
-        incoming.start(incomingSocket, StreamMessage.CURRENT_VERSION, true);
+        incoming.start(incomingSocket, session.protocolVersion(), true);
 
         logger.debug("[Stream #{}] Sending stream init for outgoing stream", session.planId());
         Socket outgoingSocket = session.createConnection();
-        outgoing.start(outgoingSocket, StreamMessage.CURRENT_VERSION, true);
+        outgoing.start(outgoingSocket, session.protocolVersion(), true);
     }
 
     /**
@@ -98,6 +98,7 @@ public class ConnectionHandler
      */
     public void initiateOnReceivingSide(IncomingStreamingConnection connection, boolean isForOutgoing, int version) throws IOException
     {
+        session.setProtocolVersion(version);
         if (isForOutgoing)
             outgoing.start(connection, version);
         else
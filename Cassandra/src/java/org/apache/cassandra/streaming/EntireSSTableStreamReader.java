@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.streaming;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import com.google.common.base.Throwables;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.config.Schema;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.Directories;
+import org.apache.cassandra.db.Keyspace;
+import org.apache.cassandra.io.sstable.Component;
+import org.apache.cassandra.io.sstable.Descriptor;
+import org.apache.cassandra.io.sstable.SSTable;
+import org.apache.cassandra.io.sstable.format.SSTableFormat;
+import org.apache.cassandra.io.sstable.format.Version;
+import org.apache.cassandra.io.sstable.metadata.MetadataType;
+import org.apache.cassandra.io.sstable.metadata.StatsMetadata;
+import org.apache.cassandra.streaming.compress.CompressedStreamWriter;
+import org.apache.cassandra.streaming.messages.FileMessageHeader;
+import org.apache.cassandra.utils.Pair;
+import org.apache.cassandra.utils.SyncUtil;
+
+/**
+ * EntireSSTableStreamReader reads the component files of an SSTable from stream and places them, as they are,
+ * under a temporary descriptor in one of the data directories.
+ */
+public class EntireSSTableStreamReader
+{
+    private static final Logger logger = LoggerFactory.getLogger(EntireSSTableStreamReader.class);
+
+    private final UUID cfId;
+    private final Map<Component, Long> components;
+    private final StreamSession session;
+    private final Version inputVersion;
+    private final long repairedAt;
+    private final SSTableFormat.Type format;
+    private final int sstableLevel;
+    private final int fileSeqNum;
+    private final long totalSize;
+
+    public EntireSSTableStreamReader(FileMessageHeader header, StreamSession session)
+    {
+        assert header.isEntireSSTable();
+        this.session = session;
+        this.cfId = header.cfId;
+        this.components = header.components;
+        this.inputVersion = header.format.info.getVersion(header.version);
+        this.repairedAt = header.repairedAt;
+        this.format = header.format;
+        this.sstableLevel = header.sstableLevel;
+        this.fileSeqNum = header.sequenceNumber;
+        this.totalSize = header.size();
+    }
+
+    /**
+     * @param channel where this reads data from
+     * @return temporary descriptor of the SSTable transferred, made of the components given in the header
+     * @throws IOException if reading the remote sstable fails. Will throw an RTE if local write fails.
+     */
+    public Descriptor read(ReadableByteChannel channel) throws IOException
+    {
+        Pair<String, String> kscf = Schema.instance.getCF(cfId);
+        ColumnFamilyStore cfs = null;
+        if (kscf != null)
+            cfs = Keyspace.open(kscf.left).getColumnFamilyStore(kscf.right);
+
+        if (kscf == null || cfs == null)
+        {
+            // schema was dropped during streaming
+            throw new IOException("CF " + cfId + " was dropped during streaming");
+        }
+
+        logger.debug("[Stream #{}] Start receiving entire sstable #{} from {}, repairedAt = {}, size = {}, ks = '{}', table = '{}'.",
+                     session.planId(), fileSeqNum, session.peer, repairedAt, totalSize, cfs.keyspace.getName(),
+                     cfs.getColumnFamilyName());
+
+        Directories.DataDirectory localDir = cfs.directories.getWriteableLocation(totalSize);
+        if (localDir == null)
+            throw new IOException("Insufficient disk space to store " + totalSize + " bytes");
+        Descriptor desc = Descriptor.fromFilename(cfs.getTempSSTablePath(cfs.directories.getLocationForDisk(localDir), inputVersion, format));
+
+        Set<Component> written = new HashSet<>();
+        try
+        {
+            long progress = 0L;
+            for (Map.Entry<Component, Long> component : components.entrySet())
+            {
+                written.add(component.getKey());
+                progress = readComponent(channel, desc, component.getKey(), component.getValue(), progress);
+            }
+            updateMetadata(desc);
+            logger.debug("[Stream #{}] Finished receiving entire sstable #{} from {} readBytes = {}, totalSize = {}",
+                         session.planId(), fileSeqNum, session.peer, progress, totalSize);
+            return desc;
+        }
+        catch (Throwable e)
+        {
+            try
+            {
+                SSTable.delete(desc, written);
+            }
+            catch (Throwable e2)
+            {
+                e.addSuppressed(e2);
+            }
+            Throwables.propagateIfInstanceOf(e, IOException.class);
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private long readComponent(ReadableByteChannel channel, Descriptor desc, Component component, long length, long progress) throws IOException
+    {
+        logger.trace("[Stream #{}] Reading component {} with length {} from stream.", session.planId(), component, length);
+        try (FileChannel fc = FileChannel.open(Paths.get(desc.filenameFor(component)), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE))
+        {
+            long bytesRead = 0;
+            while (bytesRead < length)
+            {
+                long toTransfer = Math.min(CompressedStreamWriter.CHUNK_SIZE, length - bytesRead);
+                long lastRead = fc.transferFrom(channel, bytesRead, toTransfer);
+                if (lastRead == 0)
+                    throw new EOFException(String.format("Stream ended after %d of %d bytes of component %s", bytesRead, length, component));
+                bytesRead += lastRead;
+                progress += lastRead;
+                session.progress(desc, ProgressInfo.Direction.IN, progress, totalSize);
+            }
+            SyncUtil.force(fc, true);
+        }
+        return progress;
+    }
+
+    /**
+     * The stats component carries the sender's repairedAt and level, which the session may override.
+     */
+    private void updateMetadata(Descriptor desc) throws IOException
+    {
+        StatsMetadata stats = (StatsMetadata) desc.getMetadataSerializer().deserialize(desc, MetadataType.STATS);
+        if (stats.repairedAt != repairedAt)
+            desc.getMetadataSerializer().mutateRepairedAt(desc, repairedAt);
+        if (stats.sstableLevel != sstableLevel)
+            desc.getMetadataSerializer().mutateLevel(desc, sstableLevel);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.streaming;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Map;
+
+import com.google.common.base.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.io.sstable.Component;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.io.util.ChannelProxy;
+import org.apache.cassandra.io.util.DataOutputStreamPlus;
+import org.apache.cassandra.streaming.StreamManager.StreamRateLimiter;
+import org.apache.cassandra.streaming.compress.CompressedStreamWriter;
+
+/**
+ * EntireSSTableStreamWriter writes all the component files of an SSTable to given channel, as they are on disk.
+ *
+ * The files are handed to the channel with {@link FileChannel#transferTo}, so that they are sent straight from the
+ * page cache without being copied through the heap whenever the channel is a plain socket.
+ */
+public class EntireSSTableStreamWriter
+{
+    private static final Logger logger = LoggerFactory.getLogger(EntireSSTableStreamWriter.class);
+
+    private final SSTableReader sstable;
+    private final Map<Component, Long> components;
+    private final StreamRateLimiter limiter;
+    private final StreamSession session;
+
+    public EntireSSTableStreamWriter(SSTableReader sstable, Map<Component, Long> components, StreamSession session)
+    {
+        this.session = session;
+        this.sstable = sstable;
+        this.components = components;
+        this.limiter = StreamManager.getRateLimiter(session.peer);
+    }
+
+    /**
+     * Stream the component files, each one with the length given in the header, to given channel.
+     *
+     * @param out where this writes data to
+     * @throws IOException on any I/O error
+     */
+    public void write(DataOutputStreamPlus out) throws IOException
+    {
+        long totalSize = 0;
+        for (long size : components.values())
+            totalSize += size;
+        logger.debug("[Stream #{}] Start streaming entire sstable {} to {}, repairedAt = {}, totalSize = {}", session.planId(),
+                     sstable.getFilename(), session.peer, sstable.getSSTableMetadata().repairedAt, totalSize);
+
+        long progress = 0L;
+        for (Map.Entry<Component, Long> component : components.entrySet())
+        {
+            try (final ChannelProxy fc = new ChannelProxy(sstable.descriptor.filenameFor(component.getKey())))
+            {
+                long length = component.getValue();
+                logger.trace("[Stream #{}] Writing component {} with length {} to stream.", session.planId(), component.getKey(), length);
+
+                long bytesTransferred = 0;
+                while (bytesTransferred < length)
+                {
+                    final long position = bytesTransferred;
+                    final int toTransfer = (int) Math.min(CompressedStreamWriter.CHUNK_SIZE, length - bytesTransferred);
+                    limiter.acquire(toTransfer);
+                    long lastWrite = out.applyToChannel(new Function<WritableByteChannel, Long>()
+                    {
+                        public Long apply(WritableByteChannel wbc)
+                        {
+                            return fc.transferTo(position, toTransfer, wbc);
+                        }
+                    });
+                    // the file cannot be shorter than when the header was built unless it was replaced under us
+                    if (lastWrite == 0)
+                        throw new EOFException(String.format("Component %s of %s ended at %d of %d bytes",
+                                                             component.getKey(), sstable.getFilename(), bytesTransferred, length));
+                    bytesTransferred += lastWrite;
+                    progress += lastWrite;
+                    session.progress(sstable.descriptor, ProgressInfo.Direction.OUT, progress, totalSize);
+                }
+            }
+        }
+        logger.debug("[Stream #{}] Finished streaming entire sstable {} to {}, bytesTransferred = {}, totalSize = {}",
+                     session.planId(), sstable.getFilename(), session.peer, progress, totalSize);
+    }
+}
@@ -69,7 +69,16 @@ public class StreamLockfile
 
     public void create(Collection<SSTableWriter> sstables)
     {
-        List<String> sstablePaths = new ArrayList<>(sstables.size());
+        create(sstables, Collections.<Descriptor>emptyList());
+    }
+
+    /**
+     * @param sstables writers of the sstables streamed row by row
+     * @param entireSSTables temporary descriptors of the sstables streamed as entire component files
+     */
+    public void create(Collection<SSTableWriter> sstables, Collection<Descriptor> entireSSTables)
+    {
+        List<String> sstablePaths = new ArrayList<>(sstables.size() + entireSSTables.size());
         for (SSTableWriter writer : sstables)
         {
             /* write out the file names *without* the 'tmp-file' flag in the file name.
@@ -77,6 +86,8 @@ public class StreamLockfile
                just make sure we delete the fully-formed SSTRs. */
             sstablePaths.add(writer.descriptor.asType(Descriptor.Type.FINAL).baseFilename());
         }
+        for (Descriptor descriptor : entireSSTables)
+            sstablePaths.add(descriptor.asType(Descriptor.Type.FINAL).baseFilename());
 
         try
         {
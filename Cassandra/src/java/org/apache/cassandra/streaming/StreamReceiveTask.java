@@ -20,12 +20,15 @@ package org.apache.cassandra.streaming;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+import com.google.common.collect.Sets;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,6 +38,9 @@ import org.apache.cassandra.db.ColumnFamilyStore;
 import org.apache.cassandra.db.Keyspace;
 import org.apache.cassandra.dht.Bounds;
 import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.io.sstable.Component;
+import org.apache.cassandra.io.sstable.Descriptor;
+import org.apache.cassandra.io.sstable.SSTable;
 import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.apache.cassandra.io.sstable.format.SSTableWriter;
 import org.apache.cassandra.utils.JVMStabilityInspector;
@@ -60,6 +66,8 @@ public class StreamReceiveTask extends StreamTask
 
     //  holds references to SSTables received
     protected Collection<SSTableWriter> sstables;
+    //  temporary descriptors and components of SSTables received as entire component files
+    protected Collection<Pair<Descriptor, Set<Component>>> entireSSTables;
 
     public StreamReceiveTask(StreamSession session, UUID cfId, int totalFiles, long totalSize)
     {
@@ -67,6 +75,7 @@ public class StreamReceiveTask extends StreamTask
         this.totalFiles = totalFiles;
         this.totalSize = totalSize;
         this.sstables = new ArrayList<>(totalFiles);
+        this.entireSSTables = new ArrayList<>();
     }
 
     /**
@@ -82,8 +91,30 @@ public class StreamReceiveTask extends StreamTask
         assert cfId.equals(sstable.metadata.cfId);
 
         sstables.add(sstable);
+        maybeComplete();
+    }
 
-        if (sstables.size() == totalFiles)
+    /**
+     * Process SSTable received as its entire component files.
+     *
+     * @param descriptor temporary descriptor the components were written under
+     * @param components components received
+     */
+    public synchronized void received(Descriptor descriptor, Set<Component> components)
+    {
+        if (done)
+        {
+            SSTable.delete(descriptor, components);
+            return;
+        }
+
+        entireSSTables.add(Pair.create(descriptor, components));
+        maybeComplete();
+    }
+
+    private void maybeComplete()
+    {
+        if (sstables.size() + entireSSTables.size() == totalFiles)
         {
             done = true;
             executor.submit(new OnCompletionRunnable(this));
@@ -117,21 +148,31 @@ public class StreamReceiveTask extends StreamTask
                 if (kscf == null)
                 {
                     // schema was dropped during streaming
-                    for (SSTableWriter writer : task.sstables)
-                        writer.abort();
-                    task.sstables.clear();
+                    task.abortAll();
                     return;
                 }
                 ColumnFamilyStore cfs = Keyspace.open(kscf.left).getColumnFamilyStore(kscf.right);
 
-                File lockfiledir = cfs.directories.getWriteableLocationAsFile(task.sstables.size() * 256L);
+                File lockfiledir = cfs.directories.getWriteableLocationAsFile(task.totalFiles * 256L);
                 StreamLockfile lockfile = new StreamLockfile(lockfiledir, UUID.randomUUID());
-                lockfile.create(task.sstables);
+                List<Descriptor> entireDescriptors = new ArrayList<>(task.entireSSTables.size());
+                for (Pair<Descriptor, Set<Component>> entire : task.entireSSTables)
+                    entireDescriptors.add(entire.left);
+                lockfile.create(task.sstables, entireDescriptors);
                 List<SSTableReader> readers = new ArrayList<>();
                 for (SSTableWriter writer : task.sstables)
                     readers.add(writer.finish(true));
+                for (Pair<Descriptor, Set<Component>> entire : task.entireSSTables)
+                {
+                    // the components are complete sstable files, so they only need to be moved in place and opened;
+                    // the summary was not sent and is rebuilt from the index on opening
+                    Descriptor desc = SSTableWriter.rename(entire.left, entire.right);
+                    Set<Component> components = Sets.union(entire.right, Collections.singleton(Component.SUMMARY));
+                    readers.add(SSTableReader.open(desc, components, cfs.metadata, cfs.partitioner));
+                }
                 lockfile.delete();
                 task.sstables.clear();
+                task.entireSSTables.clear();
 
                 try (Refs<SSTableReader> refs = Refs.ref(readers))
                 {
@@ -190,8 +231,16 @@ public class StreamReceiveTask extends StreamTask
             return;
 
         done = true;
+        abortAll();
+    }
+
+    private void abortAll()
+    {
         for (SSTableWriter writer : sstables)
             writer.abort();
         sstables.clear();
+        for (Pair<Descriptor, Set<Component>> entire : entireSSTables)
+            SSTable.delete(entire.left, entire.right);
+        entireSSTables.clear();
     }
 }
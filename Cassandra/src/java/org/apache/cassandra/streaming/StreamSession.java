@@ -164,6 +164,9 @@ public class StreamSession implements IEndpointStateChangeSubscriber
     private volatile State state = State.INITIALIZED;
     private volatile boolean completeSent = false;
 
+    // the streaming protocol version of both connections, chosen by the initiator of the session, see protocolVersion()
+    private int protocolVersion = -1;
+
     /**
      * Create new streaming session with the peer.
      *
@@ -208,6 +211,23 @@ public class StreamSession implements IEndpointStateChangeSubscriber
         return isIncremental;
     }
 
+    /**
+     * The streaming protocol version of the session. The initiator picks the highest version the peer advertises in
+     * gossip the first time it is needed, which may be when the transfers are planned, before connecting; the peer
+     * then uses the version of the connections it receives.
+     */
+    public synchronized int protocolVersion()
+    {
+        if (protocolVersion < 0)
+            protocolVersion = StreamMessage.versionFor(peer);
+        return protocolVersion;
+    }
+
+    synchronized void setProtocolVersion(int version)
+    {
+        protocolVersion = version;
+    }
+
 
     /**
      * Bind this session to report to specific {@link StreamResultFuture} and
@@ -346,6 +366,7 @@ public class StreamSession implements IEndpointStateChangeSubscriber
                 }).refs);
             }
 
+            List<Range<Token>> normalizedRanges = Range.normalize(ranges);
             List<SSTableStreamingSections> sections = new ArrayList<>(refs.size());
             for (SSTableReader sstable : refs)
             {
@@ -355,7 +376,8 @@ public class StreamSession implements IEndpointStateChangeSubscriber
                 sections.add(new SSTableStreamingSections(refs.get(sstable),
                                                           sstable.getPositionsForRanges(ranges),
                                                           sstable.estimatedKeysForRanges(ranges),
-                                                          repairedAt));
+                                                          repairedAt,
+                                                          canStreamEntireSSTable(normalizedRanges, sstable)));
             }
             return sections;
         }
@@ -366,6 +388,34 @@ public class StreamSession implements IEndpointStateChangeSubscriber
         }
     }
 
+    /**
+     * An sstable can be sent as its component files, rather than row by row, when all of its data lies within the
+     * ranges being streamed and the receiver can use the files as they are.
+     *
+     * @param normalizedRanges the ranges being streamed, normalized so that none of them wraps around
+     */
+    @VisibleForTesting
+    public static boolean canStreamEntireSSTable(Collection<Range<Token>> normalizedRanges, SSTableReader sstable)
+    {
+        if (!DatabaseDescriptor.streamEntireSSTables() || !sstable.descriptor.version.isLatestVersion())
+            return false;
+
+        // the local shards of counters have to be marked to be cleared by the receiver, which the files can't be as
+        // they are, see BigTableWriter.appendFromStream()
+        if (sstable.metadata.isCounter())
+            return false;
+
+        Token first = sstable.first.getToken();
+        Token last = sstable.last.getToken();
+        for (Range<Token> range : normalizedRanges)
+        {
+            // normalized ranges are contiguous, so one holding both ends of the sstable holds all of it
+            if (range.contains(first) && range.contains(last))
+                return true;
+        }
+        return false;
+    }
+
     public void addTransferFiles(Collection<SSTableStreamingSections> sstableDetails)
     {
         Iterator<SSTableStreamingSections> iter = sstableDetails.iterator();
@@ -390,7 +440,9 @@ public class StreamSession implements IEndpointStateChangeSubscriber
                 if (task == null)
                     task = newTask;
             }
-            task.addTransferFile(details.ref, details.estimatedKeys, details.sections, details.repairedAt);
+            // only peers of a version that knows of them can receive the component files of entire sstables
+            boolean entireSSTable = details.entireSSTable && protocolVersion() >= StreamMessage.VERSION_22_ENTIRE_SSTABLE;
+            task.addTransferFile(details.ref, details.estimatedKeys, details.sections, details.repairedAt, entireSSTable);
             iter.remove();
         }
     }
@@ -401,13 +453,20 @@ public class StreamSession implements IEndpointStateChangeSubscriber
         public final List<Pair<Long, Long>> sections;
         public final long estimatedKeys;
         public final long repairedAt;
+        public final boolean entireSSTable;
 
         public SSTableStreamingSections(Ref<SSTableReader> ref, List<Pair<Long, Long>> sections, long estimatedKeys, long repairedAt)
+        {
+            this(ref, sections, estimatedKeys, repairedAt, false);
+        }
+
+        public SSTableStreamingSections(Ref<SSTableReader> ref, List<Pair<Long, Long>> sections, long estimatedKeys, long repairedAt, boolean entireSSTable)
         {
             this.ref = ref;
             this.sections = sections;
             this.estimatedKeys = estimatedKeys;
             this.repairedAt = repairedAt;
+            this.entireSSTable = entireSSTable;
         }
     }
 
@@ -565,6 +624,9 @@ public class StreamSession implements IEndpointStateChangeSubscriber
     {
         long headerSize = header.size();
         StreamingMetrics.totalOutgoingBytes.inc(headerSize);
+        StreamingMetrics.outgoingThroughput.mark(headerSize);
+        if (header.isEntireSSTable())
+            StreamingMetrics.entireSSTablesOutgoing.inc();
         metrics.outgoingBytes.inc(headerSize);
         // schedule timeout for receiving ACK
         StreamTransferTask task = transfers.get(header.cfId);
@@ -583,10 +645,16 @@ public class StreamSession implements IEndpointStateChangeSubscriber
     {
         long headerSize = message.header.size();
         StreamingMetrics.totalIncomingBytes.inc(headerSize);
+        StreamingMetrics.incomingThroughput.mark(headerSize);
+        if (message.header.isEntireSSTable())
+            StreamingMetrics.entireSSTablesIncoming.inc();
         metrics.incomingBytes.inc(headerSize);
         // send back file received message
         handler.sendMessage(new ReceivedMessage(message.header.cfId, message.header.sequenceNumber));
-        receivers.get(message.header.cfId).received(message.sstable);
+        if (message.entireSSTable != null)
+            receivers.get(message.header.cfId).received(message.entireSSTable, message.header.components.keySet());
+        else
+            receivers.get(message.header.cfId).received(message.sstable);
     }
 
     public void progress(Descriptor desc, ProgressInfo.Direction direction, long bytes, long total)
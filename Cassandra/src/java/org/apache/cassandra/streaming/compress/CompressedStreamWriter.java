@@ -61,7 +61,7 @@ public class CompressedStreamWriter extends StreamWriter
         long totalSize = totalSize();
         logger.debug("[Stream #{}] Start streaming file {} to {}, repairedAt = {}, totalSize = {}", session.planId(),
                      sstable.getFilename(), session.peer, sstable.getSSTableMetadata().repairedAt, totalSize);
-        try (RandomAccessReader file = sstable.openDataReader(); final ChannelProxy fc = file.getChannel())
+        try (RandomAccessReader file = sstable.openUncachedDataReader(); final ChannelProxy fc = file.getChannel())
         {
             long progress = 0L;
             // calculate chunks to transfer. we want to send continuous chunks altogether.
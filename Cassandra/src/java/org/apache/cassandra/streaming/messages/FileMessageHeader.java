@@ -20,12 +20,15 @@ package org.apache.cassandra.streaming.messages;
 import java.io.DataInput;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.apache.cassandra.db.TypeSizes;
 import org.apache.cassandra.io.IVersionedSerializer;
 import org.apache.cassandra.io.compress.CompressionMetadata;
+import org.apache.cassandra.io.sstable.Component;
 import org.apache.cassandra.io.sstable.format.SSTableFormat;
 import org.apache.cassandra.io.util.DataOutputPlus;
 import org.apache.cassandra.net.MessagingService;
@@ -58,6 +61,11 @@ public class FileMessageHeader
     private final CompressionMetadata compressionMetadata;
     public final long repairedAt;
     public final int sstableLevel;
+    /**
+     * Sizes of the component files of the SSTable when it is transferred entire, in the order they are sent.
+     * Null if only sections of the data file are transferred.
+     */
+    public final Map<Component, Long> components;
 
     /* cached size value */
     private transient final long size;
@@ -70,7 +78,8 @@ public class FileMessageHeader
                              List<Pair<Long, Long>> sections,
                              CompressionInfo compressionInfo,
                              long repairedAt,
-                             int sstableLevel)
+                             int sstableLevel,
+                             Map<Component, Long> components)
     {
         this.cfId = cfId;
         this.sequenceNumber = sequenceNumber;
@@ -82,6 +91,7 @@ public class FileMessageHeader
         this.compressionMetadata = null;
         this.repairedAt = repairedAt;
         this.sstableLevel = sstableLevel;
+        this.components = components;
         this.size = calculateSize();
     }
 
@@ -93,7 +103,8 @@ public class FileMessageHeader
                              List<Pair<Long, Long>> sections,
                              CompressionMetadata compressionMetadata,
                              long repairedAt,
-                             int sstableLevel)
+                             int sstableLevel,
+                             Map<Component, Long> components)
     {
         this.cfId = cfId;
         this.sequenceNumber = sequenceNumber;
@@ -105,6 +116,7 @@ public class FileMessageHeader
         this.compressionMetadata = compressionMetadata;
         this.repairedAt = repairedAt;
         this.sstableLevel = sstableLevel;
+        this.components = components;
         this.size = calculateSize();
     }
 
@@ -113,6 +125,11 @@ public class FileMessageHeader
         return compressionInfo != null || compressionMetadata != null;
     }
 
+    public boolean isEntireSSTable()
+    {
+        return components != null;
+    }
+
     /**
      * @return total file size to transfer in bytes
      */
@@ -124,7 +141,12 @@ public class FileMessageHeader
     private long calculateSize()
     {
         long transferSize = 0;
-        if (compressionInfo != null)
+        if (components != null)
+        {
+            for (long componentSize : components.values())
+                transferSize += componentSize;
+        }
+        else if (compressionInfo != null)
         {
             // calculate total length of transferring chunks
             for (CompressionMetadata.Chunk chunk : compressionInfo.chunks)
@@ -153,6 +175,7 @@ public class FileMessageHeader
         sb.append(", estimated keys: ").append(estimatedKeys);
         sb.append(", transfer size: ").append(size());
         sb.append(", compressed?: ").append(isCompressed());
+        sb.append(", entire sstable?: ").append(isEntireSSTable());
         sb.append(", repairedAt: ").append(repairedAt);
         sb.append(", level: ").append(sstableLevel);
         sb.append(')');
@@ -205,6 +228,25 @@ public class FileMessageHeader
             CompressionInfo.serializer.serialize(compressionInfo, out, version);
             out.writeLong(header.repairedAt);
             out.writeInt(header.sstableLevel);
+
+            //We can't send component files to a node that would expect the rows of the sstable
+            if (version < StreamMessage.VERSION_22_ENTIRE_SSTABLE && header.isEntireSSTable())
+                throw new UnsupportedOperationException("Can't stream entire sstables to nodes using streaming protocol version " + version);
+
+            if (version >= StreamMessage.VERSION_22_ENTIRE_SSTABLE)
+            {
+                out.writeBoolean(header.isEntireSSTable());
+                if (header.isEntireSSTable())
+                {
+                    out.writeInt(header.components.size());
+                    for (Map.Entry<Component, Long> component : header.components.entrySet())
+                    {
+                        out.writeUTF(component.getKey().type.name());
+                        out.writeUTF(component.getKey().name);
+                        out.writeLong(component.getValue());
+                    }
+                }
+            }
             return compressionInfo;
         }
 
@@ -226,7 +268,19 @@ public class FileMessageHeader
             CompressionInfo compressionInfo = CompressionInfo.serializer.deserialize(in, MessagingService.current_version);
             long repairedAt = in.readLong();
             int sstableLevel = in.readInt();
-            return new FileMessageHeader(cfId, sequenceNumber, sstableVersion, format, estimatedKeys, sections, compressionInfo, repairedAt, sstableLevel);
+
+            Map<Component, Long> components = null;
+            if (version >= StreamMessage.VERSION_22_ENTIRE_SSTABLE && in.readBoolean())
+            {
+                int componentCount = in.readInt();
+                components = new LinkedHashMap<>(componentCount);
+                for (int k = 0; k < componentCount; k++)
+                {
+                    Component.Type type = Component.Type.valueOf(in.readUTF());
+                    components.put(new Component(type, in.readUTF()), in.readLong());
+                }
+            }
+            return new FileMessageHeader(cfId, sequenceNumber, sstableVersion, format, estimatedKeys, sections, compressionInfo, repairedAt, sstableLevel, components);
         }
 
         public long serializedSize(FileMessageHeader header, int version)
@@ -248,6 +302,21 @@ public class FileMessageHeader
             }
             size += CompressionInfo.serializer.serializedSize(header.compressionInfo, version);
             size += TypeSizes.NATIVE.sizeof(header.sstableLevel);
+
+            if (version >= StreamMessage.VERSION_22_ENTIRE_SSTABLE)
+            {
+                size += TypeSizes.NATIVE.sizeof(header.isEntireSSTable());
+                if (header.isEntireSSTable())
+                {
+                    size += TypeSizes.NATIVE.sizeof(header.components.size());
+                    for (Map.Entry<Component, Long> component : header.components.entrySet())
+                    {
+                        size += TypeSizes.NATIVE.sizeof(component.getKey().type.name());
+                        size += TypeSizes.NATIVE.sizeof(component.getKey().name);
+                        size += TypeSizes.NATIVE.sizeof(component.getValue());
+                    }
+                }
+            }
             return size;
         }
     }
@@ -24,8 +24,10 @@ import java.nio.channels.ReadableByteChannel;
 
 import com.google.common.base.Optional;
 
+import org.apache.cassandra.io.sstable.Descriptor;
 import org.apache.cassandra.io.sstable.format.SSTableWriter;
 import org.apache.cassandra.io.util.DataOutputStreamPlus;
+import org.apache.cassandra.streaming.EntireSSTableStreamReader;
 import org.apache.cassandra.streaming.StreamReader;
 import org.apache.cassandra.streaming.StreamSession;
 import org.apache.cassandra.streaming.compress.CompressedStreamReader;
@@ -45,11 +47,13 @@ public class IncomingFileMessage extends StreamMessage
         {
             DataInputStream input = new DataInputStream(Channels.newInputStream(in));
             FileMessageHeader header = FileMessageHeader.serializer.deserialize(input, version);
-            StreamReader reader = !header.isCompressed() ? new StreamReader(header, session)
-                    : new CompressedStreamReader(header, session);
-
             try
             {
+                if (header.isEntireSSTable())
+                    return new IncomingFileMessage(new EntireSSTableStreamReader(header, session).read(in), header);
+
+                StreamReader reader = !header.isCompressed() ? new StreamReader(header, session)
+                        : new CompressedStreamReader(header, session);
                 return new IncomingFileMessage(reader.read(in), header);
             }
             catch (Throwable t)
@@ -67,6 +71,8 @@ public class IncomingFileMessage extends StreamMessage
 
     public FileMessageHeader header;
     public SSTableWriter sstable;
+    /** Temporary descriptor of the sstable when its component files were received entire, null otherwise */
+    public Descriptor entireSSTable;
 
     public IncomingFileMessage(SSTableWriter sstable, FileMessageHeader header)
     {
@@ -75,10 +81,17 @@ public class IncomingFileMessage extends StreamMessage
         this.sstable = sstable;
     }
 
+    public IncomingFileMessage(Descriptor entireSSTable, FileMessageHeader header)
+    {
+        super(Type.FILE);
+        this.header = header;
+        this.entireSSTable = entireSSTable;
+    }
+
     @Override
     public String toString()
     {
-        return "File (" + header + ", file: " + sstable.getFilename() + ")";
+        return "File (" + header + ", file: " + (sstable != null ? sstable.getFilename() : entireSSTable.baseFilename()) + ")";
     }
 }
 
@@ -17,15 +17,19 @@
  */
 package org.apache.cassandra.streaming.messages;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.channels.ReadableByteChannel;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.google.common.annotations.VisibleForTesting;
 
-import org.apache.cassandra.io.compress.CompressionMetadata;
+import org.apache.cassandra.io.sstable.Component;
 import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.apache.cassandra.io.util.DataOutputStreamPlus;
+import org.apache.cassandra.streaming.EntireSSTableStreamWriter;
 import org.apache.cassandra.streaming.StreamSession;
 import org.apache.cassandra.streaming.StreamWriter;
 import org.apache.cassandra.streaming.compress.CompressedStreamWriter;
@@ -67,6 +71,11 @@ public class OutgoingFileMessage extends StreamMessage
     private boolean transferring = false;
 
     public OutgoingFileMessage(Ref<SSTableReader> ref, int sequenceNumber, long estimatedKeys, List<Pair<Long, Long>> sections, long repairedAt, boolean keepSSTableLevel)
+    {
+        this(ref, sequenceNumber, estimatedKeys, sections, repairedAt, keepSSTableLevel, false);
+    }
+
+    public OutgoingFileMessage(Ref<SSTableReader> ref, int sequenceNumber, long estimatedKeys, List<Pair<Long, Long>> sections, long repairedAt, boolean keepSSTableLevel, boolean entireSSTable)
     {
         super(Type.FILE);
         this.ref = ref;
@@ -79,9 +88,25 @@ public class OutgoingFileMessage extends StreamMessage
                                             sstable.descriptor.formatType,
                                             estimatedKeys,
                                             sections,
-                                            sstable.compression ? sstable.getCompressionMetadata() : null,
+                                            sstable.compression && !entireSSTable ? sstable.getCompressionMetadata() : null,
                                             repairedAt,
-                                            keepSSTableLevel ? sstable.getSSTableLevel() : 0);
+                                            keepSSTableLevel ? sstable.getSSTableLevel() : 0,
+                                            entireSSTable ? componentSizes(sstable) : null);
+    }
+
+    private static Map<Component, Long> componentSizes(SSTableReader sstable)
+    {
+        Map<Component, Long> sizes = new LinkedHashMap<>();
+        for (Component component : sstable.getComponents())
+        {
+            // the summary can be rewritten in place while we send it, so it is left for the receiver to rebuild
+            if (component.equals(Component.SUMMARY))
+                continue;
+            File file = new File(sstable.descriptor.filenameFor(component));
+            if (file.exists())
+                sizes.put(component, file.length());
+        }
+        return sizes;
     }
 
     public synchronized void serialize(DataOutputStreamPlus out, int version, StreamSession session) throws IOException
@@ -94,6 +119,12 @@ public class OutgoingFileMessage extends StreamMessage
         CompressionInfo compressionInfo = FileMessageHeader.serializer.serialize(header, out, version);
 
         final SSTableReader reader = ref.get();
+        if (header.isEntireSSTable())
+        {
+            new EntireSSTableStreamWriter(reader, header.components, session).write(out);
+            return;
+        }
+
         StreamWriter writer = compressionInfo == null ?
                                       new StreamWriter(reader, header.sections, session) :
                                       new CompressedStreamWriter(reader, header.sections,
@@ -18,12 +18,18 @@
 package org.apache.cassandra.streaming.messages;
 
 import java.io.IOException;
+import java.net.InetAddress;
 import java.net.SocketException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
 
+import org.apache.cassandra.gms.ApplicationState;
+import org.apache.cassandra.gms.EndpointState;
+import org.apache.cassandra.gms.Gossiper;
+import org.apache.cassandra.gms.VersionedValue;
 import org.apache.cassandra.io.util.DataOutputStreamPlus;
 import org.apache.cassandra.streaming.StreamSession;
+import org.apache.cassandra.utils.FBUtilities;
 
 /**
  * StreamMessage is an abstract base class that every messages in streaming protocol inherit.
@@ -35,7 +41,41 @@ public abstract class StreamMessage
     /** Streaming protocol version */
     public static final int VERSION_20 = 2;
     public static final int VERSION_22 = 3;
-    public static final int CURRENT_VERSION = VERSION_22;
+    /** Adds the transfer of entire sstables as their component files */
+    public static final int VERSION_22_ENTIRE_SSTABLE = 4;
+    public static final int CURRENT_VERSION = VERSION_22_ENTIRE_SSTABLE;
+
+    /**
+     * @return whether connections of streaming protocol {@code version} are accepted
+     */
+    public static boolean isSupported(int version)
+    {
+        return version >= VERSION_22 && version <= CURRENT_VERSION;
+    }
+
+    /**
+     * The version a session initiated with {@code peer} uses, which the peer then answers with: the highest version
+     * that both support. Peers that do not advertise a streaming version in gossip only support {@link #VERSION_22}.
+     */
+    public static int versionFor(InetAddress peer)
+    {
+        if (peer.equals(FBUtilities.getBroadcastAddress()))
+            return CURRENT_VERSION;
+
+        EndpointState state = Gossiper.instance.getEndpointStateForEndpoint(peer);
+        VersionedValue value = state == null ? null : state.getApplicationState(ApplicationState.STREAMING_VERSION);
+        if (value == null)
+            return VERSION_22;
+
+        try
+        {
+            return Math.max(VERSION_22, Math.min(CURRENT_VERSION, Integer.parseInt(value.value)));
+        }
+        catch (NumberFormatException e)
+        {
+            return VERSION_22;
+        }
+    }
 
     public static void serialize(StreamMessage message, DataOutputStreamPlus out, int version, StreamSession session) throws IOException
     {
@@ -36,12 +36,17 @@ import io.netty.buffer.ByteBuf;
 import io.netty.channel.*;
 import io.netty.handler.codec.MessageToMessageDecoder;
 import io.netty.handler.codec.MessageToMessageEncoder;
+import io.netty.util.concurrent.EventExecutor;
 
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.cql3.statements.ParsedStatement;
+import org.apache.cassandra.cql3.statements.SelectStatement;
+import org.apache.cassandra.service.ClientState;
 import org.apache.cassandra.service.ClientWarn;
 import org.apache.cassandra.transport.messages.*;
 import org.apache.cassandra.service.QueryState;
@@ -490,7 +495,15 @@ public abstract class Message
         @Override
         public void channelRead0(ChannelHandlerContext ctx, Request request)
         {
+            processRequest(ctx, request);
+        }
 
+        /**
+         * Executes {@code request} and queues its response (or error) to be written and flushed on the event loop of
+         * the channel of {@code ctx}.
+         */
+        static void processRequest(ChannelHandlerContext ctx, Request request)
+        {
             final Response response;
             final ServerConnection connection;
 
@@ -526,7 +539,7 @@ public abstract class Message
             flush(new FlushItem(ctx, response, request.getSourceFrame()));
         }
 
-        private void flush(FlushItem item)
+        private static void flush(FlushItem item)
         {
             EventLoop loop = item.ctx.channel().eventLoop();
             Flusher flusher = flusherLookup.get(loop);
@@ -542,6 +555,80 @@ public abstract class Message
         }
     }
 
+    /**
+     * Gathers the prepared reads a channel read decodes and hands them to the request executor in batches of up to
+     * native_transport_read_batch_size, executed one after the other by a single task. This saves a task hand-off per
+     * read when clients pipeline many small reads on a connection. Any other request is passed on to the
+     * {@link Dispatcher} as it comes, as are all requests when the batch size is 1.
+     *
+     * Runs on the event loop of its channel, so one instance per channel.
+     */
+    public static class ReadBatcher extends ChannelInboundHandlerAdapter
+    {
+        private final EventExecutor executor;
+        private List<Request> batch = new ArrayList<>();
+
+        public ReadBatcher(EventExecutor executor)
+        {
+            this.executor = executor;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg)
+        {
+            int batchSize = DatabaseDescriptor.getNativeTransportReadBatchSize();
+            if (batchSize <= 1 || !isPreparedRead(msg))
+            {
+                ctx.fireChannelRead(msg);
+                return;
+            }
+
+            batch.add((Request) msg);
+            if (batch.size() >= batchSize)
+                submit(ctx);
+        }
+
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx)
+        {
+            // the end of what was read from the socket at once: don't hold back the requests of an incomplete batch
+            if (!batch.isEmpty())
+                submit(ctx);
+            ctx.fireChannelReadComplete();
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx)
+        {
+            if (!batch.isEmpty())
+                submit(ctx);
+            ctx.fireChannelInactive();
+        }
+
+        private void submit(final ChannelHandlerContext ctx)
+        {
+            final List<Request> requests = batch;
+            batch = new ArrayList<>();
+            executor.execute(new Runnable()
+            {
+                public void run()
+                {
+                    for (Request request : requests)
+                        Dispatcher.processRequest(ctx, request);
+                }
+            });
+        }
+
+        private static boolean isPreparedRead(Object msg)
+        {
+            if (!(msg instanceof ExecuteMessage))
+                return false;
+
+            ParsedStatement.Prepared prepared = ClientState.getCQLQueryHandler().getPrepared(((ExecuteMessage) msg).statementId);
+            return prepared != null && prepared.statement instanceof SelectStatement;
+        }
+    }
+
     @ChannelHandler.Sharable
     public static final class ExceptionHandler extends ChannelInboundHandlerAdapter
     {
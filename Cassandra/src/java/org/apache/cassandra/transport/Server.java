@@ -355,6 +355,9 @@ public class Server implements CassandraDaemon.Server
             pipeline.addLast("messageDecoder", messageDecoder);
             pipeline.addLast("messageEncoder", messageEncoder);
 
+            // ahead of the exceptionHandler, which thus also handles its exceptions
+            pipeline.addLast("readBatcher", new Message.ReadBatcher(server.eventExecutorGroup));
+
             // The exceptionHandler will take care of handling exceptionCaught(...) events while still running
             // on the same EventLoop as all previous added handlers in the pipeline. This is important as the used
             // eventExecutorGroup may not enforce strict ordering for channel events.
@@ -21,6 +21,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -225,6 +226,37 @@ public class SimpleClient implements Closeable
         }
     }
 
+    /**
+     * Writes the requests with a single flush, so that they reach the server pipelined, and waits for all of their
+     * responses. The requests are given the stream id of their position, so there can be no more than 128 of them
+     * with protocol v2.
+     *
+     * @return the responses, errors included, in the order they arrive
+     */
+    public List<Message.Response> execute(List<? extends Message.Request> requests)
+    {
+        try
+        {
+            for (int i = 0; i < requests.size(); i++)
+            {
+                Message.Request request = requests.get(i);
+                request.attach(connection);
+                request.setStreamId(i);
+                lastWriteFuture = channel.write(request);
+            }
+            channel.flush();
+
+            List<Message.Response> responses = new ArrayList<>(requests.size());
+            for (int i = 0; i < requests.size(); i++)
+                responses.add(responseHandler.responses.take());
+            return responses;
+        }
+        catch (InterruptedException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
     public interface EventHandler
     {
         void onEvent(Event event);
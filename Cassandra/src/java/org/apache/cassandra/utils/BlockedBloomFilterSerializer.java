@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.utils;
+
+import java.io.DataInput;
+import java.io.IOException;
+
+import org.apache.cassandra.db.TypeSizes;
+import org.apache.cassandra.io.ISerializer;
+import org.apache.cassandra.io.util.DataOutputPlus;
+import org.apache.cassandra.utils.obs.IBitSet;
+import org.apache.cassandra.utils.obs.OffHeapBitSet;
+import org.apache.cassandra.utils.obs.OpenBitSet;
+
+/**
+ * Serializes a blocked Bloom filter as a format marker followed by the hash count and the bitset. A BloomFilter
+ * starts with its hash count, which is always positive, so the marker being negative lets
+ * {@link FilterFactory#deserialize} tell both formats apart.
+ */
+class BlockedBloomFilterSerializer implements ISerializer<BlockedBloomFilter>
+{
+    static final int FORMAT = -1;
+
+    public void serialize(BlockedBloomFilter bf, DataOutputPlus out) throws IOException
+    {
+        out.writeInt(FORMAT);
+        out.writeInt(bf.hashCount);
+        bf.bitset.serialize(out);
+    }
+
+    public BlockedBloomFilter deserialize(DataInput in) throws IOException
+    {
+        return deserialize(in, false);
+    }
+
+    public BlockedBloomFilter deserialize(DataInput in, boolean offheap) throws IOException
+    {
+        int format = in.readInt();
+        if (format != FORMAT)
+            throw new IOException("Unknown blocked bloom filter format " + format);
+        return deserializeAfterFormat(in, offheap);
+    }
+
+    /**
+     * Deserializes a filter whose format marker has already been read.
+     */
+    @SuppressWarnings("resource")
+    BlockedBloomFilter deserializeAfterFormat(DataInput in, boolean offheap) throws IOException
+    {
+        int hashes = in.readInt();
+        IBitSet bs = offheap ? OffHeapBitSet.deserialize(in) : OpenBitSet.deserialize(in);
+        return new BlockedBloomFilter(hashes, bs);
+    }
+
+    public long serializedSize(BlockedBloomFilter bf, TypeSizes typeSizes)
+    {
+        int size = typeSizes.sizeof(FORMAT);
+        size += typeSizes.sizeof(bf.hashCount);
+        size += bf.bitset.serializedSize(typeSizes);
+        return size;
+    }
+}
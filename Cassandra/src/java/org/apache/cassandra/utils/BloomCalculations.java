@@ -33,6 +33,10 @@ public class BloomCalculations
 
     private static final int EXCESS = 20;
 
+    // the hashes of a blocked filter are derived from each other within a small block, which roughly doubles its
+    // false positive rate over the estimate for independent hashes; size for a rate this many times lower
+    private static final int blockedHashingMargin = 4;
+
     /**
      * In the following keyspaceName, the row 'i' shows false positive rates if i buckets
      * per element are used.  Cell 'j' shows false positive rates if j hash
@@ -167,6 +171,61 @@ public class BloomCalculations
         return new BloomSpecification(K, bucketsPerElement);
     }
 
+    /**
+     * Computes the specification of a blocked Bloom filter, in which all the hashes of an element fall in a single
+     * block of blockBits buckets, giving less than the specified false positive rate. As for a plain filter, the
+     * number of buckets per element is minimized first and the number of hash functions second.
+     *
+     * Blocks do not receive the same number of elements, so a blocked filter needs a few more buckets per element
+     * than a plain one for the same false positive rate; the rate is estimated as the rate of a plain filter of
+     * blockBits buckets averaged over the Poisson distributed number of elements a block receives. The estimate
+     * assumes independent hashes, so it is required to be a few times below the tolerable rate.
+     *
+     * @param blockBits The number of buckets of a block.
+     * @param maxBucketsPerElement The maximum number of buckets available for the filter.
+     * @param maxFalsePosProb The maximum tolerable false positive rate.
+     * @return A Bloom Specification which would result in a false positive rate
+     * less than specified by the function call, or the most precise one supported if none does
+     */
+    public static BloomSpecification computeBlockedBloomSpec(int blockBits, int maxBucketsPerElement, double maxFalsePosProb)
+    {
+        assert maxBucketsPerElement >= minBuckets;
+        BloomSpecification best = null;
+        double bestProb = Double.MAX_VALUE;
+        for (int bucketsPerElement = minBuckets; bucketsPerElement <= maxBucketsPerElement; bucketsPerElement++)
+        {
+            for (int k = minK; k <= bucketsPerElement; k++)
+            {
+                double prob = blockedFalsePositiveRate(blockBits, bucketsPerElement, k);
+                if (prob * blockedHashingMargin <= maxFalsePosProb)
+                    return new BloomSpecification(k, bucketsPerElement);
+                if (prob < bestProb)
+                {
+                    bestProb = prob;
+                    best = new BloomSpecification(k, bucketsPerElement);
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the expected false positive rate of a blocked Bloom filter with the given parameters
+     */
+    static double blockedFalsePositiveRate(int blockBits, int bucketsPerElement, int k)
+    {
+        double elementsPerBlock = (double) blockBits / bucketsPerElement;
+        double limit = elementsPerBlock + 12 * Math.sqrt(elementsPerBlock) + 12;
+        double poisson = Math.exp(-elementsPerBlock);
+        double prob = 0;
+        for (int n = 0; n <= limit; n++)
+        {
+            prob += poisson * Math.pow(1 - Math.pow(1 - 1.0 / blockBits, (double) k * n), k);
+            poisson *= elementsPerBlock / (n + 1);
+        }
+        return prob;
+    }
+
     /**
      * Calculates the maximum number of buckets per element that this implementation
      * can support.  Crucially, it will lower the bucket count if necessary to meet
@@ -43,7 +43,15 @@ class BloomFilterSerializer implements ISerializer<BloomFilter>
     @SuppressWarnings("resource")
     public BloomFilter deserialize(DataInput in, boolean offheap) throws IOException
     {
-        int hashes = in.readInt();
+        return deserialize(in.readInt(), in, offheap);
+    }
+
+    /**
+     * Deserializes a filter whose hash count has already been read.
+     */
+    @SuppressWarnings("resource")
+    BloomFilter deserialize(int hashes, DataInput in, boolean offheap) throws IOException
+    {
         IBitSet bs = offheap ? OffHeapBitSet.deserialize(in) : OpenBitSet.deserialize(in);
         return createFilter(hashes, bs);
     }
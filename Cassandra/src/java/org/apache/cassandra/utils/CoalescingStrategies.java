@@ -229,8 +229,11 @@ public class CoalescingStrategies
 
     }
 
-    @VisibleForTesting
-    interface Parker
+    /**
+     * What a strategy waits for more elements with. The default one parks the calling thread; callers that must not
+     * block, like the Netty messaging transport, pass one that only records the delay and act on it themselves.
+     */
+    public interface Parker
     {
         void park(long nanos);
     }
@@ -509,12 +512,11 @@ public class CoalescingStrategies
         }
     }
 
-    @VisibleForTesting
-    static CoalescingStrategy newCoalescingStrategy(String strategy,
-                                                    int coalesceWindow,
-                                                    Parker parker,
-                                                    Logger logger,
-                                                    String displayName)
+    public static CoalescingStrategy newCoalescingStrategy(String strategy,
+                                                           int coalesceWindow,
+                                                           Parker parker,
+                                                           Logger logger,
+                                                           String displayName)
     {
         String classname = null;
         String strategyCleaned = strategy.trim().toUpperCase();
@@ -19,7 +19,11 @@ package org.apache.cassandra.utils;
 
 import java.io.DataInput;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import org.apache.cassandra.exceptions.ConfigurationException;
 import org.apache.cassandra.io.util.DataOutputPlus;
 import org.apache.cassandra.utils.obs.IBitSet;
 import org.apache.cassandra.utils.obs.OffHeapBitSet;
@@ -35,14 +39,53 @@ public class FilterFactory
     private static final Logger logger = LoggerFactory.getLogger(FilterFactory.class);
     private static final long BITSET_EXCESS = 20;
 
+    // the specifications of blocked filters, by false positive chance; tables use few distinct chances
+    private static final ConcurrentMap<Double, BloomCalculations.BloomSpecification> blockedSpecs = new ConcurrentHashMap<>();
+
+    /**
+     * The implementations of {@link IFilter} that can be persisted.
+     */
+    public enum Type
+    {
+        /** A standard Bloom filter, whose hashes each fall anywhere in the bitset. */
+        STANDARD,
+        /** A blocked Bloom filter, whose hashes for a key all fall in a single block of 512 bits. */
+        BLOCKED;
+
+        public static Type fromString(String name) throws ConfigurationException
+        {
+            try
+            {
+                return valueOf(name.toUpperCase());
+            }
+            catch (IllegalArgumentException e)
+            {
+                throw new ConfigurationException(String.format("Invalid bloom filter type '%s', must be one of %s", name, Arrays.toString(values())));
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            return name().toLowerCase();
+        }
+    }
+
     public static void serialize(IFilter bf, DataOutputPlus output) throws IOException
     {
-        BloomFilter.serializer.serialize((BloomFilter) bf, output);
+        if (bf instanceof BlockedBloomFilter)
+            BlockedBloomFilter.serializer.serialize((BlockedBloomFilter) bf, output);
+        else
+            BloomFilter.serializer.serialize((BloomFilter) bf, output);
     }
 
     public static IFilter deserialize(DataInput input, boolean offheap) throws IOException
     {
-        return BloomFilter.serializer.deserialize(input, offheap);
+        // a standard filter starts with its hash count, later formats with a negative marker
+        int header = input.readInt();
+        if (header == BlockedBloomFilterSerializer.FORMAT)
+            return BlockedBloomFilter.serializer.deserializeAfterFormat(input, offheap);
+        return BloomFilter.serializer.deserialize(header, input, offheap);
     }
 
     /**
@@ -69,10 +112,21 @@ public class FilterFactory
      *         filter.
      */
     public static IFilter getFilter(long numElements, double maxFalsePosProbability, boolean offheap)
+    {
+        return getFilter(numElements, maxFalsePosProbability, Type.STANDARD, offheap);
+    }
+
+    /**
+     * @return The smallest filter of the given type that can provide the given
+     *         false positive probability rate for the given number of elements.
+     */
+    public static IFilter getFilter(long numElements, double maxFalsePosProbability, Type type, boolean offheap)
     {
         assert maxFalsePosProbability <= 1.0 : "Invalid probability";
         if (maxFalsePosProbability == 1.0)
             return new AlwaysPresentFilter();
+        if (type == Type.BLOCKED)
+            return createBlockedFilter(numElements, maxFalsePosProbability, offheap);
         int bucketsPerElement = BloomCalculations.maxBucketsPerElement(numElements);
         BloomCalculations.BloomSpecification spec = BloomCalculations.computeBloomSpec(bucketsPerElement, maxFalsePosProbability);
         return createFilter(spec.K, numElements, spec.bucketsPerElement, offheap);
@@ -85,4 +139,29 @@ public class FilterFactory
         IBitSet bitset = offheap ? new OffHeapBitSet(numBits) : new OpenBitSet(numBits);
         return new BloomFilter(hash, bitset);
     }
+
+    @SuppressWarnings("resource")
+    private static IFilter createBlockedFilter(long numElements, double maxFalsePosProbability, boolean offheap)
+    {
+        int maxBucketsPerElement = BloomCalculations.maxBucketsPerElement(numElements);
+        BloomCalculations.BloomSpecification spec = blockedSpec(maxFalsePosProbability);
+        if (spec.bucketsPerElement > maxBucketsPerElement)
+            spec = BloomCalculations.computeBlockedBloomSpec(BlockedBloomFilter.BLOCK_BITS, maxBucketsPerElement, maxFalsePosProbability);
+        long numBits = Math.max(1, numElements) * spec.bucketsPerElement;
+        long numBlocks = (numBits + BlockedBloomFilter.BLOCK_BITS - 1) / BlockedBloomFilter.BLOCK_BITS;
+        numBits = numBlocks * BlockedBloomFilter.BLOCK_BITS;
+        IBitSet bitset = offheap ? new OffHeapBitSet(numBits) : new OpenBitSet(numBits);
+        return new BlockedBloomFilter(spec.K, bitset);
+    }
+
+    private static BloomCalculations.BloomSpecification blockedSpec(double maxFalsePosProbability)
+    {
+        BloomCalculations.BloomSpecification spec = blockedSpecs.get(maxFalsePosProbability);
+        if (spec == null)
+        {
+            spec = BloomCalculations.computeBlockedBloomSpec(BlockedBloomFilter.BLOCK_BITS, BloomCalculations.probs.length - 1, maxFalsePosProbability);
+            blockedSpecs.putIfAbsent(maxFalsePosProbability, spec);
+        }
+        return spec;
+    }
 }
@@ -20,6 +20,7 @@ package org.apache.cassandra.utils;
 import java.io.DataInput;
 import java.io.IOException;
 import java.io.Serializable;
+import java.nio.ByteOrder;
 import java.util.*;
 
 import com.google.common.base.Preconditions;
@@ -34,6 +35,8 @@ import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.exceptions.ConfigurationException;
 import org.apache.cassandra.io.IVersionedSerializer;
 import org.apache.cassandra.io.util.DataOutputPlus;
+import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.io.util.SafeMemory;
 
 /**
  * A MerkleTree implemented as a binary tree.
@@ -54,6 +57,10 @@ import org.apache.cassandra.io.util.DataOutputPlus;
  *
  * If two MerkleTrees have the same hashdepth, they represent a perfect tree
  * of the same depth, and can always be compared, regardless of size or splits.
+ *
+ * A tree is built on heap, but a deserialized tree, or one moved with moveOffHeap(),
+ * keeps its nodes in off-heap memory (see {@link OffHeapNodes}). Such a tree is read
+ * only, and its memory must be freed with release() once it is no longer needed.
  */
 public class MerkleTree implements Serializable
 {
@@ -75,7 +82,9 @@ public class MerkleTree implements Serializable
 
     private long maxsize;
     private long size;
+    // exactly one of root and offHeap is set, until the tree is released
     private Hashable root;
+    private transient OffHeapNodes offHeap;
 
     public static class MerkleTreeSerializer implements IVersionedSerializer<MerkleTree>
     {
@@ -88,7 +97,10 @@ public class MerkleTree implements Serializable
             // full range
             Token.serializer.serialize(mt.fullRange.left, out, version);
             Token.serializer.serialize(mt.fullRange.right, out, version);
-            Hashable.serializer.serialize(mt.root, out, version);
+            if (mt.offHeap != null)
+                serializeOffHeap(mt, 0, mt.fullRange.left, mt.fullRange.right, out, version);
+            else
+                Hashable.serializer.serialize(mt.checkOnHeap(), out, version);
         }
 
         public MerkleTree deserialize(DataInput in, int version) throws IOException
@@ -113,7 +125,19 @@ public class MerkleTree implements Serializable
 
             MerkleTree mt = new MerkleTree(partitioner, fullRange, hashdepth, maxsize);
             mt.size = size;
-            mt.root = Hashable.serializer.deserialize(in, partitioner, version);
+            mt.root = null;
+            // a tree of size leaves has 2 * size - 1 nodes, unless it was sized by init() over a range too small for it
+            OffHeapNodes nodes = new OffHeapNodes(2 * size - 1);
+            try
+            {
+                deserializeOffHeap(nodes, in);
+            }
+            catch (Throwable t)
+            {
+                nodes.release();
+                throw t;
+            }
+            mt.offHeap = nodes;
             return mt;
         }
 
@@ -128,9 +152,82 @@ public class MerkleTree implements Serializable
             size += Token.serializer.serializedSize(mt.fullRange.left, version);
             size += Token.serializer.serializedSize(mt.fullRange.right, version);
 
-            size += Hashable.serializer.serializedSize(mt.root, version);
+            if (mt.offHeap != null)
+                size += serializedSizeOffHeap(mt, 0, mt.fullRange.left, mt.fullRange.right, version);
+            else
+                size += Hashable.serializer.serializedSize(mt.checkOnHeap(), version);
             return size;
         }
+
+        /**
+         * Writes the node and its subtree in the format of {@link Hashable#serializer}, with the tokens of inner nodes
+         * recomputed as the midpoints of their ranges.
+         */
+        private static void serializeOffHeap(MerkleTree mt, int node, Token left, Token right, DataOutputPlus out, int version) throws IOException
+        {
+            OffHeapNodes nodes = mt.offHeap;
+            out.writeByte(nodes.isLeaf(node) ? Leaf.IDENT : Inner.IDENT);
+            nodes.writeHash(node, out);
+            if (nodes.isLeaf(node))
+                return;
+
+            Token midpoint = mt.partitioner.midpoint(left, right);
+            Token.serializer.serialize(midpoint, out, version);
+            serializeOffHeap(mt, nodes.lchild(node), left, midpoint, out, version);
+            serializeOffHeap(mt, nodes.rchild(node), midpoint, right, out, version);
+        }
+
+        private static long serializedSizeOffHeap(MerkleTree mt, int node, Token left, Token right, int version)
+        {
+            OffHeapNodes nodes = mt.offHeap;
+            long size = 1 + TypeSizes.NATIVE.sizeof(-1) + nodes.hashLength(node);
+            if (nodes.isLeaf(node))
+                return size;
+
+            Token midpoint = mt.partitioner.midpoint(left, right);
+            return size + Token.serializer.serializedSize(midpoint, version)
+                   + serializedSizeOffHeap(mt, nodes.lchild(node), left, midpoint, version)
+                   + serializedSizeOffHeap(mt, nodes.rchild(node), midpoint, right, version);
+        }
+
+        /**
+         * Reads a node written by {@link Hashable#serializer}, and its subtree, straight into off-heap memory. As when
+         * deserializing on heap, the hashes of inner nodes are computed from their children rather than read; their
+         * tokens are skipped as they are the midpoints of their ranges.
+         *
+         * @return the index of the node
+         */
+        private static int deserializeOffHeap(OffHeapNodes nodes, DataInput in) throws IOException
+        {
+            byte ident = in.readByte();
+            if (Inner.IDENT != ident && Leaf.IDENT != ident)
+                throw new IOException("Unexpected Hashable: " + ident);
+
+            int node = nodes.add(Leaf.IDENT == ident);
+            int hashLen = in.readInt();
+            if (Inner.IDENT == ident)
+            {
+                if (hashLen > 0)
+                    FileUtils.skipBytesFully(in, hashLen);
+                FileUtils.skipBytesFully(in, in.readInt());
+                deserializeOffHeap(nodes, in);
+                nodes.rchild(node, deserializeOffHeap(nodes, in));
+                nodes.calc(node);
+                return node;
+            }
+
+            if (hashLen > 0)
+            {
+                if (!nodes.acceptsHashLength(hashLen))
+                    throw new IOException("Hash of " + hashLen + " bytes in a tree of " + nodes.hashLength() + " byte hashes");
+                nodes.readHash(node, in, hashLen);
+            }
+            else if (hashLen == 0)
+            {
+                nodes.hash(node, EMPTY_HASH);
+            }
+            return node;
+        }
     }
 
     /**
@@ -171,6 +268,7 @@ public class MerkleTree implements Serializable
         byte sizedepth = (byte)(Math.log10(maxsize) / Math.log10(2));
         byte depth = (byte)Math.min(sizedepth, hashdepth);
 
+        checkOnHeap();
         root = initHelper(fullRange.left, fullRange.right, (byte)0, depth);
         size = (long)Math.pow(2, depth);
     }
@@ -195,6 +293,71 @@ public class MerkleTree implements Serializable
         return root;
     }
 
+    private Hashable checkOnHeap()
+    {
+        if (root == null)
+            throw new IllegalStateException(offHeap == null ? "Tree has been released" : "Tree is read only once off heap");
+        return root;
+    }
+
+    public boolean isOffHeap()
+    {
+        return offHeap != null;
+    }
+
+    /**
+     * Moves the nodes of this tree to off-heap memory, where it can still be hashed, compared and serialized, but no
+     * longer modified. The tree must then be released. All the hashes of the tree must be of the same length.
+     */
+    public void moveOffHeap()
+    {
+        Hashable current = checkOnHeap();
+        OffHeapNodes nodes = new OffHeapNodes(2 * size - 1);
+        try
+        {
+            moveOffHeapHelper(current, nodes);
+        }
+        catch (Throwable t)
+        {
+            nodes.release();
+            throw t;
+        }
+        offHeap = nodes;
+        root = null;
+    }
+
+    private static int moveOffHeapHelper(Hashable hashable, OffHeapNodes nodes)
+    {
+        int node = nodes.add(hashable instanceof Leaf);
+        if (hashable instanceof Leaf)
+        {
+            byte[] hash = hashable.hash;
+            if (hash != null && hash.length > 0 && !nodes.acceptsHashLength(hash.length))
+                throw new IllegalStateException("Hash of " + hash.length + " bytes in a tree of " + nodes.hashLength() + " byte hashes");
+            nodes.hash(node, hash);
+            nodes.sizeOfRange(node, hashable.sizeOfRange, hashable.rowsInRange);
+            return node;
+        }
+
+        Inner inner = (Inner)hashable;
+        moveOffHeapHelper(inner.lchild, nodes);
+        nodes.rchild(node, moveOffHeapHelper(inner.rchild, nodes));
+        nodes.calc(node);
+        return node;
+    }
+
+    /**
+     * Frees the off-heap memory of this tree, after which it can no longer be used. Does nothing for a tree on heap.
+     */
+    public void release()
+    {
+        if (offHeap != null)
+        {
+            offHeap.release();
+            offHeap = null;
+        }
+    }
+
     public IPartitioner partitioner()
     {
         return partitioner;
@@ -229,6 +392,9 @@ public class MerkleTree implements Serializable
         if (!ltree.fullRange.equals(rtree.fullRange))
             throw new IllegalArgumentException("Difference only make sense on tree covering the same range (but " + ltree.fullRange + " != " + rtree.fullRange + ")");
 
+        if (ltree.offHeap != null && rtree.offHeap != null)
+            return differenceOffHeap(ltree, rtree);
+
         List<TreeRange> diff = new ArrayList<>();
         TreeDifference active = new TreeDifference(ltree.fullRange.left, ltree.fullRange.right, (byte)0);
 
@@ -314,13 +480,93 @@ public class MerkleTree implements Serializable
         return PARTIALLY_INCONSISTENT;
     }
 
+    /**
+     * As difference(), for two off-heap trees. Both trees are walked in parallel depth first, rather than
+     * searched from the root for each range, and their hashes compared where they are stored.
+     */
+    private static List<TreeRange> differenceOffHeap(MerkleTree ltree, MerkleTree rtree)
+    {
+        List<TreeRange> diff = new ArrayList<>();
+        TreeDifference active = new TreeDifference(ltree.fullRange.left, ltree.fullRange.right, (byte)0);
+        active.setSize(ltree.offHeap.sizeOfRange(0), rtree.offHeap.sizeOfRange(0));
+
+        if (ltree.offHeap.hasHash(0) && rtree.offHeap.hasHash(0))
+        {
+            if (!OffHeapNodes.hashEquals(ltree.offHeap, 0, rtree.offHeap, 0)
+                && FULLY_INCONSISTENT == differenceOffHeapHelper(ltree, rtree, diff, active, 0, 0))
+                diff.add(active);
+        }
+        else
+            diff.add(active);
+        return diff;
+    }
+
+    /**
+     * Takes two off-heap trees, the nodes for a range for which they have hashes but are inconsistent, and the range.
+     * @return FULLY_INCONSISTENT if active is inconsistent, PARTIALLY_INCONSISTENT if only a subrange is inconsistent.
+     */
+    private static int differenceOffHeapHelper(MerkleTree ltree, MerkleTree rtree, List<TreeRange> diff, TreeRange active, int lnode, int rnode)
+    {
+        if (active.depth == Byte.MAX_VALUE)
+            return CONSISTENT;
+
+        Token midpoint = ltree.partitioner().midpoint(active.left, active.right);
+        TreeDifference left = new TreeDifference(active.left, midpoint, inc(active.depth));
+        TreeDifference right = new TreeDifference(midpoint, active.right, inc(active.depth));
+
+        // a leaf has no node for the ranges below it, so they can't be resolved, like a BadRange in find()
+        OffHeapNodes lnodes = ltree.offHeap;
+        OffHeapNodes rnodes = rtree.offHeap;
+        int ldiff = differenceOffHeapChild(ltree, rtree, diff, left,
+                                           lnodes.isLeaf(lnode) ? -1 : lnodes.lchild(lnode),
+                                           rnodes.isLeaf(rnode) ? -1 : rnodes.lchild(rnode));
+        int rdiff = differenceOffHeapChild(ltree, rtree, diff, right,
+                                           lnodes.isLeaf(lnode) ? -1 : lnodes.rchild(lnode),
+                                           rnodes.isLeaf(rnode) ? -1 : rnodes.rchild(rnode));
+
+        if (ldiff == FULLY_INCONSISTENT && rdiff == FULLY_INCONSISTENT)
+        {
+            // both children are fully inconsistent
+            return FULLY_INCONSISTENT;
+        }
+        else if (ldiff == FULLY_INCONSISTENT)
+        {
+            diff.add(left);
+            return PARTIALLY_INCONSISTENT;
+        }
+        else if (rdiff == FULLY_INCONSISTENT)
+        {
+            diff.add(right);
+            return PARTIALLY_INCONSISTENT;
+        }
+        return PARTIALLY_INCONSISTENT;
+    }
+
+    /**
+     * @param lnode node of the left tree for the child range, or -1 if it has none
+     * @param rnode node of the right tree for the child range, or -1 if it has none
+     */
+    private static int differenceOffHeapChild(MerkleTree ltree, MerkleTree rtree, List<TreeRange> diff, TreeDifference child, int lnode, int rnode)
+    {
+        OffHeapNodes lnodes = ltree.offHeap;
+        OffHeapNodes rnodes = rtree.offHeap;
+        child.setSize(lnode < 0 ? 0 : lnodes.sizeOfRange(lnode), rnode < 0 ? 0 : rnodes.sizeOfRange(rnode));
+        child.setRows(lnode < 0 ? 0 : lnodes.rowsInRange(lnode), rnode < 0 ? 0 : rnodes.rowsInRange(rnode));
+
+        if (lnode < 0 || rnode < 0 || !lnodes.hasHash(lnode) || !rnodes.hasHash(rnode))
+            return FULLY_INCONSISTENT;
+        if (OffHeapNodes.hashEquals(lnodes, lnode, rnodes, rnode))
+            return CONSISTENT;
+        return differenceOffHeapHelper(ltree, rtree, diff, child, lnode, rnode);
+    }
+
     /**
      * For testing purposes.
      * Gets the smallest range containing the token.
      */
     public TreeRange get(Token t)
     {
-        return getHelper(root, fullRange.left, fullRange.right, (byte)0, t);
+        return getHelper(checkOnHeap(), fullRange.left, fullRange.right, (byte)0, t);
     }
 
     TreeRange getHelper(Hashable hashable, Token pleft, Token pright, byte depth, Token t)
@@ -346,7 +592,7 @@ public class MerkleTree implements Serializable
      */
     public void invalidate(Token t)
     {
-        invalidateHelper(root, fullRange.left, t);
+        invalidateHelper(checkOnHeap(), fullRange.left, t);
     }
 
     private void invalidateHelper(Hashable hashable, Token pleft, Token t)
@@ -388,9 +634,12 @@ public class MerkleTree implements Serializable
      */
     private Hashable find(Range<Token> range)
     {
+        if (offHeap != null)
+            return findOffHeap(range);
+
         try
         {
-            return findHelper(root, new Range<Token>(fullRange.left, fullRange.right), range);
+            return findHelper(checkOnHeap(), new Range<Token>(fullRange.left, fullRange.right), range);
         }
         catch (StopRecursion e)
         {
@@ -432,6 +681,45 @@ public class MerkleTree implements Serializable
             throw new StopRecursion.BadRange();
     }
 
+    /**
+     * As find(), for an off-heap tree: the node found is copied to a {@link Leaf}.
+     */
+    private Hashable findOffHeap(Range<Token> range)
+    {
+        int node = findOffHeapHelper(0, new Range<Token>(fullRange.left, fullRange.right), range);
+        if (node < 0)
+            return new Leaf();
+
+        Leaf found = new Leaf(offHeap.hash(node));
+        found.sizeOfRange = offHeap.sizeOfRange(node);
+        found.rowsInRange = offHeap.rowsInRange(node);
+        return found;
+    }
+
+    /**
+     * @return the index of the node matching the range, or -1 if no match could be found.
+     */
+    private int findOffHeapHelper(int node, Range<Token> activeRange, Range<Token> find)
+    {
+        if (offHeap.isLeaf(node))
+            return find.contains(activeRange) ? node : -1;
+
+        if (find.contains(activeRange))
+            // this node is fully contained in the range
+            return node;
+
+        // else: one of our children contains the range
+        Token midpoint = partitioner.midpoint(activeRange.left, activeRange.right);
+        Range<Token> leftRange = new Range<Token>(activeRange.left, midpoint);
+        Range<Token> rightRange = new Range<Token>(midpoint, activeRange.right);
+
+        if (leftRange.contains(find))
+            return findOffHeapHelper(offHeap.lchild(node), leftRange, find);
+        else if (rightRange.contains(find))
+            return findOffHeapHelper(offHeap.rchild(node), rightRange, find);
+        return -1;
+    }
+
     /**
      * Splits the range containing the given token, if no tree limits would be
      * violated. If the range would be split to a depth below hashdepth, or if
@@ -446,7 +734,7 @@ public class MerkleTree implements Serializable
 
         try
         {
-            root = splitHelper(root, fullRange.left, fullRange.right, (byte)0, t);
+            root = splitHelper(checkOnHeap(), fullRange.left, fullRange.right, (byte)0, t);
         }
         catch (StopRecursion.TooDeep e)
         {
@@ -519,6 +807,14 @@ public class MerkleTree implements Serializable
     public long rowCount()
     {
         long count = 0;
+        if (offHeap != null)
+        {
+            for (int node = 0; node < offHeap.count; node++)
+                if (offHeap.isLeaf(node))
+                    count += offHeap.rowsInRange(node);
+            return count;
+        }
+
         for (TreeRange range : new TreeRangeIterator(this))
         {
             count += range.hashable.rowsInRange;
@@ -530,6 +826,8 @@ public class MerkleTree implements Serializable
     public String toString()
     {
         StringBuilder buff = new StringBuilder();
+        if (root == null)
+            return buff.append("#<MerkleTree ").append(offHeap == null ? "released" : "off heap").append(" size=").append(size).append(">").toString();
         buff.append("#<MerkleTree root=");
         root.toString(buff, 8);
         buff.append(">");
@@ -676,7 +974,7 @@ public class MerkleTree implements Serializable
         TreeRangeIterator(MerkleTree tree)
         {
             tovisit = new ArrayDeque<TreeRange>();
-            tovisit.add(new TreeRange(tree, tree.fullRange.left, tree.fullRange.right, (byte)0, tree.root));
+            tovisit.add(new TreeRange(tree, tree.fullRange.left, tree.fullRange.right, (byte)0, tree.checkOnHeap()));
             this.tree = tree;
         }
 
@@ -936,6 +1234,307 @@ public class MerkleTree implements Serializable
         }
     }
 
+    /**
+     * The nodes of an off-heap tree, as fixed size records in pre-order: the left child of an inner node is the
+     * record that follows it, and the record holds the index of its right child. Tokens are not kept, as an inner
+     * node's is always the midpoint of its range. Hashes are kept apart, in slots of the length of the first non
+     * empty hash, as all the rows of a tree are hashed with the same digest; those of inner nodes are computed, by
+     * calc(), once both children have been added.
+     */
+    static final class OffHeapNodes
+    {
+        private static final int NODE_SIZE = 24;
+        private static final int FLAGS = 0;
+        private static final int RCHILD = 4;
+        private static final int SIZE_OF_RANGE = 8;
+        private static final int ROWS_IN_RANGE = 16;
+
+        private static final byte LEAF = 1;
+        // with neither flag set, the hash is null
+        private static final byte EMPTY = 2;
+        private static final byte PRESENT = 4;
+
+        // validation trees have at most 2^20 leaves (see CompactionManager.doValidationCompaction); this only bounds
+        // what is reserved up front for a size read from the wire, larger trees grow as they are read
+        private static final int MAX_INITIAL_CAPACITY = 1 << 21;
+        private static final boolean BIG_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+
+        private SafeMemory nodes;
+        private SafeMemory hashes;
+        private int hashLength;
+        private int capacity;
+        private int count;
+
+        OffHeapNodes(long expectedNodes)
+        {
+            capacity = (int) Math.max(1, Math.min(expectedNodes, MAX_INITIAL_CAPACITY));
+            nodes = new SafeMemory((long) capacity * NODE_SIZE);
+        }
+
+        /**
+         * Adds a node with a null hash, after all the nodes of the left subtree of its parent if it is a right child.
+         * @return the index of the node
+         */
+        int add(boolean leaf)
+        {
+            if (count == capacity)
+                grow();
+            int node = count++;
+            long offset = offset(node);
+            nodes.setByte(offset + FLAGS, leaf ? LEAF : 0);
+            nodes.setInt(offset + RCHILD, -1);
+            nodes.setLong(offset + SIZE_OF_RANGE, 0);
+            nodes.setLong(offset + ROWS_IN_RANGE, 0);
+            return node;
+        }
+
+        private void grow()
+        {
+            if (capacity == Integer.MAX_VALUE)
+                throw new IllegalStateException("Too many nodes in tree");
+            int newCapacity = (int) Math.min(2L * capacity, Integer.MAX_VALUE);
+            nodes = resize(nodes, (long) newCapacity * NODE_SIZE);
+            if (hashes != null)
+                hashes = resize(hashes, (long) newCapacity * hashLength);
+            capacity = newCapacity;
+        }
+
+        private static SafeMemory resize(SafeMemory memory, long size)
+        {
+            SafeMemory resized = memory.copy(size);
+            memory.free();
+            return resized;
+        }
+
+        private static long offset(int node)
+        {
+            return (long) node * NODE_SIZE;
+        }
+
+        private long hashOffset(int node)
+        {
+            return (long) node * hashLength;
+        }
+
+        private byte flags(int node)
+        {
+            return nodes.getByte(offset(node) + FLAGS);
+        }
+
+        private void flags(int node, byte flags)
+        {
+            nodes.setByte(offset(node) + FLAGS, flags);
+        }
+
+        boolean isLeaf(int node)
+        {
+            return (flags(node) & LEAF) != 0;
+        }
+
+        int lchild(int node)
+        {
+            assert !isLeaf(node);
+            return node + 1;
+        }
+
+        int rchild(int node)
+        {
+            assert !isLeaf(node);
+            return nodes.getInt(offset(node) + RCHILD);
+        }
+
+        void rchild(int node, int child)
+        {
+            nodes.setInt(offset(node) + RCHILD, child);
+        }
+
+        long sizeOfRange(int node)
+        {
+            return nodes.getLong(offset(node) + SIZE_OF_RANGE);
+        }
+
+        long rowsInRange(int node)
+        {
+            return nodes.getLong(offset(node) + ROWS_IN_RANGE);
+        }
+
+        void sizeOfRange(int node, long sizeOfRange, long rowsInRange)
+        {
+            nodes.setLong(offset(node) + SIZE_OF_RANGE, sizeOfRange);
+            nodes.setLong(offset(node) + ROWS_IN_RANGE, rowsInRange);
+        }
+
+        /**
+         * @return the length of the non empty hashes of the tree, or 0 if there is none yet.
+         */
+        int hashLength()
+        {
+            return hashLength;
+        }
+
+        boolean acceptsHashLength(int length)
+        {
+            return hashLength == 0 || hashLength == length;
+        }
+
+        private void ensureHashes(int length)
+        {
+            assert acceptsHashLength(length) : length + " != " + hashLength;
+            if (hashes == null)
+            {
+                hashLength = length;
+                hashes = new SafeMemory((long) capacity * hashLength);
+            }
+        }
+
+        boolean hasHash(int node)
+        {
+            return (flags(node) & (EMPTY | PRESENT)) != 0;
+        }
+
+        /**
+         * @return the length of the hash of the node as serialized, 0 if it is null.
+         */
+        int hashLength(int node)
+        {
+            return (flags(node) & PRESENT) != 0 ? hashLength : 0;
+        }
+
+        void hash(int node, byte[] hash)
+        {
+            if (hash == null)
+                return;
+            if (hash.length == 0)
+            {
+                flags(node, (byte) (flags(node) | EMPTY));
+                return;
+            }
+            ensureHashes(hash.length);
+            hashes.setBytes(hashOffset(node), hash, 0, hash.length);
+            flags(node, (byte) (flags(node) | PRESENT));
+        }
+
+        /**
+         * Reads a non empty hash of the given length into the node.
+         */
+        void readHash(int node, DataInput in, int length) throws IOException
+        {
+            ensureHashes(length);
+            long offset = hashOffset(node);
+            int i = 0;
+            for (; i + 8 <= length; i += 8)
+            {
+                // hashes are kept as bytes, so the big endian long read has to be stored in the same byte order
+                long bytes = in.readLong();
+                hashes.setLong(offset + i, BIG_ENDIAN ? bytes : Long.reverseBytes(bytes));
+            }
+            for (; i < length; i++)
+                hashes.setByte(offset + i, in.readByte());
+            flags(node, (byte) (flags(node) | PRESENT));
+        }
+
+        /**
+         * @return a copy of the hash of the node.
+         */
+        byte[] hash(int node)
+        {
+            byte flags = flags(node);
+            if ((flags & PRESENT) != 0)
+            {
+                byte[] hash = new byte[hashLength];
+                hashes.getBytes(hashOffset(node), hash, 0, hashLength);
+                return hash;
+            }
+            return (flags & EMPTY) != 0 ? EMPTY_HASH : null;
+        }
+
+        void writeHash(int node, DataOutputPlus out) throws IOException
+        {
+            byte flags = flags(node);
+            if ((flags & PRESENT) != 0)
+            {
+                out.writeInt(hashLength);
+                out.write(hashes, hashOffset(node), hashLength);
+            }
+            else
+            {
+                out.writeInt((flags & EMPTY) != 0 ? 0 : -1);
+            }
+        }
+
+        /**
+         * Computes the hash, size and row count of an inner node from those of its children.
+         */
+        void calc(int node)
+        {
+            int lnode = lchild(node);
+            int rnode = rchild(node);
+            sizeOfRange(node, sizeOfRange(lnode) + sizeOfRange(rnode), rowsInRange(lnode) + rowsInRange(rnode));
+
+            byte lflags = flags(lnode);
+            byte rflags = flags(rnode);
+            if (!hasHash(lnode) || !hasHash(rnode))
+                return;
+
+            // the empty hash is the identity of binaryHash()
+            if ((lflags & PRESENT) == 0 && (rflags & PRESENT) == 0)
+            {
+                flags(node, (byte) (flags(node) | EMPTY));
+                return;
+            }
+
+            long offset = hashOffset(node);
+            if ((lflags & PRESENT) == 0)
+                hashes.put(offset, hashes, hashOffset(rnode), hashLength);
+            else if ((rflags & PRESENT) == 0)
+                hashes.put(offset, hashes, hashOffset(lnode), hashLength);
+            else
+                xor(hashes, offset, hashOffset(lnode), hashOffset(rnode), hashLength);
+            flags(node, (byte) (flags(node) | PRESENT));
+        }
+
+        private static void xor(SafeMemory memory, long offset, long left, long right, int length)
+        {
+            int i = 0;
+            for (; i + 8 <= length; i += 8)
+                memory.setLong(offset + i, memory.getLong(left + i) ^ memory.getLong(right + i));
+            for (; i < length; i++)
+                memory.setByte(offset + i, (byte) (memory.getByte(left + i) ^ memory.getByte(right + i)));
+        }
+
+        static boolean hashEquals(OffHeapNodes left, int lnode, OffHeapNodes right, int rnode)
+        {
+            byte lflags = left.flags(lnode);
+            byte rflags = right.flags(rnode);
+            if ((lflags & PRESENT) == 0 || (rflags & PRESENT) == 0)
+                return (lflags & (EMPTY | PRESENT)) == (rflags & (EMPTY | PRESENT));
+            if (left.hashLength != right.hashLength)
+                return false;
+
+            long loffset = left.hashOffset(lnode);
+            long roffset = right.hashOffset(rnode);
+            int i = 0;
+            for (; i + 8 <= left.hashLength; i += 8)
+            {
+                if (left.hashes.getLong(loffset + i) != right.hashes.getLong(roffset + i))
+                    return false;
+            }
+            for (; i < left.hashLength; i++)
+            {
+                if (left.hashes.getByte(loffset + i) != right.hashes.getByte(roffset + i))
+                    return false;
+            }
+            return true;
+        }
+
+        void release()
+        {
+            nodes.free();
+            if (hashes != null)
+                hashes.free();
+        }
+    }
+
     /**
      * Hash value representing a row, to be used to pass hashes to the MerkleTree.
      * The byte[] hash value should contain a digest of the key and value of the row
@@ -971,6 +1570,8 @@ public class MerkleTree implements Serializable
         protected byte[] hash;
         protected long sizeOfRange;
         protected long rowsInRange;
+        // whether hash was allocated by addHash, rather than handed to us, so that rows can be mixed in place
+        private transient boolean ownsHash;
 
         protected Hashable(byte[] hash)
         {
@@ -995,6 +1596,7 @@ public class MerkleTree implements Serializable
         void hash(byte[] hash)
         {
             this.hash = hash;
+            ownsHash = false;
         }
 
         Hashable calc()
@@ -1019,9 +1621,20 @@ public class MerkleTree implements Serializable
         void addHash(byte[] righthash, long sizeOfRow)
         {
             if (hash == null)
+            {
                 hash = righthash;
+                ownsHash = false;
+            }
+            else if (ownsHash && hash.length >= righthash.length)
+            {
+                for (int i = 0; i < righthash.length; i++)
+                    hash[i] ^= righthash[i];
+            }
             else
+            {
                 hash = binaryHash(hash, righthash);
+                ownsHash = true;
+            }
             this.sizeOfRange += sizeOfRow;
             this.rowsInRange += 1;
         }
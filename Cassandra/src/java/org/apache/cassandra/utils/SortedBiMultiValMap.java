@@ -56,20 +56,24 @@ public class SortedBiMultiValMap<K, V> extends BiMultiValMap<K, V>
     public static <K, V> SortedBiMultiValMap<K, V> create(BiMultiValMap<K, V> map, Comparator<K> keyComparator, Comparator<V> valueComparator)
     {
         SortedBiMultiValMap<K, V> newMap = create(keyComparator, valueComparator);
-        newMap.forwardMap.putAll(map);
+        // TreeMap copies a sorted map of the same order in linear time
+        newMap.forwardMap.putAll(map.forwardMap);
         newMap.reverseMap.putAll(map.inverse());
         return newMap;
     }
 
-    private static <T> Comparator<T> defaultComparator()
+    private static final Comparator<Object> DEFAULT_COMPARATOR = new Comparator<Object>()
     {
-        return new Comparator<T>()
+        @SuppressWarnings("unchecked")
+        public int compare(Object o1, Object o2)
         {
-            @SuppressWarnings("unchecked")
-            public int compare(T o1, T o2)
-            {
-                return ((Comparable<T>) o1).compareTo(o2);
-            }
-        };
+            return ((Comparable<Object>) o1).compareTo(o2);
+        }
+    };
+
+    @SuppressWarnings("unchecked")
+    private static <T> Comparator<T> defaultComparator()
+    {
+        return (Comparator<T>) DEFAULT_COMPARATOR;
     }
 }
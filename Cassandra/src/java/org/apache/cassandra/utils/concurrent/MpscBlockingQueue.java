@@ -0,0 +1,228 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.apache.cassandra.utils.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+
+/**
+ * An unbounded linked queue for any number of producers but a single consumer, which producers add to with a single
+ * atomic swap and the consumer takes from without any.
+ *
+ * Only the consumer may remove elements, peek at them or wait for them; this covers clear() and the removal methods
+ * of Collection, which the iterator does not support. size() is an estimate when elements are being added or
+ * removed concurrently. The consumer is the only thread that waits, so adding an element costs no more than reading
+ * a volatile field when it is busy.
+ *
+ * @param <E>
+ */
+public class MpscBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E>
+{
+    private static final class Node<E>
+    {
+        // written before the node is published, and cleared by the consumer once taken
+        E item;
+        volatile Node<E> next;
+
+        Node(E item)
+        {
+            this.item = item;
+        }
+    }
+
+    // the last node taken, or the initial stub; only the consumer moves it
+    private volatile Node<E> head;
+    private volatile Node<E> tail;
+    private static final AtomicReferenceFieldUpdater<MpscBlockingQueue, Node> tailUpdater = AtomicReferenceFieldUpdater.newUpdater(MpscBlockingQueue.class, Node.class, "tail");
+
+    private final LongAdder added = new LongAdder();
+    private volatile long taken;
+    private static final AtomicLongFieldUpdater<MpscBlockingQueue> takenUpdater = AtomicLongFieldUpdater.newUpdater(MpscBlockingQueue.class, "taken");
+
+    private volatile Thread waiting;
+
+    public MpscBlockingQueue()
+    {
+        head = tail = new Node<>(null);
+    }
+
+    public boolean offer(E e)
+    {
+        Preconditions.checkNotNull(e);
+        Node<E> node = new Node<>(e);
+        Node<E> prev = tailUpdater.getAndSet(this, node);
+        // the node is only visible to the consumer from here on: until then poll() may see the queue as empty
+        prev.next = node;
+        added.increment();
+
+        Thread consumer = waiting;
+        if (consumer != null)
+            LockSupport.unpark(consumer);
+        return true;
+    }
+
+    public void put(E e)
+    {
+        offer(e);
+    }
+
+    public boolean offer(E e, long timeout, TimeUnit unit)
+    {
+        return offer(e);
+    }
+
+    public E poll()
+    {
+        Node<E> next = head.next;
+        if (next == null)
+            return null;
+
+        E item = next.item;
+        next.item = null;
+        head = next;
+        takenUpdater.lazySet(this, taken + 1);
+        return item;
+    }
+
+    public E peek()
+    {
+        Node<E> next = head.next;
+        return next == null ? null : next.item;
+    }
+
+    public E take() throws InterruptedException
+    {
+        E item = poll();
+        while (item == null)
+        {
+            waiting = Thread.currentThread();
+            try
+            {
+                // an element added before we started waiting would not have unparked us
+                item = poll();
+                if (item == null)
+                {
+                    LockSupport.park(this);
+                    if (Thread.interrupted())
+                        throw new InterruptedException();
+                    item = poll();
+                }
+            }
+            finally
+            {
+                waiting = null;
+            }
+        }
+        return item;
+    }
+
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        E item = poll();
+        if (item != null)
+            return item;
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        waiting = Thread.currentThread();
+        try
+        {
+            while ((item = poll()) == null)
+            {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0)
+                    return null;
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted())
+                    throw new InterruptedException();
+            }
+            return item;
+        }
+        finally
+        {
+            waiting = null;
+        }
+    }
+
+    public int drainTo(Collection<? super E> c)
+    {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    public int drainTo(Collection<? super E> c, int maxElements)
+    {
+        int count = 0;
+        E item;
+        while (count < maxElements && (item = poll()) != null)
+        {
+            c.add(item);
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return head.next == null;
+    }
+
+    public int size()
+    {
+        long size = added.sum() - taken;
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, size));
+    }
+
+    public int remainingCapacity()
+    {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return a weakly consistent iterator over the elements, which does not support removal
+     */
+    public Iterator<E> iterator()
+    {
+        return new AbstractIterator<E>()
+        {
+            private Node<E> node = head;
+
+            protected E computeNext()
+            {
+                while ((node = node.next) != null)
+                {
+                    E item = node.item;
+                    // null if taken meanwhile
+                    if (item != null)
+                        return item;
+                }
+                return endOfData();
+            }
+        };
+    }
+}
@@ -585,6 +585,7 @@ public class Instance extends IsolatedExecutor implements IInvokableInstance
     {
         new File(config.getString("saved_caches_directory")).mkdirs();
         new File(config.getString("commitlog_directory")).mkdirs();
+        new File(config.getString("hints_directory")).mkdirs();
         for (String dir : (String[]) config.get("data_file_directories"))
             new File(dir).mkdirs();
     }
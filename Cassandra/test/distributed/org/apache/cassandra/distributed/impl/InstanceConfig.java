@@ -69,7 +69,7 @@ public class InstanceConfig implements IInstanceConfig
                            String saved_caches_directory,
                            String[] data_file_directories,
                            String commitlog_directory,
-//                           String hints_directory,
+                           String hints_directory,
 //                           String cdc_directory,
                            String initial_token,
                            String persistent_settings_directory)
@@ -85,7 +85,7 @@ public class InstanceConfig implements IInstanceConfig
                 .set("saved_caches_directory", saved_caches_directory)
                 .set("data_file_directories", data_file_directories)
                 .set("commitlog_directory", commitlog_directory)
-//                .set("hints_directory", hints_directory)
+                .set("hints_directory", hints_directory)
 //                .set("cdc_directory", cdc_directory)
                 .set("persistent_settings_directory", persistent_settings_directory)
                 .set("initial_token", initial_token)
@@ -275,7 +275,7 @@ public class InstanceConfig implements IInstanceConfig
                                   String.format("%s/node%d/saved_caches", root, nodeNum),
                                   new String[] { String.format("%s/node%d/data", root, nodeNum) },
                                   String.format("%s/node%d/commitlog", root, nodeNum),
-//                                  String.format("%s/node%d/hints", root, nodeNum),
+                                  String.format("%s/node%d/hints", root, nodeNum),
 //                                  String.format("%s/node%d/cdc", root, nodeNum),
                                   token,
                                   String.format("%s/node%d/lock_keyspaces", root, nodeNum));
@@ -196,6 +196,8 @@ public class CommitLogStressTest
         failed = false;
         DatabaseDescriptor.setCommitLogSyncBatchWindow(1);
         DatabaseDescriptor.setCommitLogSyncPeriod(30);
+        DatabaseDescriptor.setCommitLogSyncGroupWindow(1);
+        DatabaseDescriptor.setCommitLogSyncAdaptiveTargetLatency(2);
         DatabaseDescriptor.setCommitLogSegmentSize(32);
         for (ParameterizedClass compressor : new ParameterizedClass[] {
                 null,
@@ -20,6 +20,9 @@ package org.apache.cassandra.db.compaction;
 import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.common.util.concurrent.Uninterruptibles;
 
 import org.apache.cassandra.db.columniterator.OnDiskAtomIterator;
 import org.apache.cassandra.io.sstable.ISSTableScanner;
@@ -43,6 +46,8 @@ public class LongLeveledCompactionStrategyTest
     public static final String KEYSPACE1 = "LongLeveledCompactionStrategyTest";
     public static final String CF_STANDARDLVL = "StandardLeveled";
     public static final String CF_STANDARDLVL2 = "StandardLeveled2";
+    public static final String CF_STANDARDLVL3 = "StandardLeveled3";
+    public static final String CF_STANDARDLVL4 = "StandardLeveled4";
 
     @BeforeClass
     public static void defineSchema() throws ConfigurationException
@@ -57,6 +62,12 @@ public class LongLeveledCompactionStrategyTest
                                                 .compactionStrategyClass(LeveledCompactionStrategy.class)
                                                 .compactionStrategyOptions(leveledOptions),
                                     SchemaLoader.standardCFMD(KEYSPACE1, CF_STANDARDLVL2)
+                                                .compactionStrategyClass(LeveledCompactionStrategy.class)
+                                                .compactionStrategyOptions(leveledOptions),
+                                    SchemaLoader.standardCFMD(KEYSPACE1, CF_STANDARDLVL3)
+                                                .compactionStrategyClass(LeveledCompactionStrategy.class)
+                                                .compactionStrategyOptions(leveledOptions),
+                                    SchemaLoader.standardCFMD(KEYSPACE1, CF_STANDARDLVL4)
                                                 .compactionStrategyClass(LeveledCompactionStrategy.class)
                                                 .compactionStrategyOptions(leveledOptions));
     }
@@ -146,6 +157,112 @@ public class LongLeveledCompactionStrategyTest
         }
     }
 
+    /**
+     * Writes sstables of disjoint token ranges at a fixed rate, as sharded flushes do, while compacting them one task at
+     * a time, as when L0 compactions were serialised, or on several threads, and compares the L0 backlogs.
+     */
+    @Test
+    public void testL0BacklogUnderFixedWriteRate() throws Exception
+    {
+        L0Backlog serial = measureL0Backlog(CF_STANDARDLVL3, 1);
+        L0Backlog concurrent = measureL0Backlog(CF_STANDARDLVL4, 4);
+        System.out.println(String.format("L0 backlog with 1 compaction thread: max %d, mean %.1f; with 4: max %d, mean %.1f",
+                                         serial.max, serial.mean, concurrent.max, concurrent.mean));
+    }
+
+    private static class L0Backlog
+    {
+        private final int max;
+        private final double mean;
+
+        private L0Backlog(int max, double mean)
+        {
+            this.max = max;
+            this.mean = mean;
+        }
+    }
+
+    private L0Backlog measureL0Backlog(final String cfname, int compactionThreads) throws Exception
+    {
+        Keyspace keyspace = Keyspace.open(KEYSPACE1);
+        ColumnFamilyStore store = keyspace.getColumnFamilyStore(cfname);
+        store.disableAutoCompaction();
+        WrappingCompactionStrategy strategy = ((WrappingCompactionStrategy) store.getCompactionStrategy());
+        final LeveledCompactionStrategy lcs = (LeveledCompactionStrategy) strategy.getWrappedStrategies().get(1);
+
+        // keys are ordered by the test partitioner, so each flush of the keys of one prefix writes an sstable that
+        // overlaps none of the sstables of the other prefixes
+        int shards = 4;
+        List<List<DecoratedKey>> shardKeys = new ArrayList<>();
+        for (int i = 0; i < shards; i++)
+        {
+            List<DecoratedKey> keys = new ArrayList<>();
+            for (int j = 0; j < 50; j++)
+                keys.add(Util.dk(String.format("%d-%03d", i, j)));
+            shardKeys.add(keys);
+        }
+
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(compactionThreads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < compactionThreads; i++)
+        {
+            futures.add(executor.submit(new Callable<Void>()
+            {
+                public Void call() throws Exception
+                {
+                    while (true)
+                    {
+                        AbstractCompactionTask task = lcs.getNextBackgroundTask(Integer.MIN_VALUE);
+                        if (task != null)
+                            task.execute(null);
+                        else if (writing.get())
+                            Thread.sleep(10);
+                        else
+                            return null;
+                    }
+                }
+            }));
+        }
+
+        ByteBuffer value = ByteBuffer.wrap(new byte[10 * 1024]);
+        int flushes = 400;
+        long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(50);
+        long start = System.nanoTime();
+        int maxL0 = 0;
+        long totalL0 = 0;
+        for (int f = 0; f < flushes; f++)
+        {
+            for (DecoratedKey key : shardKeys.get(f % shards))
+            {
+                Mutation rm = new Mutation(KEYSPACE1, key.getKey());
+                for (int c = 0; c < 10; c++)
+                    rm.add(cfname, Util.cellname("column" + c), value, f);
+                rm.apply();
+            }
+            store.forceBlockingFlush();
+
+            int l0 = lcs.getLevelSize(0);
+            maxL0 = Math.max(maxL0, l0);
+            totalL0 += l0;
+            Uninterruptibles.sleepUninterruptibly(start + (f + 1) * flushIntervalNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        writing.set(false);
+        FBUtilities.waitOnFutures(futures);
+        executor.shutdown();
+
+        for (int level = 1; level < lcs.manifest.getLevelCount(); level++)
+        {
+            List<SSTableReader> sstables = lcs.manifest.getLevel(level);
+            for (SSTableReader sstable : sstables)
+            {
+                Set<SSTableReader> overlaps = LeveledManifest.overlapping(sstable, sstables);
+                assertTrue(overlaps.size() == 1 && overlaps.contains(sstable));
+            }
+        }
+        return new L0Backlog(maxL0, (double) totalL0 / flushes);
+    }
+
     @Test
     public void testLeveledScanner() throws Exception
     {
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.transport;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.cql3.CQLTester;
+import org.apache.cassandra.cql3.QueryOptions;
+import org.apache.cassandra.db.ConsistencyLevel;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.transport.messages.ExecuteMessage;
+import org.apache.cassandra.transport.messages.ResultMessage;
+
+/**
+ * Drives pipelined prepared reads through {@link SimpleClient}s, each thread with a connection of its own, and compares
+ * the requests per second and the 99th percentile latency of the pipelines with and without read batching.
+ */
+public class ReadBatchingLoadTest extends CQLTester
+{
+    private static final int KEYS = 1000;
+    private static final int CLIENTS = 8;
+    private static final int PIPELINE = 64;
+    private static final long DURATION_MILLIS = 10000;
+
+    @BeforeClass
+    public static void setUp()
+    {
+        requireNetwork();
+    }
+
+    @Test
+    public void testReadBatchingUnderLoad() throws Throwable
+    {
+        createTable("CREATE TABLE %s (k int PRIMARY KEY, v int)");
+        for (int k = 0; k < KEYS; k++)
+            execute("INSERT INTO %s (k, v) VALUES (?, ?)", k, k);
+
+        int batchSize = DatabaseDescriptor.getNativeTransportReadBatchSize();
+        try
+        {
+            for (int readBatchSize : new int[]{ 1, 16, PIPELINE })
+            {
+                DatabaseDescriptor.setNativeTransportReadBatchSize(readBatchSize);
+                // a first round warms up, the second one is measured
+                measure(readBatchSize, false);
+                measure(readBatchSize, true);
+            }
+        }
+        finally
+        {
+            DatabaseDescriptor.setNativeTransportReadBatchSize(batchSize);
+        }
+    }
+
+    private void measure(int readBatchSize, boolean report) throws Throwable
+    {
+        final String query = "SELECT v FROM " + KEYSPACE + '.' + currentTable() + " WHERE k = ?";
+        final long end = System.currentTimeMillis() + DURATION_MILLIS;
+
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++)
+        {
+            futures.add(executor.submit(new Callable<long[]>()
+            {
+                public long[] call() throws Exception
+                {
+                    try (SimpleClient client = new SimpleClient(nativeAddr.getHostAddress(), nativePort))
+                    {
+                        client.connect(false);
+                        ResultMessage.Prepared prepared = client.prepare(query);
+
+                        long[] latencies = new long[1024];
+                        int pipelines = 0;
+                        while (System.currentTimeMillis() < end)
+                        {
+                            List<Message.Request> requests = new ArrayList<>(PIPELINE);
+                            for (int j = 0; j < PIPELINE; j++)
+                            {
+                                ByteBuffer key = Int32Type.instance.decompose(ThreadLocalRandom.current().nextInt(KEYS));
+                                requests.add(new ExecuteMessage(prepared.statementId,
+                                                                QueryOptions.forInternalCalls(ConsistencyLevel.ONE, Collections.singletonList(key))));
+                            }
+
+                            long start = System.nanoTime();
+                            List<Message.Response> responses = client.execute(requests);
+                            long latency = System.nanoTime() - start;
+
+                            for (Message.Response response : responses)
+                                Assert.assertTrue(response.toString(), response instanceof ResultMessage.Rows);
+
+                            if (pipelines == latencies.length)
+                                latencies = Arrays.copyOf(latencies, pipelines * 2);
+                            latencies[pipelines++] = latency;
+                        }
+                        return Arrays.copyOf(latencies, pipelines);
+                    }
+                }
+            }));
+        }
+
+        long[] latencies = new long[0];
+        for (Future<long[]> future : futures)
+        {
+            long[] clientLatencies = future.get();
+            int offset = latencies.length;
+            latencies = Arrays.copyOf(latencies, offset + clientLatencies.length);
+            System.arraycopy(clientLatencies, 0, latencies, offset, clientLatencies.length);
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        Assert.assertTrue(latencies.length > 0);
+        if (!report)
+            return;
+
+        Arrays.sort(latencies);
+        long requests = (long) latencies.length * PIPELINE;
+        System.out.println(String.format("read batch size %d: %d requests/s, p99 latency of %d pipelined reads %.2fms",
+                                         readBatchSize,
+                                         requests * 1000 / DURATION_MILLIS,
+                                         PIPELINE,
+                                         latencies[(int) (latencies.length * 0.99)] / 1e6));
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.test.microbench;
+
+import org.apache.cassandra.utils.FilterFactory;
+import org.apache.cassandra.utils.IFilter;
+import org.apache.cassandra.utils.IFilter.FilterKey;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the probe throughput of standard and blocked bloom filters, sized for the given false positive chance and
+ * large enough not to fit in the CPU caches, for a mix of present and absent keys. Keys carry precomputed hashes so
+ * that only the filter itself is measured. The false positive rate each filter actually gives is measured over
+ * absent keys during setup and printed along with its size.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1G")
+@Threads(1)
+@State(Scope.Benchmark)
+public class BloomFilterBench
+{
+    private static final int ELEMENTS = 10_000_000;
+    private static final int PROBES = 1 << 20;
+    private static final int FP_SAMPLE = 10_000_000;
+
+    @Param({"standard", "blocked"})
+    String type;
+
+    @Param({"0.1", "0.01", "0.001"})
+    double fpChance;
+
+    IFilter filter;
+    // even probes were added to the filter, odd ones were not
+    FilterKey[] probes;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        filter = FilterFactory.getFilter(ELEMENTS, fpChance, FilterFactory.Type.fromString(type), true);
+        Random random = new Random(42);
+        probes = new FilterKey[PROBES];
+        for (int i = 0; i < ELEMENTS; i++)
+        {
+            FilterKey key = new HashedKey(random.nextLong(), random.nextLong());
+            filter.add(key);
+            if (i < PROBES / 2)
+                probes[i * 2] = key;
+        }
+        for (int i = 0; i < PROBES / 2; i++)
+            probes[i * 2 + 1] = new HashedKey(random.nextLong(), random.nextLong());
+
+        long falsePositives = 0;
+        for (int i = 0; i < FP_SAMPLE; i++)
+        {
+            if (filter.isPresent(new HashedKey(random.nextLong(), random.nextLong())))
+                falsePositives++;
+        }
+        System.out.printf("%n%s filter for fp chance %s: %d bytes, measured false positive rate %.5f%n",
+                          type, fpChance, filter.offHeapSize(), (double) falsePositives / FP_SAMPLE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        filter.close();
+    }
+
+    @Benchmark
+    public boolean isPresent()
+    {
+        return filter.isPresent(probes[next++ & (PROBES - 1)]);
+    }
+
+    private static final class HashedKey implements FilterKey
+    {
+        private final long hash0;
+        private final long hash1;
+
+        HashedKey(long hash0, long hash1)
+        {
+            this.hash0 = hash0;
+            this.hash1 = hash1;
+        }
+
+        public void filterHash(long[] dest)
+        {
+            dest[0] = hash0;
+            dest[1] = hash1;
+        }
+    }
+}
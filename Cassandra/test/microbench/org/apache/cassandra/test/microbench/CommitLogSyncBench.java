@@ -0,0 +1,94 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.cassandra.test.microbench;
+
+import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.Util;
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.Mutation;
+import org.apache.cassandra.db.commitlog.CommitLog;
+import org.apache.cassandra.locator.SimpleStrategy;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.cassandra.config.KSMetaData.optsWithRF;
+
+/**
+ * Compares the latency of appending a mutation to the commit log and syncing it to disk for memory mapped segments
+ * against direct I/O segments. Sample mode reports the percentiles, where segment mapping and page cache writeback
+ * show up.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1G")
+@Threads(1)
+@State(Scope.Benchmark)
+public class CommitLogSyncBench
+{
+    private static final String KEYSPACE = "CommitLogSyncBench";
+    private static final String TABLE = "Standard1";
+
+    @Param({"mmap", "direct"})
+    String segmentType;
+
+    @Param({"256", "4096"})
+    int valueSize;
+
+    ByteBuffer value;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable
+    {
+        SchemaLoader.prepareServer();
+        DatabaseDescriptor.setCommitLogSegmentType(Config.CommitLogSegmentType.valueOf(segmentType));
+        CommitLog.instance.resetUnsafe(true);
+        SchemaLoader.createKeyspace(KEYSPACE,
+                                    SimpleStrategy.class,
+                                    optsWithRF(1),
+                                    SchemaLoader.standardCFMD(KEYSPACE, TABLE));
+
+        byte[] bytes = new byte[valueSize];
+        ThreadLocalRandom.current().nextBytes(bytes);
+        value = ByteBuffer.wrap(bytes);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Throwable
+    {
+        CommitLog.instance.resetUnsafe(true);
+    }
+
+    @Benchmark
+    public void appendAndSync()
+    {
+        Mutation mutation = new Mutation(KEYSPACE, ByteBufferUtil.bytes(ThreadLocalRandom.current().nextLong()));
+        mutation.add(TABLE, Util.cellname("c"), value, System.currentTimeMillis());
+        CommitLog.instance.add(mutation);
+        CommitLog.instance.sync(false);
+    }
+}
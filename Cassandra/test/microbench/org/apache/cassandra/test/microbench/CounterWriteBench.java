@@ -0,0 +1,111 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.cassandra.test.microbench;
+
+import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.Util;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.ArrayBackedSortedColumns;
+import org.apache.cassandra.db.ColumnFamily;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.ConsistencyLevel;
+import org.apache.cassandra.db.CounterMutation;
+import org.apache.cassandra.db.Keyspace;
+import org.apache.cassandra.db.Mutation;
+import org.apache.cassandra.db.marshal.CounterColumnType;
+import org.apache.cassandra.locator.SimpleStrategy;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.cassandra.config.KSMetaData.optsWithRF;
+
+/**
+ * Compares the throughput of increments of a single hot counter cell, applied one at a time under the counter lock
+ * and folded together by counter_write_delta_window_in_ms. Since each increment waits for its fold, the throughput of
+ * the buffered increments grows with the number of concurrent writers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1G")
+@State(Scope.Benchmark)
+public class CounterWriteBench
+{
+    private static final String KEYSPACE = "CounterWriteBench";
+    private static final String TABLE = "Counter1";
+
+    @Param({"0", "0.5", "2"})
+    double deltaWindowMillis;
+
+    ColumnFamilyStore cfs;
+    ByteBuffer key = ByteBufferUtil.bytes("hot");
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable
+    {
+        SchemaLoader.prepareServer();
+        SchemaLoader.createKeyspace(KEYSPACE,
+                                    SimpleStrategy.class,
+                                    optsWithRF(1),
+                                    SchemaLoader.standardCFMD(KEYSPACE, TABLE).defaultValidator(CounterColumnType.instance));
+        cfs = Keyspace.open(KEYSPACE).getColumnFamilyStore(TABLE);
+        DatabaseDescriptor.setCounterWriteDeltaWindow(deltaWindowMillis);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        DatabaseDescriptor.setCounterWriteDeltaWindow(0);
+        cfs.truncateBlocking();
+    }
+
+    private void increment() throws Throwable
+    {
+        ColumnFamily cells = ArrayBackedSortedColumns.factory.create(cfs.metadata);
+        cells.addCounter(Util.cellname("c"), 1L);
+        new CounterMutation(new Mutation(KEYSPACE, key, cells), ConsistencyLevel.ONE).apply();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void increment8() throws Throwable
+    {
+        increment();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void increment32() throws Throwable
+    {
+        increment();
+    }
+
+    @Benchmark
+    @Threads(128)
+    public void increment128() throws Throwable
+    {
+        increment();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.cassandra.test.microbench;
+
+import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.Util;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.Keyspace;
+import org.apache.cassandra.db.Mutation;
+import org.apache.cassandra.locator.SimpleStrategy;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.cassandra.config.KSMetaData.optsWithRF;
+
+/**
+ * Compares the throughput of N threads writing rows of a single partition, as a time series would, between a partition
+ * updated as a whole, which falls back to locking under contention, and one split into shards of rows once contention
+ * is detected (memtable_partition_shards).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2G")
+@State(Scope.Benchmark)
+public class HotPartitionWriteBench
+{
+    private static final String KEYSPACE = "HotPartitionWriteBench";
+    private static final String TABLE = "Standard1";
+    // bounds the size of the partition, which would otherwise only grow with the writes
+    private static final int ROWS = 100000;
+
+    @Param({"0", "16"})
+    int partitionShards;
+
+    ColumnFamilyStore cfs;
+    ByteBuffer key = ByteBufferUtil.bytes("hot");
+    ByteBuffer value = ByteBufferUtil.bytes("value");
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable
+    {
+        SchemaLoader.prepareServer();
+        SchemaLoader.createKeyspace(KEYSPACE,
+                                    false,
+                                    true,
+                                    SimpleStrategy.class,
+                                    optsWithRF(1),
+                                    SchemaLoader.standardCFMD(KEYSPACE, TABLE));
+        cfs = Keyspace.open(KEYSPACE).getColumnFamilyStore(TABLE);
+        DatabaseDescriptor.setMemtablePartitionShards(partitionShards);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        cfs.truncateBlocking();
+    }
+
+    private void write()
+    {
+        Mutation mutation = new Mutation(KEYSPACE, key);
+        mutation.add(TABLE, Util.cellname((long) ThreadLocalRandom.current().nextInt(ROWS)), value, System.currentTimeMillis());
+        mutation.applyUnsafe();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void write1()
+    {
+        write();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void write8()
+    {
+        write();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void write32()
+    {
+        write();
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.cassandra.test.microbench;
+
+import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.Util;
+import org.apache.cassandra.db.ColumnFamily;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.Keyspace;
+import org.apache.cassandra.db.Memtable;
+import org.apache.cassandra.db.Mutation;
+import org.apache.cassandra.locator.SimpleStrategy;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.cassandra.config.KSMetaData.optsWithRF;
+
+/**
+ * Compares memtable write throughput under increasing writer concurrency, and the latency of scanning a token range
+ * out of a memtable, for a table with a single memtable shard against tables split into several token range shards.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2G")
+@State(Scope.Benchmark)
+public class MemtableShardingBench
+{
+    private static final String KEYSPACE = "MemtableShardingBench";
+    private static final String TABLE = "Standard1";
+    private static final int PARTITIONS = 100000;
+    private static final int SCAN_PARTITIONS = 100;
+
+    @Param({"1", "8", "32"})
+    int memtableShards;
+
+    ColumnFamilyStore cfs;
+    ByteBuffer value = ByteBufferUtil.bytes("value");
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable
+    {
+        SchemaLoader.prepareServer();
+        SchemaLoader.createKeyspace(KEYSPACE,
+                                    false,
+                                    true,
+                                    SimpleStrategy.class,
+                                    optsWithRF(1),
+                                    SchemaLoader.standardCFMD(KEYSPACE, TABLE).memtableShards(memtableShards));
+        cfs = Keyspace.open(KEYSPACE).getColumnFamilyStore(TABLE);
+
+        for (int i = 0; i < PARTITIONS; i++)
+            write(i);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        cfs.truncateBlocking();
+    }
+
+    private void write(long key)
+    {
+        Mutation mutation = new Mutation(KEYSPACE, ByteBufferUtil.bytes(key));
+        mutation.add(TABLE, Util.cellname("c"), value, System.currentTimeMillis());
+        mutation.applyUnsafe();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void write1()
+    {
+        write(ThreadLocalRandom.current().nextLong());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void write8()
+    {
+        write(ThreadLocalRandom.current().nextLong());
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void write32()
+    {
+        write(ThreadLocalRandom.current().nextLong());
+    }
+
+    @Benchmark
+    @Threads(1)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void rangeScan(Blackhole bh)
+    {
+        DecoratedKey start = cfs.partitioner.decorateKey(ByteBufferUtil.bytes(ThreadLocalRandom.current().nextLong(PARTITIONS)));
+        Memtable memtable = cfs.getTracker().getView().getCurrentMemtable();
+        Iterator<Map.Entry<DecoratedKey, ColumnFamily>> iter = memtable.getEntryIterator(start, cfs.partitioner.getMinimumToken().minKeyBound());
+        for (int i = 0; i < SCAN_PARTITIONS && iter.hasNext(); i++)
+            bh.consume(iter.next());
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.test.microbench;
+
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.io.util.DataOutputBuffer;
+import org.apache.cassandra.net.MessagingService;
+import org.apache.cassandra.utils.MerkleTree;
+import org.apache.cassandra.utils.MerkleTree.RowHash;
+import org.apache.cassandra.utils.MerkleTree.TreeRange;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares trees of 2^20 leaves kept on heap, as they are built by validation, against the same trees off heap, as
+ * they are received by the repair coordinator, when serialized and compared. Deserialization always produces an
+ * off-heap tree. Run with -prof gc to see the heap allocated per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2G")
+@Threads(1)
+@State(Scope.Benchmark)
+public class MerkleTreeBench
+{
+    private static final int DEPTH = 20;
+    private static final int HASH_LENGTH = 32;
+    // one leaf in this many differs between the two trees
+    private static final int DIFFERENCE_INTERVAL = 1024;
+
+    @Param({"heap", "offheap"})
+    String location;
+
+    MerkleTree left;
+    MerkleTree right;
+    byte[] serialized;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException
+    {
+        IPartitioner partitioner = Murmur3Partitioner.instance;
+        Range<Token> range = new Range<>(partitioner.getMinimumToken(), partitioner.getMinimumToken());
+        left = build(partitioner, range, false);
+        right = build(partitioner, range, true);
+
+        serialized = serialize(left);
+        if (location.equals("offheap"))
+        {
+            left.moveOffHeap();
+            right.moveOffHeap();
+        }
+    }
+
+    private static MerkleTree build(IPartitioner partitioner, Range<Token> range, boolean withDifferences)
+    {
+        MerkleTree tree = new MerkleTree(partitioner, range, MerkleTree.RECOMMENDED_DEPTH, 1 << DEPTH);
+        tree.init();
+        Random random = new Random(42);
+        int leaf = 0;
+        for (TreeRange treeRange : tree.invalids())
+        {
+            byte[] hash = new byte[HASH_LENGTH];
+            random.nextBytes(hash);
+            if (withDifferences && leaf++ % DIFFERENCE_INTERVAL == 0)
+                hash[0] ^= 1;
+            treeRange.ensureHashInitialised();
+            treeRange.addHash(new RowHash(treeRange.right, hash, HASH_LENGTH));
+        }
+        return tree;
+    }
+
+    private static byte[] serialize(MerkleTree tree) throws IOException
+    {
+        DataOutputBuffer out = new DataOutputBuffer();
+        MerkleTree.serializer.serialize(tree, out, MessagingService.current_version);
+        return out.toByteArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        left.release();
+        right.release();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException
+    {
+        return serialize(left);
+    }
+
+    @Benchmark
+    public void deserialize() throws IOException
+    {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(serialized));
+        MerkleTree.serializer.deserialize(in, MessagingService.current_version).release();
+    }
+
+    @Benchmark
+    public void difference(Blackhole bh)
+    {
+        bh.consume(MerkleTree.difference(left, right));
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.test.microbench;
+
+import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.io.IVersionedSerializer;
+import org.apache.cassandra.io.util.DataOutputPlus;
+import org.apache.cassandra.net.IAsyncCallback;
+import org.apache.cassandra.net.IVerbHandler;
+import org.apache.cassandra.net.MessageIn;
+import org.apache.cassandra.net.MessageOut;
+import org.apache.cassandra.net.MessagingService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of request/response round trips over the blocking and the Netty internode messaging
+ * transports, through real loopback sockets. The node listens on its usual address and on one more loopback address
+ * per simulated peer, so that each peer gets connections of its own both ways, the requests going out to the peers and
+ * the responses coming back to the node. Binding 127.0.0.2 and above needs loopback aliases outside Linux.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1G")
+@Threads(4)
+@State(Scope.Benchmark)
+public class MessagingTransportBench
+{
+    private static final int BATCH = 1000;
+    private static final MessagingService.Verb VERB = MessagingService.Verb.UNUSED_1;
+
+    @Param({"blocking", "netty"})
+    String transport;
+
+    @Param({"none", "all"})
+    String compression;
+
+    @Param({"64", "4096"})
+    int payloadSize;
+
+    @Param({"4"})
+    int peerCount;
+
+    InetAddress[] peers;
+    MessageOut<byte[]> request;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable
+    {
+        SchemaLoader.prepareServer();
+        DatabaseDescriptor.setInternodeMessagingTransport(Config.InternodeMessagingTransport.valueOf(transport));
+        DatabaseDescriptor.setInternodeCompression(Config.InternodeCompression.valueOf(compression));
+
+        MessagingService.verbSerializers.put(VERB, PayloadSerializer.instance);
+        MessagingService.callbackDeserializers.put(VERB, PayloadSerializer.instance);
+        MessagingService.instance().registerVerbHandlers(VERB, new IVerbHandler<byte[]>()
+        {
+            public void doVerb(MessageIn<byte[]> message, int id)
+            {
+                MessageOut<byte[]> response = new MessageOut<>(MessagingService.Verb.REQUEST_RESPONSE, message.payload, PayloadSerializer.instance);
+                MessagingService.instance().sendReply(response, id, message.from);
+            }
+        });
+
+        MessagingService.instance().listen();
+        peers = new InetAddress[peerCount];
+        for (int i = 0; i < peerCount; i++)
+        {
+            peers[i] = InetAddress.getByAddress(new byte[]{ 127, 0, 0, (byte) (i + 2) });
+            MessagingService.instance().listen(peers[i]);
+        }
+
+        byte[] payload = new byte[payloadSize];
+        ThreadLocalRandom.current().nextBytes(payload);
+        request = new MessageOut<>(VERB, payload, PayloadSerializer.instance);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        MessagingService.instance().shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void roundTrips() throws InterruptedException
+    {
+        final CountDownLatch responses = new CountDownLatch(BATCH);
+        IAsyncCallback<byte[]> callback = new IAsyncCallback<byte[]>()
+        {
+            public void response(MessageIn<byte[]> msg)
+            {
+                responses.countDown();
+            }
+
+            public boolean isLatencyForSnitch()
+            {
+                return false;
+            }
+        };
+
+        for (int i = 0; i < BATCH; i++)
+            MessagingService.instance().sendRR(request, peers[i % peers.length], callback);
+        if (!responses.await(1, TimeUnit.MINUTES))
+            throw new IllegalStateException(responses.getCount() + " responses missing");
+    }
+
+    private static class PayloadSerializer implements IVersionedSerializer<byte[]>
+    {
+        static final PayloadSerializer instance = new PayloadSerializer();
+
+        public void serialize(byte[] payload, DataOutputPlus out, int version) throws IOException
+        {
+            out.writeInt(payload.length);
+            out.write(payload);
+        }
+
+        public byte[] deserialize(DataInput in, int version) throws IOException
+        {
+            byte[] payload = new byte[in.readInt()];
+            in.readFully(payload);
+            return payload;
+        }
+
+        public long serializedSize(byte[] payload, int version)
+        {
+            return 4 + payload.length;
+        }
+    }
+}
@@ -22,18 +22,28 @@ package org.apache.cassandra.test.microbench;
 
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
+import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.dht.Murmur3Partitioner;
 import org.apache.cassandra.dht.RandomPartitioner;
 import org.apache.cassandra.dht.Range;
 import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.locator.AbstractReplicationStrategy;
 import org.apache.cassandra.locator.PendingRangeMaps;
+import org.apache.cassandra.locator.SimpleSnitch;
+import org.apache.cassandra.locator.SimpleStrategy;
+import org.apache.cassandra.locator.TokenMetadata;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
@@ -52,6 +62,56 @@ public class PendingRangesBench
 
     Multimap<Range<Token>, InetAddress> oldPendingRanges;
 
+    /**
+     * A ring of 400 nodes of 256 vnodes each, that is over 100k tokens, with a few nodes bootstrapping, to measure
+     * what a change of the ring costs each node.
+     */
+    @State(Scope.Benchmark)
+    public static class Ring
+    {
+        static final String KEYSPACE = "PendingRangesBench";
+        static final int NODES = 400;
+        static final int VNODES = 256;
+        static final int BOOTSTRAPPING = 8;
+
+        TokenMetadata metadata;
+        AbstractReplicationStrategy strategy;
+        InetAddress joining;
+
+        @Setup(Level.Trial)
+        public void setUp() throws UnknownHostException
+        {
+            SchemaLoader.prepareServer();
+            metadata = new TokenMetadata();
+            strategy = new SimpleStrategy(KEYSPACE, metadata, new SimpleSnitch(), Collections.singletonMap("replication_factor", "3"));
+
+            Random random = new Random(0);
+            Multimap<InetAddress, Token> endpointTokens = HashMultimap.create();
+            for (int i = 0; i < NODES; i++)
+                endpointTokens.putAll(address(i), tokens(random));
+            metadata.updateNormalTokens(endpointTokens);
+
+            for (int i = NODES; i < NODES + BOOTSTRAPPING; i++)
+                metadata.addBootstrapTokens(tokens(random), address(i));
+            metadata.calculatePendingRanges(strategy, KEYSPACE);
+
+            joining = address(NODES + BOOTSTRAPPING);
+        }
+
+        static InetAddress address(int i) throws UnknownHostException
+        {
+            return InetAddress.getByAddress(new byte[]{ 127, 0, (byte) (i >> 8), (byte) i });
+        }
+
+        static List<Token> tokens(Random random)
+        {
+            List<Token> tokens = new ArrayList<>(VNODES);
+            for (int i = 0; i < VNODES; i++)
+                tokens.add(new Murmur3Partitioner.LongToken(random.nextLong()));
+            return tokens;
+        }
+    }
+
     private Range<Token> genRange(String left, String right)
     {
         return new Range<Token>(new RandomPartitioner.BigIntegerToken(left), new RandomPartitioner.BigIntegerToken(right));
@@ -106,4 +166,30 @@ public class PendingRangesBench
         bh.consume(endpoints);
     }
 
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void cloneRing(Ring ring, final Blackhole bh)
+    {
+        bh.consume(ring.metadata.cloneOnlyTokenMap());
+    }
+
+    /**
+     * One more node starts bootstrapping while the others go on, and gives up right away: each node goes through two
+     * pending range calculations, which is the cost of a change of the ring.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void bootstrapChange(Ring ring, final Blackhole bh)
+    {
+        // new tokens every time, so that the ranges of the joining node are never reused
+        List<Token> tokens = Ring.tokens(ThreadLocalRandom.current());
+        ring.metadata.addBootstrapTokens(tokens, ring.joining);
+        ring.metadata.calculatePendingRanges(ring.strategy, Ring.KEYSPACE);
+        bh.consume(ring.metadata.getPendingRanges(Ring.KEYSPACE));
+
+        ring.metadata.removeBootstrapTokens(tokens);
+        ring.metadata.calculatePendingRanges(ring.strategy, Ring.KEYSPACE);
+        bh.consume(ring.metadata.getPendingRanges(Ring.KEYSPACE));
+    }
+
 }
@@ -17,6 +17,9 @@
  */
 package org.apache.cassandra.cache;
 
+import java.io.File;
+import java.io.FilenameFilter;
+
 import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -24,6 +27,7 @@ import org.junit.Test;
 
 import org.apache.cassandra.SchemaLoader;
 import org.apache.cassandra.Util;
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.config.KSMetaData;
 import org.apache.cassandra.db.ColumnFamilyStore;
 import org.apache.cassandra.db.Keyspace;
@@ -38,6 +42,7 @@ public class AutoSavingCacheTest
 {
     private static final String KEYSPACE1 = "AutoSavingCacheTest1";
     private static final String CF_STANDARD1 = "Standard1";
+    private static final String CF_STANDARD2 = "Standard2";
 
     @BeforeClass
     public static void defineSchema() throws ConfigurationException
@@ -46,7 +51,8 @@ public class AutoSavingCacheTest
         SchemaLoader.createKeyspace(KEYSPACE1,
                                     SimpleStrategy.class,
                                     KSMetaData.optsWithRF(1),
-                                    SchemaLoader.standardCFMD(KEYSPACE1, CF_STANDARD1));
+                                    SchemaLoader.standardCFMD(KEYSPACE1, CF_STANDARD1),
+                                    SchemaLoader.standardCFMD(KEYSPACE1, CF_STANDARD2));
     }
 
     @Test
@@ -80,4 +86,49 @@ public class AutoSavingCacheTest
         for (SSTableReader sstable : cfs.getSSTables())
             Assert.assertNotNull(keyCache.get(new KeyCacheKey(cfs.metadata.ksAndCFName, sstable.descriptor, ByteBufferUtil.bytes("key1"))));
     }
+
+    @Test
+    public void testSaveOnlyChangedTables() throws Exception
+    {
+        // a table of its own, as the other test expects the sstables it flushes to be the only ones
+        ColumnFamilyStore cfs = Keyspace.open(KEYSPACE1).getColumnFamilyStore(CF_STANDARD2);
+        for (int i = 0; i < 2; i++)
+        {
+            Mutation rm = new Mutation(KEYSPACE1, ByteBufferUtil.bytes("key2"));
+            rm.add(CF_STANDARD2, Util.cellname("c1"), ByteBufferUtil.bytes(i), 0);
+            rm.applyUnsafe();
+            cfs.forceBlockingFlush();
+        }
+
+        AutoSavingCache<KeyCacheKey, RowIndexEntry> keyCache = CacheService.instance.keyCache;
+        for (SSTableReader sstable : cfs.getSSTables())
+            sstable.getPosition(Util.dk("key2"), SSTableReader.Operator.EQ);
+        keyCache.submitWrite(0).get();
+
+        File[] files = savedCacheFiles(cfs);
+        Assert.assertEquals(1, files.length);
+
+        // nothing changed, so the file of the table is not rewritten
+        Assert.assertTrue(files[0].delete());
+        keyCache.submitWrite(0).get();
+        Assert.assertEquals(0, savedCacheFiles(cfs).length);
+
+        // the entries of the other sstables are left to save
+        SSTableReader sstable = cfs.getSSTables().iterator().next();
+        keyCache.remove(new KeyCacheKey(cfs.metadata.ksAndCFName, sstable.descriptor, ByteBufferUtil.bytes("key2")));
+        keyCache.submitWrite(0).get();
+        Assert.assertEquals(1, savedCacheFiles(cfs).length);
+    }
+
+    private static File[] savedCacheFiles(final ColumnFamilyStore cfs)
+    {
+        return new File(DatabaseDescriptor.getSavedCachesLocation()).listFiles(new FilenameFilter()
+        {
+            public boolean accept(File dir, String name)
+            {
+                return name.startsWith(cfs.keyspace.getName() + "-" + cfs.name + "-" + CacheService.CacheType.KEY_CACHE)
+                       && name.endsWith(".db");
+            }
+        });
+    }
 }
@@ -21,23 +21,37 @@
 package org.apache.cassandra.cache;
 
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.config.CFMetaData;
 import org.apache.cassandra.config.KSMetaData;
+import org.apache.cassandra.config.Schema;
 import org.apache.cassandra.db.ArrayBackedSortedColumns;
 import org.apache.cassandra.db.ColumnFamily;
+import org.apache.cassandra.db.DeletionTime;
+import org.apache.cassandra.db.RowIndexEntry;
+import org.apache.cassandra.db.TypeSizes;
 import org.apache.cassandra.exceptions.ConfigurationException;
+import org.apache.cassandra.io.sstable.Descriptor;
+import org.apache.cassandra.io.sstable.IndexHelper;
+import org.apache.cassandra.io.util.DataOutputBuffer;
 import org.apache.cassandra.locator.SimpleStrategy;
 import org.apache.cassandra.utils.Pair;
 
 import com.googlecode.concurrentlinkedhashmap.Weighers;
 
+import static org.apache.cassandra.Util.cellname;
 import static org.apache.cassandra.Util.column;
 import static org.junit.Assert.*;
 
@@ -146,6 +160,92 @@ public class CacheProviderTest
         assertNotSame(key1.hashCode(), key3.hashCode());
     }
 
+    @Test
+    public void testOHCKeyCache()
+    {
+        ICache<KeyCacheKey, RowIndexEntry> cache = new OHCKeyCacheProvider().create();
+        Pair<String, String> ksAndCFName = Pair.create(KEYSPACE1, CF_STANDARD1);
+        Descriptor desc = new Descriptor(new File("build/test/cassandra/data"), KEYSPACE1, CF_STANDARD1, 1, Descriptor.Type.FINAL);
+        KeyCacheKey key1 = new KeyCacheKey(ksAndCFName, desc, ByteBuffer.wrap(new byte[]{ 1, 2, 3, 4 }));
+        KeyCacheKey key2 = new KeyCacheKey(ksAndCFName, desc.withGeneration(2), ByteBuffer.wrap(new byte[]{ 1, 2, 3, 4 }));
+
+        cache.put(key1, new RowIndexEntry(42));
+        assertEquals(42, cache.get(key1).position);
+        assertNull(cache.get(key2));
+        assertEquals(1, cache.size());
+
+        // keys are deserialized for saving the cache
+        Iterator<KeyCacheKey> iter = cache.keyIterator();
+        assertEquals(key1, iter.next());
+        assertFalse(iter.hasNext());
+
+        cache.remove(key1);
+        assertNull(cache.get(key1));
+    }
+
+    @Test
+    public void testOHCKeyCacheIndexedEntry() throws IOException
+    {
+        ICache<KeyCacheKey, RowIndexEntry> cache = new OHCKeyCacheProvider().create();
+        CFMetaData metadata = Schema.instance.getCFMetaData(KEYSPACE1, CF_STANDARD1);
+        Pair<String, String> ksAndCFName = Pair.create(KEYSPACE1, CF_STANDARD1);
+        Descriptor desc = new Descriptor(new File("build/test/cassandra/data"), KEYSPACE1, CF_STANDARD1, 1, Descriptor.Type.FINAL);
+        KeyCacheKey key1 = new KeyCacheKey(ksAndCFName, desc, ByteBuffer.wrap(new byte[]{ 1, 2, 3, 4 }));
+        KeyCacheKey key2 = new KeyCacheKey(ksAndCFName, desc, ByteBuffer.wrap(new byte[]{ 5, 6, 7, 8 }));
+        RowIndexEntry.IndexSerializer<IndexHelper.IndexInfo> serializer = new RowIndexEntry.Serializer(new IndexHelper.IndexInfo.Serializer(metadata.comparator));
+
+        RowIndexEntry<IndexHelper.IndexInfo> entry = indexedEntry(metadata, serializer, desc, "a", "b", "c", "d");
+        cache.put(key1, entry);
+        RowIndexEntry<IndexHelper.IndexInfo> cached = cache.get(key1);
+
+        // the entry read from the cache must not depend on the cache memory, which is freed and reused here
+        cache.remove(key1);
+        cache.put(key2, indexedEntry(metadata, serializer, desc, "w", "x", "y", "z"));
+        assertTrue(cached.isIndexed());
+        assertEquals(42, cached.position);
+        assertEquals(2, cached.columnsIndex().size());
+        assertEquals(cellname("a"), cached.columnsIndex().get(0).firstName);
+        assertEquals(cellname("d"), cached.columnsIndex().get(1).lastName);
+        assertEquals(serialized(serializer, entry), serialized(serializer, cached));
+
+        // entries are compared by their serialized form when replaced, and added if absent
+        RowIndexEntry<IndexHelper.IndexInfo> other = cache.get(key2);
+        assertFalse(cache.replace(key2, entry, entry));
+        assertTrue(cache.replace(key2, other, entry));
+        assertEquals(serialized(serializer, entry), serialized(serializer, cache.get(key2)));
+        assertTrue(cache.replace(key1, other, other));
+        assertEquals(serialized(serializer, other), serialized(serializer, cache.get(key1)));
+        assertFalse(cache.putIfAbsent(key1, entry));
+        cache.remove(key1);
+        assertTrue(cache.putIfAbsent(key1, entry));
+    }
+
+    private static RowIndexEntry<IndexHelper.IndexInfo> indexedEntry(CFMetaData metadata,
+                                                                     RowIndexEntry.IndexSerializer<IndexHelper.IndexInfo> serializer,
+                                                                     Descriptor desc,
+                                                                     String... names) throws IOException
+    {
+        IndexHelper.IndexInfo.Serializer indexSerializer = new IndexHelper.IndexInfo.Serializer(metadata.comparator);
+        DataOutputBuffer index = new DataOutputBuffer();
+        indexSerializer.serialize(new IndexHelper.IndexInfo(cellname(names[0]), cellname(names[1]), 0, 10), index);
+        indexSerializer.serialize(new IndexHelper.IndexInfo(cellname(names[2]), cellname(names[3]), 10, 10), index);
+
+        DataOutputBuffer out = new DataOutputBuffer();
+        out.writeLong(42);
+        out.writeInt((int) DeletionTime.serializer.serializedSize(DeletionTime.LIVE, TypeSizes.NATIVE) + TypeSizes.NATIVE.sizeof(2) + index.getLength());
+        DeletionTime.serializer.serialize(DeletionTime.LIVE, out);
+        out.writeInt(2);
+        out.write(index.getData(), 0, index.getLength());
+        return serializer.deserialize(new DataInputStream(new ByteArrayInputStream(out.getData(), 0, out.getLength())), desc.version);
+    }
+
+    private static ByteBuffer serialized(RowIndexEntry.IndexSerializer<IndexHelper.IndexInfo> serializer, RowIndexEntry<IndexHelper.IndexInfo> entry) throws IOException
+    {
+        DataOutputBuffer out = new DataOutputBuffer();
+        serializer.serialize(entry, out);
+        return out.buffer();
+    }
+
     private class MeasureableString implements IMeasurableMemory
     {
         public final String string;
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import org.apache.cassandra.io.util.DataOutputBuffer;
+
+import static org.junit.Assert.*;
+
+public class ChunkCacheTest
+{
+    @Test
+    public void testGetPutInvalidate()
+    {
+        ChunkCache cache = new ChunkCache(1024 * 1024);
+        ByteBuffer chunk = ByteBuffer.allocate(100);
+        for (int i = 0; i < chunk.capacity(); i++)
+            chunk.put((byte) i);
+        chunk.flip();
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(128);
+        assertFalse(cache.get("a-Data.db", 0, buffer));
+
+        cache.put("a-Data.db", 0, chunk);
+        cache.put("a-Data.db", 128, chunk);
+        cache.put("b-Data.db", 0, chunk);
+        assertEquals(0, chunk.position());
+        assertEquals(3, cache.size());
+
+        assertTrue(cache.get("a-Data.db", 0, buffer));
+        assertEquals(chunk, buffer);
+        assertFalse(cache.get("a-Data.db", 256, buffer));
+
+        cache.invalidateFile("a-Data.db");
+        assertFalse(cache.get("a-Data.db", 0, buffer));
+        assertFalse(cache.get("a-Data.db", 128, buffer));
+        assertTrue(cache.get("b-Data.db", 0, buffer));
+        assertEquals(chunk, buffer);
+    }
+
+    @Test
+    public void testValueSerializer() throws IOException
+    {
+        ByteBuffer chunk = ByteBuffer.allocate(100);
+        for (int i = 0; i < chunk.capacity(); i++)
+            chunk.put((byte) i);
+        chunk.flip();
+        chunk.position(10);
+
+        DataOutputBuffer out = new DataOutputBuffer();
+        ChunkCache.ValueSerializer.instance.serialize(chunk, out);
+        assertEquals(ChunkCache.ValueSerializer.instance.serializedSize(chunk), out.getLength());
+        assertEquals(10, chunk.position());
+
+        ByteBuffer deserialized = ChunkCache.ValueSerializer.instance.deserialize(new DataInputStream(new ByteArrayInputStream(out.toByteArray())));
+        assertEquals(chunk, deserialized);
+    }
+}
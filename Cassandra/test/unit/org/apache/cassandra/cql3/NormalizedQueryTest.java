@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.cql3;
+
+import java.nio.ByteBuffer;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.ConsistencyLevel;
+import org.apache.cassandra.dht.ByteOrderedPartitioner;
+import org.apache.cassandra.exceptions.InvalidRequestException;
+import org.apache.cassandra.exceptions.SyntaxException;
+
+import static org.junit.Assert.*;
+
+public class NormalizedQueryTest extends CQLTester
+{
+    @BeforeClass
+    public static void setUp()
+    {
+        DatabaseDescriptor.setPartitioner(ByteOrderedPartitioner.instance);
+        requireNetwork();
+    }
+
+    @Test
+    public void testNormalize()
+    {
+        NormalizedQuery query = NormalizedQuery.normalize("SELECT * FROM t WHERE k = 'it''s' AND c IN (1, -2.5e3, 0xcafe) AND b = true", "ks");
+        assertEquals("SELECT * FROM t WHERE k = ? AND c IN (?, ?, ?) AND b = ?", query.text);
+        assertEquals(5, query.literalCount());
+
+        // only the values of the literals differ
+        assertEquals(query, NormalizedQuery.normalize("SELECT * FROM t WHERE k = 'a' AND c IN (3, 1.0, 0x) AND b = FALSE", "ks"));
+        assertFalse(query.equals(NormalizedQuery.normalize("SELECT * FROM t WHERE k = 'a' AND c IN (3, 1.0, 0x) AND b = FALSE", "other")));
+        assertFalse(query.equals(NormalizedQuery.normalize("SELECT * FROM t WHERE k = 'a' AND c IN ('3', 1.0, 0x) AND b = FALSE", "ks")));
+
+        query = NormalizedQuery.normalize("update \"T1\" SET v = $$a 'b'$$, m['x'] = 62c36092-82a1-3a00-93d1-46196ee77204 -- 'c'\nWHERE k1 = 1", null);
+        assertEquals("update \"T1\" SET v = ?, m[?] = ? -- 'c'\nWHERE k1 = ?", query.text);
+        assertEquals(4, query.literalCount());
+
+        // statements that are not normalized
+        assertNull(NormalizedQuery.normalize("SELECT * FROM t WHERE k = ?", "ks"));
+        assertNull(NormalizedQuery.normalize("SELECT * FROM t WHERE k = :k", "ks"));
+        assertNull(NormalizedQuery.normalize("SELECT * FROM t WHERE k = 'a", "ks"));
+        assertNull(NormalizedQuery.normalize("CREATE TABLE t (k int PRIMARY KEY) WITH comment = 'a'", "ks"));
+    }
+
+    @Test
+    public void testNormalizedStatements() throws Throwable
+    {
+        createTable("CREATE TABLE %s (k int, c text, v blob, PRIMARY KEY (k, c))");
+        String table = KEYSPACE + '.' + currentTable();
+
+        long hits = QueryProcessor.metrics.normalizedStatementsHits.getCount();
+        for (int i = 0; i < 10; i++)
+            QueryProcessor.process("INSERT INTO " + table + " (k, c, v) VALUES (" + i + ", 'c" + i + "', 0x0" + i + ")", ConsistencyLevel.ONE);
+        // all the inserts but the first one hit the statement cached by the first one
+        assertEquals(hits + 9, QueryProcessor.metrics.normalizedStatementsHits.getCount());
+
+        for (int i = 0; i < 10; i++)
+        {
+            UntypedResultSet rows = QueryProcessor.process("SELECT c, v FROM " + table + " WHERE k = " + i + " LIMIT 1", ConsistencyLevel.ONE);
+            assertEquals(1, rows.size());
+            assertEquals("c" + i, rows.one().getString("c"));
+            assertEquals(ByteBuffer.wrap(new byte[]{ (byte) i }), rows.one().getBytes("v"));
+        }
+        assertEquals(hits + 18, QueryProcessor.metrics.normalizedStatementsHits.getCount());
+
+        // invalid literals fail as they would without the cached statement
+        try
+        {
+            QueryProcessor.process("SELECT c, v FROM " + table + " WHERE k = 'a' LIMIT 1", ConsistencyLevel.ONE);
+            fail();
+        }
+        catch (InvalidRequestException e)
+        {
+        }
+        try
+        {
+            QueryProcessor.process("SELECT c, v FROM " + table + " WHERE k = 1 LIMIT 'a'", ConsistencyLevel.ONE);
+            fail();
+        }
+        catch (SyntaxException e)
+        {
+        }
+
+        // schema changes drop the cached statements
+        alterTable("ALTER TABLE %s ADD w int");
+        assertEquals(0, QueryProcessor.normalizedStatementsCount());
+        assertRows(QueryProcessor.process("SELECT w FROM " + table + " WHERE k = 1", ConsistencyLevel.ONE), row((Object) null));
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import org.apache.cassandra.Util;
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.composites.CellName;
+import org.apache.cassandra.db.filter.ColumnSlice;
+import org.apache.cassandra.db.index.SecondaryIndexManager;
+import org.apache.cassandra.db.marshal.BytesType;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.SearchIterator;
+import org.apache.cassandra.utils.concurrent.OpOrder;
+import org.apache.cassandra.utils.memory.MemtableAllocator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AtomicBTreeColumnsTest
+{
+    private static final CFMetaData metadata = CFMetaData.denseCFMetaData("AtomicBTreeColumnsTest", "Standard1", BytesType.instance);
+    private static final int CELLS = 100;
+
+    @Test
+    public void testShardedPartition()
+    {
+        int shards = DatabaseDescriptor.getMemtablePartitionShards();
+        DatabaseDescriptor.setMemtablePartitionShards(4);
+        MemtableAllocator allocator = Memtable.MEMORY_POOL.newAllocator();
+        OpOrder.Group writeOp = new OpOrder().start();
+        try
+        {
+            AtomicBTreeColumns columns = AtomicBTreeColumns.factory.create(metadata);
+            for (int i = 0; i < CELLS; i += 2)
+                add(columns, allocator, writeOp, i);
+
+            assertTrue(columns.shard());
+            assertFalse(columns.shard());
+
+            // single shard updates, then one spanning all of them
+            for (int i = 1; i < CELLS - 10; i += 2)
+                add(columns, allocator, writeOp, i);
+            add(columns, allocator, writeOp, 91, 93, 95, 97, 99);
+
+            assertEquals(CELLS, columns.getColumnCount());
+            assertTrue(columns.hasColumns());
+            assertEquals(42, value(columns.getColumn(name(42))));
+
+            int expected = 0;
+            for (Cell cell : columns)
+                assertEquals(expected++, value(cell));
+            assertEquals(CELLS, expected);
+            for (Cell cell : columns.getReverseSortedColumns())
+                assertEquals(--expected, value(cell));
+
+            ColumnSlice[] slices = new ColumnSlice[]{ new ColumnSlice(name(10), name(20)), new ColumnSlice(name(50), name(52)) };
+            expected = 10;
+            for (Iterator<Cell> iterator = columns.iterator(slices); iterator.hasNext(); )
+            {
+                assertEquals(expected, value(iterator.next()));
+                expected = expected == 20 ? 50 : expected + 1;
+            }
+            assertEquals(53, expected);
+
+            ColumnSlice[] reversed = new ColumnSlice[]{ new ColumnSlice(name(52), name(50)), new ColumnSlice(name(20), name(10)) };
+            expected = 52;
+            for (Iterator<Cell> iterator = columns.reverseIterator(reversed); iterator.hasNext(); )
+            {
+                assertEquals(expected, value(iterator.next()));
+                expected = expected == 50 ? 20 : expected - 1;
+            }
+            assertEquals(9, expected);
+
+            SearchIterator<CellName, Cell> search = columns.searchIterator();
+            assertEquals(5, value(search.next(name(5))));
+            assertEquals(60, value(search.next(name(60))));
+            assertNull(search.next(name(CELLS)));
+        }
+        finally
+        {
+            writeOp.close();
+            DatabaseDescriptor.setMemtablePartitionShards(shards);
+        }
+    }
+
+    private static void add(AtomicBTreeColumns columns, MemtableAllocator allocator, OpOrder.Group writeOp, int... values)
+    {
+        ColumnFamily update = ArrayBackedSortedColumns.factory.create(metadata);
+        for (int value : values)
+            update.addColumn(new BufferCell(name(value), ByteBufferUtil.bytes(value), 0));
+        columns.addAllWithSizeDelta(update, allocator, writeOp, SecondaryIndexManager.nullUpdater);
+    }
+
+    private static CellName name(int value)
+    {
+        return Util.cellname((long) value);
+    }
+
+    private static int value(Cell cell)
+    {
+        return ByteBufferUtil.toInt(cell.value());
+    }
+}
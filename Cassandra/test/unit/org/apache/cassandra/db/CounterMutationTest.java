@@ -18,10 +18,17 @@
 package org.apache.cassandra.db;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.config.KSMetaData;
 import org.apache.cassandra.SchemaLoader;
 import org.apache.cassandra.db.context.CounterContext;
@@ -34,6 +41,7 @@ import org.apache.cassandra.utils.FBUtilities;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import static org.apache.cassandra.Util.cellname;
 import static org.apache.cassandra.Util.dk;
@@ -230,4 +238,83 @@ public class CounterMutationTest
         assertEquals(ClockAndCount.create(1L, 10L), CounterContext.instance().getLocalClockAndCount(context));
         assertEquals(ClockAndCount.create(1L, 10L), cfs.getCachedCounter(bytes(1), cellname(1)));
     }
+
+    @Test
+    public void testBufferedIncrements() throws Throwable
+    {
+        final ColumnFamilyStore cfs = Keyspace.open(KEYSPACE1).getColumnFamilyStore(CF1);
+        cfs.truncateBlocking();
+
+        final int threads = 8;
+        final int increments = 100;
+        double window = DatabaseDescriptor.getCounterWriteDeltaWindow();
+        DatabaseDescriptor.setCounterWriteDeltaWindow(5);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++)
+            {
+                futures.add(executor.submit(new Callable<Object>()
+                {
+                    public Object call() throws WriteTimeoutException
+                    {
+                        for (int i = 0; i < increments; i++)
+                        {
+                            ColumnFamily cells = ArrayBackedSortedColumns.factory.create(cfs.metadata);
+                            cells.addCounter(cellname(1), 1L);
+                            Mutation result = new CounterMutation(new Mutation(KEYSPACE1, bytes(1), cells), ConsistencyLevel.ONE).apply();
+                            // the result to replicate holds the whole local shard, not just the increment
+                            assertTrue(result.getColumnFamily(cfs.metadata.cfId).getColumn(cellname(1)) instanceof CounterCell);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get();
+        }
+        finally
+        {
+            executor.shutdown();
+            DatabaseDescriptor.setCounterWriteDeltaWindow(window);
+        }
+
+        ColumnFamily current = cfs.getColumnFamily(QueryFilter.getIdentityFilter(dk(bytes(1)), CF1, System.currentTimeMillis()));
+        ByteBuffer context = current.getColumn(cellname(1)).value();
+        assertEquals(threads * increments, CounterContext.instance().total(context));
+
+        // concurrent increments are folded together, with a single clock increment for each fold
+        ClockAndCount clockAndCount = CounterContext.instance().getLocalClockAndCount(context);
+        assertEquals(threads * increments, clockAndCount.count);
+        assertTrue(clockAndCount.clock < threads * increments);
+        assertEquals(clockAndCount, cfs.getCachedCounter(bytes(1), cellname(1)));
+    }
+
+    @Test
+    public void testMultiCellIncrementsNotBuffered() throws WriteTimeoutException
+    {
+        ColumnFamilyStore cfs = Keyspace.open(KEYSPACE1).getColumnFamilyStore(CF1);
+        cfs.truncateBlocking();
+
+        // a window well over the write timeout: a buffered increment would time out
+        double window = DatabaseDescriptor.getCounterWriteDeltaWindow();
+        DatabaseDescriptor.setCounterWriteDeltaWindow(DatabaseDescriptor.getCounterWriteRpcTimeout() * 10);
+        try
+        {
+            ColumnFamily cells = ArrayBackedSortedColumns.factory.create(cfs.metadata);
+            cells.addCounter(cellname(1), 1L);
+            cells.addCounter(cellname(2), -1L);
+            new CounterMutation(new Mutation(KEYSPACE1, bytes(1), cells), ConsistencyLevel.ONE).apply();
+        }
+        finally
+        {
+            DatabaseDescriptor.setCounterWriteDeltaWindow(window);
+        }
+
+        // both cells are applied at once, under the counter locks
+        ColumnFamily current = cfs.getColumnFamily(QueryFilter.getIdentityFilter(dk(bytes(1)), CF1, System.currentTimeMillis()));
+        assertEquals(1L, CounterContext.instance().total(current.getColumn(cellname(1)).value()));
+        assertEquals(-1L, CounterContext.instance().total(current.getColumn(cellname(2)).value()));
+    }
 }
@@ -20,7 +20,9 @@
  */
 package org.apache.cassandra.db;
 
+import java.io.File;
 import java.net.InetAddress;
+import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.UUID;
 
@@ -31,17 +33,24 @@ import com.google.common.collect.Iterators;
 
 import org.apache.cassandra.SchemaLoader;
 import org.apache.cassandra.Util;
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.config.KSMetaData;
 import org.apache.cassandra.cql3.UntypedResultSet;
-import org.apache.cassandra.db.compaction.SizeTieredCompactionStrategy;
+import org.apache.cassandra.db.composites.CellName;
 import org.apache.cassandra.db.marshal.Int32Type;
 import org.apache.cassandra.db.marshal.UUIDType;
 import org.apache.cassandra.exceptions.ConfigurationException;
+import org.apache.cassandra.hints.HintsStore;
 import org.apache.cassandra.locator.SimpleStrategy;
+import org.apache.cassandra.net.MessagingService;
 import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.FBUtilities;
 import org.apache.cassandra.utils.Pair;
+import org.apache.cassandra.utils.UUIDGen;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.apache.cassandra.cql3.QueryProcessor.executeInternal;
 
 public class HintedHandOffTest
@@ -61,38 +70,28 @@ public class HintedHandOffTest
                                     SchemaLoader.standardCFMD(KEYSPACE4, STANDARD1_CF));
     }
 
-    // Test compaction of hints column family. It shouldn't remove all columns on compaction.
     @Test
-    public void testCompactionOfHintsCF() throws Exception
+    public void testMigrateLegacyHints() throws Exception
     {
-        // prepare hints column family
-        Keyspace systemKeyspace = Keyspace.open("system");
-        ColumnFamilyStore hintStore = systemKeyspace.getColumnFamilyStore(SystemKeyspace.HINTS);
-        hintStore.clearUnsafe();
-        hintStore.metadata.gcGraceSeconds(36000); // 10 hours
-        hintStore.setCompactionStrategyClass(SizeTieredCompactionStrategy.class.getCanonicalName());
-        hintStore.disableAutoCompaction();
+        ColumnFamilyStore legacyHintStore = Keyspace.open(SystemKeyspace.NAME).getColumnFamilyStore(SystemKeyspace.HINTS);
+        legacyHintStore.clearUnsafe();
 
-        // insert 1 hint
+        // insert 1 hint the way previous versions did
         Mutation rm = new Mutation(KEYSPACE4, ByteBufferUtil.bytes(1));
         rm.add(STANDARD1_CF, Util.cellname(COLUMN1), ByteBufferUtil.EMPTY_BYTE_BUFFER, System.currentTimeMillis());
-
-        HintedHandOffManager.instance.hintFor(rm,
-                                              System.currentTimeMillis(),
-                                              HintedHandOffManager.calculateHintTTL(rm),
-                                              Pair.create(InetAddress.getByName("127.0.0.1"), UUID.randomUUID()))
-                                     .applyUnsafe();
-
-        // flush data to disk
-        hintStore.forceBlockingFlush();
-        assertEquals(1, hintStore.getSSTables().size());
-
-        // submit compaction
-        HintedHandOffManager.instance.compact();
-
-        // single row should not be removed because of gc_grace_seconds
-        // is 10 hours and there are no any tombstones in sstable
-        assertEquals(1, hintStore.getSSTables().size());
+        UUID hostId = UUID.randomUUID();
+        CellName name = SystemKeyspace.Hints.comparator.makeCellName(UUIDGen.getTimeUUID(), MessagingService.current_version);
+        ByteBuffer value = ByteBuffer.wrap(FBUtilities.serialize(rm, Mutation.serializer, MessagingService.current_version));
+        ColumnFamily cf = ArrayBackedSortedColumns.factory.create(legacyHintStore.metadata);
+        cf.addColumn(name, value, System.currentTimeMillis(), HintedHandOffManager.calculateHintTTL(rm));
+        new Mutation(SystemKeyspace.NAME, UUIDType.instance.decompose(hostId), cf).applyUnsafe();
+        assertEquals(1, getNoOfLegacyHints());
+
+        HintedHandOffManager.instance.migrateLegacyHints();
+
+        assertEquals(0, getNoOfLegacyHints());
+        assertTrue(HintedHandOffManager.instance.getCatalog().getIfPresent(hostId).hasFiles());
+        HintedHandOffManager.instance.truncateAllHints();
     }
 
     @Test
@@ -107,36 +106,32 @@ public class HintedHandOffTest
         assertEquals(Iterators.getLast(returned.values().iterator()).intValue(), 99);
     }
 
-    @Test(timeout = 5000)
+    @Test
     public void testTruncateHints() throws Exception
     {
-        Keyspace systemKeyspace = Keyspace.open("system");
-        ColumnFamilyStore hintStore = systemKeyspace.getColumnFamilyStore(SystemKeyspace.HINTS);
-        hintStore.clearUnsafe();
-
         // insert 1 hint
         Mutation rm = new Mutation(KEYSPACE4, ByteBufferUtil.bytes(1));
         rm.add(STANDARD1_CF, Util.cellname(COLUMN1), ByteBufferUtil.EMPTY_BYTE_BUFFER, System.currentTimeMillis());
 
-        HintedHandOffManager.instance.hintFor(rm,
-                                              System.currentTimeMillis(),
-                                              HintedHandOffManager.calculateHintTTL(rm),
-                                              Pair.create(InetAddress.getByName("127.0.0.1"), UUID.randomUUID()))
-                                     .applyUnsafe();
+        UUID hostId = UUID.randomUUID();
+        HintedHandOffManager.instance.writeHint(rm,
+                                                System.currentTimeMillis(),
+                                                HintedHandOffManager.calculateHintTTL(rm),
+                                                Pair.create(InetAddress.getByName("127.0.0.1"), hostId));
 
-        assert getNoOfHints() == 1;
+        HintsStore store = HintedHandOffManager.instance.getCatalog().getIfPresent(hostId);
+        assertTrue(store.hasFiles());
+        assertTrue(HintedHandOffManager.instance.listEndpointsPendingHints().contains(hostId.toString()));
 
         HintedHandOffManager.instance.truncateAllHints();
 
-        while(getNoOfHints() > 0)
-        {
-            Thread.sleep(100);
-        }
-
-        assert getNoOfHints() == 0;
+        assertFalse(store.hasFiles());
+        assertFalse(HintedHandOffManager.instance.listEndpointsPendingHints().contains(hostId.toString()));
+        for (File file : new File(DatabaseDescriptor.getHintsDirectory()).listFiles())
+            assertFalse(file.getName().startsWith(hostId.toString()));
     }
 
-    private int getNoOfHints()
+    private int getNoOfLegacyHints()
     {
         String req = "SELECT * FROM system.%s";
         UntypedResultSet resultSet = executeInternal(String.format(req, SystemKeyspace.HINTS));
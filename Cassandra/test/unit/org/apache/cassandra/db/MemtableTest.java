@@ -0,0 +1,127 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.apache.cassandra.db;
+
+import org.junit.Test;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.cql3.CQLTester;
+import org.apache.cassandra.cql3.UntypedResultSet;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.dht.RandomPartitioner;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MemtableTest extends CQLTester
+{
+    @Test
+    public void testShardBoundaries()
+    {
+        for (IPartitioner partitioner : new IPartitioner[]{ Murmur3Partitioner.instance, RandomPartitioner.instance })
+        {
+            assertEquals(0, Memtable.shardBoundaries(partitioner, 1).length);
+
+            for (int shards = 2; shards <= 64; shards *= 2)
+            {
+                Token[] boundaries = Memtable.shardBoundaries(partitioner, shards);
+                assertEquals(shards - 1, boundaries.length);
+                assertTrue(partitioner.getMinimumToken().compareTo(boundaries[0]) < 0);
+                for (int i = 1; i < boundaries.length; i++)
+                    assertTrue(boundaries[i - 1].compareTo(boundaries[i]) < 0);
+            }
+        }
+    }
+
+    @Test
+    public void testFlushShardedMemtable() throws Throwable
+    {
+        createTable("CREATE TABLE %s (k int, c int, v int, PRIMARY KEY (k, c)) WITH memtable_shards = 8");
+        ColumnFamilyStore cfs = Keyspace.open(KEYSPACE).getColumnFamilyStore(currentTable());
+        assertEquals(8, cfs.metadata.getMemtableShards());
+
+        // enough partitions for the memtable to be split into two sstables on flush
+        int partitions = 2000;
+        for (int k = 0; k < partitions; k++)
+            for (int c = 0; c < 3; c++)
+                execute("INSERT INTO %s (k, c, v) VALUES (?, ?, ?)", k, c, k + c);
+
+        // from the memtable, then from the sstables it was flushed to
+        for (boolean flushed : new boolean[]{ false, true })
+        {
+            if (flushed)
+            {
+                long keyspaceFlushes = cfs.keyspace.metric.flushThroughput.getCount();
+                int flushShards = DatabaseDescriptor.getMemtableFlushShards();
+                DatabaseDescriptor.setMemtableFlushShards(2);
+                try
+                {
+                    flush();
+                }
+                finally
+                {
+                    DatabaseDescriptor.setMemtableFlushShards(flushShards);
+                }
+                assertEquals(2, cfs.getSSTables().size());
+
+                // the throughput of the flush is recorded for the table and its keyspace, in bytes/s; the flush takes
+                // well under 10 seconds
+                assertEquals(1, cfs.metric.flushThroughput.cf.getCount());
+                assertEquals(keyspaceFlushes + 1, cfs.keyspace.metric.flushThroughput.getCount());
+                long bytesFlushed = 0;
+                for (SSTableReader sstable : cfs.getSSTables())
+                    bytesFlushed += sstable.onDiskLength();
+                assertTrue(cfs.metric.flushThroughput.cf.getSnapshot().getMax() >= bytesFlushed / 10);
+            }
+
+            for (int k = 0; k < partitions; k++)
+                assertRows(execute("SELECT c, v FROM %s WHERE k = ?", k), row(0, k), row(1, k + 1), row(2, k + 2));
+
+            // the shards are walked in token order
+            UntypedResultSet all = execute("SELECT token(k) AS t FROM %s");
+            assertEquals(partitions * 3, all.size());
+            long previous = Long.MIN_VALUE;
+            for (UntypedResultSet.Row row : all)
+            {
+                long token = row.getLong("t");
+                assertTrue(previous <= token);
+                previous = token;
+            }
+        }
+    }
+
+    @Test
+    public void testMemtableShardsOnlyInSchemaWhenSet() throws Throwable
+    {
+        String table = createTable("CREATE TABLE %s (k int PRIMARY KEY, v int)");
+        String query = "SELECT memtable_shards FROM system.schema_columnfamilies WHERE keyspace_name = ? AND columnfamily_name = ?";
+        assertFalse(execute(query, KEYSPACE, table).one().has("memtable_shards"));
+
+        alterTable("ALTER TABLE %s WITH memtable_shards = 4");
+        assertEquals(4, execute(query, KEYSPACE, table).one().getInt("memtable_shards"));
+
+        alterTable("ALTER TABLE %s WITH memtable_shards = 1");
+        assertFalse(execute(query, KEYSPACE, table).one().has("memtable_shards"));
+        assertEquals(1, Keyspace.open(KEYSPACE).getColumnFamilyStore(table).metadata.getMemtableShards());
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.commitlog;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AdaptiveCommitLogServiceTest
+{
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testWindowFollowsSyncLatencyAndArrivals()
+    {
+        AdaptiveCommitLogService service = new AdaptiveCommitLogService(null, 10);
+
+        // nothing has arrived yet, so the first write starts a sync
+        assertEquals(10 * MS, service.getSyncWindowNanos());
+        assertEquals(1, service.getSyncBatchSize());
+
+        // the first sync of 1ms gets a deviation of half that, so the window leaves 1 + 4 * 0.5ms for a slow sync
+        service.adapt(MS, 100, MS);
+        assertEquals(7 * MS, service.getSyncWindowNanos());
+        // the smoothed arrival rate of 100 writes per ms, from 0, is 12.5 writes per ms over 7ms
+        assertEquals(87, service.getSyncBatchSize());
+
+        // steady syncs shrink the deviation, widening the window, while the arrival rate catches up
+        service.adapt(MS, 100, MS);
+        assertEquals(7 * MS + MS / 2, service.getSyncWindowNanos());
+        assertEquals(175, service.getSyncBatchSize());
+    }
+
+    @Test
+    public void testIdleSyncResetsBatch()
+    {
+        AdaptiveCommitLogService service = new AdaptiveCommitLogService(null, 10);
+        service.adapt(MS, 100, MS);
+
+        // a sync with no writes waits out the whole target for the next one, which the first write starts
+        service.adapt(MS / 10, 0, 10 * MS);
+        assertEquals(10 * MS, service.getSyncWindowNanos());
+        assertEquals(1, service.getSyncBatchSize());
+
+        // the empty sync did not count towards the sync latency
+        service.adapt(MS, 100, MS);
+        assertEquals(7 * MS + MS / 2, service.getSyncWindowNanos());
+    }
+
+    @Test
+    public void testSyncsSlowerThanTargetSyncContinuously()
+    {
+        AdaptiveCommitLogService service = new AdaptiveCommitLogService(null, 10);
+        for (int i = 0; i < 10; i++)
+            service.adapt(20 * MS, 10, 20 * MS);
+
+        assertEquals(0, service.getSyncWindowNanos());
+        assertEquals(1, service.getSyncBatchSize());
+    }
+}
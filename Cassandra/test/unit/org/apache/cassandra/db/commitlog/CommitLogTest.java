@@ -21,16 +21,23 @@ package org.apache.cassandra.db.commitlog;
 
 import java.io.*;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.zip.CRC32;
 import java.util.zip.Checksum;
 
 import com.google.common.io.Files;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -41,6 +48,7 @@ import org.junit.runners.Parameterized.Parameters;
 import org.apache.cassandra.SchemaLoader;
 import org.apache.cassandra.Util;
 import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.Config;
 import org.apache.cassandra.io.compress.ZstdCompressor;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.config.KSMetaData;
@@ -73,9 +81,10 @@ public class CommitLogTest
     private static final String CF2 = "Standard2";
     private static final String CF3 = "Custom1";
 
-    public CommitLogTest(ParameterizedClass commitLogCompression)
+    public CommitLogTest(ParameterizedClass commitLogCompression, Config.CommitLogSegmentType segmentType)
     {
         DatabaseDescriptor.setCommitLogCompression(commitLogCompression);
+        DatabaseDescriptor.setCommitLogSegmentType(segmentType);
     }
 
     @Before
@@ -88,11 +97,12 @@ public class CommitLogTest
     public static Collection<Object[]> generateData()
     {
         return Arrays.asList(new Object[][] {
-                { null }, // No compression
-                { new ParameterizedClass(LZ4Compressor.class.getName(), Collections.<String, String>emptyMap()) },
-                { new ParameterizedClass(SnappyCompressor.class.getName(), Collections.<String, String>emptyMap()) },
-                { new ParameterizedClass(DeflateCompressor.class.getName(), Collections.<String, String>emptyMap()) },
-                { new ParameterizedClass(ZstdCompressor.class.getName(), Collections.<String, String>emptyMap()) } });
+                { null, Config.CommitLogSegmentType.mmap }, // No compression
+                { null, Config.CommitLogSegmentType.direct },
+                { new ParameterizedClass(LZ4Compressor.class.getName(), Collections.<String, String>emptyMap()), Config.CommitLogSegmentType.mmap },
+                { new ParameterizedClass(SnappyCompressor.class.getName(), Collections.<String, String>emptyMap()), Config.CommitLogSegmentType.mmap },
+                { new ParameterizedClass(DeflateCompressor.class.getName(), Collections.<String, String>emptyMap()), Config.CommitLogSegmentType.mmap },
+                { new ParameterizedClass(ZstdCompressor.class.getName(), Collections.<String, String>emptyMap()), Config.CommitLogSegmentType.mmap } });
     }
 
     @BeforeClass
@@ -371,6 +381,110 @@ public class CommitLogTest
         assert CommitLog.instance.activeSegments() == 1 : "Expecting 1 segment, got " + CommitLog.instance.activeSegments();
     }
 
+    @Test
+    public void testSpareFilesCountTowardsSpace() throws Exception
+    {
+        Assume.assumeTrue(DatabaseDescriptor.getCommitLogCompression() == null
+                          && DatabaseDescriptor.getCommitLogSegmentType() == Config.CommitLogSegmentType.direct);
+
+        // fill three segments, then discard the first two, which become spare files
+        Mutation rm = new Mutation(KEYSPACE1, bytes("k"));
+        rm.add(CF2, Util.cellname("c1"), ByteBuffer.allocate((DatabaseDescriptor.getCommitLogSegmentSize() / 2) - 200), 0);
+        for (int i = 0; i < 5; i++)
+            CommitLog.instance.add(rm);
+        CommitLog.instance.discardCompletedSegments(rm.getColumnFamilyIds().iterator().next(), CommitLog.instance.getContext());
+        CommitLog.instance.allocator.awaitManagementTasksCompletion();
+        Assert.assertTrue(DirectIOSegment.spareFilesSize() > 0);
+
+        // direct segments are preallocated, so the space used is that of all the files, spares included
+        long onDisk = 0;
+        for (File file : new File(DatabaseDescriptor.getCommitLogLocation()).listFiles())
+            onDisk += file.length();
+        Assert.assertEquals(onDisk, CommitLog.instance.allocator.onDiskSize());
+    }
+
+    @Test
+    public void testParallelReplayOrder() throws Exception
+    {
+        // interleave the mutations to a few partitions over several segments, numbering them in commit log order;
+        // the segments start empty, but the system tables may be written to meanwhile
+        CommitLog.instance.resetUnsafe(true);
+        final UUID cfId = Schema.instance.getId(KEYSPACE1, CF1);
+        int partitions = 4;
+        int count = 16;
+        for (int i = 0; i < count; i++)
+        {
+            ByteBuffer value = ByteBuffer.allocate(DatabaseDescriptor.getCommitLogSegmentSize() / 5);
+            value.putInt(0, i);
+            Mutation rm = new Mutation(KEYSPACE1, bytes(i % partitions));
+            rm.add(CF1, Util.cellname("c1"), value, i);
+            CommitLog.instance.add(rm);
+        }
+        CommitLog.instance.sync(true);
+
+        File[] files = new File(DatabaseDescriptor.getCommitLogLocation()).listFiles(new FilenameFilter()
+        {
+            public boolean accept(File dir, String name)
+            {
+                return CommitLogDescriptor.isValid(name);
+            }
+        });
+        Arrays.sort(files, new CommitLogSegment.CommitLogSegmentFileComparator());
+        Assert.assertTrue(files.length > 2);
+
+        final List<Long> segmentOrder = Collections.synchronizedList(new ArrayList<Long>());
+        final ConcurrentMap<ByteBuffer, List<Integer>> applyOrder = new ConcurrentHashMap<>();
+        final ConcurrentMap<ByteBuffer, Set<Thread>> applyThreads = new ConcurrentHashMap<>();
+        CommitLogReplayer replayer = new CommitLogReplayer(CommitLog.instance,
+                                                           ReplayPosition.NONE,
+                                                           Collections.<UUID, ReplayPosition.ReplayFilter>emptyMap(),
+                                                           CommitLogReplayer.ReplayFilter.create())
+        {
+            @Override
+            void replayMutation(byte[] inputBuffer, int size, int entryLocation, CommitLogDescriptor desc, String path) throws IOException
+            {
+                segmentOrder.add(desc.id);
+                super.replayMutation(inputBuffer, size, entryLocation, desc, path);
+            }
+
+            @Override
+            void applyMutation(Mutation mutation, int entryLocation, CommitLogDescriptor desc)
+            {
+                ColumnFamily cf = mutation.getColumnFamily(cfId);
+                if (cf == null)
+                {
+                    super.applyMutation(mutation, entryLocation, desc);
+                    return;
+                }
+                applyOrder.putIfAbsent(mutation.key(), Collections.synchronizedList(new ArrayList<Integer>()));
+                applyOrder.get(mutation.key()).add(cf.getColumn(Util.cellname("c1")).value().getInt(0));
+                applyThreads.putIfAbsent(mutation.key(), Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>()));
+                applyThreads.get(mutation.key()).add(Thread.currentThread());
+                super.applyMutation(mutation, entryLocation, desc);
+            }
+        };
+        replayer.recover(files);
+        replayer.blockForWrites();
+
+        // the segments, read concurrently, are replayed one after the other in order
+        Assert.assertTrue(segmentOrder.size() >= count);
+        for (int i = 1; i < segmentOrder.size(); i++)
+            Assert.assertTrue(segmentOrder.get(i - 1) <= segmentOrder.get(i));
+        Assert.assertTrue(segmentOrder.get(0) < segmentOrder.get(segmentOrder.size() - 1));
+
+        // each partition is applied by a single thread, in commit log order, whichever segment its mutations are in
+        Assert.assertEquals(partitions, applyOrder.size());
+        for (Map.Entry<ByteBuffer, List<Integer>> entry : applyOrder.entrySet())
+        {
+            int key = entry.getKey().getInt(entry.getKey().position());
+            List<Integer> expected = new ArrayList<>();
+            for (int i = key; i < count; i += partitions)
+                expected.add(i);
+            Assert.assertEquals(expected, entry.getValue());
+            Assert.assertEquals(1, applyThreads.get(entry.getKey()).size());
+        }
+    }
+
     private static int getMaxRecordDataSize(String keyspace, ByteBuffer key, String table, CellName column)
     {
         Mutation rm = new Mutation(KEYSPACE1, bytes("k"));
@@ -20,6 +20,7 @@ package org.apache.cassandra.db.commitlog;
 
 import java.io.DataInputStream;
 import java.io.File;
+import java.io.FilenameFilter;
 import java.io.IOException;
 
 import com.google.common.base.Predicate;
@@ -42,7 +43,14 @@ public class CommitLogTestReplayer extends CommitLogReplayer
 
         CommitLogTestReplayer replayer = new CommitLogTestReplayer(CommitLog.instance, processor);
         File commitLogDir = new File(DatabaseDescriptor.getCommitLogLocation());
-        replayer.recover(commitLogDir.listFiles());
+        replayer.recover(commitLogDir.listFiles(new FilenameFilter()
+        {
+            public boolean accept(File dir, String name)
+            {
+                // skip the spare files kept by direct I/O segments
+                return CommitLogDescriptor.isValid(name);
+            }
+        }));
     }
 
     final private Predicate<Mutation> processor;
@@ -28,6 +28,7 @@ import org.junit.Test;
 import org.apache.cassandra.FilterExperiment;
 import org.apache.cassandra.SchemaLoader;
 import org.apache.cassandra.Util;
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.config.KSMetaData;
 import org.apache.cassandra.db.Cell;
 import org.apache.cassandra.db.ColumnFamily;
@@ -48,6 +49,7 @@ import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.apache.cassandra.locator.SimpleStrategy;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class CompactionAwareWriterTest
 {
@@ -176,6 +178,35 @@ public class CompactionAwareWriterTest
         cfs.truncateBlocking();
     }
 
+    @Test
+    public void testSubRangeCompaction()
+    {
+        Keyspace ks = Keyspace.open(KEYSPACE1);
+        ColumnFamilyStore cfs = ks.getColumnFamilyStore(CF);
+        cfs.disableAutoCompaction();
+        int rowCount = 10000;
+        populate(cfs, rowCount);
+        DatabaseDescriptor.setCompactionSubRanges(4);
+        DatabaseDescriptor.setCompactionSubRangeMinSizeInMB(0);
+        try
+        {
+            LifecycleTransaction txn = cfs.getTracker().tryModify(cfs.getSSTables(), OperationType.COMPACTION);
+            new CompactionTask(cfs, txn, cfs.gcBefore(System.currentTimeMillis()), false).execute(null);
+        }
+        finally
+        {
+            DatabaseDescriptor.setCompactionSubRanges(1);
+            DatabaseDescriptor.setCompactionSubRangeMinSizeInMB(1024);
+        }
+        List<SSTableReader> sortedSSTables = new ArrayList<>(cfs.getSSTables());
+        assertEquals(4, sortedSSTables.size());
+        Collections.sort(sortedSSTables, SSTableReader.sstableComparator);
+        for (int i = 1; i < sortedSSTables.size(); i++)
+            assertTrue(sortedSSTables.get(i - 1).last.compareTo(sortedSSTables.get(i).first) < 0);
+        validateData(cfs, rowCount);
+        cfs.truncateBlocking();
+    }
+
     private int compact(ColumnFamilyStore cfs, LifecycleTransaction txn, CompactionAwareWriter writer)
     {
         assert txn.originals().size() == 1;
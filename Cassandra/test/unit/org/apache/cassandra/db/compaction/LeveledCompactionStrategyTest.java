@@ -18,13 +18,16 @@
 package org.apache.cassandra.db.compaction;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 
@@ -61,6 +64,8 @@ import org.apache.cassandra.utils.FBUtilities;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 @RunWith(OrderedJUnit4ClassRunner.class)
@@ -470,6 +475,92 @@ public class LeveledCompactionStrategyTest
         }
     }
 
+    @Test
+    public void testConcurrentL0Compactions() throws Exception
+    {
+        cfs.disableAutoCompaction();
+        ByteBuffer value = ByteBuffer.wrap(new byte[100 * 1024]);
+        new Random().nextBytes(value.array());
+
+        // two sstables of each partition, which make up a bucket of L0 sstables that overlap no other
+        int partitions = 4;
+        for (int r = 0; r < partitions; r++)
+        {
+            DecoratedKey key = Util.dk(String.valueOf(r));
+            for (int f = 0; f < 2; f++)
+            {
+                Mutation rm = new Mutation(KEYSPACE1, key.getKey());
+                for (int c = 0; c < 10; c++)
+                    rm.add(CF_STANDARDDLEVELED, Util.cellname("column" + c), value, f);
+                rm.apply();
+                cfs.forceBlockingFlush();
+            }
+        }
+
+        LeveledCompactionStrategy strategy = (LeveledCompactionStrategy) ((WrappingCompactionStrategy) cfs.getCompactionStrategy()).getWrappedStrategies().get(1);
+        List<AbstractCompactionTask> tasks = new ArrayList<>();
+        try
+        {
+            AbstractCompactionTask task;
+            while ((task = strategy.getNextBackgroundTask(Integer.MIN_VALUE)) != null)
+                tasks.add(task);
+
+            // the buckets are compacted into L1 concurrently
+            assertEquals(partitions, tasks.size());
+            for (AbstractCompactionTask t : tasks)
+            {
+                Set<SSTableReader> sstables = t.transaction.originals();
+                assertEquals(2, sstables.size());
+                assertEquals(sstables, LeveledManifest.overlapping(sstables.iterator().next(), cfs.getSSTables()));
+            }
+        }
+        finally
+        {
+            for (AbstractCompactionTask t : tasks)
+                t.transaction.close();
+        }
+    }
+
+    @Test
+    public void testDisjointL0SSTables() throws Exception
+    {
+        cfs.disableAutoCompaction();
+        ByteBuffer value = ByteBuffer.wrap(new byte[100 * 1024]);
+        new Random().nextBytes(value.array());
+
+        // one sstable of each partition, as sharded flushes write them, so that no L0 sstable overlaps another
+        int partitions = 4;
+        for (int r = 0; r < partitions; r++)
+        {
+            Mutation rm = new Mutation(KEYSPACE1, Util.dk(String.valueOf(r)).getKey());
+            for (int c = 0; c < 10; c++)
+                rm.add(CF_STANDARDDLEVELED, Util.cellname("column" + c), value, 0);
+            rm.apply();
+            cfs.forceBlockingFlush();
+        }
+        assertEquals(partitions, cfs.getSSTables().size());
+
+        LeveledCompactionStrategy strategy = (LeveledCompactionStrategy) ((WrappingCompactionStrategy) cfs.getCompactionStrategy()).getWrappedStrategies().get(1);
+        AbstractCompactionTask task = strategy.getNextBackgroundTask(Integer.MIN_VALUE);
+        try
+        {
+            // they are compacted into L1 together, and nothing else in L0 is compacted meanwhile
+            assertNotNull(task);
+            assertEquals(new HashSet<>(cfs.getSSTables()), task.transaction.originals());
+            assertNull(strategy.getNextBackgroundTask(Integer.MIN_VALUE));
+        }
+        finally
+        {
+            if (task != null)
+                task.transaction.close();
+        }
+
+        // and they leave L0 once compacted
+        cfs.enableAutoCompaction();
+        waitForLeveling(cfs);
+        assertEquals(0, strategy.getLevelSize(0));
+    }
+
     private void resetState() {
         Collection<SSTableReader> sstables = cfs.getSSTables();
         cfs.clearUnsafe(false); // clears sstable file handles from memory
@@ -191,12 +191,25 @@ public class ViewTest
         Assert.assertEquals(memtable3, cur.getCurrentMemtable());
 
         SSTableReader sstable = MockSchema.sstable(1, cfs);
-        cur = View.replaceFlushed(memtable1, sstable).apply(cur);
+        cur = View.replaceFlushed(memtable1, of(sstable)).apply(cur);
         Assert.assertEquals(0, cur.flushingMemtables.size());
         Assert.assertEquals(1, cur.liveMemtables.size());
         Assert.assertEquals(memtable3, cur.getCurrentMemtable());
         Assert.assertEquals(1, cur.sstables.size());
         Assert.assertEquals(sstable, cur.sstablesMap.get(sstable));
+
+        // a sharded flush makes all of its sstables visible at once
+        cur = View.markFlushing(memtable3).apply(cur);
+        SSTableReader shard1 = MockSchema.sstable(2, cfs);
+        SSTableReader shard2 = MockSchema.sstable(3, cfs);
+        cur = View.replaceFlushed(memtable3, of(shard1, shard2)).apply(cur);
+        Assert.assertEquals(0, cur.flushingMemtables.size());
+        Assert.assertEquals(3, cur.sstables.size());
+        Assert.assertEquals(shard1, cur.sstablesMap.get(shard1));
+        Assert.assertEquals(shard2, cur.sstablesMap.get(shard2));
+        Assert.assertTrue(cur.premature.containsAll(of(shard1, shard2)));
+        cur = View.permitCompactionOfFlushed(of(shard1, shard2)).apply(cur);
+        Assert.assertFalse(cur.premature.contains(shard1) || cur.premature.contains(shard2));
     }
 
     static View fakeView(int memtableCount, int sstableCount, ColumnFamilyStore cfs)
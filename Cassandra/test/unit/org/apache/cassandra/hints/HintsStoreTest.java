@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.hints;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.UUID;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.Util;
+import org.apache.cassandra.config.KSMetaData;
+import org.apache.cassandra.db.Mutation;
+import org.apache.cassandra.exceptions.ConfigurationException;
+import org.apache.cassandra.io.util.FastByteArrayInputStream;
+import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.locator.SimpleStrategy;
+import org.apache.cassandra.utils.ByteBufferUtil;
+
+import static org.junit.Assert.*;
+
+public class HintsStoreTest
+{
+    private static final String KEYSPACE = "HintsStoreTest";
+    private static final String CF = "Standard1";
+
+    @BeforeClass
+    public static void defineSchema() throws ConfigurationException
+    {
+        SchemaLoader.prepareServer();
+        SchemaLoader.createKeyspace(KEYSPACE,
+                                    SimpleStrategy.class,
+                                    KSMetaData.optsWithRF(1),
+                                    SchemaLoader.standardCFMD(KEYSPACE, CF));
+    }
+
+    private static Hint hint(int key)
+    {
+        Mutation mutation = new Mutation(KEYSPACE, ByteBufferUtil.bytes(key));
+        mutation.add(CF, Util.cellname("c1"), ByteBufferUtil.bytes(key), 0);
+        return new Hint(mutation, System.currentTimeMillis(), 3600);
+    }
+
+    private static Hint read(HintsReader reader, HintsDescriptor descriptor) throws Exception
+    {
+        byte[] serializedHint = reader.readHint();
+        if (serializedHint == null)
+            return null;
+        return Hint.serializer.deserialize(new DataInputStream(new FastByteArrayInputStream(serializedHint)), descriptor.messagingVersion);
+    }
+
+    @Test
+    public void testWriteReadAndReload() throws Exception
+    {
+        File directory = FileUtils.createTempFile("hints", "");
+        directory.delete();
+        UUID hostId = UUID.randomUUID();
+
+        HintsStore store = HintsCatalog.load(directory).get(hostId);
+        for (int i = 0; i < 3; i++)
+            store.write(hint(i));
+        assertTrue(store.hasFiles());
+        store.closeWriter();
+        store.write(hint(3));
+        store.closeWriter();
+
+        // both files are found again, oldest first
+        store = HintsCatalog.load(directory).getIfPresent(hostId);
+        HintsDescriptor first = store.poll();
+        HintsDescriptor second = store.poll();
+        assertNull(store.poll());
+        assertTrue(first.timestamp < second.timestamp);
+
+        HintsReader reader = store.openReader(first);
+        for (int i = 0; i < 3; i++)
+            assertEquals(ByteBufferUtil.bytes(i), read(reader, first).mutation.key());
+        assertNull(read(reader, first));
+        reader.close();
+
+        // delivery resumes where it left off
+        reader = store.openReader(second);
+        assertNotNull(reader.readHint());
+        store.markDispatchOffset(second, reader.getPosition());
+        reader.close();
+        reader = store.openReader(second);
+        assertNull(reader.readHint());
+        reader.close();
+
+        store.delete(first);
+        store.delete(second);
+        assertFalse(store.hasFiles());
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    @Test
+    public void testDeleteAllHintsDuringDelivery() throws Exception
+    {
+        File directory = FileUtils.createTempFile("hints", "");
+        directory.delete();
+        UUID hostId = UUID.randomUUID();
+
+        HintsStore store = HintsCatalog.load(directory).get(hostId);
+        store.write(hint(0));
+        store.closeWriter();
+        store.write(hint(1));
+
+        // the file polled for delivery is deleted along with the others, and is not queued again
+        HintsDescriptor descriptor = store.poll();
+        store.deleteAllHints();
+        assertEquals(0, directory.listFiles().length);
+        assertNull(store.openReader(descriptor));
+        store.offerFirst(descriptor);
+        assertFalse(store.hasFiles());
+        assertNull(store.poll());
+    }
+
+    @Test
+    public void testCorruptedHint() throws Exception
+    {
+        File directory = FileUtils.createTempFile("hints", "");
+        directory.delete();
+        UUID hostId = UUID.randomUUID();
+
+        HintsStore store = HintsCatalog.load(directory).get(hostId);
+        store.write(hint(0));
+        int size = store.write(hint(1));
+        store.write(hint(2));
+        store.closeWriter();
+        HintsDescriptor descriptor = store.poll();
+
+        // corrupt the last byte of the second hint
+        File file = new File(directory, descriptor.fileName());
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+        {
+            long position = 2 * size - 5;
+            raf.seek(position);
+            byte b = raf.readByte();
+            raf.seek(position);
+            raf.writeByte(b + 1);
+        }
+
+        // the hints after a corrupted one are lost
+        HintsReader reader = store.openReader(descriptor);
+        assertEquals(ByteBufferUtil.bytes(0), read(reader, descriptor).mutation.key());
+        assertNull(reader.readHint());
+        reader.close();
+        store.delete(descriptor);
+    }
+}
@@ -21,12 +21,14 @@ package org.apache.cassandra.io.compress;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Random;
 
 import com.google.common.util.concurrent.RateLimiter;
 import org.junit.Test;
 
+import org.apache.cassandra.cache.ChunkCache;
 import org.apache.cassandra.db.composites.SimpleDenseCellNameType;
 import org.apache.cassandra.db.marshal.BytesType;
 import org.apache.cassandra.exceptions.ConfigurationException;
@@ -40,6 +42,7 @@ import org.apache.cassandra.io.util.RandomAccessReader;
 import org.apache.cassandra.io.util.SequentialWriter;
 import org.apache.cassandra.utils.SyncUtil;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -294,6 +297,77 @@ public class CompressedRandomAccessReaderTest
         }
     }
 
+    @Test
+    public void testChunkCache() throws IOException, ConfigurationException
+    {
+        File file = File.createTempFile("testChunkCache", "1");
+        file.deleteOnExit();
+
+        File metadata = new File(file.getPath() + ".meta");
+        metadata.deleteOnExit();
+
+        // three full chunks and a shorter last one
+        int chunkLength = 1024;
+        byte[] content = new byte[3 * chunkLength + 428];
+        for (int i = 0; i < content.length; i++)
+            content[i] = (byte) i;
+
+        MetadataCollector sstableMetadataCollector = new MetadataCollector(new SimpleDenseCellNameType(BytesType.instance));
+        CompressionParameters parameters = new CompressionParameters(SnappyCompressor.instance, chunkLength, Collections.<String, String>emptyMap());
+        try (SequentialWriter writer = new CompressedSequentialWriter(file, metadata.getPath(), parameters, sstableMetadataCollector))
+        {
+            writer.write(content);
+            writer.finish();
+        }
+
+        ChunkCache cache = new ChunkCache(1024 * 1024);
+        CompressionMetadata meta = new CompressionMetadata(metadata.getPath(), file.length());
+        try (ChannelProxy channel = new ChannelProxy(file))
+        {
+            // the first read decompresses and caches every chunk
+            long hits = cache.metrics.hits.getCount();
+            try (RandomAccessReader reader = new CompressedRandomAccessReader(channel, meta, null, null, cache))
+            {
+                byte[] read = new byte[content.length];
+                reader.readFully(read);
+                assertArrayEquals(content, read);
+                assertTrue(reader.isEOF());
+            }
+            assertEquals(4, cache.size());
+            assertEquals(hits, cache.metrics.hits.getCount());
+
+            // then every chunk is read from the cache, positioned within it
+            try (RandomAccessReader reader = new CompressedRandomAccessReader(channel, meta, null, null, cache))
+            {
+                reader.seek(2 * chunkLength + 100);
+                assertEquals(content[2 * chunkLength + 100], reader.readByte());
+                assertEquals(hits + 1, cache.metrics.hits.getCount());
+
+                // the last chunk is shorter, so reading it all leaves the reader at the end of the file
+                reader.seek(3 * chunkLength + 10);
+                byte[] read = new byte[content.length - 3 * chunkLength - 10];
+                reader.readFully(read);
+                assertArrayEquals(Arrays.copyOfRange(content, 3 * chunkLength + 10, content.length), read);
+                assertTrue(reader.isEOF());
+                assertEquals(0, reader.bytesRemaining());
+                assertEquals(hits + 2, cache.metrics.hits.getCount());
+
+                // a full chunk read after the shorter one is not truncated to its length
+                reader.seek(0);
+                read = new byte[chunkLength];
+                reader.readFully(read);
+                assertArrayEquals(Arrays.copyOf(content, chunkLength), read);
+                assertEquals(hits + 3, cache.metrics.hits.getCount());
+                assertEquals(content[chunkLength], reader.readByte());
+                assertEquals(hits + 4, cache.metrics.hits.getCount());
+            }
+        }
+        finally
+        {
+            cache.clear();
+        }
+    }
+
     private void updateChecksum(RandomAccessFile file, long checksumOffset, byte[] checksum) throws IOException
     {
         file.seek(checksumOffset);
@@ -18,6 +18,9 @@
 */
 package org.apache.cassandra.io.sstable;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -26,8 +29,10 @@ import static org.junit.Assert.*;
 import org.junit.Test;
 
 import org.apache.cassandra.Util;
+import org.apache.cassandra.db.TypeSizes;
 import org.apache.cassandra.db.composites.*;
 import org.apache.cassandra.db.marshal.IntegerType;
+import org.apache.cassandra.io.util.DataOutputBuffer;
 import static org.apache.cassandra.io.sstable.IndexHelper.IndexInfo;
 
 public class IndexHelperTest
@@ -47,6 +52,43 @@ public class IndexHelperTest
 
         CellNameType comp = new SimpleDenseCellNameType(IntegerType.instance);
 
+        assertIndexFor(indexes, comp);
+    }
+
+    @Test
+    public void testSerializedIndex() throws IOException
+    {
+        List<IndexInfo> indexes = new ArrayList<IndexInfo>();
+        indexes.add(new IndexInfo(cn(0L), cn(5L), 0, 10));
+        indexes.add(new IndexInfo(cn(10L), cn(15L), 10, 20));
+        indexes.add(new IndexInfo(cn(20L), cn(25L), 30, 40));
+
+        CellNameType comp = new SimpleDenseCellNameType(IntegerType.instance);
+        IndexInfo.Serializer serializer = new IndexInfo.Serializer(comp);
+
+        DataOutputBuffer out = new DataOutputBuffer();
+        serializer.serialize(indexes, out);
+        int size = (int) serializer.serializedSize(indexes, TypeSizes.NATIVE);
+        assertEquals(out.getLength(), size);
+
+        IndexHelper.SerializedIndex serialized = serializer.deserializeIndex(new DataInputStream(new ByteArrayInputStream(out.getData(), 0, out.getLength())), indexes.size(), size);
+        assertEquals(indexes.size(), serialized.size());
+        assertEquals(size, serializer.serializedSize(serialized, TypeSizes.NATIVE));
+        for (int i = 0; i < indexes.size(); i++)
+        {
+            IndexInfo expected = indexes.get(i);
+            IndexInfo actual = serialized.get(i);
+            assertEquals(0, comp.compare(expected.firstName, actual.firstName));
+            assertEquals(0, comp.compare(expected.lastName, actual.lastName));
+            assertEquals(expected.offset, actual.offset);
+            assertEquals(expected.width, actual.width);
+        }
+
+        assertIndexFor(serialized, comp);
+    }
+
+    private static void assertIndexFor(List<IndexInfo> indexes, CellNameType comp)
+    {
         assertEquals(0, IndexHelper.indexFor(cn(-1L), indexes, comp, false, -1));
         assertEquals(0, IndexHelper.indexFor(cn(5L), indexes, comp, false, -1));
         assertEquals(1, IndexHelper.indexFor(cn(12L), indexes, comp, false, -1));
@@ -26,6 +26,7 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
@@ -33,12 +34,14 @@ import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadPoolExecutor;
 
+import com.google.common.base.Supplier;
 import com.google.common.collect.Sets;
 import org.apache.cassandra.cache.CachingOptions;
 import org.apache.cassandra.config.KSMetaData;
 import org.apache.cassandra.io.sstable.Component;
 import org.apache.cassandra.io.sstable.Descriptor;
 import org.apache.cassandra.io.sstable.ISSTableScanner;
+import org.apache.cassandra.io.sstable.SSTableDeletingTask;
 import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.apache.cassandra.locator.SimpleStrategy;
 import org.junit.Assert;
@@ -55,10 +58,12 @@ import org.apache.cassandra.db.BufferDecoratedKey;
 import org.apache.cassandra.db.ColumnFamily;
 import org.apache.cassandra.db.ColumnFamilyStore;
 import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.db.IndexEntryBatch;
 import org.apache.cassandra.db.IndexExpression;
 import org.apache.cassandra.db.Keyspace;
 import org.apache.cassandra.db.Mutation;
 import org.apache.cassandra.db.Row;
+import org.apache.cassandra.db.RowIndexEntry;
 import org.apache.cassandra.db.RowPosition;
 import org.apache.cassandra.db.columniterator.IdentityQueryFilter;
 import org.apache.cassandra.db.compaction.CompactionManager;
@@ -79,6 +84,7 @@ import org.apache.cassandra.utils.Pair;
 import static org.apache.cassandra.Util.cellname;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 @RunWith(OrderedJUnit4ClassRunner.class)
@@ -196,6 +202,143 @@ public class SSTableReaderTest
         }
     }
 
+    @Test
+    public void testGetPositions() throws IOException
+    {
+        long originalMaxSegmentSize = MmappedSegmentedFile.MAX_SEGMENT_SIZE;
+        try
+        {
+            Keyspace keyspace = Keyspace.open(KEYSPACE1);
+            ColumnFamilyStore store = keyspace.getColumnFamilyStore("Standard1");
+
+            // insert a bunch of data and compact to a single sstable
+            CompactionManager.instance.disableAutoCompaction();
+            for (int j = 0; j < 100; j += 2)
+            {
+                ByteBuffer key = ByteBufferUtil.bytes(String.valueOf(j));
+                Mutation rm = new Mutation(KEYSPACE1, key);
+                rm.add("Standard1", cellname("0"), ByteBufferUtil.EMPTY_BYTE_BUFFER, j);
+                rm.applyUnsafe();
+            }
+            store.forceBlockingFlush();
+            CompactionManager.instance.performMaximal(store, false);
+            // the sstables reloaded below must not include the compacted ones, still being deleted
+            SSTableDeletingTask.waitForDeletions();
+
+            // present and absent keys, one of them twice
+            List<DecoratedKey> keys = new ArrayList<>();
+            for (int j = 0; j < 110; j++)
+                keys.add(Util.dk(String.valueOf(j)));
+            keys.add(Util.dk("42"));
+            Collections.sort(keys);
+
+            // with the index in one segment, then spanning many
+            for (long maxSegmentSize : new long[]{ originalMaxSegmentSize, 40 })
+            {
+                MmappedSegmentedFile.MAX_SEGMENT_SIZE = maxSegmentSize;
+                store.clearUnsafe();
+                store.loadNewSSTables();
+
+                SSTableReader sstable = store.getSSTables().iterator().next();
+                RowIndexEntry[] entries = sstable.getPositions(keys, false);
+                assertEquals(keys.size(), entries.length);
+                for (int i = 0; i < keys.size(); i++)
+                {
+                    RowIndexEntry expected = sstable.getPosition(keys.get(i), SSTableReader.Operator.EQ, false);
+                    if (expected == null)
+                        assertNull(keys.get(i).toString(), entries[i]);
+                    else
+                        assertEquals(keys.get(i).toString(), expected.position, entries[i].position);
+                }
+            }
+        }
+        finally
+        {
+            MmappedSegmentedFile.MAX_SEGMENT_SIZE = originalMaxSegmentSize;
+        }
+    }
+
+    @Test
+    public void testIndexEntryBatch() throws IOException
+    {
+        Keyspace keyspace = Keyspace.open(KEYSPACE1);
+        final ColumnFamilyStore store = keyspace.getColumnFamilyStore("Standard1");
+        store.clearUnsafe();
+
+        CompactionManager.instance.disableAutoCompaction();
+        for (int j = 0; j < 20; j += 2)
+        {
+            ByteBuffer key = ByteBufferUtil.bytes(String.valueOf(j));
+            Mutation rm = new Mutation(KEYSPACE1, key);
+            rm.add("Standard1", cellname("0"), ByteBufferUtil.EMPTY_BYTE_BUFFER, j);
+            rm.applyUnsafe();
+        }
+        store.forceBlockingFlush();
+
+        // the batch doesn't depend on the key cache
+        long keyCacheCapacity = CacheService.instance.keyCache.getCapacity();
+        CacheService.instance.keyCache.setCapacity(0);
+        try
+        {
+            final SSTableReader sstable = store.getSSTables().iterator().next();
+            final List<DecoratedKey> keys = new ArrayList<>();
+            IndexEntryBatch batch = new IndexEntryBatch(store);
+            for (int j = 0; j < 20; j++)
+            {
+                keys.add(Util.dk(String.valueOf(j)));
+                batch.add(keys.get(j));
+            }
+
+            long truePositives = sstable.getBloomFilterTruePositiveCount();
+            long falsePositives = sstable.getBloomFilterFalsePositiveCount();
+            batch.read(new Supplier<Void>()
+            {
+                public Void get()
+                {
+                    for (DecoratedKey key : keys)
+                    {
+                        IndexEntryBatch current = IndexEntryBatch.current();
+                        RowIndexEntry entry = sstable.getPosition(key, SSTableReader.Operator.EQ, true);
+                        if (current.contains(sstable, key))
+                            assertEquals(key.toString(), current.get(sstable, key), entry);
+                        else
+                            assertNull(key.toString(), entry);
+                    }
+                    return null;
+                }
+            });
+            assertNull(IndexEntryBatch.current());
+
+            // each present key is counted once, by its read
+            int present = 0;
+            for (DecoratedKey key : keys)
+            {
+                RowIndexEntry expected = sstable.getPosition(key, SSTableReader.Operator.EQ, false);
+                if (expected != null)
+                    present++;
+            }
+            assertEquals(10, present);
+            assertEquals(truePositives + present, sstable.getBloomFilterTruePositiveCount());
+            int absent = keys.size() - present - bloomFilterNegatives(sstable, keys);
+            assertEquals(falsePositives + absent, sstable.getBloomFilterFalsePositiveCount());
+        }
+        finally
+        {
+            CacheService.instance.keyCache.setCapacity(keyCacheCapacity);
+        }
+    }
+
+    private static int bloomFilterNegatives(SSTableReader sstable, List<DecoratedKey> keys)
+    {
+        int negatives = 0;
+        for (DecoratedKey key : keys)
+        {
+            if (!sstable.getBloomFilter().isPresent(key))
+                negatives++;
+        }
+        return negatives;
+    }
+
     @Test
     public void testPersistentStatistics()
     {
@@ -53,6 +53,47 @@ public class DynamicEndpointSnitchTest
         assertThat(dsnitch.getSnapshot(self)).isEqualTo(Optional.empty());
     }
 
+    @Test
+    public void testSnapshotKeepsLastTimings() throws IOException
+    {
+        SimpleSnitch ss = new SimpleSnitch();
+        DynamicEndpointSnitch dsnitch = new DynamicEndpointSnitch(ss, String.valueOf(ss.hashCode()));
+        InetAddress host = InetAddress.getByName("127.0.0.2");
+
+        for (int i = 0; i < 50; i++)
+            dsnitch.receiveTiming(host, 1000);
+        assertEquals(50, dsnitch.getSnapshot(host).get().size());
+
+        for (int i = 0; i < 100; i++)
+            dsnitch.receiveTiming(host, 10);
+        assertEquals(100, dsnitch.getSnapshot(host).get().size());
+        assertEquals(10, dsnitch.getSnapshot(host).get().getMax());
+    }
+
+    @Test
+    public void testSortManyHosts() throws InterruptedException, IOException, ConfigurationException
+    {
+        StorageService.instance.unsafeInitialize();
+        SimpleSnitch ss = new SimpleSnitch();
+        DynamicEndpointSnitch dsnitch = new DynamicEndpointSnitch(ss, String.valueOf(ss.hashCode()));
+        InetAddress self = FBUtilities.getBroadcastAddress();
+
+        // more hosts than get sorted in place, with the latencies in the reverse order of the addresses
+        List<InetAddress> hosts = new ArrayList<>();
+        Integer[] scores = new Integer[40];
+        for (int i = 0; i < scores.length; i++)
+        {
+            hosts.add(InetAddress.getByName("127.0.1." + i));
+            scores[i] = 10 * (scores.length - i);
+        }
+        setScores(dsnitch, 1, hosts, scores);
+
+        List<InetAddress> order = new ArrayList<>(hosts);
+        Collections.reverse(order);
+        assertEquals(order, dsnitch.getSortedListByProximity(self, hosts));
+        assertEquals(order.subList(30, 40), dsnitch.getSortedListByProximity(self, hosts.subList(0, 10)));
+    }
+
     @Test
     public void testSnitch() throws InterruptedException, IOException, ConfigurationException
     {
@@ -106,4 +147,47 @@ public class DynamicEndpointSnitchTest
         order = Arrays.asList(host1, host2, host3, host4);
         assertEquals(order, dsnitch.getSortedListByProximity(self, Arrays.asList(host1, host2, host3, host4)));
     }
+
+    @Test
+    public void testSortTiesForOtherTarget() throws InterruptedException, IOException, ConfigurationException
+    {
+        StorageService.instance.unsafeInitialize();
+        AddressDistanceSnitch ss = new AddressDistanceSnitch();
+        DynamicEndpointSnitch dsnitch = new DynamicEndpointSnitch(ss, String.valueOf(ss.hashCode()));
+        InetAddress host1 = InetAddress.getByName("127.0.0.2");
+        InetAddress host2 = InetAddress.getByName("127.0.0.3");
+        InetAddress host3 = InetAddress.getByName("127.0.0.4");
+        List<InetAddress> hosts = Arrays.asList(host1, host2, host3);
+
+        // host1 and host3 tie; host1 is closer to this node, but host3 is the closest to itself
+        setScores(dsnitch, 20, hosts, 10, 50, 10);
+        assertEquals(Arrays.asList(host1, host3, host2), dsnitch.getSortedListByProximity(FBUtilities.getBroadcastAddress(), hosts));
+        assertEquals(Arrays.asList(host3, host1, host2), dsnitch.getSortedListByProximity(host3, hosts));
+    }
+
+    // ranks endpoints by how far their last address byte is from the target's
+    private static class AddressDistanceSnitch extends AbstractEndpointSnitch
+    {
+        public String getRack(InetAddress endpoint)
+        {
+            return "rack1";
+        }
+
+        public String getDatacenter(InetAddress endpoint)
+        {
+            return "datacenter1";
+        }
+
+        public int compareEndpoints(InetAddress target, InetAddress a1, InetAddress a2)
+        {
+            return Integer.compare(distance(target, a1), distance(target, a2));
+        }
+
+        private static int distance(InetAddress target, InetAddress endpoint)
+        {
+            byte[] t = target.getAddress();
+            byte[] e = endpoint.getAddress();
+            return Math.abs((t[t.length - 1] & 0xff) - (e[e.length - 1] & 0xff));
+        }
+    }
 }
@@ -22,6 +22,9 @@ import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
@@ -41,10 +44,12 @@ import static org.junit.Assert.assertEquals;
 
 import static org.apache.cassandra.Util.token;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import org.apache.cassandra.OrderedJUnit4ClassRunner;
 import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.dht.Range;
 import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.service.StorageService;
 
@@ -351,4 +356,92 @@ public class TokenMetadataTest
         assertTrue(racks.get(DATA_CENTER).get(RACK1).contains(first));
         assertTrue(racks.get(DATA_CENTER).get(RACK2).contains(second));
     }
+
+    @Test
+    public void testCloneSharesTokenMapUntilChanged() throws UnknownHostException
+    {
+        TokenMetadata tokenMetadata = new TokenMetadata();
+        tokenMetadata.updateNormalToken(token(ONE), InetAddress.getByName("127.0.0.1"));
+        tokenMetadata.updateNormalToken(token(SIX), InetAddress.getByName("127.0.0.6"));
+
+        TokenMetadata clone = tokenMetadata.cloneOnlyTokenMap();
+        clone.updateNormalToken(token("3"), InetAddress.getByName("127.0.0.3"));
+        assertEquals(Arrays.asList(token(ONE), token(SIX)), tokenMetadata.sortedTokens());
+        assertFalse(tokenMetadata.isMember(InetAddress.getByName("127.0.0.3")));
+        assertEquals(Arrays.asList(token(ONE), token("3"), token(SIX)), clone.sortedTokens());
+
+        TokenMetadata secondClone = tokenMetadata.cloneOnlyTokenMap();
+        tokenMetadata.removeEndpoint(InetAddress.getByName("127.0.0.6"));
+        assertEquals(Arrays.asList(token(ONE)), tokenMetadata.sortedTokens());
+        assertEquals(Arrays.asList(token(ONE), token(SIX)), secondClone.sortedTokens());
+        assertEquals(InetAddress.getByName("127.0.0.6"), secondClone.getEndpoint(token(SIX)));
+    }
+
+    @Test
+    public void testIncrementalBootstrapRanges() throws UnknownHostException
+    {
+        String keyspace = "IncrementalBootstrapRanges";
+        InetAddress first = InetAddress.getByName("127.0.0.12");
+        InetAddress second = InetAddress.getByName("127.0.0.17");
+
+        // the pending ranges of a node bootstrapping after another one must not depend on whether the ranges of the
+        // first one were reused or calculated along with those of the second one
+        TokenMetadata incremental = ringOfFive();
+        AbstractReplicationStrategy strategy = new SimpleStrategy(keyspace, incremental, new SimpleSnitch(), Collections.singletonMap("replication_factor", "2"));
+        incremental.addBootstrapToken(token("12"), first);
+        incremental.calculatePendingRanges(strategy, keyspace);
+        incremental.addBootstrapToken(token("17"), second);
+        incremental.calculatePendingRanges(strategy, keyspace);
+
+        TokenMetadata full = ringOfFive();
+        full.addBootstrapToken(token("12"), first);
+        full.addBootstrapToken(token("17"), second);
+        full.calculatePendingRanges(new SimpleStrategy(keyspace, full, new SimpleSnitch(), Collections.singletonMap("replication_factor", "2")), keyspace);
+
+        for (InetAddress endpoint : Arrays.asList(first, second))
+        {
+            assertFalse(full.getPendingRanges(keyspace, endpoint).isEmpty());
+            assertEquals(new HashSet<>(full.getPendingRanges(keyspace, endpoint)),
+                         new HashSet<>(incremental.getPendingRanges(keyspace, endpoint)));
+        }
+
+        // a change of the ring invalidates the ranges of the bootstrapping nodes
+        incremental.updateNormalToken(token("15"), InetAddress.getByName("127.0.0.15"));
+        incremental.calculatePendingRanges(strategy, keyspace);
+        full.updateNormalToken(token("15"), InetAddress.getByName("127.0.0.15"));
+        full.calculatePendingRanges(new SimpleStrategy(keyspace, full, new SimpleSnitch(), Collections.singletonMap("replication_factor", "2")), keyspace);
+        for (InetAddress endpoint : Arrays.asList(first, second))
+            assertEquals(new HashSet<>(full.getPendingRanges(keyspace, endpoint)),
+                         new HashSet<>(incremental.getPendingRanges(keyspace, endpoint)));
+    }
+
+    @Test
+    public void testRemoveKeyspace() throws UnknownHostException
+    {
+        String keyspace = "RemoveKeyspace";
+        InetAddress bootstrapping = InetAddress.getByName("127.0.0.12");
+
+        TokenMetadata tokenMetadata = ringOfFive();
+        AbstractReplicationStrategy strategy = new SimpleStrategy(keyspace, tokenMetadata, new SimpleSnitch(), Collections.singletonMap("replication_factor", "2"));
+        tokenMetadata.addBootstrapToken(token("12"), bootstrapping);
+        tokenMetadata.calculatePendingRanges(strategy, keyspace);
+        List<Range<Token>> pendingRanges = tokenMetadata.getPendingRanges(keyspace, bootstrapping);
+        assertFalse(pendingRanges.isEmpty());
+
+        tokenMetadata.removeKeyspace(keyspace);
+        assertNull(tokenMetadata.getPendingRanges(keyspace));
+        assertTrue(tokenMetadata.pendingEndpointsFor(token("11"), keyspace).isEmpty());
+
+        // a keyspace created again under the same name starts over
+        tokenMetadata.calculatePendingRanges(strategy, keyspace);
+        assertEquals(new HashSet<>(pendingRanges), new HashSet<>(tokenMetadata.getPendingRanges(keyspace, bootstrapping)));
+    }
+
+    private static TokenMetadata ringOfFive() throws UnknownHostException
+    {
+        TokenMetadata tokenMetadata = new TokenMetadata();
+        for (int i = 1; i <= 5; i++)
+            tokenMetadata.updateNormalToken(token(String.valueOf(i * 10)), InetAddress.getByName("127.0.0." + i * 10));
+        return tokenMetadata;
+    }
 }
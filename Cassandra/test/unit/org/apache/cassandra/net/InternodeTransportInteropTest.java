@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.net;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.io.IVersionedSerializer;
+import org.apache.cassandra.io.util.DataOutputPlus;
+import org.apache.cassandra.utils.FBUtilities;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Sends messages through real loopback sockets from a connection of one internode transport to the incoming
+ * connection of the other, which is picked by the transport configured when the socket is accepted.
+ */
+public class InternodeTransportInteropTest
+{
+    private static final MessagingService.Verb VERB = MessagingService.Verb.UNUSED_1;
+    private static final int MESSAGES = 100;
+
+    private static volatile CountDownLatch latch;
+    private static final ConcurrentMap<Integer, byte[]> received = new ConcurrentHashMap<>();
+
+    @BeforeClass
+    public static void setUp()
+    {
+        SchemaLoader.prepareServer();
+        MessagingService.verbSerializers.put(VERB, PayloadSerializer.instance);
+        MessagingService.instance().registerVerbHandlers(VERB, new IVerbHandler<byte[]>()
+        {
+            public void doVerb(MessageIn<byte[]> message, int id)
+            {
+                received.put(ByteBuffer.wrap(message.payload).getInt(), message.payload);
+                latch.countDown();
+            }
+        });
+        MessagingService.instance().listen();
+    }
+
+    @AfterClass
+    public static void tearDown()
+    {
+        DatabaseDescriptor.setInternodeMessagingTransport(Config.InternodeMessagingTransport.blocking);
+        DatabaseDescriptor.setInternodeCompression(Config.InternodeCompression.none);
+        MessagingService.instance().shutdown();
+    }
+
+    @Test
+    public void testNettyToBlocking() throws Exception
+    {
+        testInterop(Config.InternodeMessagingTransport.netty, Config.InternodeMessagingTransport.blocking, Config.InternodeCompression.none);
+    }
+
+    @Test
+    public void testNettyToBlockingCompressed() throws Exception
+    {
+        testInterop(Config.InternodeMessagingTransport.netty, Config.InternodeMessagingTransport.blocking, Config.InternodeCompression.all);
+    }
+
+    @Test
+    public void testBlockingToNetty() throws Exception
+    {
+        testInterop(Config.InternodeMessagingTransport.blocking, Config.InternodeMessagingTransport.netty, Config.InternodeCompression.none);
+    }
+
+    @Test
+    public void testBlockingToNettyCompressed() throws Exception
+    {
+        testInterop(Config.InternodeMessagingTransport.blocking, Config.InternodeMessagingTransport.netty, Config.InternodeCompression.all);
+    }
+
+    private void testInterop(Config.InternodeMessagingTransport outbound,
+                             Config.InternodeMessagingTransport inbound,
+                             Config.InternodeCompression compression) throws Exception
+    {
+        DatabaseDescriptor.setInternodeMessagingTransport(inbound);
+        DatabaseDescriptor.setInternodeCompression(compression);
+        received.clear();
+        latch = new CountDownLatch(MESSAGES);
+
+        OutboundTcpConnectionPool pool = new OutboundTcpConnectionPool(FBUtilities.getLocalAddress());
+        OutboundConnection connection = outbound == Config.InternodeMessagingTransport.netty
+                                      ? new NettyOutboundConnection(pool, "Interop")
+                                      : new OutboundTcpConnection(pool, "Interop");
+        connection.start();
+        try
+        {
+            // large enough for compressed messages to span several LZ4 blocks
+            for (int i = 0; i < MESSAGES; i++)
+                connection.enqueue(new MessageOut<>(VERB, payload(i), PayloadSerializer.instance), i);
+
+            assertTrue(latch.await(1, TimeUnit.MINUTES));
+            assertEquals(MESSAGES, received.size());
+            for (int i = 0; i < MESSAGES; i++)
+                assertArrayEquals(payload(i), received.get(i));
+        }
+        finally
+        {
+            connection.closeSocket(true);
+        }
+    }
+
+    private static byte[] payload(int i)
+    {
+        byte[] payload = new byte[4 + (i * 997) % 40000];
+        for (int j = 4; j < payload.length; j++)
+            payload[j] = (byte) (i + j);
+        ByteBuffer.wrap(payload).putInt(i);
+        return payload;
+    }
+
+    private static class PayloadSerializer implements IVersionedSerializer<byte[]>
+    {
+        static final PayloadSerializer instance = new PayloadSerializer();
+
+        public void serialize(byte[] payload, DataOutputPlus out, int version) throws IOException
+        {
+            out.writeInt(payload.length);
+            out.write(payload);
+        }
+
+        public byte[] deserialize(DataInput in, int version) throws IOException
+        {
+            byte[] payload = new byte[in.readInt()];
+            in.readFully(payload);
+            return payload;
+        }
+
+        public long serializedSize(byte[] payload, int version)
+        {
+            return 4 + payload.length;
+        }
+    }
+}
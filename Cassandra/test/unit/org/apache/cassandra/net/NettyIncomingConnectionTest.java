@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.net;
+
+import java.net.InetAddress;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.apache.cassandra.io.util.DataOutputBuffer;
+import org.apache.cassandra.utils.UUIDGen;
+import org.apache.cassandra.utils.UUIDSerializer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NettyIncomingConnectionTest
+{
+    @Test
+    public void testFrameLength() throws Exception
+    {
+        testFrameLength(Collections.<String, byte[]>emptyMap());
+        testFrameLength(ImmutableMap.of("a", new byte[0], "parameter", new byte[]{ 1, 2, 3 }));
+    }
+
+    private void testFrameLength(Map<String, byte[]> parameters) throws Exception
+    {
+        MessageOut<UUID> message = new MessageOut<>(InetAddress.getByName("127.0.0.1"),
+                                                    MessagingService.Verb.ECHO,
+                                                    UUIDGen.getTimeUUID(),
+                                                    UUIDSerializer.serializer,
+                                                    parameters);
+        DataOutputBuffer out = new DataOutputBuffer();
+        out.writeInt(MessagingService.PROTOCOL_MAGIC);
+        out.writeInt(42);
+        out.writeInt((int) System.currentTimeMillis());
+        message.serialize(out, MessagingService.current_version);
+        int length = out.getLength();
+
+        // followed by the start of another message
+        ByteBuf buffer = Unpooled.buffer().writeBytes(out.getData(), 0, length).writeInt(MessagingService.PROTOCOL_MAGIC);
+        assertEquals(length, NettyIncomingConnection.frameLength(buffer));
+
+        // the length is known as soon as the payload size is, or not at all
+        for (int received = 0; received < length; received++)
+        {
+            int frameLength = NettyIncomingConnection.frameLength(buffer.slice(0, received));
+            assertTrue(frameLength == -1 || frameLength == length);
+            if (received >= length - message.payloadSize(MessagingService.current_version))
+                assertEquals(length, frameLength);
+        }
+    }
+}
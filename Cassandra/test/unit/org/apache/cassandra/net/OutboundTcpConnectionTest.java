@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.net;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.Test;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.net.OutboundTcpConnection.QueuedMessage;
+import org.apache.cassandra.utils.concurrent.MpscBlockingQueue;
+
+import static org.junit.Assert.assertEquals;
+
+public class OutboundTcpConnectionTest
+{
+    @Test
+    public void testExpireMessages()
+    {
+        long timeout = DatabaseDescriptor.getWriteRpcTimeout();
+        DatabaseDescriptor.setWriteRpcTimeout(1L);
+        try
+        {
+            BlockingQueue<QueuedMessage> backlog = new MpscBlockingQueue<>();
+            Lock consumerLock = new ReentrantLock();
+            AtomicLong dropped = new AtomicLong();
+            int max = OutboundTcpConnection.MAX_BACKLOG_BEFORE_EXPIRY;
+            for (int i = 0; i < max; i++)
+                backlog.offer(new QueuedMessage(new MessageOut(MessagingService.Verb.MUTATION), i));
+            Uninterruptibles.sleepUninterruptibly(10, TimeUnit.MILLISECONDS);
+
+            // timed out, but short enough for the consumer to expire them
+            OutboundTcpConnection.expireMessages(backlog, consumerLock, dropped);
+            assertEquals(max, backlog.size());
+            assertEquals(0, dropped.get());
+
+            // the timed out messages at the head are expired, up to the first one that can't be dropped
+            backlog.offer(new QueuedMessage(new MessageOut(MessagingService.Verb.GOSSIP_DIGEST_SYN), -1));
+            backlog.offer(new QueuedMessage(new MessageOut(MessagingService.Verb.MUTATION), -1));
+            Uninterruptibles.sleepUninterruptibly(10, TimeUnit.MILLISECONDS);
+            OutboundTcpConnection.expireMessages(backlog, consumerLock, dropped);
+            assertEquals(2, backlog.size());
+            assertEquals(max, dropped.get());
+            assertEquals(MessagingService.Verb.GOSSIP_DIGEST_SYN, backlog.peek().message.verb);
+        }
+        finally
+        {
+            DatabaseDescriptor.setWriteRpcTimeout(timeout);
+        }
+    }
+}
@@ -33,9 +33,13 @@ import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.gms.Gossiper;
 import org.apache.cassandra.service.ActiveRepairService;
 import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.MerkleTree;
+import org.apache.cassandra.utils.Pair;
 import org.apache.cassandra.utils.UUIDGen;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class RepairSessionTest
@@ -68,4 +72,43 @@ public class RepairSessionTest
             assertEquals(IOException.class, ex.getCause().getClass());
         }
     }
+
+    @Test
+    public void testTreesReleasedOnTermination() throws Exception
+    {
+        InetAddress remote = InetAddress.getByName("127.0.0.2");
+        IPartitioner p = Murmur3Partitioner.instance;
+        Range<Token> repairRange = new Range<>(p.getToken(ByteBufferUtil.bytes(0)), p.getToken(ByteBufferUtil.bytes(100)));
+        RepairSession session = new RepairSession(UUIDGen.getTimeUUID(), UUID.randomUUID(), repairRange, "Keyspace1", RepairParallelism.PARALLEL, Sets.newHashSet(remote), ActiveRepairService.UNREPAIRED_SSTABLE, "Standard1");
+        RepairJobDesc desc = new RepairJobDesc(session.parentRepairSession, session.getId(), "Keyspace1", "Standard1", repairRange);
+
+        ValidationTask task = new ValidationTask(desc, remote, 0);
+        session.waitForValidation(Pair.create(desc, remote), task);
+        MerkleTree tree = offHeapTree(p, repairRange);
+        session.validationComplete(desc, remote, tree);
+
+        // a sync task is still comparing the tree when the session fails
+        TreeResponse response = task.get();
+        assertTrue(response.startComparing());
+        session.forceShutdown(new IOException("failed"));
+        assertTrue(tree.isOffHeap());
+        assertFalse(response.startComparing());
+        response.doneComparing();
+        assertFalse(tree.isOffHeap());
+
+        // trees arriving once the session is terminated are released straight away
+        MerkleTree late = offHeapTree(p, repairRange);
+        session.validationComplete(desc, remote, late);
+        assertFalse(late.isOffHeap());
+    }
+
+    private static MerkleTree offHeapTree(IPartitioner p, Range<Token> range)
+    {
+        MerkleTree tree = new MerkleTree(p, range, MerkleTree.RECOMMENDED_DEPTH, 16);
+        tree.init();
+        for (MerkleTree.TreeRange r : tree.invalids())
+            r.ensureHashInitialised();
+        tree.moveOffHeap();
+        return tree;
+    }
 }
@@ -123,6 +123,9 @@ public class ValidatorTest
         assertEquals(desc, m.desc);
         assertTrue(((ValidationComplete) m).success);
         assertNotNull(((ValidationComplete) m).tree);
+        // the sink kept the message from being sent, which would have released the tree
+        assertTrue(tree.isOffHeap());
+        tree.release();
     }
 
     private static class CompactedRowStub extends AbstractCompactedRow
@@ -205,6 +208,45 @@ public class ValidatorTest
         TimeUnit.SECONDS.sleep(5);
 
         SSTableReader sstable = cfs.getSSTables().iterator().next();
+        MerkleTree tree = validate(cfs, sstable);
+
+        assertEquals(Math.pow(2, Math.ceil(Math.log(n) / Math.log(2))), tree.size(), 0.0);
+        assertEquals(tree.rowCount(), n);
+        tree.release();
+    }
+
+    @Test
+    public void parallelValidationTest() throws Exception
+    {
+        Keyspace ks = Keyspace.open(keyspace);
+        ColumnFamilyStore cfs = ks.getColumnFamilyStore(columnFamily);
+        cfs.clearUnsafe();
+        cfs.disableAutoCompaction();
+
+        int n = 1500;
+        CompactionsTest.populate(keyspace, columnFamily, 0, n, 0);
+        cfs.forceBlockingFlush();
+        SSTableReader sstable = cfs.getSSTables().iterator().next();
+
+        MerkleTree tree = validate(cfs, sstable);
+        CompactionManager.instance.setConcurrentValidations(4);
+        try
+        {
+            MerkleTree parallelTree = validate(cfs, sstable);
+            assertEquals(tree.size(), parallelTree.size());
+            assertEquals(tree.rowCount(), parallelTree.rowCount());
+            assertTrue(MerkleTree.difference(tree, parallelTree).isEmpty());
+            parallelTree.release();
+        }
+        finally
+        {
+            CompactionManager.instance.setConcurrentValidations(1);
+            tree.release();
+        }
+    }
+
+    private MerkleTree validate(ColumnFamilyStore cfs, SSTableReader sstable) throws Exception
+    {
         UUID repairSessionId = UUIDGen.getTimeUUID();
         final RepairJobDesc desc = new RepairJobDesc(repairSessionId, UUIDGen.getTimeUUID(), cfs.keyspace.getName(),
                                                cfs.getColumnFamilyName(), new Range<Token>(sstable.first.getToken(),
@@ -224,10 +266,8 @@ public class ValidatorTest
         assertEquals(RepairMessage.Type.VALIDATION_COMPLETE, m.messageType);
         assertEquals(desc, m.desc);
         assertTrue(((ValidationComplete) m).success);
-        MerkleTree tree = ((ValidationComplete) m).tree;
-
-        assertEquals(Math.pow(2, Math.ceil(Math.log(n) / Math.log(2))), tree.size(), 0.0);
-        assertEquals(tree.rowCount(), n);
+        MessagingService.instance().clearMessageSinks();
+        return ((ValidationComplete) m).tree;
     }
 
     private ListenableFuture<MessageOut> registerOutgoingMessageSink()
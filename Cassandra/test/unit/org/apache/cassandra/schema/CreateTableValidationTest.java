@@ -19,9 +19,13 @@
 package org.apache.cassandra.schema;
 
 import org.apache.cassandra.cql3.CQLTester;
+import org.apache.cassandra.db.Keyspace;
 import org.apache.cassandra.exceptions.ConfigurationException;
+import org.apache.cassandra.utils.FilterFactory;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.fail;
 
 public class CreateTableValidationTest extends CQLTester
@@ -48,4 +52,19 @@ public class CreateTableValidationTest extends CQLTester
         // sanity check
         createTable("CREATE TABLE %s (a int PRIMARY KEY, b int) WITH bloom_filter_fp_chance = 0.1");
     }
+
+    @Test
+    public void testBloomFilterTypeOnlyInSchemaWhenSet() throws Throwable
+    {
+        String table = createTable("CREATE TABLE %s (k int PRIMARY KEY, v int)");
+        String query = "SELECT bloom_filter_type FROM system.schema_columnfamilies WHERE keyspace_name = ? AND columnfamily_name = ?";
+        assertFalse(execute(query, KEYSPACE, table).one().has("bloom_filter_type"));
+
+        alterTable("ALTER TABLE %s WITH bloom_filter_type = 'blocked'");
+        assertEquals("blocked", execute(query, KEYSPACE, table).one().getString("bloom_filter_type"));
+
+        alterTable("ALTER TABLE %s WITH bloom_filter_type = 'standard'");
+        assertFalse(execute(query, KEYSPACE, table).one().has("bloom_filter_type"));
+        assertEquals(FilterFactory.Type.STANDARD, Keyspace.open(KEYSPACE).getColumnFamilyStore(table).metadata.getBloomFilterType());
+    }
 }
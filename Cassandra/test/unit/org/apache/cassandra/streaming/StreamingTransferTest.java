@@ -59,6 +59,7 @@ import org.apache.cassandra.dht.Range;
 import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.io.sstable.SSTableUtils;
 import org.apache.cassandra.locator.SimpleStrategy;
+import org.apache.cassandra.metrics.StreamingMetrics;
 import org.apache.cassandra.net.MessagingService;
 import org.apache.cassandra.service.StorageService;
 import org.apache.cassandra.utils.ByteBufferUtil;
@@ -68,6 +69,7 @@ import org.apache.cassandra.utils.OutputHandler;
 import org.apache.cassandra.utils.concurrent.Refs;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.fail;
 import static org.apache.cassandra.Util.cellname;
 import static org.apache.cassandra.Util.column;
@@ -396,8 +398,117 @@ public class StreamingTransferTest
         doTransferTable(true);
     }
 
+    @Test
+    public void testTransferTableViaRangesEntireSSTables() throws Exception
+    {
+        DatabaseDescriptor.setStreamEntireSSTables(true);
+        try
+        {
+            doTransferTable(false);
+        }
+        finally
+        {
+            DatabaseDescriptor.setStreamEntireSSTables(false);
+        }
+    }
+
+    @Test
+    public void testTransferEntireSSTable() throws Exception
+    {
+        DatabaseDescriptor.setStreamEntireSSTables(true);
+        try
+        {
+            doTransferEntireSSTable(true);
+        }
+        finally
+        {
+            DatabaseDescriptor.setStreamEntireSSTables(false);
+        }
+    }
+
+    @Test
+    public void testTransferEntireSSTableDisabled() throws Exception
+    {
+        doTransferEntireSSTable(false);
+    }
+
+    private void doTransferEntireSSTable(boolean entire) throws Exception
+    {
+        final Keyspace keyspace = Keyspace.open(KEYSPACE1);
+        final ColumnFamilyStore cfs = keyspace.getColumnFamilyStore(CF_STANDARD);
+        cfs.truncateBlocking();
+        try
+        {
+            doTransferEntireSSTable(cfs, entire);
+        }
+        finally
+        {
+            // the other tests of the table expect to find only the rows they write
+            cfs.truncateBlocking();
+        }
+    }
+
+    private void doTransferEntireSSTable(ColumnFamilyStore cfs, boolean entire) throws Exception
+    {
+        for (int i = 1; i <= 3; i++)
+        {
+            Mutation rm = new Mutation(KEYSPACE1, ByteBufferUtil.bytes("key" + i));
+            rm.add(CF_STANDARD, cellname("col" + i), ByteBufferUtil.bytes("value"), 1234);
+            rm.applyUnsafe();
+        }
+        cfs.forceBlockingFlush();
+        assertEquals(1, cfs.getSSTables().size());
+        SSTableReader sstable = cfs.getSSTables().iterator().next();
+
+        IPartitioner p = StorageService.getPartitioner();
+        Range<Token> all = new Range<>(p.getMinimumToken(), p.getMinimumToken());
+        // the left hand side of the range is exclusive, so it misses the first key of the sstable
+        Range<Token> some = new Range<>(p.getToken(ByteBufferUtil.bytes("key1")), p.getMinimumToken());
+        assertEquals(entire, StreamSession.canStreamEntireSSTable(Range.normalize(Arrays.asList(all)), sstable));
+        assertFalse(StreamSession.canStreamEntireSSTable(Range.normalize(Arrays.asList(some)), sstable));
+
+        long received = StreamingMetrics.entireSSTablesIncoming.getCount();
+        long beforeStreaming = System.currentTimeMillis();
+        new StreamPlan("StreamingTransferTest").transferRanges(LOCAL, KEYSPACE1, Arrays.asList(all), CF_STANDARD).execute().get();
+        verifyConnectionsAreClosed();
+        cfs.discardSSTables(beforeStreaming);
+
+        // confirm that the sstable was received as its component files if enabled, and opened with all of its rows
+        assertEquals(received + (entire ? 1 : 0), StreamingMetrics.entireSSTablesIncoming.getCount());
+        assertEquals(1, cfs.getSSTables().size());
+        assertEquals(3, Util.getRangeSlice(cfs).size());
+        for (int i = 1; i <= 3; i++)
+            assert cfs.getColumnFamily(QueryFilter.getIdentityFilter(Util.dk("key" + i), cfs.name, System.currentTimeMillis())) != null;
+    }
+
     @Test
     public void testTransferTableCounter() throws Exception
+    {
+        doTransferTableCounter();
+    }
+
+    @Test
+    public void testTransferTableCounterEntireSSTables() throws Exception
+    {
+        // counter sstables are streamed row by row even so, for the receiver to clear the local shards of the sender;
+        // the table is emptied before and after, as testTransferTableCounter expects to find only the rows it writes
+        ColumnFamilyStore cfs = Keyspace.open(KEYSPACE1).getColumnFamilyStore("Counter1");
+        cfs.truncateBlocking();
+        DatabaseDescriptor.setStreamEntireSSTables(true);
+        try
+        {
+            long received = StreamingMetrics.entireSSTablesIncoming.getCount();
+            doTransferTableCounter();
+            assertEquals(received, StreamingMetrics.entireSSTablesIncoming.getCount());
+        }
+        finally
+        {
+            DatabaseDescriptor.setStreamEntireSSTables(false);
+            cfs.truncateBlocking();
+        }
+    }
+
+    private void doTransferTableCounter() throws Exception
     {
         final Keyspace keyspace = Keyspace.open(KEYSPACE1);
         final ColumnFamilyStore cfs = keyspace.getColumnFamilyStore("Counter1");
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.transport;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.cql3.CQLTester;
+import org.apache.cassandra.cql3.QueryOptions;
+import org.apache.cassandra.db.ConsistencyLevel;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.dht.ByteOrderedPartitioner;
+import org.apache.cassandra.transport.messages.ExecuteMessage;
+import org.apache.cassandra.transport.messages.QueryMessage;
+import org.apache.cassandra.transport.messages.ResultMessage;
+
+public class ReadBatchingTest extends CQLTester
+{
+    private static final int READS = 100;
+
+    @BeforeClass
+    public static void setUp()
+    {
+        DatabaseDescriptor.setPartitioner(ByteOrderedPartitioner.instance);
+        requireNetwork();
+    }
+
+    @Test
+    public void testPipelinedReads() throws Throwable
+    {
+        createTable("CREATE TABLE %s (k int PRIMARY KEY, v int)");
+        for (int k = 0; k < READS; k++)
+            execute("INSERT INTO %s (k, v) VALUES (?, ?)", k, k * 10);
+
+        int batchSize = DatabaseDescriptor.getNativeTransportReadBatchSize();
+        DatabaseDescriptor.setNativeTransportReadBatchSize(16);
+        try (SimpleClient client = new SimpleClient(nativeAddr.getHostAddress(), nativePort))
+        {
+            client.connect(false);
+            String table = KEYSPACE + '.' + currentTable();
+            ResultMessage.Prepared prepared = client.prepare("SELECT v FROM " + table + " WHERE k = ?");
+
+            // the reads are batched, the write in the middle of them is not
+            List<Message.Request> requests = new ArrayList<>();
+            for (int k = 0; k < READS; k++)
+            {
+                if (k == READS / 2)
+                    requests.add(new QueryMessage("INSERT INTO " + table + " (k, v) VALUES (" + READS + ", 0)",
+                                                  QueryOptions.forInternalCalls(ConsistencyLevel.ONE, Collections.<ByteBuffer>emptyList())));
+                requests.add(new ExecuteMessage(prepared.statementId,
+                                                QueryOptions.forInternalCalls(ConsistencyLevel.ONE, Collections.singletonList(Int32Type.instance.decompose(k)))));
+            }
+
+            List<Message.Response> responses = client.execute(requests);
+            Assert.assertEquals(requests.size(), responses.size());
+
+            boolean[] read = new boolean[READS];
+            for (Message.Response response : responses)
+            {
+                Assert.assertTrue(response.toString(), response instanceof ResultMessage);
+                if (!(response instanceof ResultMessage.Rows))
+                    continue;
+
+                // the k of a read is that of the position of its request, skipping the write
+                int streamId = response.getStreamId();
+                int k = streamId > READS / 2 ? streamId - 1 : streamId;
+                List<List<ByteBuffer>> rows = ((ResultMessage.Rows) response).result.rows;
+                Assert.assertEquals(1, rows.size());
+                Assert.assertEquals(k * 10, (int) Int32Type.instance.compose(rows.get(0).get(0)));
+                read[k] = true;
+            }
+            for (int k = 0; k < READS; k++)
+                Assert.assertTrue("no response to the read of " + k, read[k]);
+        }
+        finally
+        {
+            DatabaseDescriptor.setNativeTransportReadBatchSize(batchSize);
+        }
+    }
+}
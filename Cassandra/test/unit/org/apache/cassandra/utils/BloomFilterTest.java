@@ -130,6 +130,67 @@ public class BloomFilterTest
         BloomFilterTest.testSerialize(bf).close();
     }
 
+    @Test
+    public void testBlockedSerialize() throws IOException
+    {
+        try (IFilter blocked = FilterFactory.getFilter(10000L, FilterTestHelper.MAX_FAILURE_RATE, FilterFactory.Type.BLOCKED, true);
+             IFilter restored = BloomFilterTest.testSerialize(blocked))
+        {
+            Assert.assertTrue(restored instanceof BlockedBloomFilter);
+            Assert.assertEquals(blocked.serializedSize(), restored.serializedSize());
+        }
+    }
+
+    @Test
+    public void testBlockedFalsePositives()
+    {
+        for (double fpChance : new double[]{ 0.1, 0.01, 0.001 })
+        {
+            try (IFilter blocked = FilterFactory.getFilter(FilterTestHelper.ELEMENTS, fpChance, FilterFactory.Type.BLOCKED, false))
+            {
+                ResetableIterator<ByteBuffer> keys = FilterTestHelper.randomKeys();
+                while (keys.hasNext())
+                    blocked.add(FilterTestHelper.wrap(keys.next()));
+
+                keys.reset();
+                while (keys.hasNext())
+                    Assert.assertTrue(blocked.isPresent(FilterTestHelper.wrap(keys.next())));
+
+                int fp = 0;
+                ResetableIterator<ByteBuffer> otherKeys = FilterTestHelper.randomKeys2();
+                while (otherKeys.hasNext())
+                {
+                    if (blocked.isPresent(FilterTestHelper.wrap(otherKeys.next())))
+                        fp++;
+                }
+                // leave some room for the variance of a sample of ELEMENTS keys
+                double maxFp = FilterTestHelper.ELEMENTS * fpChance;
+                Assert.assertTrue(fp + " false positives at " + fpChance, fp < maxFp + 3 * Math.sqrt(maxFp) + 1);
+            }
+        }
+    }
+
+    @Test
+    public void testBlockedSpec()
+    {
+        // a blocked filter needs slightly more room than a standard one for the same false positive rate
+        int maxBuckets = BloomCalculations.maxBucketsPerElement(10000);
+        BloomCalculations.BloomSpecification standard = BloomCalculations.computeBloomSpec(maxBuckets, 0.01);
+        BloomCalculations.BloomSpecification blocked = BloomCalculations.computeBlockedBloomSpec(BlockedBloomFilter.BLOCK_BITS, maxBuckets, 0.01);
+        Assert.assertTrue(blocked.bucketsPerElement >= standard.bucketsPerElement);
+        Assert.assertTrue(BloomCalculations.blockedFalsePositiveRate(BlockedBloomFilter.BLOCK_BITS, blocked.bucketsPerElement, blocked.K) <= 0.01);
+
+        // a rate of 0.001 is met within the cap of a standard filter
+        blocked = BloomCalculations.computeBlockedBloomSpec(BlockedBloomFilter.BLOCK_BITS, maxBuckets, 0.001);
+        Assert.assertTrue(blocked.bucketsPerElement <= maxBuckets);
+        Assert.assertTrue(BloomCalculations.blockedFalsePositiveRate(BlockedBloomFilter.BLOCK_BITS, blocked.bucketsPerElement, blocked.K) <= 0.001);
+
+        // the cap is honoured when the rate cannot be met, giving the most precise filter it allows
+        double min = BloomCalculations.minSupportedBloomFilterFpChance();
+        blocked = BloomCalculations.computeBlockedBloomSpec(BlockedBloomFilter.BLOCK_BITS, maxBuckets, min);
+        Assert.assertEquals(maxBuckets, blocked.bucketsPerElement);
+    }
+
     public void testManyHashes(Iterator<ByteBuffer> keys)
     {
         int MAX_HASH_COUNT = 128;
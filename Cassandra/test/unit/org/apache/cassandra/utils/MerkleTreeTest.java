@@ -401,6 +401,7 @@ public class MerkleTreeTest
         MerkleTree restored = MerkleTree.serializer.deserialize(in, MessagingService.current_version);
 
         assertHashEquals(initialhash, restored.hash(full));
+        restored.release();
     }
 
     @Test
@@ -439,6 +440,68 @@ public class MerkleTreeTest
         assertTrue(diffs.contains(new Range<>(leftmost.left, middle.right)));
     }
 
+    @Test
+    public void testOffHeap() throws Exception
+    {
+        Range<Token> full = new Range<>(tok(-1), tok(-1));
+        int maxsize = 16;
+        mt.maxsize(maxsize);
+        MerkleTree mt2 = new MerkleTree(partitioner, fullRange(), RECOMMENDED_DEPTH, maxsize);
+        mt.init();
+        mt2.init();
+
+        for (TreeRange range : mt.invalids())
+            range.addAll(new HIterator(range.right));
+        for (TreeRange range : mt2.invalids())
+            range.addAll(new HIterator(range.right));
+
+        // split the leftmost range of one tree, and change the hashes below it
+        mt.maxsize(maxsize + 2);
+        TreeRange leftmost = mt.invalids().next();
+        mt.split(leftmost.right);
+        mt.get(leftmost.right).hash("arbi".getBytes());
+        mt.get(partitioner.midpoint(leftmost.left, leftmost.right)).hash("trar".getBytes());
+        mt2.get(tok(5)).hash("ily!".getBytes());
+        List<TreeRange> diffs = MerkleTree.difference(mt, mt2);
+        assertEquals(diffs + " contains wrong number of differences:", 2, diffs.size());
+
+        MerkleTree restored = roundTrip(mt);
+        MerkleTree restored2 = roundTrip(mt2);
+        assertTrue(restored.isOffHeap());
+        assertHashEquals(mt.hash(full), restored.hash(full));
+        assertHashEquals(mt.hash(leftmost), restored.hash(leftmost));
+        assertEquals(diffs, MerkleTree.difference(restored, restored2));
+        assertEquals(diffs, MerkleTree.difference(mt, restored2));
+        MerkleTree copy = roundTrip(restored);
+        assertEquals(Collections.emptyList(), MerkleTree.difference(restored, copy));
+        copy.release();
+
+        // inner hashes have all been computed by hash(full), so both trees serialize the same
+        assertArrayEquals(serialize(mt), serialize(restored));
+        assertEquals(serialize(restored).length, MerkleTree.serializer.serializedSize(restored, MessagingService.current_version));
+
+        mt2.moveOffHeap();
+        assertTrue(mt2.isOffHeap());
+        assertEquals(diffs, MerkleTree.difference(restored, mt2));
+
+        restored.release();
+        restored2.release();
+        mt2.release();
+    }
+
+    private static byte[] serialize(MerkleTree tree) throws Exception
+    {
+        DataOutputBuffer out = new DataOutputBuffer();
+        MerkleTree.serializer.serialize(tree, out, MessagingService.current_version);
+        return out.toByteArray();
+    }
+
+    private static MerkleTree roundTrip(MerkleTree tree) throws Exception
+    {
+        ByteArrayDataInput in = ByteStreams.newDataInput(serialize(tree));
+        return MerkleTree.serializer.deserialize(in, MessagingService.current_version);
+    }
+
     /**
      * Return the root hash of a binary tree with leaves at the given depths
      * and with the given hash val in each leaf.
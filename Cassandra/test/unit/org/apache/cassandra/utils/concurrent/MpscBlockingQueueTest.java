@@ -0,0 +1,103 @@
+/*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*    http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*/
+package org.apache.cassandra.utils.concurrent;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MpscBlockingQueueTest
+{
+    @Test
+    public void testSingleThreaded() throws InterruptedException
+    {
+        MpscBlockingQueue<Integer> queue = new MpscBlockingQueue<>();
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+        assertNull(queue.peek());
+        assertNull(queue.poll(1, TimeUnit.MILLISECONDS));
+
+        for (int i = 0; i < 10; i++)
+            queue.offer(i);
+        assertEquals(10, queue.size());
+        assertEquals(0, (int) queue.peek());
+
+        Iterator<Integer> iter = queue.iterator();
+        for (int i = 0; i < 10; i++)
+            assertEquals(i, (int) iter.next());
+        assertFalse(iter.hasNext());
+
+        assertEquals(0, (int) queue.take());
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(4, queue.drainTo(drained, 4));
+        assertEquals(5, queue.size());
+        assertEquals(5, (int) queue.poll());
+
+        queue.clear();
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.size());
+        assertEquals(drained.toString(), "[1, 2, 3, 4]");
+    }
+
+    @Test
+    public void testConcurrentProducers() throws Throwable
+    {
+        final int producers = 4;
+        final int perProducer = 100000;
+        final MpscBlockingQueue<long[]> queue = new MpscBlockingQueue<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++)
+        {
+            final int producer = p;
+            Thread thread = new Thread()
+            {
+                public void run()
+                {
+                    for (int i = 0; i < perProducer; i++)
+                    {
+                        queue.offer(new long[]{ producer, i });
+                        if (i % 1000 == 0)
+                            Thread.yield();
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+
+        // each producer's elements are taken in the order they were added, waiting for them when needed
+        long[] expected = new long[producers];
+        for (int i = 0; i < producers * perProducer; i++)
+        {
+            long[] element = i % 2 == 0 ? queue.take() : queue.poll(1, TimeUnit.MINUTES);
+            assertNotNull(element);
+            assertEquals(expected[(int) element[0]]++, element[1]);
+        }
+
+        for (Thread thread : threads)
+            thread.join();
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.size());
+    }
+}